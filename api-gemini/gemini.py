@@ -1,6 +1,7 @@
 from flask import Flask, request, jsonify
 from flask_cors import CORS
 import os, datetime, json, requests, uuid, base64, shutil
+from concurrent.futures import ThreadPoolExecutor
 import pymysql
 from dotenv import load_dotenv
 from urllib.parse import urlparse
@@ -149,8 +150,10 @@ Return strictly this JSON only, no markdown or explanation.
 # ==========================================================
 # ✅ DUYỆT SẢN PHẨM BẰNG GEMINI
 # ==========================================================
-def approve_product_with_gemini(product_data, prompt):
-    media_urls = [f"{URL_IMAGE}{url}" for url in product_data.get("images", []) if url]
+def approve_product_with_gemini(product_data, prompt,
+                                instruction="Evaluate and return JSON strictly matching CreateProductDto."):
+    media_urls = [url if url.startswith("http") else f"{URL_IMAGE}{url}"
+                  for url in (product_data.get("images") or []) if url]
     downloaded = []
     for i, url in enumerate(media_urls):
         parsed = urlparse(url)
@@ -165,13 +168,13 @@ Product approval request:
 - Brand: {product_data.get('brand', '')}
 - CategoryId: {product_data.get('categoryId', '')}
 - ShopId: {product_data.get('shopId', '')}
-- Description: {product_data.get('description', '')[:500]}
+- Description: {(product_data.get('description') or '')[:500]}
 - Price range: {product_data.get('priceMin', 0)} - {product_data.get('priceMax', 0)} VND
 Images:
 {chr(10).join(['- ' + os.path.basename(f) for f in downloaded])}
 """
 
-    full_prompt = f"{prompt}\n\n{product_info}\n\nEvaluate and return JSON strictly matching CreateProductDto."
+    full_prompt = f"{prompt}\n\n{product_info}\n\n{instruction}"
 
     API_KEY = os.getenv("API_KEY")
     URL = f"https://generativelanguage.googleapis.com/v1beta/models/gemini-2.0-flash:generateContent?key={API_KEY}"
@@ -243,6 +246,63 @@ def ai_approval():
         return jsonify({"error": str(e)}), 500
 
 
+# ==========================================================
+# 📦 API DUYỆT SẢN PHẨM THEO BATCH (ProductApprovalWorker)
+# ==========================================================
+APPROVAL_BATCH_WORKERS = int(os.getenv("APPROVAL_BATCH_WORKERS", 4))
+DECISION_INSTRUCTION = """Evaluate and return JSON only, no markdown or explanation:
+{"status": 1, "content": "ly do"}   // 1 = duyet, 2 = khong duyet
+"""
+
+
+def load_decision_prompt():
+    paths = ["promt_approval.md", "./promt_approval.md", "api_gemini/promt_approval.md"]
+    for p in paths:
+        if os.path.exists(p):
+            with open(p, "r", encoding="utf-8") as f:
+                content = f.read()
+                if content.strip():
+                    return content
+    return None
+
+
+def decide_product(product, prompt):
+    prices = [v.get("price") for v in (product.get("variants") or []) if v.get("price") is not None]
+    product_data = dict(product, priceMin=min(prices, default=0), priceMax=max(prices, default=0))
+    decision = approve_product_with_gemini(product_data, prompt, DECISION_INSTRUCTION)
+    status = decision.get("status") if isinstance(decision, dict) else None
+    if status not in (1, 2):
+        # Bỏ khỏi results để phía Spring retry riêng sản phẩm này
+        print("[WARN] No decision for product", product.get("productId"), decision)
+        return None
+    return {"productId": product.get("productId"), "status": status, "content": decision.get("content")}
+
+
+@app.route("/ai_approval_product/batch", methods=["POST"])
+def ai_approval_product_batch():
+    """
+    Input JSON:  {"products": [{"productId", "name", "description", "brand", "categoryId",
+                               "shopId", "status", "images", "variants"}]}
+    Output JSON: {"results": [{"productId", "status": 1|2, "content"}]}
+    Sản phẩm không có quyết định hợp lệ sẽ không có trong results.
+    """
+    try:
+        data = request.get_json(silent=True) or {}
+        products = data.get("products")
+        if not isinstance(products, list):
+            return jsonify({"error": "Missing: products"}), 400
+
+        prompt = load_decision_prompt()
+        if not prompt:
+            return jsonify({"error": "Missing promt_approval.md"}), 500
+
+        with ThreadPoolExecutor(max_workers=max(1, min(APPROVAL_BATCH_WORKERS, len(products)))) as pool:
+            decisions = list(pool.map(lambda p: decide_product(p, prompt), products))
+        return jsonify({"results": [d for d in decisions if d]})
+    except Exception as e:
+        return jsonify({"error": str(e)}), 500
+
+
 # ==========================================================
 # 🤖 AI TRỢ LÝ MUA SẮM (SMART-MALL CHATBOT)
 # ==========================================================
@@ -0,0 +1,16 @@
+-- Migration: Add precomputed running flags for flash sales
+-- Date: 2026-10-17
+
+-- Flags are flipped at start/end time by FlashSaleTransitionScheduler
+ALTER TABLE flash_sales
+ADD COLUMN is_running BIT(1) NOT NULL DEFAULT 0;
+
+ALTER TABLE product_variants
+ADD COLUMN flash_sale_running BIT(1) NOT NULL DEFAULT 0;
+
+-- Initial values (the scheduler also reconciles them on every startup)
+UPDATE flash_sales
+SET is_running = COALESCE(status = 'APPROVED' AND is_deleted = 0 AND start_time <= NOW() AND end_time > NOW(), 0);
+
+UPDATE product_variants
+SET flash_sale_running = COALESCE(is_flash_sale = 1 AND flash_sale_start <= NOW() AND flash_sale_end > NOW(), 0);
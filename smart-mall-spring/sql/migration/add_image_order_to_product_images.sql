@@ -0,0 +1,26 @@
+-- Migration: Keep product images in the order the seller uploaded them
+-- Date: 2026-10-17
+
+-- Product.images is an @OrderColumn list: the thumbnail is the image at position 0.
+-- Existing rows have no recorded order; they are numbered by URL so current thumbnails
+-- (previously the smallest URL) do not change. Rebuilt through a copy so duplicate URLs
+-- of one product still get distinct positions.
+CREATE TABLE product_images_ordered AS
+SELECT product_id,
+       image_url,
+       ROW_NUMBER() OVER (PARTITION BY product_id ORDER BY image_url) - 1 AS image_order
+FROM product_images;
+
+DELETE FROM product_images;
+
+ALTER TABLE product_images
+ADD COLUMN image_order INT NOT NULL;
+
+INSERT INTO product_images (product_id, image_url, image_order)
+SELECT product_id, image_url, image_order
+FROM product_images_ordered;
+
+DROP TABLE product_images_ordered;
+
+ALTER TABLE product_images
+ADD PRIMARY KEY (product_id, image_order);
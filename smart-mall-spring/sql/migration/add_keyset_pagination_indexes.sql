@@ -0,0 +1,16 @@
+-- Migration: Indexes for keyset (cursor) pagination on (created_at, id)
+-- Date: 2026-10-17
+
+-- Product grid: ACTIVE, not deleted, newest first (optionally by category / shop)
+CREATE INDEX idx_products_listing ON products (is_deleted, status, created_at, id);
+CREATE INDEX idx_products_category_listing ON products (category_id, is_deleted, status, created_at, id);
+CREATE INDEX idx_products_shop_listing ON products (shop_id, is_deleted, status, created_at, id);
+
+-- Shop order list
+CREATE INDEX idx_orders_shop_created ON orders (shop_id, created_at, id);
+
+-- User notification feed
+CREATE INDEX idx_notifications_user_created ON notifications (user_id, created_at, id);
+
+-- Flash sale list
+CREATE INDEX idx_flash_sales_deleted_created ON flash_sales (is_deleted, created_at, id);
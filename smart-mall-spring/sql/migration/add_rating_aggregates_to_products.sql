@@ -0,0 +1,29 @@
+-- Migration: Add denormalized rating aggregates to products
+-- Date: 2026-10-17
+
+-- Maintained by ReviewService on review create/delete, reconciled nightly
+ALTER TABLE products
+ADD COLUMN rating_sum BIGINT NOT NULL DEFAULT 0,
+ADD COLUMN review_count BIGINT NOT NULL DEFAULT 0,
+ADD COLUMN rating_1_count BIGINT NOT NULL DEFAULT 0,
+ADD COLUMN rating_2_count BIGINT NOT NULL DEFAULT 0,
+ADD COLUMN rating_3_count BIGINT NOT NULL DEFAULT 0,
+ADD COLUMN rating_4_count BIGINT NOT NULL DEFAULT 0,
+ADD COLUMN rating_5_count BIGINT NOT NULL DEFAULT 0;
+
+-- Initial values from existing reviews
+UPDATE products p
+LEFT JOIN (
+    SELECT product_id, SUM(rating) AS s, COUNT(*) AS c,
+           SUM(rating = 1) AS r1, SUM(rating = 2) AS r2, SUM(rating = 3) AS r3,
+           SUM(rating = 4) AS r4, SUM(rating = 5) AS r5
+    FROM reviews
+    GROUP BY product_id
+) r ON r.product_id = p.id
+SET p.rating_sum = COALESCE(r.s, 0),
+    p.review_count = COALESCE(r.c, 0),
+    p.rating_1_count = COALESCE(r.r1, 0),
+    p.rating_2_count = COALESCE(r.r2, 0),
+    p.rating_3_count = COALESCE(r.r3, 0),
+    p.rating_4_count = COALESCE(r.r4, 0),
+    p.rating_5_count = COALESCE(r.r5, 0);
@@ -0,0 +1,10 @@
+-- Migration: Add token version to users for access-token revocation
+-- Date: 2026-10-17
+
+-- Bumped (with tokens_revoked_at) by TokenRevocationService to revoke every token of a user
+ALTER TABLE users
+ADD COLUMN token_version INT NOT NULL DEFAULT 0,
+ADD COLUMN tokens_revoked_at DATETIME(6) NULL;
+
+-- Deny-list sync reads the users revoked within the access-token lifetime
+CREATE INDEX idx_users_tokens_revoked_at ON users (tokens_revoked_at);
@@ -0,0 +1,19 @@
+-- Migration: Create materialized daily order aggregate for the admin dashboard
+-- Date: 2026-10-17
+
+-- One row per (order creation date, order status), maintained by DailyOrderStatsService
+CREATE TABLE IF NOT EXISTS daily_order_stats (
+    stat_date DATE NOT NULL,
+    status VARCHAR(30) NOT NULL,
+    order_count BIGINT NOT NULL DEFAULT 0,
+    total_amount DOUBLE NOT NULL DEFAULT 0,
+    PRIMARY KEY (stat_date, status)
+);
+
+-- Initial backfill (also done on startup when the table is empty)
+INSERT INTO daily_order_stats (stat_date, status, order_count, total_amount)
+SELECT DATE(created_at), status, COUNT(*), COALESCE(SUM(total_amount), 0)
+FROM orders
+WHERE status IS NOT NULL
+GROUP BY DATE(created_at), status
+ON DUPLICATE KEY UPDATE order_count = VALUES(order_count), total_amount = VALUES(total_amount);
@@ -0,0 +1,22 @@
+-- Migration: Create outbound email queue table
+-- Date: 2026-10-17
+
+-- Emails are inserted in the caller's transaction and sent in batches by the mail dispatcher,
+-- which claims rows with FOR UPDATE SKIP LOCKED
+CREATE TABLE IF NOT EXISTS outbound_emails (
+    id BINARY(16) NOT NULL PRIMARY KEY,
+    to_address VARCHAR(255) NOT NULL,
+    subject VARCHAR(255) NOT NULL,
+    body TEXT NOT NULL,
+    template VARCHAR(50),
+    status VARCHAR(20) NOT NULL,
+    attempts INT NOT NULL DEFAULT 0,
+    available_at DATETIME(6) NOT NULL,
+    lease_owner VARCHAR(100),
+    lease_expires_at DATETIME(6),
+    last_error TEXT,
+    sent_at DATETIME(6),
+    created_at DATETIME(6),
+    updated_at DATETIME(6),
+    INDEX idx_outbound_emails_status_available (status, available_at)
+);
@@ -0,0 +1,22 @@
+-- Migration: Create durable product approval job table
+-- Date: 2026-10-17
+
+-- One row per product (primary key = product_id), claimed by workers with FOR UPDATE SKIP LOCKED
+CREATE TABLE IF NOT EXISTS product_approval_jobs (
+    product_id BINARY(16) NOT NULL PRIMARY KEY,
+    status VARCHAR(20) NOT NULL,
+    attempts INT NOT NULL DEFAULT 0,
+    available_at DATETIME(6) NOT NULL,
+    lease_owner VARCHAR(100),
+    lease_expires_at DATETIME(6),
+    last_error TEXT,
+    created_at DATETIME(6),
+    updated_at DATETIME(6),
+    INDEX idx_approval_jobs_status_available (status, available_at)
+);
+
+-- Seed jobs for products already waiting for approval
+INSERT IGNORE INTO product_approval_jobs (product_id, status, attempts, available_at, created_at, updated_at)
+SELECT id, 'PENDING', 0, NOW(6), NOW(6), NOW(6)
+FROM products
+WHERE status = 'INACTIVE' AND is_deleted = 0;
@@ -0,0 +1,33 @@
+-- Migration: Create materialized per-shop, per-month review aggregate for seller dashboards
+-- Date: 2026-10-17
+
+-- One row per (shop, month of review), maintained by ShopReviewStatsService in the review/reply transaction
+CREATE TABLE IF NOT EXISTS shop_monthly_review_stats (
+    shop_id BINARY(16) NOT NULL,
+    stat_month CHAR(7) NOT NULL COMMENT 'YYYY-MM',
+    review_count BIGINT NOT NULL DEFAULT 0,
+    rating_sum BIGINT NOT NULL DEFAULT 0,
+    rating_1_count BIGINT NOT NULL DEFAULT 0,
+    rating_2_count BIGINT NOT NULL DEFAULT 0,
+    rating_3_count BIGINT NOT NULL DEFAULT 0,
+    rating_4_count BIGINT NOT NULL DEFAULT 0,
+    rating_5_count BIGINT NOT NULL DEFAULT 0,
+    replied_count BIGINT NOT NULL DEFAULT 0,
+    PRIMARY KEY (shop_id, stat_month)
+);
+
+-- Initial backfill (also done on startup when the table is empty)
+INSERT INTO shop_monthly_review_stats (shop_id, stat_month, review_count, rating_sum,
+    rating_1_count, rating_2_count, rating_3_count, rating_4_count, rating_5_count, replied_count)
+SELECT p.shop_id, DATE_FORMAT(COALESCE(r.reviewed_at, r.created_at), '%Y-%m'), COUNT(*),
+       COALESCE(SUM(r.rating), 0), SUM(r.rating = 1), SUM(r.rating = 2), SUM(r.rating = 3),
+       SUM(r.rating = 4), SUM(r.rating = 5),
+       SUM(EXISTS (SELECT 1 FROM review_replies rr WHERE rr.review_id = r.id))
+FROM reviews r
+JOIN products p ON r.product_id = p.id
+WHERE p.shop_id IS NOT NULL AND COALESCE(r.reviewed_at, r.created_at) IS NOT NULL
+GROUP BY p.shop_id, DATE_FORMAT(COALESCE(r.reviewed_at, r.created_at), '%Y-%m')
+ON DUPLICATE KEY UPDATE review_count = VALUES(review_count), rating_sum = VALUES(rating_sum),
+    rating_1_count = VALUES(rating_1_count), rating_2_count = VALUES(rating_2_count),
+    rating_3_count = VALUES(rating_3_count), rating_4_count = VALUES(rating_4_count),
+    rating_5_count = VALUES(rating_5_count), replied_count = VALUES(replied_count);
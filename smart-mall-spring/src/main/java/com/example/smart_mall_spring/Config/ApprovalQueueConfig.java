@@ -1,10 +1,9 @@
 package com.example.smart_mall_spring.Config;
 
-import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.Executor;
-import java.util.concurrent.LinkedBlockingQueue;
 
-import com.example.smart_mall_spring.Models.ApprovalMessage;
+import com.example.smart_mall_spring.Utils.TokenBucketRateLimiter;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.scheduling.annotation.EnableAsync;
@@ -18,21 +17,25 @@ import org.springframework.web.client.RestTemplate;
 @EnableScheduling
 public class ApprovalQueueConfig {
 
-    @Bean("productApprovalQueue")
-    public BlockingQueue<ApprovalMessage> approvalQueue() {
-        return new LinkedBlockingQueue<>(100); // Max 100 phòng chờ duyệt trong queue
-    }
-
     @Bean("approvalTaskExecutor")
-    public Executor approvalTaskExecutor() {
+    public Executor approvalTaskExecutor(@Value("${approval.concurrency:3}") int concurrency) {
         ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
-        executor.setCorePoolSize(2); // 2 thread xử lý cùng lúc
-        executor.setMaxPoolSize(3); // Tối đa 3 thread (tránh rate limit Gemini)
+        executor.setCorePoolSize(concurrency); // số request AI chạy song song
+        executor.setMaxPoolSize(concurrency);
         executor.setQueueCapacity(100);
         executor.setThreadNamePrefix("gemini-approval-");
         executor.initialize();
         return executor;
     }
+
+    @Bean("approvalRateLimiter")
+    public TokenBucketRateLimiter approvalRateLimiter(
+            @Value("${approval.ai.requests-per-minute:15}") double requestsPerMinute,
+            @Value("${approval.ai.burst:3}") int burst) {
+        // Khớp quota của AI endpoint (Gemini free tier: 15 RPM)
+        return new TokenBucketRateLimiter(requestsPerMinute, burst);
+    }
+
     @Bean
     public RestTemplate restTemplate() {
         return new RestTemplate();
@@ -19,6 +19,26 @@ public class CustomUserDetails implements UserDetails {
         this.user = user;
     }
     
+    /**
+     * Principal rebuilt from access-token claims without a database read. The user only carries
+     * id, username, role names and token version: load the entity when anything else is needed.
+     */
+    public static CustomUserDetails fromClaims(UUID id, String username, List<String> roleNames, int tokenVersion) {
+        User user = new User();
+        user.setId(id);
+        user.setUsername(username);
+        user.setIsActive(1);
+        user.setTokenVersion(tokenVersion);
+        user.setRoles(roleNames.stream()
+                .map(name -> {
+                    Role role = new Role();
+                    role.setName(name);
+                    return role;
+                })
+                .collect(Collectors.toList()));
+        return new CustomUserDetails(user);
+    }
+
     public User getUser() {
         return user;
     }
@@ -27,6 +47,14 @@ public class CustomUserDetails implements UserDetails {
         return user.getId();
     }
     
+    public List<String> getRoleNames() {
+        List<Role> roles = user.getRoles();
+        if (roles == null) {
+            return List.of();
+        }
+        return roles.stream().map(Role::getName).collect(Collectors.toList());
+    }
+    
     @Override
     public Collection<? extends GrantedAuthority> getAuthorities() {
         List<Role> roles = user.getRoles();
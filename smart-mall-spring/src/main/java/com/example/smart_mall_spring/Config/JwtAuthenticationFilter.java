@@ -1,7 +1,8 @@
 package com.example.smart_mall_spring.Config;
 
-import com.example.smart_mall_spring.Services.Auth.CustomUserDetailsService;
+import com.example.smart_mall_spring.Services.Auth.JwtPrincipalResolver;
 import com.example.smart_mall_spring.Services.Auth.JwtService;
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -16,6 +17,7 @@ import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.util.Optional;
 
 @Component
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
@@ -24,7 +26,7 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     private JwtService jwtService;
 
     @Autowired
-    private CustomUserDetailsService userDetailsService;
+    private JwtPrincipalResolver jwtPrincipalResolver;
 
     @Override
     protected void doFilterInternal(
@@ -55,12 +57,16 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         }
 
         jwt = authHeader.substring(7);
-        username = jwtService.extractUsername(jwt);
+        // Parse and verify once; the claims are reused for the validity check
+        final Claims claims = jwtService.parseToken(jwt);
+        username = claims.getSubject();
 
         if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-            UserDetails userDetails = this.userDetailsService.loadUserByUsername(username);
+            // Principal from the token's claims (no DB read) or, for older tokens, the cached user lookup
+            Optional<CustomUserDetails> principal = jwtPrincipalResolver.resolve(claims);
 
-            if (jwtService.isTokenValid(jwt, userDetails)) {
+            if (principal.isPresent()) {
+                UserDetails userDetails = principal.get();
                 UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
                         userDetails,
                         null,
@@ -0,0 +1,24 @@
+package com.example.smart_mall_spring.Config;
+
+import java.util.concurrent.Executor;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+
+@Configuration
+public class MailQueueConfig {
+
+    @Bean("mailTaskExecutor")
+    public Executor mailTaskExecutor(@Value("${mail.queue.workers:2}") int workers) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(workers); // mỗi worker giữ một kết nối SMTP cho cả batch
+        executor.setMaxPoolSize(workers);
+        executor.setQueueCapacity(workers);
+        executor.setThreadNamePrefix("mail-sender-");
+        executor.initialize();
+        return executor;
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.smart_mall_spring.Config;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadPoolExecutor;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+
+@Configuration
+public class NotificationFanoutConfig {
+
+    @Bean("notificationPushExecutor")
+    public Executor notificationPushExecutor(@Value("${notification.fanout.push-threads:2}") int threads,
+                                             @Value("${notification.fanout.push-queue:50}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity); // mỗi task là một batch WebSocket message
+        // Hàng đợi đầy: thread fan-out tự push, chậm lại thay vì giữ hết batch trong bộ nhớ
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setThreadNamePrefix("notification-push-");
+        executor.initialize();
+        return executor;
+    }
+}
@@ -1,6 +1,8 @@
 package com.example.smart_mall_spring.Config;
 
+import com.example.smart_mall_spring.Services.Auth.JwtPrincipalResolver;
 import com.example.smart_mall_spring.Services.Auth.JwtService;
+import io.jsonwebtoken.Claims;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.messaging.Message;
@@ -11,16 +13,17 @@ import org.springframework.messaging.support.ChannelInterceptor;
 import org.springframework.messaging.support.MessageHeaderAccessor;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.stereotype.Component;
 
+import java.util.Optional;
+
 @Component
 @RequiredArgsConstructor
 @Slf4j
 public class WebSocketAuthInterceptor implements ChannelInterceptor {
 
     private final JwtService jwtService;
-    private final UserDetailsService userDetailsService;
+    private final JwtPrincipalResolver jwtPrincipalResolver;
 
     @Override
     public Message<?> preSend(Message<?> message, MessageChannel channel) {
@@ -33,13 +36,15 @@ public class WebSocketAuthInterceptor implements ChannelInterceptor {
             if (authHeader != null && authHeader.startsWith("Bearer ")) {
                 String token = authHeader.substring(7);
                 try {
-                    String username = jwtService.extractUsername(token);
+                    Claims claims = jwtService.parseToken(token);
+                    String username = claims.getSubject();
                     log.info("👤 [WS] Extracted username: {}", username);
 
                     if (username != null) {
-                        UserDetails userDetails = userDetailsService.loadUserByUsername(username);
+                        Optional<CustomUserDetails> principal = jwtPrincipalResolver.resolve(claims);
 
-                        if (jwtService.isTokenValid(token, userDetails)) {
+                        if (principal.isPresent()) {
+                            UserDetails userDetails = principal.get();
                             UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(
                                     userDetails,
                                     null,
@@ -91,6 +91,17 @@ public class CategoryController {
         return ResponseEntity.ok(ApiResponse.success("Root categories retrieved successfully", result));
     }
 
+    /**
+     * Get the whole category tree (all levels nested, with subtree product counts)
+     * GET /api/categories/tree
+     */
+    @GetMapping("/tree")
+    public ResponseEntity<ApiResponse<List<CategoryResponseDto>>> getCategoryTree() {
+        log.info("REST request to get category tree");
+        List<CategoryResponseDto> result = categoryService.getCategoryTree();
+        return ResponseEntity.ok(ApiResponse.success("Category tree retrieved successfully", result));
+    }
+
     /**
      * Get all root categories with pagination
      * GET /api/categories/root/paged?page=0&size=20
@@ -1,8 +1,10 @@
 package com.example.smart_mall_spring.Controllers;
 
+import com.example.smart_mall_spring.Dtos.Common.CursorSliceDto;
 import com.example.smart_mall_spring.Dtos.FlashSale.*;
 import com.example.smart_mall_spring.Enum.Status;
 import com.example.smart_mall_spring.Exception.ApiResponse;
+import com.example.smart_mall_spring.Services.FlashSale.FlashSaleCatalogService;
 import com.example.smart_mall_spring.Services.FlashSale.FlashSaleService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
@@ -20,6 +22,7 @@ import java.util.UUID;
 public class FlashSaleController {
     
     private final FlashSaleService flashSaleService;
+    private final FlashSaleCatalogService flashSaleCatalogService;
     
     /**
      * Create a new flash sale
@@ -104,6 +107,23 @@ public class FlashSaleController {
         }
     }
     
+    /**
+     * Flash sales for infinite scroll, newest first (no total count)
+     * GET /api/flash-sales/feed?cursor=&size=10
+     */
+    @GetMapping("/feed")
+    public ResponseEntity<ApiResponse<CursorSliceDto<FlashSaleResponseDto>>> getFlashSaleFeed(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") int size) {
+        try {
+            CursorSliceDto<FlashSaleResponseDto> response = flashSaleService.getFlashSaleFeed(cursor, size);
+            return ResponseEntity.ok(ApiResponse.success("Flash sales retrieved successfully", response));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest()
+                    .body(ApiResponse.error("Failed to get flash sales: " + e.getMessage()));
+        }
+    }
+    
     /**
      * Get active flash sales (currently running)
      * GET /api/flash-sales/active?page=0&size=10
@@ -113,7 +133,7 @@ public class FlashSaleController {
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size) {
         try {
-            Page<FlashSaleResponseDto> response = flashSaleService.getActiveFlashSales(page, size);
+            Page<FlashSaleResponseDto> response = flashSaleCatalogService.getActiveFlashSales(page, size);
             return ResponseEntity.ok(ApiResponse.success("Active flash sales retrieved successfully", response));
         } catch (Exception e) {
             return ResponseEntity.badRequest()
@@ -130,7 +150,7 @@ public class FlashSaleController {
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size) {
         try {
-            Page<FlashSaleResponseDto> response = flashSaleService.getUpcomingFlashSales(page, size);
+            Page<FlashSaleResponseDto> response = flashSaleCatalogService.getUpcomingFlashSales(page, size);
             return ResponseEntity.ok(ApiResponse.success("Upcoming flash sales retrieved successfully", response));
         } catch (Exception e) {
             return ResponseEntity.badRequest()
@@ -0,0 +1,45 @@
+package com.example.smart_mall_spring.Controllers;
+
+import com.example.smart_mall_spring.Enum.ImageRendition;
+import com.example.smart_mall_spring.Services.Storage.ImageDerivativeService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serves image renditions under /uploads/derivatives, ahead of the /uploads/** static handler, so a rendition
+ * evicted from the disk cache is regenerated instead of returning 404. Names contain the content hash of the
+ * original, so responses are cacheable forever.
+ */
+@RestController
+@RequestMapping("/uploads/derivatives")
+@RequiredArgsConstructor
+public class ImageDerivativeController {
+
+    private final ImageDerivativeService imageDerivativeService;
+
+    @GetMapping("/{hash}/{rendition}.jpg")
+    public ResponseEntity<Resource> getRendition(@PathVariable String hash, @PathVariable String rendition) {
+        ImageRendition type = ImageRendition.fromSuffix(rendition);
+        if (type == null) {
+            return ResponseEntity.notFound().build();
+        }
+
+        return imageDerivativeService.resolve(hash, type)
+                .<ResponseEntity<Resource>>map(file -> ResponseEntity.ok()
+                        .cacheControl(CacheControl.maxAge(365, TimeUnit.DAYS).cachePublic().immutable())
+                        .eTag(hash + "-" + rendition)
+                        .contentType(MediaType.IMAGE_JPEG)
+                        .body(new FileSystemResource(file)))
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+}
@@ -1,6 +1,8 @@
 package com.example.smart_mall_spring.Controllers;
 
 import com.example.smart_mall_spring.Config.CustomUserDetails;
+import com.example.smart_mall_spring.Dtos.Common.CursorSliceDto;
+import com.example.smart_mall_spring.Dtos.Notification.NotificationBroadcastDto;
 import com.example.smart_mall_spring.Dtos.Notification.NotificationDto;
 import com.example.smart_mall_spring.Dtos.Notification.NotificationRequestDto;
 import com.example.smart_mall_spring.Services.NotificationService;
@@ -11,6 +13,7 @@ import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
@@ -58,6 +61,29 @@ public class NotificationController {
         return ResponseEntity.ok(response);
     }
     
+    /**
+     * Notification feed for infinite scroll; pass the previous nextCursor as cursor
+     */
+    @GetMapping("/feed")
+    public ResponseEntity<Map<String, Object>> getMyNotificationFeed(
+            @AuthenticationPrincipal CustomUserDetails userDetails,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size) {
+        
+        Map<String, Object> response = new HashMap<>();
+        try {
+            CursorSliceDto<NotificationDto> feed = notificationService.getUserNotificationFeed(userDetails.getId(), cursor, size);
+            response.put("success", true);
+            response.put("message", "Notifications retrieved successfully");
+            response.put("data", feed);
+            return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            response.put("success", false);
+            response.put("message", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        }
+    }
+    
     /**
      * Get unread notifications for the authenticated user
      */
@@ -193,4 +219,34 @@ public class NotificationController {
         
         return ResponseEntity.status(HttpStatus.CREATED).body(response);
     }
+    
+    /**
+     * Admin: Broadcast a notification to every user with a role, or to every active user
+     */
+    @PostMapping("/admin/broadcast")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> broadcastNotification(
+            @Valid @RequestBody NotificationBroadcastDto broadcastDto) {
+        
+        NotificationRequestDto template = NotificationRequestDto.builder()
+            .type(broadcastDto.getType())
+            .title(broadcastDto.getTitle())
+            .message(broadcastDto.getMessage())
+            .referenceId(broadcastDto.getReferenceId())
+            .referenceType(broadcastDto.getReferenceType())
+            .metadata(broadcastDto.getMetadata())
+            .imageUrl(broadcastDto.getImageUrl())
+            .deepLink(broadcastDto.getDeepLink())
+            .build();
+        String roleName = broadcastDto.getRoleName() == null || broadcastDto.getRoleName().isBlank()
+            ? null : broadcastDto.getRoleName();
+        notificationService.broadcast(template, roleName);
+        
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("message", "Notification broadcast started");
+        response.put("data", null);
+        
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(response);
+    }
 }
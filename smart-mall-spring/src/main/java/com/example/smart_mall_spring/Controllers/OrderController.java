@@ -68,6 +68,21 @@ public class OrderController {
         var orders = orderService.getOrdersByShopWithFilters(shopId, status, page, size);
         return ResponseEntity.ok(orders);
     }
+    // Cuộn vô hạn: truyền nextCursor của lần trước vào cursor
+    @GetMapping("/shop/{shopId}/feed")
+    public ResponseEntity<?> getOrdersByShopFeed(
+            @PathVariable UUID shopId,
+            @RequestParam(required = false) StatusOrder status,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") int size
+    ) {
+        try {
+            var orders = orderService.getOrdersByShopFeed(shopId, status, cursor, size);
+            return ResponseEntity.ok(orders);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
     @GetMapping("/confirmed")
     public ResponseEntity<List<OrderResponseDto>> getOrdersForShipmentManagement() {
         List<OrderResponseDto> orders = orderService.getOrdersForShipmentManagement();
@@ -1,14 +1,19 @@
 package com.example.smart_mall_spring.Controllers;
 
+import com.example.smart_mall_spring.Dtos.Common.CursorSliceDto;
 import com.example.smart_mall_spring.Dtos.Products.*;
 import com.example.smart_mall_spring.Enum.Status;
 import com.example.smart_mall_spring.Exception.ApiResponse;
+import com.example.smart_mall_spring.Services.Products.ProductApprovalAuditLog;
+import com.example.smart_mall_spring.Services.Products.ProductListingService;
 import com.example.smart_mall_spring.Services.Products.ProductService;
+import com.example.smart_mall_spring.Services.Products.SearchSuggestionService;
 import com.example.smart_mall_spring.Services.Shop.ShopService;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
@@ -25,9 +30,24 @@ public class ProductController {
     @Autowired
     private final ShopService shopService;
 
-    public ProductController(ProductService productService, ShopService shopService) {
+    @Autowired
+    private final ProductApprovalAuditLog approvalAuditLog;
+
+    @Autowired
+    private final SearchSuggestionService searchSuggestionService;
+
+    @Autowired
+    private final ProductListingService productListingService;
+
+    public ProductController(ProductService productService, ShopService shopService,
+                             ProductApprovalAuditLog approvalAuditLog,
+                             SearchSuggestionService searchSuggestionService,
+                             ProductListingService productListingService) {
         this.productService = productService;
         this.shopService = shopService;
+        this.approvalAuditLog = approvalAuditLog;
+        this.searchSuggestionService = searchSuggestionService;
+        this.productListingService = productListingService;
     }
 
     // Create product with images
@@ -109,6 +129,33 @@ public class ProductController {
         return ResponseEntity.ok(ApiResponse.success("Get Products Success!", result));
     }
 
+    // Product grid: slim cards, fixed number of queries per page (optionally by category/shop)
+    @GetMapping("/listing")
+    public ResponseEntity<ApiResponse<PagedProductListResponseDto>> getProductListing(
+            @RequestParam(required = false) UUID categoryId,
+            @RequestParam(required = false) UUID shopId,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "48") int size) {
+        PagedProductListResponseDto result = productListingService.getListing(categoryId, shopId, page, size);
+        return ResponseEntity.ok(ApiResponse.success("Get Product Listing Success!", result));
+    }
+
+    // Product grid for infinite scroll: pass the previous nextCursor as cursor (no total count)
+    @GetMapping("/listing/feed")
+    public ResponseEntity<ApiResponse<CursorSliceDto<ProductListItemDto>>> getProductListingFeed(
+            @RequestParam(required = false) UUID categoryId,
+            @RequestParam(required = false) UUID shopId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "48") int size) {
+        try {
+            CursorSliceDto<ProductListItemDto> result = productListingService.getListingFeed(categoryId, shopId, cursor, size);
+            return ResponseEntity.ok(ApiResponse.success("Get Product Listing Success!", result));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest()
+                    .body(ApiResponse.error("Failed to get product listing: " + e.getMessage()));
+        }
+    }
+
     // Get all products including soft deleted
     @GetMapping("/all/including-deleted")
     public ResponseEntity<ApiResponse<List<ProductResponseDto>>> getAllProductsIncludingDeleted() {
@@ -123,20 +170,23 @@ public class ProductController {
         return ResponseEntity.ok(ApiResponse.success("Get All Deleted Products Success!", result));
     }
 
-    // Get products by category
+    // Get products by category (and its subcategories unless includeSubcategories=false)
     @GetMapping("/category/{categoryId}")
-    public ResponseEntity<ApiResponse<List<ProductResponseDto>>> getProductsByCategory(@PathVariable UUID categoryId) {
-        List<ProductResponseDto> result = productService.getProductsByCategory(categoryId);
+    public ResponseEntity<ApiResponse<List<ProductResponseDto>>> getProductsByCategory(
+            @PathVariable UUID categoryId,
+            @RequestParam(defaultValue = "true") boolean includeSubcategories) {
+        List<ProductResponseDto> result = productService.getProductsByCategory(categoryId, includeSubcategories);
         return ResponseEntity.ok(ApiResponse.success("Get Products by Category Success!", result));
     }
 
-    // Get products by category with pagination
+    // Get products by category with pagination (and its subcategories unless includeSubcategories=false)
     @GetMapping("/category/{categoryId}/paged")
     public ResponseEntity<ApiResponse<PagedProductResponseDto>> getProductsByCategoryWithPagination(
             @PathVariable UUID categoryId,
+            @RequestParam(defaultValue = "true") boolean includeSubcategories,
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "20") int size) {
-        PagedProductResponseDto result = productService.getProductsByCategoryWithPagination(categoryId, page, size);
+        PagedProductResponseDto result = productService.getProductsByCategoryWithPagination(categoryId, includeSubcategories, page, size);
         return ResponseEntity.ok(ApiResponse.success("Get Products by Category Success!", result));
     }
 
@@ -181,6 +231,15 @@ public class ProductController {
         return ResponseEntity.ok(ApiResponse.success("Search Products Success!", result));
     }
 
+    // Autocomplete: product names, brands and categories matching the typed prefix
+    @GetMapping("/suggest")
+    public ResponseEntity<ApiResponse<List<SearchSuggestionDto>>> suggest(
+            @RequestParam String q,
+            @RequestParam(defaultValue = "10") int limit) {
+        List<SearchSuggestionDto> result = searchSuggestionService.suggest(q, limit);
+        return ResponseEntity.ok(ApiResponse.success("Get Suggestions Success!", result));
+    }
+
     // Search products by name with pagination
     @GetMapping("/search/paged")
     public ResponseEntity<ApiResponse<PagedProductResponseDto>> searchProductsByNameWithPagination(
@@ -212,10 +271,12 @@ public class ProductController {
             @RequestParam(required = false) UUID categoryId,
             @RequestParam(required = false) UUID shopId,
             @RequestParam(required = false) Status status,
+            @RequestParam(required = false) Double minPrice,
+            @RequestParam(required = false) Double maxPrice,
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "20") int size) {
         
-        PagedProductResponseDto result = productService.searchProductsWithPagination(name, brand, categoryId, shopId, status, page, size);
+        PagedProductResponseDto result = productService.searchProductsWithPagination(name, brand, categoryId, shopId, status, minPrice, maxPrice, page, size);
         return ResponseEntity.ok(ApiResponse.success("Advanced Search Success!", result));
     }
 
@@ -412,4 +473,22 @@ public class ProductController {
                     .body(ApiResponse.error("Failed to get all shop flash sales: " + e.getMessage()));
         }
     }
-}
\ No newline at end of file
+    
+    /**
+     * Page through AI approval decisions, newest first (admin only)
+     * GET /api/products/approval-log?page=0&size=20
+     */
+    @GetMapping("/approval-log")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<Page<ApprovalAuditEntryDto>>> getApprovalLog(
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size) {
+        try {
+            Page<ApprovalAuditEntryDto> result = approvalAuditLog.getEntries(page, size);
+            return ResponseEntity.ok(ApiResponse.success("Approval log retrieved successfully!", result));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest()
+                    .body(ApiResponse.error("Failed to get approval log: " + e.getMessage()));
+        }
+    }
+}
@@ -9,6 +9,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.time.YearMonth;
 import java.util.List;
 import java.util.UUID;
 import org.springframework.http.MediaType;
@@ -114,6 +115,16 @@ public class ReviewController {
         return ResponseEntity.ok(reviewService.getShopReviewStatistics(shopId));
     }
 
+    /**  Lấy thống kê review theo tháng của shop (from/to dạng YYYY-MM, không bắt buộc) */
+    @GetMapping("/shop/{shopId}/statistics/monthly")
+    public ResponseEntity<List<MonthlyReviewStats>> getShopMonthlyReviewStatistics(
+            @PathVariable UUID shopId,
+            @RequestParam(required = false) YearMonth from,
+            @RequestParam(required = false) YearMonth to
+    ) {
+        return ResponseEntity.ok(reviewService.getShopMonthlyReviewStatistics(shopId, from, to));
+    }
+
     /**  Lấy danh sách sản phẩm của shop kèm thống kê review */
     @GetMapping("/shop/{shopId}/products-summary")
     public ResponseEntity<List<ProductReviewSummaryDto>> getShopProductsWithReviewSummary(
@@ -39,24 +39,8 @@ public class UserController {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
         CustomUserDetails userDetails = (CustomUserDetails) authentication.getPrincipal();
         
-        UserInfoDto userInfo = UserInfoDto.builder()
-                .id(userDetails.getUser().getId())
-                .username(userDetails.getUser().getUsername())
-                .fullName(userDetails.getUser().getProfile() != null ? 
-                         userDetails.getUser().getProfile().getFullName() : null)
-                .phoneNumber(userDetails.getUser().getProfile() != null ? 
-                       userDetails.getUser().getProfile().getPhoneNumber() : null)
-                .avatar(userDetails.getUser().getProfile() != null ? 
-                       userDetails.getUser().getProfile().getAvatar() : null)
-                .gender(userDetails.getUser().getProfile() != null ? 
-                       userDetails.getUser().getProfile().getGender() : null)
-                .dateOfBirth(userDetails.getUser().getProfile() != null ? 
-                       userDetails.getUser().getProfile().getDateOfBirth() : null)
-                .isActive(userDetails.getUser().getIsActive())
-                .roles(userDetails.getAuthorities().stream()
-                       .map(authority -> authority.getAuthority().replace("ROLE_", ""))
-                       .toList())
-                .build();
+        // The principal may be rebuilt from token claims (no profile): read the profile from the DB
+        UserInfoDto userInfo = userService.getUserProfile(userDetails.getId());
 
         return ResponseEntity.ok(ApiResponse.success("User profile retrieved successfully", userInfo));
     }
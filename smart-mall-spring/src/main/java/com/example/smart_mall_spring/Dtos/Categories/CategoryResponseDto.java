@@ -23,6 +23,7 @@ public class CategoryResponseDto {
     private CategoryResponseDto parent;
     private List<CategoryResponseDto> subCategories;
     private Long productCount;  // Number of products in this category
+    private Long subtreeProductCount;  // Number of products in this category and all of its subcategories
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
 }
@@ -0,0 +1,43 @@
+package com.example.smart_mall_spring.Dtos.Common;
+
+import com.example.smart_mall_spring.Utils.KeysetCursor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.domain.Slice;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * One window of a cursor-paginated list. Pass {@code nextCursor} back as {@code cursor} to get the next one;
+ * there is no total count.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CursorSliceDto<T> {
+    private List<T> items;
+    private String nextCursor;
+    private boolean hasNext;
+    private int size;
+
+    /**
+     * @param keyOf extracts the (createdAt, id) key of a row, used for the cursor of the last row
+     * @param items the slice content already converted, in the same order
+     */
+    public static <E, T> CursorSliceDto<T> of(Slice<E> slice, Function<E, KeysetCursor> keyOf, List<T> items) {
+        List<E> content = slice.getContent();
+        String nextCursor = slice.hasNext() && !content.isEmpty()
+                ? keyOf.apply(content.get(content.size() - 1)).encode()
+                : null;
+        return CursorSliceDto.<T>builder()
+                .items(items)
+                .nextCursor(nextCursor)
+                .hasNext(slice.hasNext())
+                .size(slice.getSize())
+                .build();
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.smart_mall_spring.Dtos.Common;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * URLs of the downscaled renditions of one image (served from /uploads/derivatives).
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImageRenditionsDto {
+    private String thumbnail;  // 160px
+    private String card;       // 480px
+    private String detail;     // 1080px
+}
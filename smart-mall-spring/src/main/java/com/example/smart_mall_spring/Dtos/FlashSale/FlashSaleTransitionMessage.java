@@ -0,0 +1,21 @@
+package com.example.smart_mall_spring.Dtos.FlashSale;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class FlashSaleTransitionMessage {
+    
+    private String type;            // FLASH_SALE_STARTED, FLASH_SALE_ENDED, VARIANT_FLASH_SALE_STARTED, VARIANT_FLASH_SALE_ENDED
+    private UUID flashSaleId;       // khi type là FLASH_SALE_*
+    private UUID productVariantId;  // khi type là VARIANT_FLASH_SALE_*
+    private LocalDateTime occurredAt;
+}
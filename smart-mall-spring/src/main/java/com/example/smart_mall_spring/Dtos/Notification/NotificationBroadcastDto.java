@@ -0,0 +1,39 @@
+package com.example.smart_mall_spring.Dtos.Notification;
+
+import com.example.smart_mall_spring.Enum.NotificationType;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.UUID;
+
+/**
+ * DTO for broadcasting a notification to many users
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class NotificationBroadcastDto {
+    
+    // Role of the recipients (e.g. "USER", "ADMIN"); every active user when empty
+    private String roleName;
+    
+    @NotNull(message = "Notification type is required")
+    private NotificationType type;
+    
+    @NotBlank(message = "Title is required")
+    private String title;
+    
+    @NotBlank(message = "Message is required")
+    private String message;
+    
+    private UUID referenceId;
+    private String referenceType;
+    private String metadata;
+    private String imageUrl;
+    private String deepLink;
+}
@@ -0,0 +1,20 @@
+package com.example.smart_mall_spring.Dtos.Notification;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Unread badge update pushed over WebSocket
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class UnreadCountDto {
+    // Change since the previous update (0 for a reconciliation correction)
+    private long delta;
+    // Count after the change; null when this instance has no cached count for the user
+    private Long unreadCount;
+}
@@ -0,0 +1,21 @@
+package com.example.smart_mall_spring.Dtos.Products;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ApprovalAuditEntryDto {
+    private LocalDateTime timestamp;
+    private UUID productId;
+    private String productName;
+    private String status;
+    private String reason;
+}
@@ -0,0 +1,22 @@
+package com.example.smart_mall_spring.Dtos.Products;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PagedProductListResponseDto {
+    private List<ProductListItemDto> products;
+    private int currentPage;
+    private int totalPages;
+    private long totalItems;
+    private int pageSize;
+    private boolean hasNext;
+    private boolean hasPrevious;
+}
@@ -0,0 +1,35 @@
+package com.example.smart_mall_spring.Dtos.Products;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.UUID;
+
+/**
+ * Slim product card for listing grids (no description, variants or attributes).
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductListItemDto {
+    private UUID id;
+    private String name;
+    private String brand;
+    private String thumbnail;
+    private String cardImage;  // 480px rendition of thumbnail, null for images uploaded before renditions existed
+    private UUID categoryId;
+    private String categoryName;
+    private UUID shopId;
+    private String shopName;
+    private Double averageRating;
+    private Integer reviewCount;
+
+    // Discount fields (giống ProductResponseDto)
+    private Double minPrice;
+    private Double minDiscountPrice;
+    private Boolean hasDiscount;
+    private Integer maxDiscountPercent;
+}
@@ -1,6 +1,7 @@
 package com.example.smart_mall_spring.Dtos.Products;
 
 import com.example.smart_mall_spring.Dtos.Categories.CategoryResponseDto;
+import com.example.smart_mall_spring.Dtos.Common.ImageRenditionsDto;
 import com.example.smart_mall_spring.Dtos.Shop.ShopResponseDto;
 import com.example.smart_mall_spring.Enum.Status;
 import lombok.AllArgsConstructor;
@@ -24,6 +25,7 @@ public class ProductResponseDto {
     private String description;
     private String brand;
     private List<String> images;
+    private List<ImageRenditionsDto> imageRenditions;  // Same order as images, null entries for images without renditions
     private Status status;
     private Boolean isDeleted;
     private List<ProductVariantResponseDto> variants;
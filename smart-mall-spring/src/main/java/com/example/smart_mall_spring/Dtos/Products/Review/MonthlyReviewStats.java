@@ -3,6 +3,8 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.util.Map;
+
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
@@ -11,4 +13,6 @@ public class MonthlyReviewStats {
     private String yearMonth;
     private long totalReviews;
     private double averageRating;
-}
\ No newline at end of file
+    private Map<Integer, Long> ratingCounts;
+    private long repliedCount;
+}
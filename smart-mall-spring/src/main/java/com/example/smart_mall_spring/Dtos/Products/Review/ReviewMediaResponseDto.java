@@ -10,5 +10,6 @@ import lombok.NoArgsConstructor;
 public class ReviewMediaResponseDto {
     private String id;
     private String mediaUrl;
+    private String thumbnailUrl;  // 160px rendition (IMAGE only, null when not available)
     private String mediaType; // IMAGE hoặc VIDEO
 }
\ No newline at end of file
@@ -0,0 +1,19 @@
+package com.example.smart_mall_spring.Dtos.Products;
+
+import com.example.smart_mall_spring.Enum.SuggestionType;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.UUID;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SearchSuggestionDto {
+    private SuggestionType type;
+    private UUID id; // null cho BRAND
+    private String text;
+}
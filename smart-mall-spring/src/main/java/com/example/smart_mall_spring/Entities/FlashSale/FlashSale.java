@@ -56,12 +56,14 @@ public class FlashSale extends BaseEntity {
     @Column(name = "display_priority")
     private Integer displayPriority = 0;
     
+    // Cờ được FlashSaleTransitionScheduler bật/tắt đúng lúc startTime/endTime
+    @Column(name = "is_running")
+    private Boolean isRunning = false;
+    
     public boolean isActive() {
-        LocalDateTime now = LocalDateTime.now();
         return status == Status.APPROVED && 
                !isDeleted &&
-               now.isAfter(startTime) && 
-               now.isBefore(endTime);
+               Boolean.TRUE.equals(isRunning);
     }
     
     public boolean isUpcoming() {
@@ -0,0 +1,44 @@
+package com.example.smart_mall_spring.Entities.Orders;
+
+import com.example.smart_mall_spring.Enum.StatusOrder;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+
+/**
+ * Materialized per-day, per-status order aggregate (by order creation date).
+ * Maintained incrementally from order status transitions and recomputed by a backfill job.
+ */
+@Entity
+@Table(name = "daily_order_stats")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DailyOrderStat {
+
+    @EmbeddedId
+    private Key id;
+
+    @Column(name = "order_count", nullable = false)
+    private Long orderCount = 0L;
+
+    @Column(name = "total_amount", nullable = false)
+    private Double totalAmount = 0.0;
+
+    @Embeddable
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        @Column(name = "stat_date")
+        private LocalDate statDate;
+
+        @Enumerated(EnumType.STRING)
+        @Column(name = "status", length = 30)
+        private StatusOrder status;
+    }
+}
@@ -6,6 +6,7 @@ import com.example.smart_mall_spring.Entities.Users.User;
 import com.example.smart_mall_spring.Entities.Users.UserAddress;
 import com.example.smart_mall_spring.Enum.PaymentMethod;
 import com.example.smart_mall_spring.Enum.StatusOrder;
+import com.example.smart_mall_spring.Services.Order.OrderStatsEntityListener;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
@@ -26,6 +27,7 @@ import java.util.List;
 @AllArgsConstructor
 @EqualsAndHashCode(callSuper = true)
 @ToString(exclude = {"user", "shop", "shippingAddress", "items", "payment"})
+@EntityListeners(OrderStatsEntityListener.class)
 public class Order extends BaseEntity {
     @ManyToOne
     @JoinColumn(name = "user_id")
@@ -77,5 +79,15 @@ public class Order extends BaseEntity {
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
 
+    // Status/total as last read from or written to the DB (used to compute daily_order_stats deltas)
+    @JsonIgnore
+    private transient StatusOrder persistedStatus;
+
+    @JsonIgnore
+    private transient Double persistedTotalAmount;
 
+    public void rememberPersistedState() {
+        this.persistedStatus = this.status;
+        this.persistedTotalAmount = this.totalAmount;
+    }
 }
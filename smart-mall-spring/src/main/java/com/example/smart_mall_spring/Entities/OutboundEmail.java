@@ -0,0 +1,64 @@
+package com.example.smart_mall_spring.Entities;
+
+import com.example.smart_mall_spring.Enum.OutboundEmailStatus;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Durable outbound email. Requests only insert a row; workers claim due rows with
+ * {@code FOR UPDATE SKIP LOCKED}, hold a time-limited lease and send them in batches.
+ */
+@Entity
+@Table(name = "outbound_emails", indexes = {
+    @Index(name = "idx_outbound_emails_status_available", columnList = "status, available_at")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@EqualsAndHashCode(callSuper = true)
+@ToString(exclude = {"body"})
+public class OutboundEmail extends BaseEntity {
+
+    @Column(name = "to_address", nullable = false)
+    private String toAddress;
+
+    @Column(nullable = false)
+    private String subject;
+
+    // Rendered once when queued
+    @Column(nullable = false, columnDefinition = "TEXT")
+    private String body;
+
+    // EmailTemplate name, for monitoring
+    @Column(length = 50)
+    private String template;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    @Builder.Default
+    private OutboundEmailStatus status = OutboundEmailStatus.PENDING;
+
+    @Column(nullable = false)
+    @Builder.Default
+    private Integer attempts = 0;
+
+    // Earliest time the email may be claimed (retry backoff)
+    @Column(name = "available_at", nullable = false)
+    private LocalDateTime availableAt;
+
+    @Column(name = "lease_owner", length = 100)
+    private String leaseOwner;
+
+    @Column(name = "lease_expires_at")
+    private LocalDateTime leaseExpiresAt;
+
+    @Column(name = "last_error", columnDefinition = "TEXT")
+    private String lastError;
+
+    @Column(name = "sent_at")
+    private LocalDateTime sentAt;
+}
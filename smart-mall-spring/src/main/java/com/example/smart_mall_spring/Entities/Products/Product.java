@@ -13,7 +13,9 @@ import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
 import lombok.ToString;
 
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 @Entity
 @Table(name = "products")
@@ -38,6 +40,7 @@ public class Product extends BaseEntity {
 
     @ElementCollection
     @CollectionTable(name = "product_images", joinColumns = @JoinColumn(name = "product_id"))
+    @OrderColumn(name = "image_order")
     @Column(name = "image_url")
     private List<String> images;
 
@@ -47,6 +50,29 @@ public class Product extends BaseEntity {
     @Column(name = "is_deleted", nullable = false)
     private Boolean isDeleted = false;
 
+    // Rating aggregates: only changed by ProductRepository.applyRatingDelta / reconcileRatingStats,
+    // never written back by entity updates
+    @Column(name = "rating_sum", nullable = false, updatable = false)
+    private Long ratingSum = 0L;
+
+    @Column(name = "review_count", nullable = false, updatable = false)
+    private Long reviewCount = 0L;
+
+    @Column(name = "rating_1_count", nullable = false, updatable = false)
+    private Long rating1Count = 0L;
+
+    @Column(name = "rating_2_count", nullable = false, updatable = false)
+    private Long rating2Count = 0L;
+
+    @Column(name = "rating_3_count", nullable = false, updatable = false)
+    private Long rating3Count = 0L;
+
+    @Column(name = "rating_4_count", nullable = false, updatable = false)
+    private Long rating4Count = 0L;
+
+    @Column(name = "rating_5_count", nullable = false, updatable = false)
+    private Long rating5Count = 0L;
+
     @OneToMany(mappedBy = "product", cascade = CascadeType.ALL, orphanRemoval = true)
     @JsonIgnore
     private List<ProductVariant> variants;
@@ -55,4 +81,18 @@ public class Product extends BaseEntity {
     @JsonIgnore
     private List<Review> reviews;
 
+    public Double getAverageRating() {
+        return reviewCount != null && reviewCount > 0 ? ratingSum.doubleValue() / reviewCount : null;
+    }
+
+    // Number of reviews per star (1-5)
+    public Map<Integer, Long> getRatingCounts() {
+        Map<Integer, Long> counts = new LinkedHashMap<>();
+        counts.put(1, rating1Count);
+        counts.put(2, rating2Count);
+        counts.put(3, rating3Count);
+        counts.put(4, rating4Count);
+        counts.put(5, rating5Count);
+        return counts;
+    }
 }
@@ -0,0 +1,66 @@
+package com.example.smart_mall_spring.Entities.Products;
+
+import com.example.smart_mall_spring.Enum.ApprovalJobStatus;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Durable AI approval job. Keyed by product ID so a product can only have one job (O(1) dedup).
+ * Workers claim due jobs with {@code FOR UPDATE SKIP LOCKED} and hold a time-limited lease.
+ */
+@Entity
+@Table(name = "product_approval_jobs",
+        indexes = @Index(name = "idx_approval_jobs_status_available", columnList = "status, available_at"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductApprovalJob {
+
+    @Id
+    @Column(name = "product_id")
+    private UUID productId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private ApprovalJobStatus status = ApprovalJobStatus.PENDING;
+
+    @Column(nullable = false)
+    private Integer attempts = 0;
+
+    // Thời điểm sớm nhất job được claim (dùng cho retry có backoff)
+    @Column(name = "available_at", nullable = false)
+    private LocalDateTime availableAt;
+
+    @Column(name = "lease_owner", length = 100)
+    private String leaseOwner;
+
+    @Column(name = "lease_expires_at")
+    private LocalDateTime leaseExpiresAt;
+
+    @Column(name = "last_error", columnDefinition = "TEXT")
+    private String lastError;
+
+    private LocalDateTime createdAt;
+
+    private LocalDateTime updatedAt;
+
+    public ProductApprovalJob(UUID productId) {
+        this.productId = productId;
+    }
+
+    @PrePersist
+    protected void onCreate() {
+        this.createdAt = LocalDateTime.now();
+        this.updatedAt = LocalDateTime.now();
+    }
+
+    @PreUpdate
+    protected void onUpdate() {
+        this.updatedAt = LocalDateTime.now();
+    }
+}
@@ -12,6 +12,7 @@ import lombok.Data;
 import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
 import lombok.ToString;
+import org.hibernate.annotations.DynamicUpdate;
 
 import java.util.List;
 import java.util.UUID;
@@ -23,6 +24,7 @@ import java.util.UUID;
 @AllArgsConstructor
 @EqualsAndHashCode(callSuper = true)
 @ToString(exclude = {"product", "attributes", "orderItems", "cartItems"})
+@DynamicUpdate // chỉ ghi cột thay đổi, tránh ghi đè flashSaleQuantity đã được flush
 public class ProductVariant extends BaseEntity {
     @ManyToOne
     @JoinColumn(name = "product_id")
@@ -52,6 +54,10 @@ public class ProductVariant extends BaseEntity {
     @Column(name = "flash_sale_quantity")
     private Integer flashSaleQuantity;
     
+    // Cờ được FlashSaleTransitionScheduler bật/tắt đúng lúc flashSaleStart/flashSaleEnd
+    @Column(name = "flash_sale_running")
+    private Boolean flashSaleRunning = false;
+    
     public Double getEffectivePrice() {
         if (isFlashSale != null && isFlashSale && isFlashSaleActive()) {
             return flashSalePrice != null ? flashSalePrice : price;
@@ -60,11 +66,7 @@ public class ProductVariant extends BaseEntity {
     }
     
     public boolean isFlashSaleActive() {
-        if (!Boolean.TRUE.equals(isFlashSale) || flashSaleStart == null || flashSaleEnd == null) {
-            return false;
-        }
-        java.time.LocalDateTime now = java.time.LocalDateTime.now();
-        return now.isAfter(flashSaleStart) && now.isBefore(flashSaleEnd) && 
+        return Boolean.TRUE.equals(isFlashSale) && Boolean.TRUE.equals(flashSaleRunning) &&
                (flashSaleQuantity == null || flashSaleQuantity > 0);
     }
     
@@ -8,6 +8,7 @@ import jakarta.persistence.*;
 import lombok.*;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 
 @Entity
@@ -27,8 +28,8 @@ public class Review extends BaseEntity {
     @JsonIgnore
     private Product product;
 
-    // Liên kết để đảm bảo chỉ người đã mua mới được review
-    @ManyToOne
+    // Liên kết để đảm bảo chỉ người đã mua mới được review (chỉ dùng khi ghi, không cần nạp khi đọc review)
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "order_id")
     @JsonIgnore
     private Order order;
@@ -39,9 +40,20 @@ public class Review extends BaseEntity {
     private Boolean isEdited = false;   // Có sửa lại review không
     private LocalDateTime reviewedAt;   // Ngày đánh giá
 
-    // Liên kết với danh sách ảnh/video
+    // Liên kết với danh sách ảnh/video (lưu theo cascade khi lưu review, insert theo JDBC batch)
     @OneToMany(mappedBy = "review", cascade = CascadeType.ALL, orphanRemoval = true)
     @JsonIgnore
-    private List<ReviewMedia> mediaList;
+    private List<ReviewMedia> mediaList = new ArrayList<>();
+
+    // Phản hồi của shop (thường tối đa 1), nạp theo batch cho cả trang review
+    @OneToMany(mappedBy = "review")
+    @JsonIgnore
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private List<ReviewReply> replies = new ArrayList<>();
+
+    public void addMedia(String mediaUrl, String mediaType) {
+        mediaList.add(new ReviewMedia(this, mediaUrl, mediaType));
+    }
 }
 
@@ -0,0 +1,79 @@
+package com.example.smart_mall_spring.Entities.Products;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Materialized per-shop, per-month review aggregate (by review date, shop of the reviewed product).
+ * Only changed by ShopMonthlyReviewStatRepository upserts, in the transaction of the review or reply write.
+ */
+@Entity
+@Table(name = "shop_monthly_review_stats")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ShopMonthlyReviewStat {
+
+    @EmbeddedId
+    private Key id;
+
+    @Column(name = "review_count", nullable = false)
+    private Long reviewCount = 0L;
+
+    @Column(name = "rating_sum", nullable = false)
+    private Long ratingSum = 0L;
+
+    @Column(name = "rating_1_count", nullable = false)
+    private Long rating1Count = 0L;
+
+    @Column(name = "rating_2_count", nullable = false)
+    private Long rating2Count = 0L;
+
+    @Column(name = "rating_3_count", nullable = false)
+    private Long rating3Count = 0L;
+
+    @Column(name = "rating_4_count", nullable = false)
+    private Long rating4Count = 0L;
+
+    @Column(name = "rating_5_count", nullable = false)
+    private Long rating5Count = 0L;
+
+    // Reviews of the month that have at least one shop reply
+    @Column(name = "replied_count", nullable = false)
+    private Long repliedCount = 0L;
+
+    public Double getAverageRating() {
+        return reviewCount != null && reviewCount > 0 ? ratingSum.doubleValue() / reviewCount : null;
+    }
+
+    // Number of reviews per star (1-5)
+    public Map<Integer, Long> getRatingCounts() {
+        Map<Integer, Long> counts = new LinkedHashMap<>();
+        counts.put(1, rating1Count);
+        counts.put(2, rating2Count);
+        counts.put(3, rating3Count);
+        counts.put(4, rating4Count);
+        counts.put(5, rating5Count);
+        return counts;
+    }
+
+    @Embeddable
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        @Column(name = "shop_id")
+        private UUID shopId;
+
+        // "YYYY-MM"
+        @Column(name = "stat_month", length = 7)
+        private String statMonth;
+    }
+}
@@ -38,6 +38,14 @@ public class User extends BaseEntity {
     @Column(name = "is_active", nullable = false, columnDefinition = "int default 0")
     private int isActive;
 
+    // Token revocation: tokens carry the version they were issued with; only changed by
+    // UserRepository.incrementTokenVersion, never written back by entity updates
+    @Column(name = "token_version", nullable = false, updatable = false, columnDefinition = "int default 0")
+    private int tokenVersion;
+
+    @Column(name = "tokens_revoked_at", updatable = false)
+    private LocalDateTime tokensRevokedAt;
+
     @OneToOne(mappedBy = "user", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     @JsonIgnore
     private UserProfile profile;
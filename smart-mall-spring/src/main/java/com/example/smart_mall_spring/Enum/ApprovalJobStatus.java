@@ -0,0 +1,5 @@
+package com.example.smart_mall_spring.Enum;
+
+public enum ApprovalJobStatus {
+    PENDING, IN_PROGRESS, DONE, FAILED
+}
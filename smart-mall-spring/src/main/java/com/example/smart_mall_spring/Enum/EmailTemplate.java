@@ -0,0 +1,28 @@
+package com.example.smart_mall_spring.Enum;
+
+/**
+ * Plain-text email templates. Placeholders use {@link String#formatted} syntax; a message is
+ * rendered once when it is queued and the rendered text is what gets stored and sent.
+ */
+public enum EmailTemplate {
+    LOGIN_CODE(
+            "Your Login Code - Smart Mall",
+            "Your login verification code is: %s\n\nThis code will expire in 5 minutes.\n\n" +
+            "If you did not request this code, please ignore this email.");
+
+    private final String subject;
+    private final String body;
+
+    EmailTemplate(String subject, String body) {
+        this.subject = subject;
+        this.body = body;
+    }
+
+    public String getSubject() {
+        return subject;
+    }
+
+    public String renderBody(Object... args) {
+        return body.formatted(args);
+    }
+}
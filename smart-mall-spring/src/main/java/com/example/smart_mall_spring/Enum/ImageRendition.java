@@ -0,0 +1,36 @@
+package com.example.smart_mall_spring.Enum;
+
+/**
+ * Downscaled JPEG renditions generated for every uploaded image.
+ * {@code maxEdge} bounds the longer side; smaller images are never upscaled.
+ */
+public enum ImageRendition {
+    THUMBNAIL("thumb", 160),
+    CARD("card", 480),
+    DETAIL("detail", 1080);
+
+    private final String suffix;
+    private final int maxEdge;
+
+    ImageRendition(String suffix, int maxEdge) {
+        this.suffix = suffix;
+        this.maxEdge = maxEdge;
+    }
+
+    public String getSuffix() {
+        return suffix;
+    }
+
+    public int getMaxEdge() {
+        return maxEdge;
+    }
+
+    public static ImageRendition fromSuffix(String suffix) {
+        for (ImageRendition rendition : values()) {
+            if (rendition.suffix.equals(suffix)) {
+                return rendition;
+            }
+        }
+        return null;
+    }
+}
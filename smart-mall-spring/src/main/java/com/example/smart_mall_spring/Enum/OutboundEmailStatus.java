@@ -0,0 +1,11 @@
+package com.example.smart_mall_spring.Enum;
+
+/**
+ * Delivery state of a queued outbound email
+ */
+public enum OutboundEmailStatus {
+    PENDING,    // Waiting to be sent (first attempt or retry)
+    SENDING,    // Claimed by a worker (lease)
+    SENT,       // Accepted by the SMTP server
+    FAILED      // Gave up after the last attempt or a permanent error
+}
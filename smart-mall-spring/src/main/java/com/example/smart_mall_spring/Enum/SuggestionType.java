@@ -0,0 +1,5 @@
+package com.example.smart_mall_spring.Enum;
+
+public enum SuggestionType {
+    PRODUCT, BRAND, CATEGORY
+}
@@ -0,0 +1,21 @@
+package com.example.smart_mall_spring.Models;
+
+import com.example.smart_mall_spring.Enum.Status;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Flat view of a category used to build the in-memory category tree.
+ */
+public record CategoryTreeRow(
+        UUID id,
+        String name,
+        String description,
+        String image,
+        Status status,
+        UUID parentId,
+        LocalDateTime createdAt,
+        LocalDateTime updatedAt
+) {
+}
@@ -0,0 +1,36 @@
+package com.example.smart_mall_spring.Models;
+
+import java.util.UUID;
+
+/**
+ * Pricing columns of a variant for the listing grid.
+ * Flash-sale rules mirror {@link com.example.smart_mall_spring.Entities.Products.ProductVariant}.
+ */
+public record ListingVariantRow(
+        UUID productId,
+        Double price,
+        Double flashSalePrice,
+        Boolean isFlashSale,
+        Boolean flashSaleRunning,
+        Integer flashSaleQuantity
+) {
+
+    public boolean isFlashSaleActive() {
+        return Boolean.TRUE.equals(isFlashSale) && Boolean.TRUE.equals(flashSaleRunning) &&
+               (flashSaleQuantity == null || flashSaleQuantity > 0);
+    }
+
+    public Double effectivePrice() {
+        if (isFlashSaleActive()) {
+            return flashSalePrice != null ? flashSalePrice : price;
+        }
+        return price;
+    }
+
+    public Integer discountPercent() {
+        if (price == null || flashSalePrice == null || price == 0) {
+            return 0;
+        }
+        return (int) Math.round(((price - flashSalePrice) / price) * 100);
+    }
+}
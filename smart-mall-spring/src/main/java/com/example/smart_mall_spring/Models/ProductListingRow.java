@@ -0,0 +1,26 @@
+package com.example.smart_mall_spring.Models;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * One product card of the listing grid, read with a constructor expression
+ * so category/shop are joined by name only and no entity (or eager association) is loaded.
+ */
+public record ProductListingRow(
+        UUID productId,
+        String name,
+        String brand,
+        UUID categoryId,
+        String categoryName,
+        UUID shopId,
+        String shopName,
+        Long ratingSum,
+        Long reviewCount,
+        LocalDateTime createdAt
+) {
+
+    public Double averageRating() {
+        return reviewCount != null && reviewCount > 0 ? ratingSum.doubleValue() / reviewCount : null;
+    }
+}
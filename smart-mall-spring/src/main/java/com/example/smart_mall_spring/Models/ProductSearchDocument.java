@@ -0,0 +1,24 @@
+package com.example.smart_mall_spring.Models;
+
+import com.example.smart_mall_spring.Enum.Status;
+
+import java.util.UUID;
+
+/**
+ * Flat view of a product used to build the in-memory search index
+ * (loaded with a JPQL constructor expression, no entity graph).
+ */
+public record ProductSearchDocument(
+        UUID productId,
+        String name,
+        String brand,
+        String description,
+        UUID categoryId,
+        String categoryName,
+        UUID shopId,
+        Status status,
+        Boolean isDeleted,
+        Double minPrice,
+        Double maxPrice
+) {
+}
@@ -0,0 +1,21 @@
+package com.example.smart_mall_spring.Models;
+
+import com.example.smart_mall_spring.Enum.Status;
+
+import java.util.UUID;
+
+/**
+ * Flat view of a product used to build the autocomplete trie.
+ * {@code soldUnits} is the total quantity ordered across all variants.
+ */
+public record ProductSuggestionRow(
+        UUID productId,
+        String name,
+        String brand,
+        UUID categoryId,
+        Status status,
+        Boolean isDeleted,
+        Long reviewCount,
+        Long soldUnits
+) {
+}
@@ -0,0 +1,17 @@
+package com.example.smart_mall_spring.Models;
+
+import java.util.UUID;
+
+/**
+ * All-time review totals of a shop, summed from its monthly review aggregates.
+ */
+public record ShopReviewSummary(
+        UUID shopId,
+        Long reviewCount,
+        Long ratingSum
+) {
+
+    public Double averageRating() {
+        return reviewCount != null && reviewCount > 0 ? ratingSum.doubleValue() / reviewCount : null;
+    }
+}
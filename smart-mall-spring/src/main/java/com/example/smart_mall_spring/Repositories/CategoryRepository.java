@@ -1,6 +1,7 @@
 package com.example.smart_mall_spring.Repositories;
 
 import com.example.smart_mall_spring.Entities.Categories.Category;
+import com.example.smart_mall_spring.Models.CategoryTreeRow;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
@@ -46,4 +47,10 @@ public interface CategoryRepository extends JpaRepository<Category, UUID> {
     // Phân trang - Tìm kiếm category theo tên
     @Query("SELECT c FROM Category c WHERE LOWER(c.name) LIKE LOWER(CONCAT('%', :name, '%'))")
     Page<Category> findByNameContainingWithPagination(String name, Pageable pageable);
+    
+    // Cây danh mục: một dòng phẳng cho mỗi category, không nạp parent/subCategories
+    @Query("SELECT new com.example.smart_mall_spring.Models.CategoryTreeRow(" +
+           "c.id, c.name, c.description, c.image, c.status, pc.id, c.createdAt, c.updatedAt) " +
+           "FROM Category c LEFT JOIN c.parent pc")
+    List<CategoryTreeRow> findTreeRows();
 }
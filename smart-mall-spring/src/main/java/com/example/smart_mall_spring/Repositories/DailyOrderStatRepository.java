@@ -0,0 +1,45 @@
+package com.example.smart_mall_spring.Repositories;
+
+import com.example.smart_mall_spring.Entities.Orders.DailyOrderStat;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface DailyOrderStatRepository extends JpaRepository<DailyOrderStat, DailyOrderStat.Key> {
+
+    // Rows of a date range (inclusive), for revenue totals and charts
+    @Query("SELECT s FROM DailyOrderStat s WHERE s.id.statDate BETWEEN :startDate AND :endDate")
+    List<DailyOrderStat> findByDateRange(@Param("startDate") LocalDate startDate, @Param("endDate") LocalDate endDate);
+
+    // Order count per status over all days: [StatusOrder, Long]
+    @Query("SELECT s.id.status, SUM(s.orderCount) FROM DailyOrderStat s GROUP BY s.id.status")
+    List<Object[]> sumOrderCountByStatus();
+
+    // Apply an incremental delta to one (date, status) row
+    @Modifying
+    @Query(value = "INSERT INTO daily_order_stats (stat_date, status, order_count, total_amount) " +
+           "VALUES (:statDate, :status, :countDelta, :amountDelta) " +
+           "ON DUPLICATE KEY UPDATE order_count = order_count + :countDelta, total_amount = total_amount + :amountDelta",
+           nativeQuery = true)
+    int addDelta(@Param("statDate") LocalDate statDate, @Param("status") String status,
+                 @Param("countDelta") long countDelta, @Param("amountDelta") double amountDelta);
+
+    @Modifying
+    @Query(value = "DELETE FROM daily_order_stats WHERE stat_date >= :fromDate", nativeQuery = true)
+    int deleteFromDate(@Param("fromDate") LocalDate fromDate);
+
+    // Recompute rows from the orders table for orders created since :from
+    @Modifying
+    @Query(value = "INSERT INTO daily_order_stats (stat_date, status, order_count, total_amount) " +
+           "SELECT DATE(o.created_at), o.status, COUNT(*), COALESCE(SUM(o.total_amount), 0) " +
+           "FROM orders o WHERE o.created_at >= :from AND o.status IS NOT NULL " +
+           "GROUP BY DATE(o.created_at), o.status", nativeQuery = true)
+    int insertAggregatesFrom(@Param("from") LocalDateTime from);
+}
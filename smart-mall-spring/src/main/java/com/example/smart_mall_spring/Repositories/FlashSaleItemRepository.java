@@ -14,7 +14,7 @@ import java.util.Optional;
 import java.util.UUID;
 
 @Repository
-public interface FlashSaleItemRepository extends JpaRepository<FlashSaleItem, UUID> {
+public interface FlashSaleItemRepository extends JpaRepository<FlashSaleItem, UUID>, FlashSaleItemRepositoryCustom {
     
     // Find items by flash sale
     List<FlashSaleItem> findByFlashSaleId(UUID flashSaleId);
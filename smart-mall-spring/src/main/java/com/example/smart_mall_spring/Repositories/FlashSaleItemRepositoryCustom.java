@@ -0,0 +1,18 @@
+package com.example.smart_mall_spring.Repositories;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.UUID;
+
+public interface FlashSaleItemRepositoryCustom {
+
+    /**
+     * Record sold units on the items of currently running flash sales for several variants in a single
+     * UPDATE statement: {@code soldQuantity} grows by the quantity and {@code remainingQuantity} is
+     * decremented, clamped at zero.
+     *
+     * @param quantities variant ID → quantity sold
+     * @return number of flash sale item rows updated
+     */
+    int decreaseActiveQuantitiesClamped(Map<UUID, Integer> quantities, LocalDateTime now);
+}
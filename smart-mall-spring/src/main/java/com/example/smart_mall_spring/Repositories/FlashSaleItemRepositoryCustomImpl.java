@@ -0,0 +1,54 @@
+package com.example.smart_mall_spring.Repositories;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Builds one {@code UPDATE ... SET remaining = CASE ... END, sold = sold + CASE ... END WHERE variant IN (...)}
+ * statement per flush, so the sold units of every variant reach the running flash sales in one round trip.
+ */
+public class FlashSaleItemRepositoryCustomImpl implements FlashSaleItemRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public int decreaseActiveQuantitiesClamped(Map<UUID, Integer> quantities, LocalDateTime now) {
+        if (quantities.isEmpty()) {
+            return 0;
+        }
+
+        List<UUID> ids = new ArrayList<>(quantities.keySet());
+        StringBuilder remainingExpr = new StringBuilder("CASE");
+        StringBuilder soldExpr = new StringBuilder("CASE");
+        for (int i = 0; i < ids.size(); i++) {
+            remainingExpr.append(" WHEN i.productVariant.id = :id").append(i)
+                    .append(" THEN (CASE WHEN i.remainingQuantity > :qty").append(i)
+                    .append(" THEN i.remainingQuantity - :qty").append(i).append(" ELSE 0 END)");
+            soldExpr.append(" WHEN i.productVariant.id = :id").append(i).append(" THEN :qty").append(i);
+        }
+        remainingExpr.append(" ELSE i.remainingQuantity END");
+        soldExpr.append(" ELSE 0 END");
+
+        Query query = entityManager.createQuery(
+                "UPDATE FlashSaleItem i SET i.remainingQuantity = " + remainingExpr +
+                ", i.soldQuantity = i.soldQuantity + " + soldExpr +
+                " WHERE i.productVariant.id IN :ids AND i.isActive = true" +
+                " AND i.flashSale.id IN (SELECT f.id FROM FlashSale f WHERE f.status = 'APPROVED'" +
+                " AND f.isDeleted = false AND f.startTime <= :now AND f.endTime > :now)");
+        for (int i = 0; i < ids.size(); i++) {
+            query.setParameter("id" + i, ids.get(i));
+            query.setParameter("qty" + i, quantities.get(ids.get(i)));
+        }
+        query.setParameter("ids", ids);
+        query.setParameter("now", now);
+        return query.executeUpdate();
+    }
+}
@@ -4,10 +4,13 @@ import com.example.smart_mall_spring.Entities.FlashSale.FlashSale;
 import com.example.smart_mall_spring.Enum.Status;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -22,6 +25,18 @@ public interface FlashSaleRepository extends JpaRepository<FlashSale, UUID> {
     
     Page<FlashSale> findByIsDeletedFalse(Pageable pageable);
     
+    // Keyset - trang đầu (không COUNT)
+    @Query("SELECT f FROM FlashSale f WHERE f.isDeleted = false ORDER BY f.createdAt DESC, f.id DESC")
+    Slice<FlashSale> findSliceByIsDeletedFalse(Pageable pageable);
+    
+    // Keyset - sau (createdAt, id) của dòng cuối trang trước
+    @Query("SELECT f FROM FlashSale f WHERE f.isDeleted = false " +
+           "AND (f.createdAt < :createdAt OR (f.createdAt = :createdAt AND f.id < :id)) " +
+           "ORDER BY f.createdAt DESC, f.id DESC")
+    Slice<FlashSale> findSliceByIsDeletedFalseAfter(@Param("createdAt") LocalDateTime createdAt,
+                                                    @Param("id") UUID id,
+                                                    Pageable pageable);
+    
     // Find by ID and not deleted
     Optional<FlashSale> findByIdAndIsDeletedFalse(UUID id);
     
@@ -46,6 +61,13 @@ public interface FlashSaleRepository extends JpaRepository<FlashSale, UUID> {
            "ORDER BY f.displayPriority DESC, f.startTime ASC")
     Page<FlashSale> findActiveFlashSales(@Param("currentTime") LocalDateTime currentTime, Pageable pageable);
     
+    // Find running and upcoming flash sales with items, products and variants (catalog snapshot)
+    @Query("SELECT DISTINCT f FROM FlashSale f LEFT JOIN FETCH f.shop " +
+           "LEFT JOIN FETCH f.flashSaleItems i LEFT JOIN FETCH i.product LEFT JOIN FETCH i.productVariant " +
+           "WHERE f.status = 'APPROVED' AND f.isDeleted = false AND f.endTime > :currentTime " +
+           "ORDER BY f.displayPriority DESC, f.startTime ASC")
+    List<FlashSale> findCurrentAndUpcomingWithItems(@Param("currentTime") LocalDateTime currentTime);
+    
     // Find upcoming flash sales
     @Query("SELECT f FROM FlashSale f WHERE f.status = 'APPROVED' AND f.isDeleted = false " +
            "AND f.startTime > :currentTime " +
@@ -80,4 +102,22 @@ public interface FlashSaleRepository extends JpaRepository<FlashSale, UUID> {
            "AND f.startTime <= :currentTime AND f.endTime > :currentTime")
     Long countActiveFlashSalesByShop(@Param("shopId") UUID shopId, 
                                       @Param("currentTime") LocalDateTime currentTime);
+    
+    // Approved flash sales that still have a start or end transition ahead
+    @Query("SELECT f FROM FlashSale f WHERE f.status = 'APPROVED' AND f.isDeleted = false " +
+           "AND f.endTime > :currentTime")
+    List<FlashSale> findApprovedEndingAfter(@Param("currentTime") LocalDateTime currentTime);
+    
+    // Flip the precomputed running flag of one flash sale
+    @Transactional
+    @Modifying
+    @Query("UPDATE FlashSale f SET f.isRunning = :running WHERE f.id = :flashSaleId")
+    int updateRunning(@Param("flashSaleId") UUID flashSaleId, @Param("running") Boolean running);
+    
+    // Recompute every running flag from status and time window (startup reconciliation)
+    @Transactional
+    @Modifying
+    @Query("UPDATE FlashSale f SET f.isRunning = CASE WHEN f.status = 'APPROVED' AND f.isDeleted = false " +
+           "AND f.startTime <= :currentTime AND f.endTime > :currentTime THEN true ELSE false END")
+    int refreshRunning(@Param("currentTime") LocalDateTime currentTime);
 }
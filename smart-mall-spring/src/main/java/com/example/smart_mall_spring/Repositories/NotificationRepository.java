@@ -5,6 +5,7 @@ import com.example.smart_mall_spring.Entities.Users.User;
 import com.example.smart_mall_spring.Enum.NotificationStatus;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
@@ -12,6 +13,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
 
@@ -23,6 +25,25 @@ public interface NotificationRepository extends JpaRepository<Notification, UUID
      */
     Page<Notification> findByUserOrderByCreatedAtDesc(User user, Pageable pageable);
     
+    /**
+     * Keyset feed: first window of a user's notifications (no count query)
+     */
+    @Query("SELECT n FROM Notification n WHERE n.user.id = :userId ORDER BY n.createdAt DESC, n.id DESC")
+    Slice<Notification> findSliceByUserId(@Param("userId") UUID userId, Pageable pageable);
+    
+    /**
+     * Keyset feed: notifications older than the (createdAt, id) of the previous window's last row
+     */
+    @Query("SELECT n FROM Notification n WHERE n.user.id = :userId " +
+           "AND (n.createdAt < :createdAt OR (n.createdAt = :createdAt AND n.id < :id)) " +
+           "ORDER BY n.createdAt DESC, n.id DESC")
+    Slice<Notification> findSliceByUserIdAfter(
+        @Param("userId") UUID userId,
+        @Param("createdAt") LocalDateTime createdAt,
+        @Param("id") UUID id,
+        Pageable pageable
+    );
+    
     /**
      * Find all notifications for a specific user by status
      */
@@ -54,6 +75,33 @@ public interface NotificationRepository extends JpaRepository<Notification, UUID
         @Param("updatedAt") LocalDateTime updatedAt
     );
     
+    /**
+     * Mark one notification as read if it is still unread. Returns 1 only for the caller that changed it,
+     * so concurrent calls decrement the unread count once
+     */
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE Notification n SET n.status = :status, n.updatedAt = :updatedAt WHERE n.id = :id AND n.status = :oldStatus")
+    int markAsReadIfStatus(
+        @Param("id") UUID id,
+        @Param("status") NotificationStatus status,
+        @Param("oldStatus") NotificationStatus oldStatus,
+        @Param("updatedAt") LocalDateTime updatedAt
+    );
+    
+    /**
+     * Delete one notification if it has the given status (the row count tells whether an unread one was deleted)
+     */
+    @Modifying(clearAutomatically = true)
+    @Query("DELETE FROM Notification n WHERE n.id = :id AND n.status = :status")
+    int deleteByIdAndStatus(@Param("id") UUID id, @Param("status") NotificationStatus status);
+    
+    /**
+     * Delete a user's notifications having the given status
+     */
+    @Modifying(clearAutomatically = true)
+    @Query("DELETE FROM Notification n WHERE n.user.id = :userId AND n.status = :status")
+    int deleteByUserIdAndStatus(@Param("userId") UUID userId, @Param("status") NotificationStatus status);
+    
     /**
      * Delete old notifications (cleanup)
      */
@@ -66,4 +114,10 @@ public interface NotificationRepository extends JpaRepository<Notification, UUID
      */
     @Query("SELECT COUNT(n) FROM Notification n WHERE n.user.id = :userId AND n.status = 'UNREAD'")
     long countUnreadByUserId(@Param("userId") UUID userId);
+    
+    /**
+     * Unread counts of several users: [UUID userId, Long count], users without unread notifications omitted
+     */
+    @Query("SELECT n.user.id, COUNT(n) FROM Notification n WHERE n.user.id IN :userIds AND n.status = 'UNREAD' GROUP BY n.user.id")
+    List<Object[]> countUnreadGroupByUserId(@Param("userIds") Collection<UUID> userIds);
 }
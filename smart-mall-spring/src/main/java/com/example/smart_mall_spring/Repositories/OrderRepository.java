@@ -9,6 +9,9 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -28,6 +31,19 @@ public interface OrderRepository extends JpaRepository<Order, UUID> {
     @Query("SELECT o FROM Order o WHERE o.shop.id = :shopId ORDER BY o.createdAt DESC")
     Page<Order> findByShopId(UUID shopId, Pageable pageable);
 
+    // --- Keyset: đơn hàng theo shop, trang đầu (không COUNT) ---
+    @Query("SELECT o FROM Order o WHERE o.shop.id = :shopId AND (:status IS NULL OR o.status = :status) " +
+           "ORDER BY o.createdAt DESC, o.id DESC")
+    Slice<Order> findSliceByShopId(@Param("shopId") UUID shopId, @Param("status") StatusOrder status, Pageable pageable);
+
+    // --- Keyset: đơn hàng theo shop, sau (createdAt, id) của dòng cuối trang trước ---
+    @Query("SELECT o FROM Order o WHERE o.shop.id = :shopId AND (:status IS NULL OR o.status = :status) " +
+           "AND (o.createdAt < :createdAt OR (o.createdAt = :createdAt AND o.id < :id)) " +
+           "ORDER BY o.createdAt DESC, o.id DESC")
+    Slice<Order> findSliceByShopIdAfter(@Param("shopId") UUID shopId, @Param("status") StatusOrder status,
+                                        @Param("createdAt") LocalDateTime createdAt, @Param("id") UUID id,
+                                        Pageable pageable);
+
     //  Lọc theo trạng thái
     @Query("SELECT o FROM Order o WHERE o.user.id = :userId AND o.status = :status ORDER BY o.createdAt DESC")
     List<Order> findByUserIdAndStatus(UUID userId, StatusOrder status);
@@ -0,0 +1,32 @@
+package com.example.smart_mall_spring.Repositories;
+
+import com.example.smart_mall_spring.Entities.OutboundEmail;
+import com.example.smart_mall_spring.Enum.OutboundEmailStatus;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface OutboundEmailRepository extends JpaRepository<OutboundEmail, UUID> {
+
+    // Lock due emails (pending, or sending with an expired lease); rows locked by other instances are skipped
+    @Query(value = "SELECT * FROM outbound_emails " +
+           "WHERE (status = 'PENDING' AND available_at <= :now) " +
+           "OR (status = 'SENDING' AND lease_expires_at <= :now) " +
+           "ORDER BY available_at LIMIT :limit FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<OutboundEmail> lockClaimableEmails(@Param("now") LocalDateTime now, @Param("limit") int limit);
+
+    long countByStatus(OutboundEmailStatus status);
+
+    // Drop delivered emails older than the retention period
+    @Modifying
+    @Query("DELETE FROM OutboundEmail e WHERE e.status = com.example.smart_mall_spring.Enum.OutboundEmailStatus.SENT " +
+           "AND e.sentAt < :before")
+    int deleteSentBefore(@Param("before") LocalDateTime before);
+}
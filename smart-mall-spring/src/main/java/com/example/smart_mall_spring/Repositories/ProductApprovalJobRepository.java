@@ -0,0 +1,55 @@
+package com.example.smart_mall_spring.Repositories;
+
+import com.example.smart_mall_spring.Entities.Products.ProductApprovalJob;
+import com.example.smart_mall_spring.Enum.ApprovalJobStatus;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+@Repository
+public interface ProductApprovalJobRepository extends JpaRepository<ProductApprovalJob, UUID> {
+
+    // Lock due jobs (pending, or in progress with an expired lease); rows locked by other instances are skipped
+    @Query(value = "SELECT * FROM product_approval_jobs " +
+           "WHERE (status = 'PENDING' AND available_at <= :now) " +
+           "OR (status = 'IN_PROGRESS' AND lease_expires_at <= :now) " +
+           "ORDER BY available_at LIMIT :limit FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<ProductApprovalJob> lockClaimableJobs(@Param("now") LocalDateTime now, @Param("limit") int limit);
+
+    @Query("SELECT j.status FROM ProductApprovalJob j WHERE j.productId = :productId")
+    Optional<ApprovalJobStatus> findStatusByProductId(@Param("productId") UUID productId);
+
+    // Insert a pending job, or reopen a finished one; pending/in-progress jobs are left untouched (status is assigned last).
+    // The returned count depends on the driver's useAffectedRows setting, so callers must not infer the outcome from it
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    @Modifying
+    @Query(value = "INSERT INTO product_approval_jobs (product_id, status, attempts, available_at, created_at, updated_at) " +
+           "VALUES (:productId, 'PENDING', 0, :now, :now, :now) " +
+           "ON DUPLICATE KEY UPDATE " +
+           "attempts = IF(status IN ('DONE', 'FAILED'), 0, attempts), " +
+           "available_at = IF(status IN ('DONE', 'FAILED'), :now, available_at), " +
+           "last_error = IF(status IN ('DONE', 'FAILED'), NULL, last_error), " +
+           "updated_at = IF(status IN ('DONE', 'FAILED'), :now, updated_at), " +
+           "status = IF(status IN ('DONE', 'FAILED'), 'PENDING', status)", nativeQuery = true)
+    int upsertPending(@Param("productId") UUID productId, @Param("now") LocalDateTime now);
+
+    long countByStatus(ApprovalJobStatus status);
+
+    @Query("SELECT j.productId FROM ProductApprovalJob j WHERE j.status IN :statuses ORDER BY j.availableAt")
+    List<UUID> findProductIdsByStatusIn(@Param("statuses") Collection<ApprovalJobStatus> statuses);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM ProductApprovalJob j WHERE j.status = :status")
+    int deleteByStatus(@Param("status") ApprovalJobStatus status);
+}
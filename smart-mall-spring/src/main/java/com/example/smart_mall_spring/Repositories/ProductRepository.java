@@ -2,15 +2,27 @@ package com.example.smart_mall_spring.Repositories;
 
 import com.example.smart_mall_spring.Entities.Products.Product;
 import com.example.smart_mall_spring.Enum.Status;
+import com.example.smart_mall_spring.Models.ProductListingRow;
+import com.example.smart_mall_spring.Models.ProductSearchDocument;
+import com.example.smart_mall_spring.Models.ProductSuggestionRow;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 @Repository
 public interface ProductRepository extends JpaRepository<Product, UUID> {
@@ -18,15 +30,77 @@ public interface ProductRepository extends JpaRepository<Product, UUID> {
     // Tìm sản phẩm theo category
     List<Product> findByCategoryId(UUID categoryId);
     
+    // Tìm sản phẩm thuộc nhiều category (category và các category con)
+    List<Product> findByCategoryIdIn(Collection<UUID> categoryIds);
+    
     // Tìm sản phẩm theo shop
     List<Product> findByShopId(UUID shopId);
     
     // Tìm sản phẩm theo status
     List<Product> findByStatus(Status status);
     
-    // Tìm sản phẩm theo tên (tìm kiếm tương đối)
-    @Query("SELECT p FROM Product p WHERE p.name LIKE %:name%")
-    List<Product> findByNameContaining(@Param("name") String name);
+    // Atomically add (delta = 1) or remove (delta = -1) one review of the given rating
+    @Modifying
+    @Query(value = "UPDATE products SET rating_sum = rating_sum + :rating * :delta, " +
+           "review_count = review_count + :delta, " +
+           "rating_1_count = rating_1_count + IF(:rating = 1, :delta, 0), " +
+           "rating_2_count = rating_2_count + IF(:rating = 2, :delta, 0), " +
+           "rating_3_count = rating_3_count + IF(:rating = 3, :delta, 0), " +
+           "rating_4_count = rating_4_count + IF(:rating = 4, :delta, 0), " +
+           "rating_5_count = rating_5_count + IF(:rating = 5, :delta, 0) " +
+           "WHERE id = :productId", nativeQuery = true)
+    int applyRatingDelta(@Param("productId") UUID productId, @Param("rating") int rating, @Param("delta") int delta);
+    
+    // Recompute every product's rating aggregates from the reviews table
+    @Modifying
+    @Query(value = "UPDATE products p LEFT JOIN (" +
+           "SELECT product_id, SUM(rating) AS s, COUNT(*) AS c, SUM(rating = 1) AS r1, SUM(rating = 2) AS r2, " +
+           "SUM(rating = 3) AS r3, SUM(rating = 4) AS r4, SUM(rating = 5) AS r5 " +
+           "FROM reviews GROUP BY product_id) r ON r.product_id = p.id " +
+           "SET p.rating_sum = COALESCE(r.s, 0), p.review_count = COALESCE(r.c, 0), " +
+           "p.rating_1_count = COALESCE(r.r1, 0), p.rating_2_count = COALESCE(r.r2, 0), " +
+           "p.rating_3_count = COALESCE(r.r3, 0), p.rating_4_count = COALESCE(r.r4, 0), " +
+           "p.rating_5_count = COALESCE(r.r5, 0)", nativeQuery = true)
+    int reconcileRatingStats();
+    
+    String SEARCH_DOCUMENT_SELECT = "SELECT new com.example.smart_mall_spring.Models.ProductSearchDocument(" +
+           "p.id, p.name, p.brand, p.description, c.id, c.name, s.id, p.status, p.isDeleted, " +
+           "(SELECT MIN(v.price) FROM ProductVariant v WHERE v.product = p), " +
+           "(SELECT MAX(v.price) FROM ProductVariant v WHERE v.product = p)) " +
+           "FROM Product p LEFT JOIN p.category c LEFT JOIN p.shop s";
+    
+    // Search index documents: one flat row per product, streamed so the whole table is never held in memory
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + Integer.MIN_VALUE))
+    @Query(SEARCH_DOCUMENT_SELECT)
+    Stream<ProductSearchDocument> streamSearchDocuments();
+    
+    @Query(SEARCH_DOCUMENT_SELECT + " WHERE p.id = :productId")
+    Optional<ProductSearchDocument> findSearchDocument(@Param("productId") UUID productId);
+    
+    String SUGGESTION_ROW_SELECT = "SELECT new com.example.smart_mall_spring.Models.ProductSuggestionRow(" +
+           "p.id, p.name, p.brand, c.id, p.status, p.isDeleted, p.reviewCount, " +
+           "(SELECT COALESCE(SUM(oi.quantity), 0L) FROM OrderItem oi WHERE oi.variant.product = p)) " +
+           "FROM Product p LEFT JOIN p.category c";
+    
+    // Autocomplete rows of every ACTIVE product, streamed
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + Integer.MIN_VALUE))
+    @Query(SUGGESTION_ROW_SELECT + " WHERE p.status = 'ACTIVE' AND p.isDeleted = false")
+    Stream<ProductSuggestionRow> streamActiveSuggestionRows();
+    
+    @Query(SUGGESTION_ROW_SELECT + " WHERE p.id IN :productIds")
+    List<ProductSuggestionRow> findSuggestionRows(@Param("productIds") Collection<UUID> productIds);
+    
+    // Catch-up after loading an autocomplete snapshot
+    @Query(SUGGESTION_ROW_SELECT + " WHERE p.updatedAt > :since")
+    List<ProductSuggestionRow> findSuggestionRowsUpdatedAfter(@Param("since") LocalDateTime since);
+    
+    // IDs of products waiting for approval (no variants/images loaded)
+    @Query("SELECT p.id FROM Product p WHERE p.status = :status AND p.isDeleted = false")
+    List<UUID> findIdsByStatus(@Param("status") Status status);
+    
+    // IDs of products that entered the given status since the last sweep
+    @Query("SELECT p.id FROM Product p WHERE p.status = :status AND p.isDeleted = false AND p.updatedAt > :since")
+    List<UUID> findIdsByStatusUpdatedAfter(@Param("status") Status status, @Param("since") LocalDateTime since);
     
     // Tìm sản phẩm theo brand
     List<Product> findByBrand(String brand);
@@ -64,6 +138,44 @@ public interface ProductRepository extends JpaRepository<Product, UUID> {
     // Đếm sản phẩm theo category
     long countByCategoryId(UUID categoryId);
     
+    // Đếm sản phẩm của mọi category trong một truy vấn: [categoryId, count]
+    @Query("SELECT p.category.id, COUNT(p) FROM Product p WHERE p.category IS NOT NULL GROUP BY p.category.id")
+    List<Object[]> countGroupByCategoryId();
+    
+    String LISTING_ROW_SELECT = "SELECT new com.example.smart_mall_spring.Models.ProductListingRow(" +
+           "p.id, p.name, p.brand, c.id, c.name, s.id, s.name, p.ratingSum, p.reviewCount, p.createdAt) " +
+           "FROM Product p LEFT JOIN p.category c LEFT JOIN p.shop s " +
+           "WHERE p.isDeleted = false AND p.status = 'ACTIVE' AND " +
+           "(:categoryId IS NULL OR c.id = :categoryId) AND (:shopId IS NULL OR s.id = :shopId)";
+    
+    // Listing grid: one flat row per ACTIVE product, optionally filtered by category/shop
+    @Query(value = LISTING_ROW_SELECT,
+           countQuery = "SELECT COUNT(p) FROM Product p " +
+                        "WHERE p.isDeleted = false AND p.status = 'ACTIVE' AND " +
+                        "(:categoryId IS NULL OR p.category.id = :categoryId) AND (:shopId IS NULL OR p.shop.id = :shopId)")
+    Page<ProductListingRow> findListingRows(@Param("categoryId") UUID categoryId,
+                                            @Param("shopId") UUID shopId,
+                                            Pageable pageable);
+    
+    // Keyset - trang đầu của listing (không COUNT)
+    @Query(LISTING_ROW_SELECT + " ORDER BY p.createdAt DESC, p.id DESC")
+    Slice<ProductListingRow> findListingRowsFirst(@Param("categoryId") UUID categoryId,
+                                                  @Param("shopId") UUID shopId,
+                                                  Pageable pageable);
+    
+    // Keyset - các trang tiếp theo, sau (createdAt, id) của dòng cuối trang trước
+    @Query(LISTING_ROW_SELECT + " AND (p.createdAt < :createdAt OR (p.createdAt = :createdAt AND p.id < :id)) " +
+           "ORDER BY p.createdAt DESC, p.id DESC")
+    Slice<ProductListingRow> findListingRowsAfter(@Param("categoryId") UUID categoryId,
+                                                  @Param("shopId") UUID shopId,
+                                                  @Param("createdAt") LocalDateTime createdAt,
+                                                  @Param("id") UUID id,
+                                                  Pageable pageable);
+    
+    // Thumbnail of each product of a page in one query: [productId, imageUrl] of the first image (image_order = 0)
+    @Query("SELECT p.id, i FROM Product p JOIN p.images i WHERE p.id IN :productIds AND INDEX(i) = 0")
+    List<Object[]> findThumbnailsByProductIds(@Param("productIds") Collection<UUID> productIds);
+    
     // Phân trang - Tìm tất cả sản phẩm (chỉ ACTIVE)
     @Query("SELECT p FROM Product p WHERE p.isDeleted = false AND p.status = 'ACTIVE'")
     Page<Product> findAllWithPagination(Pageable pageable);
@@ -72,6 +184,10 @@ public interface ProductRepository extends JpaRepository<Product, UUID> {
     @Query("SELECT p FROM Product p WHERE p.category.id = :categoryId AND p.isDeleted = false AND p.status = 'ACTIVE'")
     Page<Product> findByCategoryIdWithPagination(@Param("categoryId") UUID categoryId, Pageable pageable);
     
+    // Phân trang - Tìm sản phẩm thuộc nhiều category (category và các category con, chỉ ACTIVE)
+    @Query("SELECT p FROM Product p WHERE p.category.id IN :categoryIds AND p.isDeleted = false AND p.status = 'ACTIVE'")
+    Page<Product> findByCategoryIdInWithPagination(@Param("categoryIds") Collection<UUID> categoryIds, Pageable pageable);
+    
     // Phân trang - Tìm sản phẩm theo shop (chỉ ACTIVE)
     @Query("SELECT p FROM Product p WHERE p.shop.id = :shopId AND p.isDeleted = false AND p.status = 'ACTIVE'")
     Page<Product> findByShopIdWithPagination(@Param("shopId") UUID shopId, Pageable pageable);
@@ -80,17 +196,16 @@ public interface ProductRepository extends JpaRepository<Product, UUID> {
     @Query("SELECT p FROM Product p WHERE p.status = :status AND p.isDeleted = false")
     Page<Product> findByStatusWithPagination(@Param("status") Status status, Pageable pageable);
     
-    // Phân trang - Tìm kiếm sản phẩm theo tên (chỉ ACTIVE)
-    @Query("SELECT p FROM Product p WHERE p.name LIKE %:name% AND p.isDeleted = false AND p.status = 'ACTIVE'")
-    Page<Product> findByNameContainingWithPagination(@Param("name") String name, Pageable pageable);
-    
     // Phân trang - Tìm kiếm sản phẩm theo nhiều tiêu chí (chỉ ACTIVE nếu không chỉ định status)
+    // Khoảng giá: giữ sản phẩm có khoảng giá variant giao với [minPrice, maxPrice], giống ProductSearchIndex
     @Query("SELECT p FROM Product p WHERE " +
            "(:name IS NULL OR p.name LIKE %:name%) AND " +
            "(:brand IS NULL OR p.brand = :brand) AND " +
            "(:categoryId IS NULL OR p.category.id = :categoryId) AND " +
            "(:shopId IS NULL OR p.shop.id = :shopId) AND " +
            "(:status IS NULL OR p.status = :status) AND " +
+           "(:minPrice IS NULL OR EXISTS (SELECT v FROM ProductVariant v WHERE v.product = p AND v.price >= :minPrice)) AND " +
+           "(:maxPrice IS NULL OR EXISTS (SELECT v FROM ProductVariant v WHERE v.product = p AND v.price <= :maxPrice)) AND " +
            "p.isDeleted = false AND " +
            "(:status IS NOT NULL OR p.status = 'ACTIVE')")
     Page<Product> findProductsByMultipleCriteriaWithPagination(
@@ -99,6 +214,8 @@ public interface ProductRepository extends JpaRepository<Product, UUID> {
             @Param("categoryId") UUID categoryId,
             @Param("shopId") UUID shopId,
             @Param("status") Status status,
+            @Param("minPrice") Double minPrice,
+            @Param("maxPrice") Double maxPrice,
             Pageable pageable
     );
 }
\ No newline at end of file
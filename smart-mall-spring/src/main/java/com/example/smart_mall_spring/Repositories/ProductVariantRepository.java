@@ -1,23 +1,37 @@
 package com.example.smart_mall_spring.Repositories;
 
 import com.example.smart_mall_spring.Entities.Products.ProductVariant;
+import com.example.smart_mall_spring.Models.ListingVariantRow;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
 @Repository
-public interface ProductVariantRepository extends JpaRepository<ProductVariant, UUID> {
+public interface ProductVariantRepository extends JpaRepository<ProductVariant, UUID>, ProductVariantRepositoryCustom {
     
     List<ProductVariant> findByProductId(UUID productId);
     
+    // Read current stock of several variants (used to report which cart line ran out)
+    @Query("SELECT v FROM ProductVariant v JOIN FETCH v.product WHERE v.id IN :ids")
+    List<ProductVariant> findAllWithProductByIdIn(@Param("ids") Collection<UUID> ids);
+    
+    // Pricing of every variant of a page of products in one query (listing grid, no entity loaded)
+    @Query("SELECT new com.example.smart_mall_spring.Models.ListingVariantRow(" +
+           "v.product.id, v.price, v.flashSalePrice, v.isFlashSale, v.flashSaleRunning, v.flashSaleQuantity) " +
+           "FROM ProductVariant v WHERE v.product.id IN :productIds")
+    List<ListingVariantRow> findListingRowsByProductIds(@Param("productIds") Collection<UUID> productIds);
+    
     long countByProductId(UUID productId);
     
     Optional<ProductVariant> findBySku(String sku);
@@ -46,4 +60,21 @@ public interface ProductVariantRepository extends JpaRepository<ProductVariant,
     @Query("SELECT v FROM ProductVariant v JOIN v.product p WHERE p.shop.id = :shopId " +
            "AND v.isFlashSale = true ORDER BY v.flashSaleStart DESC")
     Page<ProductVariant> findAllFlashSaleVariantsByShop(@Param("shopId") UUID shopId, Pageable pageable);
-}
\ No newline at end of file
+    
+    // Variant flash sales that still have a start or end transition ahead
+    @Query("SELECT v FROM ProductVariant v WHERE v.isFlashSale = true AND v.flashSaleEnd > :now")
+    List<ProductVariant> findFlashSaleVariantsEndingAfter(@Param("now") LocalDateTime now);
+    
+    // Flip the precomputed running flag of one variant
+    @Transactional
+    @Modifying
+    @Query("UPDATE ProductVariant v SET v.flashSaleRunning = :running WHERE v.id = :variantId")
+    int updateFlashSaleRunning(@Param("variantId") UUID variantId, @Param("running") Boolean running);
+    
+    // Recompute every running flag from the flash sale window (startup reconciliation)
+    @Transactional
+    @Modifying
+    @Query("UPDATE ProductVariant v SET v.flashSaleRunning = CASE WHEN v.isFlashSale = true " +
+           "AND v.flashSaleStart <= :now AND v.flashSaleEnd > :now THEN true ELSE false END")
+    int refreshFlashSaleRunning(@Param("now") LocalDateTime now);
+}
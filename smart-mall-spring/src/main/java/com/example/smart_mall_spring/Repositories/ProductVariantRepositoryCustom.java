@@ -0,0 +1,26 @@
+package com.example.smart_mall_spring.Repositories;
+
+import java.util.Map;
+import java.util.UUID;
+
+public interface ProductVariantRepositoryCustom {
+
+    /**
+     * Conditionally decrement {@code stock} for a whole cart in a single UPDATE statement.
+     * A row is only updated when {@code stock >= quantity}.
+     *
+     * @param quantities variant ID → quantity to subtract
+     * @return number of variant rows actually updated
+     */
+    int decreaseStockIfAvailable(Map<UUID, Integer> quantities);
+
+    /**
+     * Decrement {@code flashSaleQuantity} for several variants in a single UPDATE statement,
+     * clamping at zero. Units were already admitted in memory, so a row whose DB quantity is
+     * lower than the delta is still written down to {@code GREATEST(flashSaleQuantity - quantity, 0)}.
+     *
+     * @param quantities variant ID → quantity to subtract
+     * @return number of variant rows actually updated
+     */
+    int decreaseFlashSaleQuantityClamped(Map<UUID, Integer> quantities);
+}
@@ -0,0 +1,79 @@
+package com.example.smart_mall_spring.Repositories;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Builds one {@code UPDATE ... SET col = col - CASE ... END WHERE (id = ? AND col >= ?) OR ...}
+ * statement per cart so multi-item checkouts need a single round trip and no row is read first.
+ */
+public class ProductVariantRepositoryCustomImpl implements ProductVariantRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public int decreaseStockIfAvailable(Map<UUID, Integer> quantities) {
+        return conditionalDecrement("stock", quantities);
+    }
+
+    @Override
+    public int decreaseFlashSaleQuantityClamped(Map<UUID, Integer> quantities) {
+        if (quantities.isEmpty()) {
+            return 0;
+        }
+
+        List<UUID> ids = new ArrayList<>(quantities.keySet());
+        StringBuilder caseExpr = new StringBuilder("CASE");
+        for (int i = 0; i < ids.size(); i++) {
+            caseExpr.append(" WHEN v.id = :id").append(i)
+                    .append(" THEN (CASE WHEN v.flashSaleQuantity > :qty").append(i)
+                    .append(" THEN v.flashSaleQuantity - :qty").append(i).append(" ELSE 0 END)");
+        }
+        caseExpr.append(" ELSE v.flashSaleQuantity END");
+
+        Query query = entityManager.createQuery(
+                "UPDATE ProductVariant v SET v.flashSaleQuantity = " + caseExpr +
+                " WHERE v.id IN :ids AND v.flashSaleQuantity IS NOT NULL");
+        for (int i = 0; i < ids.size(); i++) {
+            query.setParameter("id" + i, ids.get(i));
+            query.setParameter("qty" + i, quantities.get(ids.get(i)));
+        }
+        query.setParameter("ids", ids);
+        return query.executeUpdate();
+    }
+
+    private int conditionalDecrement(String field, Map<UUID, Integer> quantities) {
+        if (quantities.isEmpty()) {
+            return 0;
+        }
+
+        List<UUID> ids = new ArrayList<>(quantities.keySet());
+        StringBuilder caseExpr = new StringBuilder("CASE");
+        StringBuilder where = new StringBuilder();
+        for (int i = 0; i < ids.size(); i++) {
+            caseExpr.append(" WHEN v.id = :id").append(i).append(" THEN :qty").append(i);
+            if (i > 0) {
+                where.append(" OR ");
+            }
+            where.append("(v.id = :id").append(i)
+                    .append(" AND v.").append(field).append(" >= :qty").append(i).append(")");
+        }
+        caseExpr.append(" ELSE 0 END");
+
+        Query query = entityManager.createQuery(
+                "UPDATE ProductVariant v SET v." + field + " = v." + field + " - " + caseExpr +
+                " WHERE " + where);
+        for (int i = 0; i < ids.size(); i++) {
+            query.setParameter("id" + i, ids.get(i));
+            query.setParameter("qty" + i, quantities.get(ids.get(i)));
+        }
+        return query.executeUpdate();
+    }
+}
@@ -24,10 +24,13 @@ public interface ReviewReplyRepository extends JpaRepository<ReviewReply, UUID>
     // 3. Kiểm tra shop đã trả lời review chưa
     boolean existsByReviewIdAndShopId(UUID reviewId, UUID shopId);
 
-    // 4. Xóa reply theo review id (nếu cần)
+    // 4. Xóa reply theo review id (nếu cần), trả về số reply đã xóa
     @Modifying
     @Query("DELETE FROM ReviewReply rr WHERE rr.review.id = :reviewId")
-    void deleteByReviewId(@Param("reviewId") UUID reviewId);
+    int deleteByReviewId(@Param("reviewId") UUID reviewId);
+
+    // 5. Kiểm tra review đã có phản hồi nào chưa
+    boolean existsByReviewId(UUID reviewId);
 
     Optional<ReviewReply> findByReviewIdAndShopId(UUID reviewId, UUID shopId);
 
@@ -1,6 +1,5 @@
 package com.example.smart_mall_spring.Repositories;
 
-import com.example.smart_mall_spring.Dtos.Products.Review.MonthlyReviewStats;
 import com.example.smart_mall_spring.Entities.Products.Review;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
@@ -16,6 +15,8 @@ import java.util.UUID;
 public interface ReviewRepository extends JpaRepository<Review, UUID>, JpaSpecificationExecutor<Review> {
 
     // 1. Lấy trang các review của một product, sort/ filter phía Pageable
+    //    user + profile + product nạp cùng query; media và reply nạp theo batch (default_batch_fetch_size)
+    @EntityGraph(attributePaths = {"user", "user.profile", "product"})
     @Query("SELECT r FROM Review r WHERE r.product.id = :productId")
     Page<Review> findByProductId(@Param("productId") UUID productId, Pageable pageable);
 
@@ -60,6 +61,7 @@ public interface ReviewRepository extends JpaRepository<Review, UUID>, JpaSpecif
     Optional<Review> findByUserIdAndProductId(UUID userId, UUID productId);
     boolean existsByUserIdAndProductIdAndOrderId(UUID userId, UUID productId, UUID orderId);
 
+    @EntityGraph(attributePaths = {"user", "user.profile", "product"})
     @Query("""
     SELECT r FROM Review r
     JOIN r.product p
@@ -78,39 +80,10 @@ public interface ReviewRepository extends JpaRepository<Review, UUID>, JpaSpecif
             @Param("productId") UUID productId,
             Pageable pageable
     );
-    @Query("SELECT COUNT(r) FROM Review r WHERE r.product.shop.id = :shopId")
-    Long countByShopId(@Param("shopId") UUID shopId);
-
-    @Query("SELECT AVG(r.rating) FROM Review r WHERE r.product.shop.id = :shopId")
-    Double getAverageRatingByShopId(@Param("shopId") UUID shopId);
-
-    @Query("SELECT COUNT(r) FROM Review r WHERE r.product.shop.id = :shopId AND EXISTS (SELECT 1 FROM ReviewReply rr WHERE rr.review.id = r.id)")
-    Long countByShopIdWithReply(@Param("shopId") UUID shopId);
-
     Optional<Review> findTopByProductIdOrderByReviewedAtDesc(UUID productId);
 
-    @Query(value = """
-    SELECT
-        DATE_FORMAT(r.reviewed_at, '%Y-%m') AS yearMonth,
-        COUNT(r.id) AS totalReviews,
-        AVG(r.rating) AS averageRating
-    FROM reviews r
-    JOIN products p ON r.product_id = p.id
-    WHERE p.shop_id = :shopId
-    GROUP BY DATE_FORMAT(r.reviewed_at, '%Y-%m')
-    ORDER BY DATE_FORMAT(r.reviewed_at, '%Y-%m')
-""", nativeQuery = true)
-    List<Object[]> getMonthlyReviewTrendByShop(@Param("shopId") UUID shopId);
-
-    @Query("SELECT COUNT(r) FROM Review r WHERE r.product.shop.id = :shopId AND r.rating = :rating")
-    Long countByShopIdAndRating(@Param("shopId") UUID shopId, @Param("rating") Integer rating);
-    
     // === Dashboard Queries ===
     
-    // Get average rating by shop
-    @Query("SELECT AVG(r.rating) FROM Review r WHERE r.product.shop.id = :shopId")
-    Double getAverageRatingByShop(@Param("shopId") UUID shopId);
-    
     // Get recent reviews
     @Query("SELECT r FROM Review r ORDER BY r.createdAt DESC")
     List<Review> findTopByOrderByCreatedAtDesc(org.springframework.data.domain.Pageable pageable);
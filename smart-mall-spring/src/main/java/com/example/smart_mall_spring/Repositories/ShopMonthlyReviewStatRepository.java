@@ -0,0 +1,78 @@
+package com.example.smart_mall_spring.Repositories;
+
+import com.example.smart_mall_spring.Entities.Products.ShopMonthlyReviewStat;
+import com.example.smart_mall_spring.Models.ShopReviewSummary;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface ShopMonthlyReviewStatRepository extends JpaRepository<ShopMonthlyReviewStat, ShopMonthlyReviewStat.Key> {
+
+    // All months of a shop, oldest first
+    @Query("SELECT s FROM ShopMonthlyReviewStat s WHERE s.id.shopId = :shopId ORDER BY s.id.statMonth")
+    List<ShopMonthlyReviewStat> findByShopId(@Param("shopId") UUID shopId);
+
+    // Months of a shop in a range ("YYYY-MM", inclusive), oldest first
+    @Query("SELECT s FROM ShopMonthlyReviewStat s WHERE s.id.shopId = :shopId " +
+           "AND s.id.statMonth BETWEEN :fromMonth AND :toMonth ORDER BY s.id.statMonth")
+    List<ShopMonthlyReviewStat> findByShopIdAndMonthRange(@Param("shopId") UUID shopId,
+                                                         @Param("fromMonth") String fromMonth,
+                                                         @Param("toMonth") String toMonth);
+
+    // All-time totals of several shops in one query
+    @Query("SELECT new com.example.smart_mall_spring.Models.ShopReviewSummary(" +
+           "s.id.shopId, SUM(s.reviewCount), SUM(s.ratingSum)) " +
+           "FROM ShopMonthlyReviewStat s WHERE s.id.shopId IN :shopIds GROUP BY s.id.shopId")
+    List<ShopReviewSummary> summarizeByShopIds(@Param("shopIds") Collection<UUID> shopIds);
+
+    // Add (delta = 1) or remove (delta = -1) one review of the given rating; repliedDelta is delta if it has a reply
+    @Modifying
+    @Query(value = "INSERT INTO shop_monthly_review_stats (shop_id, stat_month, review_count, rating_sum, " +
+           "rating_1_count, rating_2_count, rating_3_count, rating_4_count, rating_5_count, replied_count) " +
+           "VALUES (:shopId, :statMonth, :delta, :rating * :delta, IF(:rating = 1, :delta, 0), " +
+           "IF(:rating = 2, :delta, 0), IF(:rating = 3, :delta, 0), IF(:rating = 4, :delta, 0), " +
+           "IF(:rating = 5, :delta, 0), :repliedDelta) " +
+           "ON DUPLICATE KEY UPDATE review_count = review_count + VALUES(review_count), " +
+           "rating_sum = rating_sum + VALUES(rating_sum), " +
+           "rating_1_count = rating_1_count + VALUES(rating_1_count), " +
+           "rating_2_count = rating_2_count + VALUES(rating_2_count), " +
+           "rating_3_count = rating_3_count + VALUES(rating_3_count), " +
+           "rating_4_count = rating_4_count + VALUES(rating_4_count), " +
+           "rating_5_count = rating_5_count + VALUES(rating_5_count), " +
+           "replied_count = replied_count + VALUES(replied_count)", nativeQuery = true)
+    int applyReviewDelta(@Param("shopId") UUID shopId, @Param("statMonth") String statMonth,
+                         @Param("rating") int rating, @Param("delta") int delta,
+                         @Param("repliedDelta") int repliedDelta);
+
+    // A review of the month got its first reply (delta = 1) or lost its replies (delta = -1)
+    @Modifying
+    @Query(value = "INSERT INTO shop_monthly_review_stats (shop_id, stat_month, review_count, rating_sum, " +
+           "rating_1_count, rating_2_count, rating_3_count, rating_4_count, rating_5_count, replied_count) " +
+           "VALUES (:shopId, :statMonth, 0, 0, 0, 0, 0, 0, 0, :delta) " +
+           "ON DUPLICATE KEY UPDATE replied_count = replied_count + VALUES(replied_count)", nativeQuery = true)
+    int applyReplyDelta(@Param("shopId") UUID shopId, @Param("statMonth") String statMonth, @Param("delta") int delta);
+
+    @Modifying
+    @Query(value = "DELETE FROM shop_monthly_review_stats", nativeQuery = true)
+    int deleteAllRows();
+
+    // Recompute every row from the reviews table (month of reviewed_at, falling back to created_at)
+    @Modifying
+    @Query(value = "INSERT INTO shop_monthly_review_stats (shop_id, stat_month, review_count, rating_sum, " +
+           "rating_1_count, rating_2_count, rating_3_count, rating_4_count, rating_5_count, replied_count) " +
+           "SELECT p.shop_id, DATE_FORMAT(COALESCE(r.reviewed_at, r.created_at), '%Y-%m'), COUNT(*), " +
+           "COALESCE(SUM(r.rating), 0), SUM(r.rating = 1), SUM(r.rating = 2), SUM(r.rating = 3), " +
+           "SUM(r.rating = 4), SUM(r.rating = 5), " +
+           "SUM(EXISTS (SELECT 1 FROM review_replies rr WHERE rr.review_id = r.id)) " +
+           "FROM reviews r JOIN products p ON r.product_id = p.id " +
+           "WHERE p.shop_id IS NOT NULL AND COALESCE(r.reviewed_at, r.created_at) IS NOT NULL " +
+           "GROUP BY p.shop_id, DATE_FORMAT(COALESCE(r.reviewed_at, r.created_at), '%Y-%m')", nativeQuery = true)
+    int insertAggregates();
+}
@@ -4,10 +4,13 @@ import com.example.smart_mall_spring.Entities.Users.User;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -43,6 +46,28 @@ public interface UserRepository extends JpaRepository<User, UUID> {
     List<User> findByRoleAndEmailDomainExcludeShipper(@Param("roleName") String roleName,
                                                       @Param("domain") String domain);
     
+    // Notification fan-out recipients: IDs only, no entity or role loading
+    @Query("SELECT DISTINCT u.id FROM User u JOIN u.roles r WHERE r.name = :roleName")
+    List<UUID> findIdsByRoleName(@Param("roleName") String roleName);
+
+    @Query("SELECT u.id FROM User u WHERE u.isActive = 1")
+    List<UUID> findActiveIds();
+
+    @Query("SELECT u.id FROM User u WHERE u.id IN :ids")
+    List<UUID> findExistingIds(@Param("ids") Collection<UUID> ids);
+
+    // Revoke every token of a user by bumping its token version
+    @Modifying
+    @Query("UPDATE User u SET u.tokenVersion = u.tokenVersion + 1, u.tokensRevokedAt = :revokedAt WHERE u.id = :userId")
+    int incrementTokenVersion(@Param("userId") UUID userId, @Param("revokedAt") LocalDateTime revokedAt);
+
+    @Query("SELECT u.tokenVersion FROM User u WHERE u.id = :userId")
+    Optional<Integer> findTokenVersionById(@Param("userId") UUID userId);
+
+    // Users whose tokens were revoked since a time: [UUID id, Integer tokenVersion, LocalDateTime tokensRevokedAt]
+    @Query("SELECT u.id, u.tokenVersion, u.tokensRevokedAt FROM User u WHERE u.tokensRevokedAt >= :since")
+    List<Object[]> findTokenRevocationsSince(@Param("since") LocalDateTime since);
+    
     // === Dashboard Queries ===
     
     // Count users by active status
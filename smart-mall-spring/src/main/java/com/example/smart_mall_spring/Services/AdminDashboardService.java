@@ -1,8 +1,12 @@
 package com.example.smart_mall_spring.Services;
 
 import com.example.smart_mall_spring.Dtos.Dashboard.*;
+import com.example.smart_mall_spring.Entities.Orders.DailyOrderStat;
+import com.example.smart_mall_spring.Entities.Shop;
 import com.example.smart_mall_spring.Enum.StatusOrder;
+import com.example.smart_mall_spring.Models.ShopReviewSummary;
 import com.example.smart_mall_spring.Repositories.*;
+import com.example.smart_mall_spring.Services.Products.ShopReviewStatsService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
@@ -12,7 +16,11 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.UUID;
 import java.util.stream.Collectors;
 
 /**
@@ -29,6 +37,8 @@ public class AdminDashboardService {
     private final ProductRepository productRepository;
     private final OrderReturnRequestRepository orderReturnRequestRepository;
     private final ReviewRepository reviewRepository;
+    private final DailyOrderStatRepository dailyOrderStatRepository;
+    private final ShopReviewStatsService shopReviewStatsService;
     
     /**
      * Get dashboard overview statistics
@@ -40,11 +50,17 @@ public class AdminDashboardService {
         LocalDateTime startOfMonth = today.withDayOfMonth(1);
         LocalDateTime lastMonth = startOfMonth.minusMonths(1);
         
-        // Revenue stats
-        Double revenueToday = orderRepository.sumRevenueByDateRange(today, LocalDateTime.now());
-        Double revenueThisWeek = orderRepository.sumRevenueByDateRange(startOfWeek, LocalDateTime.now());
-        Double revenueThisMonth = orderRepository.sumRevenueByDateRange(startOfMonth, LocalDateTime.now());
-        Double revenueLastMonth = orderRepository.sumRevenueByDateRange(lastMonth, startOfMonth);
+        // Revenue stats (one query over daily_order_stats from the start of last month)
+        Map<LocalDate, Double> revenueByDate = new HashMap<>();
+        for (DailyOrderStat stat : dailyOrderStatRepository.findByDateRange(lastMonth.toLocalDate(), today.toLocalDate())) {
+            if (stat.getId().getStatus() == StatusOrder.DELIVERED) {
+                revenueByDate.merge(stat.getId().getStatDate(), stat.getTotalAmount(), Double::sum);
+            }
+        }
+        Double revenueToday = sumRevenue(revenueByDate, today.toLocalDate(), today.toLocalDate());
+        Double revenueThisWeek = sumRevenue(revenueByDate, startOfWeek.toLocalDate(), today.toLocalDate());
+        Double revenueThisMonth = sumRevenue(revenueByDate, startOfMonth.toLocalDate(), today.toLocalDate());
+        Double revenueLastMonth = sumRevenue(revenueByDate, lastMonth.toLocalDate(), startOfMonth.toLocalDate().minusDays(1));
         
         Double percentChange = 0.0;
         if (revenueLastMonth != null && revenueLastMonth > 0) {
@@ -89,14 +105,18 @@ public class AdminDashboardService {
             .withOrders(usersWithOrders)
             .build();
         
-        // Order stats
-        Long totalOrders = orderRepository.count();
-        Long pendingOrders = orderRepository.countByStatus(StatusOrder.PENDING);
-        Long processingOrders = orderRepository.countByStatus(StatusOrder.CONFIRMED) + 
-                               orderRepository.countByStatus(StatusOrder.PACKED) +
-                               orderRepository.countByStatus(StatusOrder.SHIPPING);
-        Long completedOrders = orderRepository.countByStatus(StatusOrder.DELIVERED);
-        Long cancelledOrders = orderRepository.countByStatus(StatusOrder.CANCELLED);
+        // Order stats (one query: order count per status from daily_order_stats)
+        Map<StatusOrder, Long> ordersByStatus = new EnumMap<>(StatusOrder.class);
+        for (Object[] row : dailyOrderStatRepository.sumOrderCountByStatus()) {
+            ordersByStatus.put((StatusOrder) row[0], ((Number) row[1]).longValue());
+        }
+        Long totalOrders = ordersByStatus.values().stream().mapToLong(Long::longValue).sum();
+        Long pendingOrders = ordersByStatus.getOrDefault(StatusOrder.PENDING, 0L);
+        Long processingOrders = ordersByStatus.getOrDefault(StatusOrder.CONFIRMED, 0L) + 
+                               ordersByStatus.getOrDefault(StatusOrder.PACKED, 0L) +
+                               ordersByStatus.getOrDefault(StatusOrder.SHIPPING, 0L);
+        Long completedOrders = ordersByStatus.getOrDefault(StatusOrder.DELIVERED, 0L);
+        Long cancelledOrders = ordersByStatus.getOrDefault(StatusOrder.CANCELLED, 0L);
         Long returnRequests = orderReturnRequestRepository.countPendingRequests();
         
         Double completionRate = 0.0;
@@ -155,12 +175,21 @@ public class AdminDashboardService {
             DateTimeFormatter.ofPattern("EEE") : // Mon, Tue, Wed
             DateTimeFormatter.ofPattern("MMM dd"); // Jan 01
         
+        // Current and previous period in one query over daily_order_stats
+        LocalDate prevStartDate = startDate.minusDays(days);
+        Map<LocalDate, Double> revenueByDate = new HashMap<>();
+        Map<LocalDate, Long> ordersByDate = new HashMap<>();
+        for (DailyOrderStat stat : dailyOrderStatRepository.findByDateRange(prevStartDate, endDate)) {
+            LocalDate date = stat.getId().getStatDate();
+            ordersByDate.merge(date, stat.getOrderCount(), Long::sum);
+            if (stat.getId().getStatus() == StatusOrder.DELIVERED) {
+                revenueByDate.merge(date, stat.getTotalAmount(), Double::sum);
+            }
+        }
+        
         for (LocalDate date = startDate; !date.isAfter(endDate); date = date.plusDays(1)) {
-            LocalDateTime dayStart = date.atStartOfDay();
-            LocalDateTime dayEnd = date.plusDays(1).atStartOfDay();
-            
-            Double revenue = orderRepository.sumRevenueByDateRange(dayStart, dayEnd);
-            Long orderCount = orderRepository.countByDateRange(dayStart, dayEnd);
+            Double revenue = revenueByDate.get(date);
+            Long orderCount = ordersByDate.getOrDefault(date, 0L);
             
             dataPoints.add(RevenueChartDto.DataPoint.builder()
                 .date(date)
@@ -175,11 +204,7 @@ public class AdminDashboardService {
         Double averagePerDay = totalRevenue / days;
         
         // Calculate percent change from previous period
-        LocalDate prevStartDate = startDate.minusDays(days);
-        Double prevRevenue = orderRepository.sumRevenueByDateRange(
-            prevStartDate.atStartOfDay(), 
-            startDate.atStartOfDay()
-        );
+        Double prevRevenue = sumRevenue(revenueByDate, prevStartDate, startDate.minusDays(1));
         
         Double percentChange = 0.0;
         if (prevRevenue != null && prevRevenue > 0) {
@@ -205,13 +230,19 @@ public class AdminDashboardService {
         
         LocalDateTime startOfMonth = LocalDateTime.now().withDayOfMonth(1).withHour(0).withMinute(0).withSecond(0);
         
-        return shopRepository.findTopShopsByRevenue(startOfMonth, LocalDateTime.now(), limit)
+        List<Shop> topShops = shopRepository.findTopShopsByRevenue(startOfMonth, LocalDateTime.now(), limit);
+        // Review totals of all listed shops in one query over shop_monthly_review_stats
+        Map<UUID, ShopReviewSummary> reviewSummaries = shopReviewStatsService.getSummaries(
+            topShops.stream().map(Shop::getId).toList());
+        
+        return topShops
             .stream()
             .map(shop -> {
                 Double revenue = orderRepository.sumRevenueByShop(shop.getId(), startOfMonth, LocalDateTime.now());
                 Long orderCount = orderRepository.countByShopId(shop.getId());
-                Double avgRating = reviewRepository.getAverageRatingByShop(shop.getId());
-                Long reviewCount = reviewRepository.countByShopId(shop.getId());
+                ShopReviewSummary reviewSummary = reviewSummaries.get(shop.getId());
+                Double avgRating = reviewSummary != null ? reviewSummary.averageRating() : null;
+                Long reviewCount = reviewSummary != null ? reviewSummary.reviewCount() : 0L;
                 
                 return TopShopDto.builder()
                     .shopId(shop.getId())
@@ -285,6 +316,17 @@ public class AdminDashboardService {
         return activities.stream().limit(limit).collect(Collectors.toList());
     }
     
+    /**
+     * Sum revenue of the given dates (inclusive)
+     */
+    private Double sumRevenue(Map<LocalDate, Double> revenueByDate, LocalDate from, LocalDate to) {
+        double total = 0.0;
+        for (LocalDate date = from; !date.isAfter(to); date = date.plusDays(1)) {
+            total += revenueByDate.getOrDefault(date, 0.0);
+        }
+        return total;
+    }
+    
     /**
      * Get system health metrics
      */
@@ -459,9 +459,9 @@ public class AuthService {
         // Send code via email
         try {
             emailService.sendLoginCode(request.getUsername(), code);
-            logger.info("Login code email sent successfully to: {}", request.getUsername());
+            logger.info("Login code email queued for: {}", request.getUsername());
         } catch (Exception e) {
-            logger.error("Failed to send login code email to: {}. Error: {}", request.getUsername(), e.getMessage(), e);
+            logger.error("Failed to queue login code email to: {}. Error: {}", request.getUsername(), e.getMessage(), e);
             throw new CustomException("Failed to send verification code. Please try again.");
         }
     }
@@ -3,11 +3,17 @@ package com.example.smart_mall_spring.Services.Auth;
 import com.example.smart_mall_spring.Config.CustomUserDetails;
 import com.example.smart_mall_spring.Entities.Users.User;
 import com.example.smart_mall_spring.Repositories.UserRepository;
+import com.example.smart_mall_spring.Services.Users.UserPrincipalChangedEvent;
+import com.example.smart_mall_spring.Utils.ExpiringLruCache;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
 
 @Service
 public class CustomUserDetailsService implements UserDetailsService {
@@ -15,6 +21,14 @@ public class CustomUserDetailsService implements UserDetailsService {
     @Autowired
     private UserRepository userRepository;
 
+    // Principals of recently authenticated requests (user + roles), see loadCachedUserByUsername
+    private final ExpiringLruCache<String, CustomUserDetails> principalCache;
+
+    public CustomUserDetailsService(@Value("${security.principal-cache.max-size:10000}") int maxSize,
+                                    @Value("${security.principal-cache.ttl:60s}") Duration ttl) {
+        this.principalCache = new ExpiringLruCache<>(maxSize, ttl);
+    }
+
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
         User user = userRepository.findByUsername(username)
@@ -22,4 +36,18 @@ public class CustomUserDetailsService implements UserDetailsService {
         
         return new CustomUserDetails(user);
     }
-}
\ No newline at end of file
+
+    /**
+     * Principal for a request authenticated by JWT. Served from a bounded cache for up to
+     * {@code security.principal-cache.ttl}; evicted as soon as a {@link UserPrincipalChangedEvent} commits.
+     * Login keeps using {@link #loadUserByUsername}, which always reads the database.
+     */
+    public CustomUserDetails loadCachedUserByUsername(String username) throws UsernameNotFoundException {
+        return principalCache.get(username, name -> (CustomUserDetails) loadUserByUsername(name));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserPrincipalChanged(UserPrincipalChangedEvent event) {
+        principalCache.invalidate(event.username());
+    }
+}
@@ -1,11 +1,10 @@
 package com.example.smart_mall_spring.Services.Auth;
 
+import com.example.smart_mall_spring.Enum.EmailTemplate;
+import com.example.smart_mall_spring.Services.Mail.EmailQueueService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Value;
-import org.springframework.mail.SimpleMailMessage;
-import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.stereotype.Service;
 
 @Service
@@ -14,27 +13,19 @@ public class EmailService {
     private static final Logger logger = LoggerFactory.getLogger(EmailService.class);
 
     @Autowired
-    private JavaMailSender mailSender;
-
-    @Value("${spring.mail.username}")
-    private String fromEmail;
+    private EmailQueueService emailQueueService;
 
+    /**
+     * Queue the login code email; it is sent by the mail dispatcher once the caller's transaction commits,
+     * so the request no longer waits on the SMTP round trip.
+     */
     public void sendLoginCode(String toEmail, String code) {
         try {
-            logger.info("Attempting to send login code to: {}", toEmail);
-            logger.debug("Email configuration - From: {}", fromEmail);
-            
-            SimpleMailMessage message = new SimpleMailMessage();
-            message.setFrom(fromEmail);
-            message.setTo(toEmail);
-            message.setSubject("Your Login Code - Smart Mall");
-            message.setText("Your login verification code is: " + code + "\n\nThis code will expire in 5 minutes.\n\nIf you did not request this code, please ignore this email.");
-            
-            mailSender.send(message);
-            logger.info("Login code sent successfully to: {}", toEmail);
+            emailQueueService.enqueue(toEmail, EmailTemplate.LOGIN_CODE, code);
+            logger.info("Login code queued for: {}", toEmail);
         } catch (Exception e) {
-            logger.error("Failed to send email to: {}. Error: {}", toEmail, e.getMessage(), e);
-            throw new RuntimeException("Failed to send email: " + e.getMessage());
+            logger.error("Failed to queue email to: {}. Error: {}", toEmail, e.getMessage(), e);
+            throw new RuntimeException("Failed to queue email: " + e.getMessage());
         }
     }
 }
@@ -0,0 +1,38 @@
+package com.example.smart_mall_spring.Services.Auth;
+
+import com.example.smart_mall_spring.Config.CustomUserDetails;
+import io.jsonwebtoken.Claims;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.util.Optional;
+
+/**
+ * Principal of a verified access token, shared by the HTTP filter and the STOMP CONNECT interceptor.
+ * <p>
+ * Tokens with embedded principal claims are authorized from the claims alone; older tokens fall back to
+ * the (cached) user lookup. Either way the token is rejected when its version is on the deny-list.
+ */
+@Service
+@RequiredArgsConstructor
+public class JwtPrincipalResolver {
+
+    private final JwtService jwtService;
+    private final CustomUserDetailsService userDetailsService;
+    private final TokenRevocationService tokenRevocationService;
+
+    public Optional<CustomUserDetails> resolve(Claims claims) {
+        String username = claims.getSubject();
+        if (username == null) {
+            return Optional.empty();
+        }
+        CustomUserDetails principal = jwtService.extractPrincipal(claims)
+                .orElseGet(() -> userDetailsService.loadCachedUserByUsername(username));
+
+        if (!jwtService.isTokenValid(claims, principal)
+                || tokenRevocationService.isRevoked(principal.getId(), jwtService.extractTokenVersion(claims))) {
+            return Optional.empty();
+        }
+        return Optional.of(principal);
+    }
+}
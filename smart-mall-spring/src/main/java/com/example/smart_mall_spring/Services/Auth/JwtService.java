@@ -1,23 +1,35 @@
 package com.example.smart_mall_spring.Services.Auth;
 
+import com.example.smart_mall_spring.Config.CustomUserDetails;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
 
-import java.security.Key;
+import javax.crypto.SecretKey;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
 import java.util.function.Function;
 
 @Service
 public class JwtService {
 
+    // Access tokens: user id and role names, so requests can be authorized without loading the user
+    public static final String CLAIM_USER_ID = "uid";
+    public static final String CLAIM_ROLES = "roles";
+    // Access and refresh tokens: user's token version at issue time, see TokenRevocationService
+    public static final String CLAIM_TOKEN_VERSION = "ver";
+
     @Value("${jwt.secret:404E635266556A586E3272357538782F413F4428472B4B6250645367566B5970}")
     private String secretKey;
 
@@ -27,17 +39,43 @@ public class JwtService {
     @Value("${jwt.refresh-token.expiration:604800000}") // 7 days in milliseconds
     private long refreshExpiration;
 
+    @Value("${jwt.access-token.embed-principal:true}")
+    private boolean embedPrincipal;
+
+    // Decoded once: the key and the (immutable, thread-safe) parser are shared by every request
+    private SecretKey signInKey;
+    private JwtParser parser;
+
+    @PostConstruct
+    public void init() {
+        signInKey = Keys.hmacShaKeyFor(Decoders.BASE64.decode(secretKey));
+        parser = Jwts.parser().verifyWith(signInKey).build();
+    }
+
+    /**
+     * Verify the signature and expiration of a token and return its claims, parsing it once.
+     * Throws {@link io.jsonwebtoken.JwtException} when the token is malformed, forged or expired.
+     */
+    public Claims parseToken(String token) {
+        return parser.parseSignedClaims(token).getPayload();
+    }
+
     public String extractUsername(String token) {
         return extractClaim(token, Claims::getSubject);
     }
 
     public <T> T extractClaim(String token, Function<Claims, T> claimsResolver) {
-        final Claims claims = extractAllClaims(token);
+        final Claims claims = parseToken(token);
         return claimsResolver.apply(claims);
     }
 
     public String generateToken(UserDetails userDetails) {
-        return generateToken(new HashMap<>(), userDetails);
+        Map<String, Object> claims = versionClaims(userDetails);
+        if (embedPrincipal && userDetails instanceof CustomUserDetails customUserDetails) {
+            claims.put(CLAIM_USER_ID, customUserDetails.getId().toString());
+            claims.put(CLAIM_ROLES, customUserDetails.getRoleNames());
+        }
+        return generateToken(claims, userDetails);
     }
 
     public String generateToken(Map<String, Object> extraClaims, UserDetails userDetails) {
@@ -45,7 +83,15 @@ public class JwtService {
     }
 
     public String generateRefreshToken(UserDetails userDetails) {
-        return buildToken(new HashMap<>(), userDetails, refreshExpiration);
+        return buildToken(versionClaims(userDetails), userDetails, refreshExpiration);
+    }
+
+    private Map<String, Object> versionClaims(UserDetails userDetails) {
+        Map<String, Object> claims = new HashMap<>();
+        if (userDetails instanceof CustomUserDetails customUserDetails) {
+            claims.put(CLAIM_TOKEN_VERSION, customUserDetails.getUser().getTokenVersion());
+        }
+        return claims;
     }
 
     private String buildToken(
@@ -59,34 +105,41 @@ public class JwtService {
                 .setSubject(userDetails.getUsername())
                 .setIssuedAt(new Date(System.currentTimeMillis()))
                 .setExpiration(new Date(System.currentTimeMillis() + expiration))
-                .signWith(getSignInKey(), SignatureAlgorithm.HS256)
+                .signWith(signInKey, SignatureAlgorithm.HS256)
                 .compact();
     }
 
     public boolean isTokenValid(String token, UserDetails userDetails) {
-        final String username = extractUsername(token);
-        return (username.equals(userDetails.getUsername())) && !isTokenExpired(token);
+        return isTokenValid(parseToken(token), userDetails);
     }
 
-    private boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
+    // Claims from parseToken: signature already verified
+    public boolean isTokenValid(Claims claims, UserDetails userDetails) {
+        final String username = claims.getSubject();
+        if (userDetails instanceof CustomUserDetails customUserDetails
+                && extractTokenVersion(claims) < customUserDetails.getUser().getTokenVersion()) {
+            return false;
+        }
+        return (username.equals(userDetails.getUsername())) && !claims.getExpiration().before(new Date());
     }
 
-    private Date extractExpiration(String token) {
-        return extractClaim(token, Claims::getExpiration);
-    }
-
-    private Claims extractAllClaims(String token) {
-        return Jwts
-                .parser()
-                .setSigningKey(getSignInKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+    /**
+     * Principal embedded in an access token, or empty for tokens without principal claims
+     * (refresh tokens, tokens issued before the claims existed or with embedding disabled).
+     */
+    public Optional<CustomUserDetails> extractPrincipal(Claims claims) {
+        String userId = claims.get(CLAIM_USER_ID, String.class);
+        List<?> roles = claims.get(CLAIM_ROLES, List.class);
+        if (userId == null || roles == null || claims.getSubject() == null) {
+            return Optional.empty();
+        }
+        return Optional.of(CustomUserDetails.fromClaims(UUID.fromString(userId), claims.getSubject(),
+                roles.stream().map(String::valueOf).toList(), extractTokenVersion(claims)));
     }
 
-    private Key getSignInKey() {
-        byte[] keyBytes = Decoders.BASE64.decode(secretKey);
-        return Keys.hmacShaKeyFor(keyBytes);
+    // Tokens issued before versioning count as version 0
+    public int extractTokenVersion(Claims claims) {
+        Integer version = claims.get(CLAIM_TOKEN_VERSION, Integer.class);
+        return version != null ? version : 0;
     }
 }
\ No newline at end of file
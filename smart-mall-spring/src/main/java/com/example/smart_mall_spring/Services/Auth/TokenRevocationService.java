@@ -0,0 +1,100 @@
+package com.example.smart_mall_spring.Services.Auth;
+
+import com.example.smart_mall_spring.Entities.Users.User;
+import com.example.smart_mall_spring.Repositories.UserRepository;
+import com.example.smart_mall_spring.Services.Users.UserPrincipalChangedEvent;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Deny-list for stateless access tokens.
+ * <p>
+ * Every token carries the token version of its user at issue time ({@link JwtService#CLAIM_TOKEN_VERSION}).
+ * Revoking a user's tokens bumps the version in the users table; tokens with a lower version are rejected.
+ * Only users revoked within the access-token lifetime need an entry (older tokens have expired anyway), so the
+ * deny-list is a small map of user ID to minimum accepted version. It is loaded from the users table on
+ * startup and re-synced on a schedule, which also propagates revocations made on other instances.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class TokenRevocationService {
+
+    private final UserRepository userRepository;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Value("${jwt.expiration:86400000}")
+    private long jwtExpiration;
+
+    private final Map<UUID, Revocation> revocations = new ConcurrentHashMap<>();
+
+    /**
+     * Whether a token of the user with the given version has been revoked.
+     */
+    public boolean isRevoked(UUID userId, int tokenVersion) {
+        Revocation revocation = revocations.get(userId);
+        return revocation != null && tokenVersion < revocation.minVersion();
+    }
+
+    /**
+     * Revoke every access and refresh token issued to the user so far. Applied locally once the
+     * surrounding transaction commits; other instances pick it up on their next sync.
+     */
+    @Transactional
+    public void revokeAll(User user) {
+        LocalDateTime now = LocalDateTime.now();
+        userRepository.incrementTokenVersion(user.getId(), now);
+        int version = userRepository.findTokenVersionById(user.getId()).orElseThrow();
+
+        Runnable apply = () -> record(user.getId(), version, now);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    apply.run();
+                }
+            });
+        } else {
+            apply.run();
+        }
+        eventPublisher.publishEvent(new UserPrincipalChangedEvent(user.getUsername()));
+        log.info("Revoked tokens of user {} (token version {})", user.getId(), version);
+    }
+
+    /**
+     * Reload the revocations still inside the access-token lifetime and drop the expired ones.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${jwt.revocation.sync-interval-ms:30000}")
+    @Transactional(readOnly = true)
+    public void sync() {
+        LocalDateTime since = LocalDateTime.now().minus(Duration.ofMillis(jwtExpiration));
+        for (Object[] row : userRepository.findTokenRevocationsSince(since)) {
+            record((UUID) row[0], (Integer) row[1], (LocalDateTime) row[2]);
+        }
+        revocations.values().removeIf(revocation -> revocation.revokedAt().isBefore(since));
+    }
+
+    private void record(UUID userId, int minVersion, LocalDateTime revokedAt) {
+        revocations.merge(userId, new Revocation(minVersion, revokedAt),
+                (current, candidate) -> candidate.minVersion() >= current.minVersion() ? candidate : current);
+    }
+
+    private record Revocation(int minVersion, LocalDateTime revokedAt) {
+    }
+}
@@ -0,0 +1,9 @@
+package com.example.smart_mall_spring.Services.Categories;
+
+import java.util.UUID;
+
+/**
+ * Published after a category was created, updated or deleted.
+ */
+public record CategoryChangedEvent(UUID categoryId) {
+}
@@ -10,9 +10,11 @@ import com.example.smart_mall_spring.Exception.DuplicateCategoryException;
 import com.example.smart_mall_spring.Exception.InvalidCategoryOperationException;
 import com.example.smart_mall_spring.Repositories.CategoryRepository;
 import com.example.smart_mall_spring.Repositories.ProductRepository;
+import com.example.smart_mall_spring.Services.Categories.CategoryTreeCache.CategoryNode;
 import com.example.smart_mall_spring.Services.CloudinaryService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
@@ -36,6 +38,8 @@ public class CategoryService {
     private final CategoryRepository categoryRepository;
     private final ProductRepository productRepository;
     private final CloudinaryService cloudinaryService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final CategoryTreeCache categoryTreeCache;
 
     /**
      * Create a new category
@@ -57,6 +61,7 @@ public class CategoryService {
 
         category = categoryRepository.save(category);
         log.info("Successfully created category with id: {}", category.getId());
+        eventPublisher.publishEvent(new CategoryChangedEvent(category.getId()));
         
         return convertToDto(category);
     }
@@ -87,29 +92,38 @@ public class CategoryService {
 
         category = categoryRepository.save(category);
         log.info("Successfully created category with id: {} and image", category.getId());
+        eventPublisher.publishEvent(new CategoryChangedEvent(category.getId()));
         
         return convertToDto(category);
     }
 
     /**
-     * Get all root categories (with subcategories)
+     * Get all root categories (with subcategories), served from the category tree cache
      */
     public List<CategoryResponseDto> getAllRootCategories() {
         log.debug("Fetching all root categories");
-        List<Category> rootCategories = categoryRepository.findByParentIsNull();
-        return rootCategories.stream()
-                .map(this::convertToDtoWithSubCategories)
+        return categoryTreeCache.getRoots().stream()
+                .map(node -> convertNodeToDto(node, true))
                 .collect(Collectors.toList());
     }
 
     /**
-     * Get all categories (flat list)
+     * Get the whole category tree, every level nested under its parent
+     */
+    public List<CategoryResponseDto> getCategoryTree() {
+        log.debug("Fetching category tree");
+        return categoryTreeCache.getRoots().stream()
+                .map(this::convertNodeToTreeDto)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Get all categories (flat list), served from the category tree cache
      */
     public List<CategoryResponseDto> getAllCategories() {
         log.debug("Fetching all categories");
-        List<Category> categories = categoryRepository.findAll(Sort.by("name").ascending());
-        return categories.stream()
-                .map(this::convertToDto)
+        return categoryTreeCache.getAll().stream()
+                .map(node -> convertNodeToDto(node, false))
                 .collect(Collectors.toList());
     }
 
@@ -140,8 +154,7 @@ public class CategoryService {
      */
     public CategoryResponseDto getCategoryById(UUID id) {
         log.debug("Fetching category with id: {}", id);
-        Category category = findCategoryById(id);
-        return convertToDtoWithSubCategories(category);
+        return convertNodeToDto(findCategoryNode(id), true);
     }
 
     /**
@@ -151,11 +164,10 @@ public class CategoryService {
         log.debug("Fetching subcategories for parent id: {}", parentId);
         
         // Validate parent exists
-        findCategoryById(parentId);
+        findCategoryNode(parentId);
         
-        List<Category> subCategories = categoryRepository.findByParentId(parentId);
-        return subCategories.stream()
-                .map(this::convertToDto)
+        return categoryTreeCache.getChildren(parentId).stream()
+                .map(node -> convertNodeToDto(node, false))
                 .collect(Collectors.toList());
     }
 
@@ -222,6 +234,7 @@ public class CategoryService {
 
         category = categoryRepository.save(category);
         log.info("Successfully updated category with id: {}", id);
+        eventPublisher.publishEvent(new CategoryChangedEvent(id));
         
         return convertToDto(category);
     }
@@ -285,6 +298,7 @@ public class CategoryService {
 
         category = categoryRepository.save(category);
         log.info("Successfully updated category with id: {} and image", id);
+        eventPublisher.publishEvent(new CategoryChangedEvent(id));
         
         return convertToDto(category);
     }
@@ -316,6 +330,7 @@ public class CategoryService {
 
         categoryRepository.delete(category);
         log.info("Successfully deleted category with id: {}", id);
+        eventPublisher.publishEvent(new CategoryChangedEvent(id));
     }
 
     /**
@@ -362,6 +377,14 @@ public class CategoryService {
                 .orElseThrow(() -> new CategoryNotFoundException("Category not found with id: " + id));
     }
 
+    /**
+     * Find cached category tree node by ID or throw exception
+     */
+    private CategoryNode findCategoryNode(UUID id) {
+        return categoryTreeCache.find(id)
+                .orElseThrow(() -> new CategoryNotFoundException("Category not found with id: " + id));
+    }
+
     /**
      * Validate category name uniqueness
      */
@@ -445,7 +468,6 @@ public class CategoryService {
      * Convert to DTO without subcategories
      */
     private CategoryResponseDto convertToDto(Category category) {
-        Long productCount = productRepository.countByCategoryId(category.getId());
         
         return CategoryResponseDto.builder()
                 .id(category.getId())
@@ -454,7 +476,8 @@ public class CategoryService {
                 .image(category.getImage())
                 .status(category.getStatus())
                 .parent(category.getParent() != null ? convertToDtoWithoutParent(category.getParent()) : null)
-                .productCount(productCount)
+                .productCount(categoryTreeCache.getProductCount(category.getId()))
+                .subtreeProductCount(categoryTreeCache.getSubtreeProductCount(category.getId()))
                 .createdAt(category.getCreatedAt())
                 .updatedAt(category.getUpdatedAt())
                 .build();
@@ -464,7 +487,6 @@ public class CategoryService {
      * Convert to DTO with subcategories
      */
     private CategoryResponseDto convertToDtoWithSubCategories(Category category) {
-        Long productCount = productRepository.countByCategoryId(category.getId());
         
         List<CategoryResponseDto> subCategoryDtos = null;
         if (category.getSubCategories() != null && !category.getSubCategories().isEmpty()) {
@@ -481,7 +503,8 @@ public class CategoryService {
                 .status(category.getStatus())
                 .parent(category.getParent() != null ? convertToDtoWithoutParent(category.getParent()) : null)
                 .subCategories(subCategoryDtos)
-                .productCount(productCount)
+                .productCount(categoryTreeCache.getProductCount(category.getId()))
+                .subtreeProductCount(categoryTreeCache.getSubtreeProductCount(category.getId()))
                 .createdAt(category.getCreatedAt())
                 .updatedAt(category.getUpdatedAt())
                 .build();
@@ -491,7 +514,6 @@ public class CategoryService {
      * Convert to DTO without parent (to avoid circular reference)
      */
     private CategoryResponseDto convertToDtoWithoutParent(Category category) {
-        Long productCount = productRepository.countByCategoryId(category.getId());
         
         return CategoryResponseDto.builder()
                 .id(category.getId())
@@ -500,12 +522,61 @@ public class CategoryService {
                 .image(category.getImage())
                 .status(category.getStatus())
                 .parent(null)
-                .productCount(productCount)
+                .productCount(categoryTreeCache.getProductCount(category.getId()))
+                .subtreeProductCount(categoryTreeCache.getSubtreeProductCount(category.getId()))
                 .createdAt(category.getCreatedAt())
                 .updatedAt(category.getUpdatedAt())
                 .build();
     }
 
+    /**
+     * Convert cached tree node to DTO, optionally with one level of subcategories
+     */
+    private CategoryResponseDto convertNodeToDto(CategoryNode node, boolean withSubCategories) {
+        List<CategoryResponseDto> subCategoryDtos = null;
+        if (withSubCategories && !node.childIds().isEmpty()) {
+            subCategoryDtos = categoryTreeCache.getChildren(node.id()).stream()
+                    .map(child -> convertNodeToDto(child, false))
+                    .collect(Collectors.toList());
+        }
+
+        return nodeDtoBuilder(node)
+                .parent(categoryTreeCache.find(node.parentId())
+                        .map(parent -> nodeDtoBuilder(parent).build())
+                        .orElse(null))
+                .subCategories(subCategoryDtos)
+                .build();
+    }
+
+    /**
+     * Convert cached tree node to DTO with all levels of subcategories (no parent, to avoid circular reference)
+     */
+    private CategoryResponseDto convertNodeToTreeDto(CategoryNode node) {
+        List<CategoryResponseDto> subCategoryDtos = null;
+        if (!node.childIds().isEmpty()) {
+            subCategoryDtos = categoryTreeCache.getChildren(node.id()).stream()
+                    .map(this::convertNodeToTreeDto)
+                    .collect(Collectors.toList());
+        }
+
+        return nodeDtoBuilder(node)
+                .subCategories(subCategoryDtos)
+                .build();
+    }
+
+    private CategoryResponseDto.CategoryResponseDtoBuilder nodeDtoBuilder(CategoryNode node) {
+        return CategoryResponseDto.builder()
+                .id(node.id())
+                .name(node.name())
+                .description(node.description())
+                .image(node.image())
+                .status(node.status())
+                .productCount(categoryTreeCache.getProductCount(node.id()))
+                .subtreeProductCount(categoryTreeCache.getSubtreeProductCount(node.id()))
+                .createdAt(node.createdAt())
+                .updatedAt(node.updatedAt());
+    }
+
     /**
      * Upload category image to Cloudinary
      */
@@ -0,0 +1,260 @@
+package com.example.smart_mall_spring.Services.Categories;
+
+import com.example.smart_mall_spring.Enum.Status;
+import com.example.smart_mall_spring.Models.CategoryTreeRow;
+import com.example.smart_mall_spring.Repositories.CategoryRepository;
+import com.example.smart_mall_spring.Repositories.ProductRepository;
+import com.example.smart_mall_spring.Services.Products.ProductCategoryChangedEvent;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Immutable in-memory copy of the category tree.
+ * <p>
+ * The whole tree is loaded with two queries (one flat row per category and one grouped product count)
+ * and swapped in as a new {@link Snapshot}, so readers never lock and never see a half-built tree.
+ * Every node carries its precomputed descendant set and subtree product count. The tree is rebuilt
+ * after each {@link CategoryChangedEvent}; product counts follow {@link ProductCategoryChangedEvent}s
+ * and are reconciled with the database on a schedule.
+ * <p>
+ * Product counts keep the semantics of {@code ProductRepository.countByCategoryId}: every product
+ * referencing the category, whatever its status.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class CategoryTreeCache {
+
+    private static final Comparator<CategoryNode> BY_NAME =
+            Comparator.comparing(CategoryNode::name, String.CASE_INSENSITIVE_ORDER);
+
+    private final CategoryRepository categoryRepository;
+    private final ProductRepository productRepository;
+
+    private volatile Snapshot snapshot = Snapshot.EMPTY;
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void onApplicationReady() {
+        rebuild();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    @Transactional(propagation = Propagation.REQUIRES_NEW, readOnly = true)
+    public void onCategoryChanged(CategoryChangedEvent event) {
+        rebuild();
+    }
+
+    @Scheduled(cron = "${category.tree.refresh-cron:0 */30 * * * *}")
+    @Transactional(readOnly = true)
+    public void refresh() {
+        rebuild();
+    }
+
+    /**
+     * Recounts the categories the product left and joined. Counting instead of applying a +1/-1 delta
+     * keeps the result right when the event races with a rebuild that already saw the change.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    @Transactional(propagation = Propagation.REQUIRES_NEW, readOnly = true)
+    public synchronized void onProductCategoryChanged(ProductCategoryChangedEvent event) {
+        Map<UUID, Long> recounted = new HashMap<>();
+        for (UUID categoryId : new UUID[]{event.previousCategoryId(), event.categoryId()}) {
+            if (categoryId != null && snapshot.nodes.containsKey(categoryId)) {
+                recounted.put(categoryId, productRepository.countByCategoryId(categoryId));
+            }
+        }
+        if (!recounted.isEmpty()) {
+            snapshot = snapshot.withProductCounts(recounted);
+        }
+    }
+
+    private synchronized void rebuild() {
+        List<CategoryTreeRow> rows = categoryRepository.findTreeRows();
+        Map<UUID, Long> productCounts = new HashMap<>();
+        for (Object[] row : productRepository.countGroupByCategoryId()) {
+            productCounts.put((UUID) row[0], (Long) row[1]);
+        }
+        snapshot = Snapshot.build(rows, productCounts);
+        log.info("Category tree built: {} categories, {} roots", snapshot.nodes.size(), snapshot.rootIds.size());
+    }
+
+    public Optional<CategoryNode> find(UUID categoryId) {
+        return categoryId == null ? Optional.empty() : Optional.ofNullable(snapshot.nodes.get(categoryId));
+    }
+
+    public List<CategoryNode> getRoots() {
+        Snapshot current = snapshot;
+        return current.nodesOf(current.rootIds);
+    }
+
+    public List<CategoryNode> getChildren(UUID categoryId) {
+        Snapshot current = snapshot;
+        CategoryNode node = current.nodes.get(categoryId);
+        return node == null ? List.of() : current.nodesOf(node.childIds());
+    }
+
+    /**
+     * All categories ordered by name.
+     */
+    public List<CategoryNode> getAll() {
+        return snapshot.byName;
+    }
+
+    /**
+     * The category and all of its descendants. An unknown category yields just its own ID.
+     */
+    public Set<UUID> getDescendantIds(UUID categoryId) {
+        CategoryNode node = snapshot.nodes.get(categoryId);
+        return node == null ? Set.of(categoryId) : node.descendantIds();
+    }
+
+    /**
+     * Products directly in the category.
+     */
+    public long getProductCount(UUID categoryId) {
+        return snapshot.productCounts.getOrDefault(categoryId, 0L);
+    }
+
+    /**
+     * Products in the category and all of its descendants.
+     */
+    public long getSubtreeProductCount(UUID categoryId) {
+        return snapshot.subtreeProductCounts.getOrDefault(categoryId, 0L);
+    }
+
+    public record CategoryNode(UUID id, String name, String description, String image, Status status,
+                               UUID parentId, List<UUID> childIds, Set<UUID> descendantIds,
+                               LocalDateTime createdAt, LocalDateTime updatedAt) {
+    }
+
+    private static final class Snapshot {
+        private static final Snapshot EMPTY = new Snapshot(Map.of(), List.of(), List.of(), Map.of(), Map.of());
+
+        private final Map<UUID, CategoryNode> nodes;
+        private final List<UUID> rootIds;
+        private final List<CategoryNode> byName;
+        private final Map<UUID, Long> productCounts;
+        private final Map<UUID, Long> subtreeProductCounts;
+
+        private Snapshot(Map<UUID, CategoryNode> nodes, List<UUID> rootIds, List<CategoryNode> byName,
+                         Map<UUID, Long> productCounts, Map<UUID, Long> subtreeProductCounts) {
+            this.nodes = nodes;
+            this.rootIds = rootIds;
+            this.byName = byName;
+            this.productCounts = productCounts;
+            this.subtreeProductCounts = subtreeProductCounts;
+        }
+
+        private static Snapshot build(List<CategoryTreeRow> rows, Map<UUID, Long> productCounts) {
+            Map<UUID, CategoryTreeRow> rowsById = new HashMap<>();
+            for (CategoryTreeRow row : rows) {
+                rowsById.put(row.id(), row);
+            }
+            Map<UUID, List<CategoryTreeRow>> childRows = new HashMap<>();
+            List<CategoryTreeRow> rootRows = new ArrayList<>();
+            for (CategoryTreeRow row : rows) {
+                if (row.parentId() != null && rowsById.containsKey(row.parentId())) {
+                    childRows.computeIfAbsent(row.parentId(), id -> new ArrayList<>()).add(row);
+                } else {
+                    rootRows.add(row);
+                }
+            }
+            Comparator<CategoryTreeRow> rowsByName = Comparator.comparing(CategoryTreeRow::name, String.CASE_INSENSITIVE_ORDER);
+            childRows.values().forEach(children -> children.sort(rowsByName));
+            rootRows.sort(rowsByName);
+
+            Map<UUID, CategoryNode> nodes = new HashMap<>();
+            Map<UUID, Long> counts = new HashMap<>();
+            Map<UUID, Long> subtreeCounts = new HashMap<>();
+            for (CategoryTreeRow root : rootRows) {
+                buildNode(root, childRows, productCounts, nodes, counts, subtreeCounts);
+            }
+            // Rows on a parent cycle are unreachable from any root; keep them as standalone nodes
+            for (CategoryTreeRow row : rows) {
+                if (!nodes.containsKey(row.id())) {
+                    nodes.put(row.id(), toNode(row, List.of(), Set.of(row.id())));
+                    long count = productCounts.getOrDefault(row.id(), 0L);
+                    counts.put(row.id(), count);
+                    subtreeCounts.put(row.id(), count);
+                }
+            }
+
+            List<CategoryNode> byName = new ArrayList<>(nodes.values());
+            byName.sort(BY_NAME);
+            return new Snapshot(Map.copyOf(nodes), rootRows.stream().map(CategoryTreeRow::id).toList(),
+                    List.copyOf(byName), Map.copyOf(counts), Map.copyOf(subtreeCounts));
+        }
+
+        /**
+         * Depth-first, children before parents, so each node can merge its children's descendant sets and counts.
+         */
+        private static CategoryNode buildNode(CategoryTreeRow row, Map<UUID, List<CategoryTreeRow>> childRows,
+                                              Map<UUID, Long> productCounts, Map<UUID, CategoryNode> nodes,
+                                              Map<UUID, Long> counts, Map<UUID, Long> subtreeCounts) {
+            List<UUID> childIds = new ArrayList<>();
+            Set<UUID> descendantIds = new HashSet<>();
+            descendantIds.add(row.id());
+            long count = productCounts.getOrDefault(row.id(), 0L);
+            long subtreeCount = count;
+            for (CategoryTreeRow childRow : childRows.getOrDefault(row.id(), List.of())) {
+                CategoryNode child = buildNode(childRow, childRows, productCounts, nodes, counts, subtreeCounts);
+                childIds.add(child.id());
+                descendantIds.addAll(child.descendantIds());
+                subtreeCount += subtreeCounts.get(child.id());
+            }
+            CategoryNode node = toNode(row, List.copyOf(childIds), Set.copyOf(descendantIds));
+            nodes.put(node.id(), node);
+            counts.put(node.id(), count);
+            subtreeCounts.put(node.id(), subtreeCount);
+            return node;
+        }
+
+        private static CategoryNode toNode(CategoryTreeRow row, List<UUID> childIds, Set<UUID> descendantIds) {
+            return new CategoryNode(row.id(), row.name(), row.description(), row.image(), row.status(),
+                    row.parentId(), childIds, descendantIds, row.createdAt(), row.updatedAt());
+        }
+
+        /**
+         * Copy with new direct counts for some categories; the difference is added to every ancestor's subtree count.
+         */
+        private Snapshot withProductCounts(Map<UUID, Long> recounted) {
+            Map<UUID, Long> counts = new HashMap<>(productCounts);
+            Map<UUID, Long> subtreeCounts = new HashMap<>(subtreeProductCounts);
+            recounted.forEach((categoryId, count) -> {
+                long delta = count - counts.getOrDefault(categoryId, 0L);
+                counts.put(categoryId, count);
+                CategoryNode node = nodes.get(categoryId);
+                while (node != null) {
+                    subtreeCounts.merge(node.id(), delta, Long::sum);
+                    CategoryNode parent = node.parentId() == null ? null : nodes.get(node.parentId());
+                    // Stop at nodes detached from their parent (cycle leftovers)
+                    node = parent != null && parent.descendantIds().contains(node.id()) ? parent : null;
+                }
+            });
+            return new Snapshot(nodes, rootIds, byName, Map.copyOf(counts), Map.copyOf(subtreeCounts));
+        }
+
+        private List<CategoryNode> nodesOf(List<UUID> ids) {
+            return ids.stream().map(nodes::get).toList();
+        }
+    }
+}
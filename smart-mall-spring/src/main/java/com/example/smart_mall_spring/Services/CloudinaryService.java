@@ -75,6 +75,34 @@ public class CloudinaryService {
         }
     }
 
+    /**
+     * Upload file từ đĩa với public_id cố định (ảnh trùng nội dung dùng lại asset đã có, không upload lại)
+     */
+    public Map<String, String> uploadFileToFolder(File file, String folder, String publicId) {
+        try {
+            @SuppressWarnings("unchecked")
+            Map<String, Object> uploadResult = cloudinary.uploader().upload(
+                    file,
+                    ObjectUtils.asMap(
+                            "resource_type", "auto",
+                            "chunk_size", 6000000,
+                            "folder", folder,
+                            "public_id", publicId,
+                            "overwrite", false));
+
+            String secureUrl = uploadResult.get("secure_url").toString();
+            // Cắt từ "/<cloud_name>" trở đi
+            String relativePath = secureUrl.substring(secureUrl.indexOf("/" + cloudName));
+
+            Map<String, String> result = new HashMap<>();
+            result.put("url", relativePath); // path rút gọn
+            result.put("publicId", uploadResult.get("public_id").toString());
+            return result;
+        } catch (IOException e) {
+            throw new RuntimeException("Upload to Cloudinary failed: " + e.getMessage(), e);
+        }
+    }
+
     /**
      * Delete file from Cloudinary using public_id
      */
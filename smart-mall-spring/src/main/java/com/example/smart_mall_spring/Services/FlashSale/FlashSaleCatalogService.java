@@ -0,0 +1,177 @@
+package com.example.smart_mall_spring.Services.FlashSale;
+
+import com.example.smart_mall_spring.Dtos.FlashSale.FlashSaleItemResponseDto;
+import com.example.smart_mall_spring.Dtos.FlashSale.FlashSaleResponseDto;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Predicate;
+
+/**
+ * Serves active and upcoming flash sales from an immutable in-memory snapshot.
+ * <p>
+ * The snapshot is rebuilt after flash-sale mutations and, via {@link FlashSaleTransitionScheduler},
+ * when a sale starts or ends.
+ * Sold units patch per-item counters in place, so homepage reads never touch the DB;
+ * only countdowns are computed per request.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class FlashSaleCatalogService {
+
+    private final FlashSaleService flashSaleService;
+
+    private final AtomicReference<Snapshot> snapshot = new AtomicReference<>(Snapshot.EMPTY);
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        rebuild();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onFlashSaleChanged(FlashSaleChangedEvent event) {
+        rebuild();
+    }
+
+    public synchronized void rebuild() {
+        try {
+            List<FlashSaleResponseDto> sales = flashSaleService.loadCatalogFlashSales();
+            snapshot.set(Snapshot.of(sales));
+            log.debug("Flash sale catalog snapshot rebuilt with {} sales", sales.size());
+        } catch (Exception e) {
+            log.error("Failed to rebuild flash sale catalog snapshot: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Patch remaining/sold counters of the variant's items after units were sold.
+     */
+    public void onUnitsSold(UUID variantId, int quantity) {
+        List<ItemStock> stocks = snapshot.get().stockByVariant().get(variantId);
+        if (stocks == null) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        for (ItemStock stock : stocks) {
+            // Giống flush DB: chỉ trừ item thuộc flash sale đang diễn ra
+            if (!stock.startTime.isAfter(now) && stock.endTime.isAfter(now)) {
+                stock.sell(quantity);
+            }
+        }
+    }
+
+    public Page<FlashSaleResponseDto> getActiveFlashSales(int page, int size) {
+        LocalDateTime now = LocalDateTime.now();
+        return page(sale -> !sale.getStartTime().isAfter(now) && sale.getEndTime().isAfter(now), now, page, size);
+    }
+
+    public Page<FlashSaleResponseDto> getUpcomingFlashSales(int page, int size) {
+        LocalDateTime now = LocalDateTime.now();
+        return page(sale -> sale.getStartTime().isAfter(now), now, page, size);
+    }
+
+    private Page<FlashSaleResponseDto> page(Predicate<FlashSaleResponseDto> filter, LocalDateTime now,
+                                           int page, int size) {
+        Snapshot current = snapshot.get();
+        List<FlashSaleResponseDto> matching = current.sales().stream().filter(filter).toList();
+
+        int from = Math.min(page * size, matching.size());
+        int to = Math.min(from + size, matching.size());
+        List<FlashSaleResponseDto> content = matching.subList(from, to).stream()
+                .map(sale -> materialize(sale, current, now))
+                .toList();
+        return new PageImpl<>(content, PageRequest.of(page, size), matching.size());
+    }
+
+    private FlashSaleResponseDto materialize(FlashSaleResponseDto sale, Snapshot current, LocalDateTime now) {
+        List<FlashSaleItemResponseDto> items = sale.getItems().stream()
+                .map(item -> {
+                    ItemStock stock = current.stockByItem().get(item.getId());
+                    if (stock == null) {
+                        return item;
+                    }
+                    int remaining = stock.remaining.get();
+                    return item.toBuilder()
+                            .remainingQuantity(remaining)
+                            .soldQuantity(stock.sold.get())
+                            .hasStock(remaining > 0)
+                            .stockPercent(stock.total > 0 ? (int) ((remaining * 100.0) / stock.total) : 0)
+                            .build();
+                })
+                .toList();
+
+        boolean started = !sale.getStartTime().isAfter(now);
+        boolean ended = !sale.getEndTime().isAfter(now);
+        return sale.toBuilder()
+                .items(items)
+                .isActive(started && !ended)
+                .isUpcoming(!started)
+                .isExpired(ended)
+                .timeUntilStart(started ? null : Duration.between(now, sale.getStartTime()).getSeconds())
+                .timeUntilEnd(ended ? null : Duration.between(now, sale.getEndTime()).getSeconds())
+                .build();
+    }
+
+    private record Snapshot(List<FlashSaleResponseDto> sales,
+                            Map<UUID, ItemStock> stockByItem,
+                            Map<UUID, List<ItemStock>> stockByVariant) {
+
+        static final Snapshot EMPTY = new Snapshot(List.of(), Map.of(), Map.of());
+
+        static Snapshot of(List<FlashSaleResponseDto> sales) {
+            Map<UUID, ItemStock> byItem = new HashMap<>();
+            Map<UUID, List<ItemStock>> byVariant = new HashMap<>();
+
+            for (FlashSaleResponseDto sale : sales) {
+                for (FlashSaleItemResponseDto item : sale.getItems()) {
+                    ItemStock stock = new ItemStock(item.getTotalQuantity(), item.getRemainingQuantity(),
+                            item.getSoldQuantity(), sale.getStartTime(), sale.getEndTime());
+                    byItem.put(item.getId(), stock);
+                    if (item.getProductVariantId() != null) {
+                        byVariant.computeIfAbsent(item.getProductVariantId(), id -> new ArrayList<>()).add(stock);
+                    }
+                }
+            }
+            return new Snapshot(List.copyOf(sales), Map.copyOf(byItem), Map.copyOf(byVariant));
+        }
+    }
+
+    private static final class ItemStock {
+        private final int total;
+        private final AtomicInteger remaining;
+        private final AtomicInteger sold;
+        private final LocalDateTime startTime;
+        private final LocalDateTime endTime;
+
+        private ItemStock(Integer total, Integer remaining, Integer sold,
+                          LocalDateTime startTime, LocalDateTime endTime) {
+            this.total = total != null ? total : 0;
+            this.remaining = new AtomicInteger(remaining != null ? remaining : 0);
+            this.sold = new AtomicInteger(sold != null ? sold : 0);
+            this.startTime = startTime;
+            this.endTime = endTime;
+        }
+
+        private void sell(int quantity) {
+            int applied = remaining.getAndUpdate(current -> Math.max(0, current - quantity));
+            sold.addAndGet(Math.min(applied, quantity));
+        }
+    }
+}
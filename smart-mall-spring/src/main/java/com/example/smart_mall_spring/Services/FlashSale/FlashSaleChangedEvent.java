@@ -0,0 +1,9 @@
+package com.example.smart_mall_spring.Services.FlashSale;
+
+import java.util.UUID;
+
+/**
+ * Published after a flash sale is created, updated, deleted, approved or rejected.
+ */
+public record FlashSaleChangedEvent(UUID flashSaleId) {
+}
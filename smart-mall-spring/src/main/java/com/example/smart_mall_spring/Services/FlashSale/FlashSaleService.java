@@ -1,5 +1,6 @@
 package com.example.smart_mall_spring.Services.FlashSale;
 
+import com.example.smart_mall_spring.Dtos.Common.CursorSliceDto;
 import com.example.smart_mall_spring.Dtos.FlashSale.*;
 import com.example.smart_mall_spring.Entities.FlashSale.FlashSale;
 import com.example.smart_mall_spring.Entities.FlashSale.FlashSaleItem;
@@ -13,11 +14,14 @@ import com.example.smart_mall_spring.Repositories.FlashSaleRepository;
 import com.example.smart_mall_spring.Repositories.ProductRepository;
 import com.example.smart_mall_spring.Repositories.ProductVariantRepository;
 import com.example.smart_mall_spring.Services.Shop.ShopService;
+import com.example.smart_mall_spring.Utils.KeysetCursor;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 
@@ -37,6 +41,7 @@ public class FlashSaleService {
     private final ProductRepository productRepository;
     private final ProductVariantRepository productVariantRepository;
     private final ShopService shopService;
+    private final ApplicationEventPublisher eventPublisher;
     
     @Transactional
     public FlashSaleResponseDto createFlashSale(CreateFlashSaleDto dto) {
@@ -65,6 +70,7 @@ public class FlashSaleService {
             items.add(item);
         }
         flashSale.setFlashSaleItems(items);
+        eventPublisher.publishEvent(new FlashSaleChangedEvent(flashSale.getId()));
         
         return convertToResponseDto(flashSale);
     }
@@ -131,6 +137,7 @@ public class FlashSaleService {
         }
         
         flashSale = flashSaleRepository.save(flashSale);
+        eventPublisher.publishEvent(new FlashSaleChangedEvent(flashSale.getId()));
         return convertToResponseDto(flashSale);
     }
     
@@ -170,6 +177,7 @@ public class FlashSaleService {
         
         flashSale.setIsDeleted(true);
         flashSaleRepository.save(flashSale);
+        eventPublisher.publishEvent(new FlashSaleChangedEvent(id));
     }
     
     public FlashSaleResponseDto getFlashSaleById(UUID id) {
@@ -187,6 +195,18 @@ public class FlashSaleService {
         return flashSales.map(this::convertToResponseDto);
     }
     
+    // Cuộn vô hạn: keyset trên (createdAt, id), không COUNT
+    public CursorSliceDto<FlashSaleResponseDto> getFlashSaleFeed(String cursor, int size) {
+        KeysetCursor after = KeysetCursor.decode(cursor);
+        Pageable pageable = PageRequest.of(0, size);
+        Slice<FlashSale> flashSales = after == null
+                ? flashSaleRepository.findSliceByIsDeletedFalse(pageable)
+                : flashSaleRepository.findSliceByIsDeletedFalseAfter(after.createdAt(), after.id(), pageable);
+        
+        List<FlashSaleResponseDto> items = flashSales.getContent().stream().map(this::convertToResponseDto).toList();
+        return CursorSliceDto.of(flashSales, flashSale -> new KeysetCursor(flashSale.getCreatedAt(), flashSale.getId()), items);
+    }
+    
     public Page<FlashSaleResponseDto> getActiveFlashSales(int page, int size) {
         Pageable pageable = PageRequest.of(page, size);
         Page<FlashSale> flashSales = flashSaleRepository.findActiveFlashSales(LocalDateTime.now(), pageable);
@@ -224,6 +244,7 @@ public class FlashSaleService {
         
         flashSale.setStatus(Status.APPROVED);
         flashSale = flashSaleRepository.save(flashSale);
+        eventPublisher.publishEvent(new FlashSaleChangedEvent(id));
         
         return convertToResponseDto(flashSale);
     }
@@ -235,10 +256,21 @@ public class FlashSaleService {
         
         flashSale.setStatus(Status.REJECTED);
         flashSale = flashSaleRepository.save(flashSale);
+        eventPublisher.publishEvent(new FlashSaleChangedEvent(id));
         
         return convertToResponseDto(flashSale);
     }
     
+    /**
+     * Load running and upcoming approved flash sales for the in-memory catalog snapshot.
+     */
+    @Transactional
+    public List<FlashSaleResponseDto> loadCatalogFlashSales() {
+        return flashSaleRepository.findCurrentAndUpcomingWithItems(LocalDateTime.now()).stream()
+                .map(this::convertToResponseDto)
+                .collect(Collectors.toList());
+    }
+    
     public List<FlashSaleItemResponseDto> getFlashSaleItems(UUID flashSaleId) {
         List<FlashSaleItem> items = flashSaleItemRepository.findByFlashSaleId(flashSaleId);
         return items.stream()
@@ -0,0 +1,254 @@
+package com.example.smart_mall_spring.Services.FlashSale;
+
+import com.example.smart_mall_spring.Entities.Products.ProductVariant;
+import com.example.smart_mall_spring.Repositories.FlashSaleItemRepository;
+import com.example.smart_mall_spring.Repositories.ProductVariantRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * In-memory admission control for flash-sale units.
+ * <p>
+ * Each flash-sale variant owns its own counter, so concurrent checkouts on different
+ * variants never contend and checkouts on the same variant only race on a single CAS.
+ * A unit is admitted or rejected here before any DB write; committed reservations are
+ * accumulated as pending decrements and flushed to {@code product_variants.flash_sale_quantity}
+ * and {@code flash_sale_items.remaining_quantity} in batches.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class FlashSaleStockReservationService {
+
+    private final ProductVariantRepository productVariantRepository;
+    private final FlashSaleItemRepository flashSaleItemRepository;
+    private final FlashSaleCatalogService flashSaleCatalogService;
+
+    private final Map<UUID, VariantCounter> counters = new ConcurrentHashMap<>();
+    // Decrements not owned by a live counter: ended counters and retries of failed flushes
+    private final Map<UUID, Integer> carriedPending = new ConcurrentHashMap<>();
+    // Units sold under flash-sale settings that were replaced since: the saved quantity is the new base of
+    // both the DB column and the re-seeded counter, so they only reach flash_sale_items
+    private final Map<UUID, Integer> soldOnlyPending = new ConcurrentHashMap<>();
+
+    /**
+     * Rebuild counters from the DB so a restart never re-admits units that were already sold.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildFromDatabase() {
+        counters.clear();
+        List<ProductVariant> variants = productVariantRepository
+                .findFlashSaleVariants(LocalDateTime.now(), Pageable.unpaged())
+                .getContent();
+        for (ProductVariant variant : variants) {
+            if (variant.getFlashSaleQuantity() != null) {
+                counters.put(variant.getId(),
+                        new VariantCounter(variant.getFlashSaleQuantity(), variant.getFlashSaleEnd()));
+            }
+        }
+        log.info("Flash sale reservation counters rebuilt for {} variants", counters.size());
+    }
+
+    /**
+     * Try to reserve {@code quantity} flash-sale units of the given variant.
+     * Variants without a flash-sale quantity limit are always admitted.
+     *
+     * @return true if the units were reserved, false if not enough units remain
+     */
+    public boolean tryReserve(ProductVariant variant, int quantity) {
+        if (variant.getFlashSaleQuantity() == null) {
+            return true;
+        }
+        VariantCounter counter = counters.computeIfAbsent(variant.getId(),
+                id -> new VariantCounter(variant.getFlashSaleQuantity(), variant.getFlashSaleEnd()));
+
+        if (!counter.tryAcquire(quantity)) {
+            return false;
+        }
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == STATUS_COMMITTED) {
+                        recordSold(variant.getId(), counter, quantity);
+                        flashSaleCatalogService.onUnitsSold(variant.getId(), quantity);
+                    } else {
+                        counter.available.addAndGet(quantity);
+                    }
+                }
+            });
+        } else {
+            recordSold(variant.getId(), counter, quantity);
+            flashSaleCatalogService.onUnitsSold(variant.getId(), quantity);
+        }
+        return true;
+    }
+
+    /**
+     * Seed the counter of a variant whose flash sale just started, ahead of the first checkout.
+     */
+    public void warm(ProductVariant variant) {
+        if (variant.getFlashSaleQuantity() != null) {
+            counters.putIfAbsent(variant.getId(),
+                    new VariantCounter(variant.getFlashSaleQuantity(), variant.getFlashSaleEnd()));
+        }
+    }
+
+    /**
+     * Remaining flash-sale units as seen by the engine, or null if the variant is not tracked.
+     */
+    public Integer getAvailable(UUID variantId) {
+        VariantCounter counter = counters.get(variantId);
+        return counter != null ? counter.available.get() : null;
+    }
+
+    /**
+     * Drop the counter of a variant whose flash-sale settings were changed or removed.
+     * The next reservation re-seeds it from the freshly saved quantity.
+     * <p>
+     * Inside a transaction the counter is only dropped after commit, so a rolled-back settings
+     * change keeps it. The saved quantity is what remains to sell from now on, so units sold against
+     * the dropped counter (unflushed, or still in flight) are not taken off it again: the next flush
+     * only adds them to the flash-sale items' sold counts.
+     */
+    public void reset(UUID variantId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    retire(variantId);
+                }
+            });
+        } else {
+            retire(variantId);
+        }
+    }
+
+    private void retire(UUID variantId) {
+        VariantCounter counter = counters.remove(variantId);
+        if (counter != null) {
+            counter.rebased = true;
+            counter.retired = true;
+            drainToCarried(variantId, counter);
+        }
+    }
+
+    private void recordSold(UUID variantId, VariantCounter counter, int quantity) {
+        counter.pending.addAndGet(quantity);
+        // The counter may have been retired between admission and commit; make sure these
+        // units still reach the flusher. Both sides drain with getAndSet, so nothing is counted twice.
+        if (counter.retired) {
+            drainToCarried(variantId, counter);
+        }
+    }
+
+    private void drainToCarried(UUID variantId, VariantCounter counter) {
+        int delta = counter.pending.getAndSet(0);
+        if (delta > 0) {
+            (counter.rebased ? soldOnlyPending : carriedPending).merge(variantId, delta, Integer::sum);
+        }
+    }
+
+    /**
+     * Flush accumulated decrements to the DB in a single transaction.
+     */
+    @Scheduled(fixedDelayString = "${flashsale.reservation.flush-interval-ms:500}")
+    @Transactional
+    public void flushPendingDecrements() {
+        Map<UUID, Integer> batch = new HashMap<>();
+        LocalDateTime now = LocalDateTime.now();
+
+        counters.forEach((variantId, counter) -> {
+            int delta = counter.pending.getAndSet(0);
+            if (delta > 0) {
+                batch.put(variantId, delta);
+            }
+            // Keep ended counters for a grace period so late commits still reach the DB
+            if (counter.pending.get() == 0 && counter.endTime != null
+                    && counter.endTime.plusMinutes(1).isBefore(now)
+                    && counters.remove(variantId, counter)) {
+                counter.retired = true;
+                drainToCarried(variantId, counter);
+            }
+        });
+        drainInto(carriedPending, batch);
+        Map<UUID, Integer> soldOnly = new HashMap<>();
+        drainInto(soldOnlyPending, soldOnly);
+
+        if (batch.isEmpty() && soldOnly.isEmpty()) {
+            return;
+        }
+
+        Map<UUID, Integer> itemBatch = new HashMap<>(batch);
+        soldOnly.forEach((variantId, delta) -> itemBatch.merge(variantId, delta, Integer::sum));
+        try {
+            if (!batch.isEmpty()) {
+                int updated = productVariantRepository.decreaseFlashSaleQuantityClamped(batch);
+                if (updated < batch.size()) {
+                    log.warn("Flash sale quantity no longer tracked in DB for {} of {} variants",
+                            batch.size() - updated, batch.size());
+                }
+            }
+            flashSaleItemRepository.decreaseActiveQuantitiesClamped(itemBatch, now);
+            log.debug("Flushed flash sale decrements for {} variants", itemBatch.size());
+        } catch (RuntimeException e) {
+            // Put the deltas back so the next flush retries them
+            batch.forEach((variantId, delta) -> carriedPending.merge(variantId, delta, Integer::sum));
+            soldOnly.forEach((variantId, delta) -> soldOnlyPending.merge(variantId, delta, Integer::sum));
+            log.error("Failed to flush flash sale decrements: {}", e.getMessage(), e);
+            throw e;
+        }
+    }
+
+    private static void drainInto(Map<UUID, Integer> pending, Map<UUID, Integer> batch) {
+        for (UUID variantId : pending.keySet()) {
+            Integer delta = pending.remove(variantId);
+            if (delta != null) {
+                batch.merge(variantId, delta, Integer::sum);
+            }
+        }
+    }
+
+    private static final class VariantCounter {
+        private final AtomicInteger available;
+        private final AtomicInteger pending = new AtomicInteger();
+        private final LocalDateTime endTime;
+        private volatile boolean retired;
+        // Retired by a settings change: its sold units are already reflected in the new quantity
+        private volatile boolean rebased;
+
+        private VariantCounter(int available, LocalDateTime endTime) {
+            this.available = new AtomicInteger(available);
+            this.endTime = endTime;
+        }
+
+        private boolean tryAcquire(int quantity) {
+            while (true) {
+                int current = available.get();
+                if (current < quantity) {
+                    return false;
+                }
+                if (available.compareAndSet(current, current - quantity)) {
+                    return true;
+                }
+            }
+        }
+    }
+}
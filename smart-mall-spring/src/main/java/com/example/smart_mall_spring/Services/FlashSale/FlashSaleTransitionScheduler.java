@@ -0,0 +1,235 @@
+package com.example.smart_mall_spring.Services.FlashSale;
+
+import com.example.smart_mall_spring.Dtos.FlashSale.FlashSaleTransitionMessage;
+import com.example.smart_mall_spring.Entities.FlashSale.FlashSale;
+import com.example.smart_mall_spring.Entities.Products.ProductVariant;
+import com.example.smart_mall_spring.Enum.Status;
+import com.example.smart_mall_spring.Repositories.FlashSaleRepository;
+import com.example.smart_mall_spring.Repositories.ProductVariantRepository;
+import com.example.smart_mall_spring.Utils.HierarchicalTimingWheel;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Fires start/end transitions of flash sales and variant-level flash sales at their exact times.
+ * <p>
+ * Each transition flips the persisted running flag ({@code flash_sales.is_running},
+ * {@code product_variants.flash_sale_running}), warms the catalog snapshot or the reservation
+ * counters and pushes a message to {@code /topic/flash-sales}. Pricing code reads the flag
+ * instead of comparing clocks per row.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class FlashSaleTransitionScheduler {
+
+    private static final String TOPIC = "/topic/flash-sales";
+
+    private final FlashSaleRepository flashSaleRepository;
+    private final ProductVariantRepository productVariantRepository;
+    private final FlashSaleCatalogService flashSaleCatalogService;
+    private final FlashSaleStockReservationService flashSaleStockReservationService;
+    private final SimpMessagingTemplate messagingTemplate;
+    private final PlatformTransactionManager transactionManager;
+
+    private final Map<String, HierarchicalTimingWheel.Timeout> timeouts = new ConcurrentHashMap<>();
+    private ExecutorService executor;
+    private HierarchicalTimingWheel wheel;
+    private TransactionTemplate requiresNew;
+
+    @PostConstruct
+    public void start() {
+        // After-commit listeners still see the finished transaction bound to the thread,
+        // so flag writes from them must open their own.
+        requiresNew = new TransactionTemplate(transactionManager);
+        requiresNew.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        AtomicInteger threadIndex = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(2, runnable -> {
+            Thread thread = new Thread(runnable, "flash-sale-transition-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        // 1s tick, 60 slot: tầng 1 = 1 phút, tầng 2 = 1 giờ, tầng 3 = 60 giờ, ...
+        wheel = new HierarchicalTimingWheel(1000, 60, executor, "flash-sale-timing-wheel");
+    }
+
+    @PreDestroy
+    public void stop() {
+        wheel.close();
+        executor.shutdownNow();
+    }
+
+    /**
+     * Reconcile running flags with the clock and schedule every pending transition.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void bootstrap() {
+        LocalDateTime now = LocalDateTime.now();
+        flashSaleRepository.refreshRunning(now);
+        productVariantRepository.refreshFlashSaleRunning(now);
+
+        var flashSales = flashSaleRepository.findApprovedEndingAfter(now);
+        flashSales.forEach(this::scheduleFlashSale);
+        var variants = productVariantRepository.findFlashSaleVariantsEndingAfter(now);
+        variants.forEach(this::scheduleVariant);
+
+        log.info("Scheduled transitions for {} flash sales and {} flash sale variants",
+                flashSales.size(), variants.size());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onFlashSaleChanged(FlashSaleChangedEvent event) {
+        UUID id = event.flashSaleId();
+        cancel("sale:" + id);
+        flashSaleRepository.findById(id).ifPresent(flashSale -> {
+            LocalDateTime now = LocalDateTime.now();
+            boolean schedulable = flashSale.getStatus() == Status.APPROVED
+                    && !Boolean.TRUE.equals(flashSale.getIsDeleted());
+            boolean running = schedulable
+                    && !flashSale.getStartTime().isAfter(now) && flashSale.getEndTime().isAfter(now);
+            if (schedulable && flashSale.getEndTime().isAfter(now)) {
+                scheduleFlashSale(flashSale);
+            }
+            if (!writeRunningFlag("sale:" + id, () -> flashSaleRepository.updateRunning(id, running)) && running) {
+                // Past deadline: the wheel retries the flag through the start transition right away
+                schedule("sale:" + id + ":start", now, () -> activateFlashSale(id));
+            }
+        });
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onVariantFlashSaleChanged(VariantFlashSaleChangedEvent event) {
+        UUID id = event.productVariantId();
+        cancel("variant:" + id);
+        productVariantRepository.findById(id).ifPresent(variant -> {
+            LocalDateTime now = LocalDateTime.now();
+            boolean schedulable = Boolean.TRUE.equals(variant.getIsFlashSale())
+                    && variant.getFlashSaleStart() != null && variant.getFlashSaleEnd() != null;
+            boolean running = schedulable
+                    && !variant.getFlashSaleStart().isAfter(now) && variant.getFlashSaleEnd().isAfter(now);
+            if (schedulable && variant.getFlashSaleEnd().isAfter(now)) {
+                scheduleVariant(variant);
+            }
+            if (!writeRunningFlag("variant:" + id, () -> productVariantRepository.updateFlashSaleRunning(id, running))
+                    && running) {
+                schedule("variant:" + id + ":start", now, () -> activateVariant(id));
+            }
+        });
+    }
+
+    private boolean writeRunningFlag(String key, Runnable update) {
+        try {
+            requiresNew.executeWithoutResult(status -> update.run());
+            return true;
+        } catch (Exception e) {
+            log.error("Failed to update running flag for {}: {}", key, e.getMessage(), e);
+            return false;
+        }
+    }
+
+    private void scheduleFlashSale(FlashSale flashSale) {
+        UUID id = flashSale.getId();
+        if (flashSale.getStartTime().isAfter(LocalDateTime.now())) {
+            schedule("sale:" + id + ":start", flashSale.getStartTime(), () -> activateFlashSale(id));
+        }
+        schedule("sale:" + id + ":end", flashSale.getEndTime(), () -> expireFlashSale(id));
+    }
+
+    private void scheduleVariant(ProductVariant variant) {
+        if (variant.getFlashSaleStart() == null || variant.getFlashSaleEnd() == null) {
+            return;
+        }
+        UUID id = variant.getId();
+        if (variant.getFlashSaleStart().isAfter(LocalDateTime.now())) {
+            schedule("variant:" + id + ":start", variant.getFlashSaleStart(), () -> activateVariant(id));
+        }
+        schedule("variant:" + id + ":end", variant.getFlashSaleEnd(), () -> expireVariant(id));
+    }
+
+    private void activateFlashSale(UUID id) {
+        runTransition("sale:" + id + ":start", () -> {
+            flashSaleRepository.updateRunning(id, true);
+            flashSaleCatalogService.rebuild();
+            push("FLASH_SALE_STARTED", id, null);
+        });
+    }
+
+    private void expireFlashSale(UUID id) {
+        runTransition("sale:" + id + ":end", () -> {
+            flashSaleRepository.updateRunning(id, false);
+            flashSaleCatalogService.rebuild();
+            push("FLASH_SALE_ENDED", id, null);
+        });
+    }
+
+    private void activateVariant(UUID id) {
+        runTransition("variant:" + id + ":start", () -> {
+            productVariantRepository.updateFlashSaleRunning(id, true);
+            productVariantRepository.findById(id).ifPresent(flashSaleStockReservationService::warm);
+            push("VARIANT_FLASH_SALE_STARTED", null, id);
+        });
+    }
+
+    private void expireVariant(UUID id) {
+        runTransition("variant:" + id + ":end", () -> {
+            productVariantRepository.updateFlashSaleRunning(id, false);
+            push("VARIANT_FLASH_SALE_ENDED", null, id);
+        });
+    }
+
+    private void schedule(String key, LocalDateTime at, Runnable task) {
+        long epochMs = at.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        HierarchicalTimingWheel.Timeout previous = timeouts.put(key, wheel.schedule(epochMs, task));
+        if (previous != null) {
+            previous.cancel();
+        }
+    }
+
+    private void cancel(String keyPrefix) {
+        timeouts.entrySet().removeIf(entry -> {
+            if (entry.getKey().startsWith(keyPrefix + ":")) {
+                entry.getValue().cancel();
+                return true;
+            }
+            return false;
+        });
+    }
+
+    private void runTransition(String key, Runnable transition) {
+        timeouts.remove(key);
+        try {
+            transition.run();
+            log.info("Flash sale transition fired: {}", key);
+        } catch (Exception e) {
+            log.error("Flash sale transition {} failed: {}", key, e.getMessage(), e);
+        }
+    }
+
+    private void push(String type, UUID flashSaleId, UUID variantId) {
+        messagingTemplate.convertAndSend(TOPIC, FlashSaleTransitionMessage.builder()
+                .type(type)
+                .flashSaleId(flashSaleId)
+                .productVariantId(variantId)
+                .occurredAt(LocalDateTime.now())
+                .build());
+    }
+}
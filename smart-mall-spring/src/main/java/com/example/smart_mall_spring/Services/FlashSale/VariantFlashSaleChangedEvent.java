@@ -0,0 +1,9 @@
+package com.example.smart_mall_spring.Services.FlashSale;
+
+import java.util.UUID;
+
+/**
+ * Published after a variant-level flash sale is set or removed.
+ */
+public record VariantFlashSaleChangedEvent(UUID productVariantId) {
+}
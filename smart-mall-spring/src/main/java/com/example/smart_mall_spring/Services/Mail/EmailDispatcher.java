@@ -0,0 +1,227 @@
+package com.example.smart_mall_spring.Services.Mail;
+
+import com.example.smart_mall_spring.Entities.OutboundEmail;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.mail.MailParseException;
+import org.springframework.mail.MailPreparationException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sends queued emails in the background.
+ * <p>
+ * A dispatcher thread claims up to {@code mail.queue.batch-size} due emails per free worker slot
+ * ({@code mail.queue.workers}) and hands the batch to {@code mailTaskExecutor}. A batch is sent with one
+ * {@link JavaMailSender#send(SimpleMailMessage...)} call, i.e. over a single SMTP connection instead of one
+ * handshake per email. Failed emails are retried with exponential backoff and jitter until
+ * {@code mail.queue.max-attempts}. The dispatcher polls every {@code mail.queue.poll-interval-ms} and is
+ * woken as soon as an email is queued.
+ */
+@Component
+@Slf4j
+public class EmailDispatcher {
+
+    private static final Duration RETRY_BASE_DELAY = Duration.ofSeconds(5);
+    private static final Duration RETRY_MAX_DELAY = Duration.ofMinutes(10);
+
+    private final EmailQueueService emailQueueService;
+    private final JavaMailSender mailSender;
+    private final Executor mailTaskExecutor;
+    private final String fromEmail;
+    private final int workers;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final long pollIntervalMs;
+
+    private final Semaphore wakeUp = new Semaphore(0);
+    private Semaphore freeWorkers;
+    private Thread dispatcher;
+    private volatile boolean running;
+
+    public EmailDispatcher(EmailQueueService emailQueueService,
+                           JavaMailSender mailSender,
+                           @Qualifier("mailTaskExecutor") Executor mailTaskExecutor,
+                           @Value("${spring.mail.username}") String fromEmail,
+                           @Value("${mail.queue.workers:2}") int workers,
+                           @Value("${mail.queue.batch-size:20}") int batchSize,
+                           @Value("${mail.queue.max-attempts:6}") int maxAttempts,
+                           @Value("${mail.queue.poll-interval-ms:2000}") long pollIntervalMs) {
+        this.emailQueueService = emailQueueService;
+        this.mailSender = mailSender;
+        this.mailTaskExecutor = mailTaskExecutor;
+        this.fromEmail = fromEmail;
+        this.workers = workers;
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.pollIntervalMs = pollIntervalMs;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        freeWorkers = new Semaphore(workers);
+        running = true;
+        dispatcher = new Thread(this::dispatchLoop, "mail-dispatcher");
+        dispatcher.setDaemon(true);
+        dispatcher.start();
+        log.info("Mail dispatcher started (workers={}, batchSize={})", workers, batchSize);
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (dispatcher != null) {
+            dispatcher.interrupt();
+        }
+    }
+
+    // After commit: the row is visible to the claim query
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onEmailEnqueued(EmailEnqueuedEvent event) {
+        if (wakeUp.availablePermits() == 0) {
+            wakeUp.release();
+        }
+    }
+
+    private void dispatchLoop() {
+        while (running) {
+            try {
+                freeWorkers.acquire();
+
+                List<OutboundEmail> batch;
+                try {
+                    batch = emailQueueService.claim(batchSize);
+                } catch (Exception e) {
+                    freeWorkers.release();
+                    throw e;
+                }
+
+                if (batch.isEmpty()) {
+                    freeWorkers.release();
+                    wakeUp.tryAcquire(pollIntervalMs, TimeUnit.MILLISECONDS);
+                    wakeUp.drainPermits();
+                    continue;
+                }
+
+                try {
+                    mailTaskExecutor.execute(() -> {
+                        try {
+                            sendBatch(batch);
+                        } finally {
+                            freeWorkers.release();
+                        }
+                    });
+                } catch (RejectedExecutionException e) {
+                    freeWorkers.release();
+                    batch.forEach(email -> handleFailure(email, e));
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                log.error("Mail dispatcher error: {}", e.getMessage(), e);
+                try {
+                    Thread.sleep(pollIntervalMs);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private void sendBatch(List<OutboundEmail> batch) {
+        Map<SimpleMailMessage, OutboundEmail> emailsByMessage = new IdentityHashMap<>();
+        for (OutboundEmail email : batch) {
+            SimpleMailMessage message = new SimpleMailMessage();
+            message.setFrom(fromEmail);
+            message.setTo(email.getToAddress());
+            message.setSubject(email.getSubject());
+            message.setText(email.getBody());
+            emailsByMessage.put(message, email);
+        }
+
+        Map<Object, Exception> failures = Map.of();
+        try {
+            mailSender.send(emailsByMessage.keySet().toArray(SimpleMailMessage[]::new));
+        } catch (MailSendException e) {
+            // Per-message failures; the other messages of the batch were delivered
+            failures = e.getFailedMessages();
+            if (failures.isEmpty()) {
+                batch.forEach(email -> handleFailure(email, e));
+                return;
+            }
+        } catch (Exception e) {
+            // Connection or authentication failure: nothing was sent
+            batch.forEach(email -> handleFailure(email, e));
+            return;
+        }
+
+        List<UUID> sent = new ArrayList<>();
+        for (Map.Entry<SimpleMailMessage, OutboundEmail> entry : emailsByMessage.entrySet()) {
+            Exception failure = failures.get(entry.getKey());
+            if (failure == null) {
+                sent.add(entry.getValue().getId());
+            } else {
+                handleFailure(entry.getValue(), failure);
+            }
+        }
+        try {
+            emailQueueService.markSent(sent);
+            log.debug("Sent {} emails", sent.size());
+        } catch (Exception e) {
+            // The lease expires and the emails are sent again: at-least-once delivery
+            log.error("Failed to mark {} emails as sent: {}", sent.size(), e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Attempts were counted when the email was claimed; the email goes back to PENDING with a
+     * backoff, or to FAILED on its last attempt or a message that can never be sent.
+     */
+    private void handleFailure(OutboundEmail email, Exception e) {
+        boolean permanent = e instanceof MailParseException || e instanceof MailPreparationException;
+        try {
+            if (!permanent && email.getAttempts() < maxAttempts) {
+                emailQueueService.scheduleRetry(email.getId(), backoffWithJitter(email.getAttempts()), e.getMessage());
+                log.warn("Email {} to {} failed (attempt {}), retrying: {}",
+                        email.getId(), email.getToAddress(), email.getAttempts(), e.getMessage());
+            } else {
+                emailQueueService.markFailed(email.getId(), e.getMessage());
+                log.error("Email {} to {} failed permanently after {} attempts: {}",
+                        email.getId(), email.getToAddress(), email.getAttempts(), e.getMessage());
+            }
+        } catch (Exception ex) {
+            // The lease expires and the email is claimed again
+            log.error("Failed to record failure of email {}: {}", email.getId(), ex.getMessage());
+        }
+    }
+
+    /**
+     * Exponential backoff (5s, 10s, 20s... up to 10 min) with jitter in [delay/2, delay].
+     */
+    private static Duration backoffWithJitter(int attempt) {
+        long delayMs = Math.min(RETRY_MAX_DELAY.toMillis(),
+                RETRY_BASE_DELAY.toMillis() << Math.min(attempt - 1, 20));
+        return Duration.ofMillis(delayMs / 2 + ThreadLocalRandom.current().nextLong(delayMs / 2 + 1));
+    }
+}
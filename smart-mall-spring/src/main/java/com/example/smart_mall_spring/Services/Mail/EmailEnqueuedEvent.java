@@ -0,0 +1,7 @@
+package com.example.smart_mall_spring.Services.Mail;
+
+/**
+ * Published when an email was queued, so the dispatcher can start sending without waiting for its next poll.
+ */
+public record EmailEnqueuedEvent() {
+}
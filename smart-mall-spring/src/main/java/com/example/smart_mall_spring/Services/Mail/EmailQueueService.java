@@ -0,0 +1,124 @@
+package com.example.smart_mall_spring.Services.Mail;
+
+import com.example.smart_mall_spring.Entities.OutboundEmail;
+import com.example.smart_mall_spring.Enum.EmailTemplate;
+import com.example.smart_mall_spring.Enum.OutboundEmailStatus;
+import com.example.smart_mall_spring.Repositories.OutboundEmailRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Outbound email queue stored in the outbound_emails table.
+ * <p>
+ * Callers only insert a row (in their own transaction, so an email is never sent for a rolled-back
+ * write) and return; {@link EmailDispatcher} claims due rows with {@code FOR UPDATE SKIP LOCKED} and
+ * a lease, so several instances can share the queue and a crashed worker's emails are picked up again.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class EmailQueueService {
+
+    private final OutboundEmailRepository outboundEmailRepository;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Value("${mail.queue.lease-seconds:120}")
+    private long leaseSeconds;
+
+    @Value("${mail.queue.retention-days:7}")
+    private long retentionDays;
+
+    private final String instanceId = ManagementFactory.getRuntimeMXBean().getName();
+
+    /**
+     * Render the template and queue the email.
+     */
+    @Transactional
+    public UUID enqueue(String toAddress, EmailTemplate template, Object... args) {
+        OutboundEmail email = OutboundEmail.builder()
+                .toAddress(toAddress)
+                .subject(template.getSubject())
+                .body(template.renderBody(args))
+                .template(template.name())
+                .availableAt(LocalDateTime.now())
+                .build();
+        OutboundEmail saved = outboundEmailRepository.save(email);
+        eventPublisher.publishEvent(new EmailEnqueuedEvent());
+        return saved.getId();
+    }
+
+    /**
+     * Claim up to {@code limit} due emails (or emails whose lease expired) for this instance.
+     */
+    @Transactional
+    public List<OutboundEmail> claim(int limit) {
+        LocalDateTime now = LocalDateTime.now();
+        List<OutboundEmail> emails = outboundEmailRepository.lockClaimableEmails(now, limit);
+        for (OutboundEmail email : emails) {
+            email.setStatus(OutboundEmailStatus.SENDING);
+            email.setLeaseOwner(instanceId);
+            email.setLeaseExpiresAt(now.plusSeconds(leaseSeconds));
+            email.setAttempts(email.getAttempts() + 1);
+        }
+        return emails;
+    }
+
+    @Transactional
+    public void markSent(Collection<UUID> emailIds) {
+        LocalDateTime now = LocalDateTime.now();
+        for (OutboundEmail email : outboundEmailRepository.findAllById(emailIds)) {
+            email.setStatus(OutboundEmailStatus.SENT);
+            email.setSentAt(now);
+            email.setLeaseOwner(null);
+            email.setLeaseExpiresAt(null);
+            email.setLastError(null);
+        }
+    }
+
+    /**
+     * Put the email back to PENDING; it can be claimed again after {@code delay}.
+     */
+    @Transactional
+    public void scheduleRetry(UUID emailId, Duration delay, String error) {
+        outboundEmailRepository.findById(emailId).ifPresent(email -> {
+            email.setStatus(OutboundEmailStatus.PENDING);
+            email.setAvailableAt(LocalDateTime.now().plus(delay));
+            email.setLeaseOwner(null);
+            email.setLeaseExpiresAt(null);
+            email.setLastError(error);
+        });
+    }
+
+    @Transactional
+    public void markFailed(UUID emailId, String error) {
+        outboundEmailRepository.findById(emailId).ifPresent(email -> {
+            email.setStatus(OutboundEmailStatus.FAILED);
+            email.setLeaseOwner(null);
+            email.setLeaseExpiresAt(null);
+            email.setLastError(error);
+        });
+    }
+
+    @Scheduled(cron = "${mail.queue.purge-cron:0 45 3 * * *}")
+    @Transactional
+    public void purgeSent() {
+        int deleted = outboundEmailRepository.deleteSentBefore(LocalDateTime.now().minusDays(retentionDays));
+        log.info("Purged {} sent emails older than {} days", deleted, retentionDays);
+    }
+
+    public long countByStatus(OutboundEmailStatus status) {
+        return outboundEmailRepository.countByStatus(status);
+    }
+}
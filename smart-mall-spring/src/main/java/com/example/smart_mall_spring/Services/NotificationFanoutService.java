@@ -0,0 +1,162 @@
+package com.example.smart_mall_spring.Services;
+
+import com.example.smart_mall_spring.Dtos.Notification.NotificationDto;
+import com.example.smart_mall_spring.Dtos.Notification.NotificationRequestDto;
+import com.example.smart_mall_spring.Enum.NotificationStatus;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Executor;
+
+/**
+ * Delivers one notification to many users.
+ * <p>
+ * Recipients are inserted in chunks of {@code notification.fanout.batch-size} rows, each chunk one JDBC batch
+ * in its own transaction (rewritten into multi-row INSERTs by the driver), so a campaign to every user never
+ * holds one huge transaction or persistence context. After a chunk commits its WebSocket messages are handed
+ * to {@code notificationPushExecutor}; when that executor is saturated the fan-out thread pushes the chunk
+ * itself, which bounds the memory held by pending pushes. Cached unread counts are bumped as each chunk
+ * commits and the new counts are pushed along with the notifications.
+ */
+@Service
+@Slf4j
+public class NotificationFanoutService {
+
+    private static final String INSERT_SQL = "INSERT INTO notifications " +
+            "(id, user_id, type, title, message, status, reference_id, reference_type, metadata, image_url, " +
+            "deep_link, created_at, updated_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final SimpMessagingTemplate messagingTemplate;
+    private final UnreadNotificationCounter unreadNotificationCounter;
+    private final Executor pushExecutor;
+    private final int batchSize;
+
+    public NotificationFanoutService(JdbcTemplate jdbcTemplate,
+                                     TransactionTemplate transactionTemplate,
+                                     SimpMessagingTemplate messagingTemplate,
+                                     UnreadNotificationCounter unreadNotificationCounter,
+                                     @Qualifier("notificationPushExecutor") Executor pushExecutor,
+                                     @Value("${notification.fanout.batch-size:1000}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.messagingTemplate = messagingTemplate;
+        this.unreadNotificationCounter = unreadNotificationCounter;
+        this.pushExecutor = pushExecutor;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Create the notification described by {@code template} (its userId is ignored) for every recipient
+     * and push it to the connected ones. A chunk that fails to insert is logged and skipped.
+     *
+     * @return number of notifications created
+     */
+    public int fanOut(NotificationRequestDto template, Collection<UUID> recipientIds) {
+        List<UUID> recipients = List.copyOf(new LinkedHashSet<>(recipientIds));
+        int created = 0;
+        for (int from = 0; from < recipients.size(); from += batchSize) {
+            List<UUID> chunk = recipients.subList(from, Math.min(from + batchSize, recipients.size()));
+            List<NotificationDto> notifications;
+            try {
+                notifications = transactionTemplate.execute(status -> {
+                    List<NotificationDto> inserted = insert(template, chunk);
+                    // Tracked from this transaction's commit, so a count cold-loaded meanwhile is not cached
+                    unreadNotificationCounter.recordDeltaWithoutPush(chunk, 1);
+                    return inserted;
+                });
+            } catch (Exception e) {
+                log.error("Failed to create {} notifications of type {}: {}", chunk.size(), template.getType(), e.getMessage(), e);
+                continue;
+            }
+            created += notifications.size();
+            // Counts were updated as the chunk committed; only the pushes are deferred
+            List<Long> unreadCounts = new ArrayList<>(notifications.size());
+            for (NotificationDto notification : notifications) {
+                unreadCounts.add(unreadNotificationCounter.peek(notification.getUserId()));
+            }
+            pushExecutor.execute(() -> push(notifications, unreadCounts));
+        }
+        log.info("Notification {} fanned out to {}/{} users", template.getType(), created, recipients.size());
+        return created;
+    }
+
+    private List<NotificationDto> insert(NotificationRequestDto template, List<UUID> userIds) {
+        LocalDateTime now = LocalDateTime.now();
+        List<NotificationDto> notifications = new ArrayList<>(userIds.size());
+        for (UUID userId : userIds) {
+            notifications.add(NotificationDto.builder()
+                    .id(UUID.randomUUID())
+                    .userId(userId)
+                    .type(template.getType())
+                    .title(template.getTitle())
+                    .message(template.getMessage())
+                    .status(NotificationStatus.UNREAD)
+                    .referenceId(template.getReferenceId())
+                    .referenceType(template.getReferenceType())
+                    .metadata(template.getMetadata())
+                    .imageUrl(template.getImageUrl())
+                    .deepLink(template.getDeepLink())
+                    .createdAt(now)
+                    .updatedAt(now)
+                    .build());
+        }
+        jdbcTemplate.batchUpdate(INSERT_SQL, notifications, notifications.size(), (ps, n) -> {
+            ps.setBytes(1, toBytes(n.getId()));
+            ps.setBytes(2, toBytes(n.getUserId()));
+            ps.setString(3, n.getType().name());
+            ps.setString(4, n.getTitle());
+            ps.setString(5, n.getMessage());
+            ps.setString(6, n.getStatus().name());
+            ps.setBytes(7, toBytes(n.getReferenceId()));
+            ps.setString(8, n.getReferenceType());
+            ps.setString(9, n.getMetadata());
+            ps.setString(10, n.getImageUrl());
+            ps.setString(11, n.getDeepLink());
+            ps.setObject(12, n.getCreatedAt());
+            ps.setObject(13, n.getUpdatedAt());
+        });
+        return notifications;
+    }
+
+    private void push(List<NotificationDto> notifications, List<Long> unreadCounts) {
+        for (int i = 0; i < notifications.size(); i++) {
+            NotificationDto notification = notifications.get(i);
+            try {
+                messagingTemplate.convertAndSend(destinationOf(notification.getUserId()), notification);
+            } catch (Exception e) {
+                log.error("Error sending WebSocket notification to user {}: {}", notification.getUserId(), e.getMessage());
+            }
+            unreadNotificationCounter.push(notification.getUserId(), 1, unreadCounts.get(i));
+        }
+    }
+
+    /**
+     * User-specific notification queue.
+     */
+    static String destinationOf(UUID userId) {
+        return "/user/" + userId + "/queue/notifications";
+    }
+
+    // Same layout as Hibernate's BINARY(16) UUID columns: most significant bits first
+    private static byte[] toBytes(UUID uuid) {
+        if (uuid == null) return null;
+        return ByteBuffer.allocate(16)
+                .putLong(uuid.getMostSignificantBits())
+                .putLong(uuid.getLeastSignificantBits())
+                .array();
+    }
+}
@@ -1,5 +1,6 @@
 package com.example.smart_mall_spring.Services;
 
+import com.example.smart_mall_spring.Dtos.Common.CursorSliceDto;
 import com.example.smart_mall_spring.Dtos.Notification.NotificationDto;
 import com.example.smart_mall_spring.Dtos.Notification.NotificationRequestDto;
 import com.example.smart_mall_spring.Entities.Notification;
@@ -9,10 +10,13 @@ import com.example.smart_mall_spring.Enum.NotificationType;
 import com.example.smart_mall_spring.Exception.EntityNotFoundException;
 import com.example.smart_mall_spring.Repositories.NotificationRepository;
 import com.example.smart_mall_spring.Repositories.UserRepository;
+import com.example.smart_mall_spring.Utils.KeysetCursor;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
@@ -21,7 +25,6 @@ import org.springframework.transaction.annotation.Transactional;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.UUID;
-import java.util.stream.Collectors;
 
 /**
  * Service for managing notifications
@@ -34,6 +37,8 @@ public class NotificationService {
     private final NotificationRepository notificationRepository;
     private final UserRepository userRepository;
     private final SimpMessagingTemplate messagingTemplate;
+    private final NotificationFanoutService notificationFanoutService;
+    private final UnreadNotificationCounter unreadNotificationCounter;
     
     /**
      * Create and send a notification to a user
@@ -59,6 +64,7 @@ public class NotificationService {
                 .build();
             
             notification = notificationRepository.save(notification);
+            unreadNotificationCounter.recordDelta(user.getId(), 1);
             
             // Send real-time notification via WebSocket
             NotificationDto notificationDto = convertToDto(notification);
@@ -73,49 +79,48 @@ public class NotificationService {
     /**
      * Create notification for multiple users
      */
-    @Transactional
     @Async
     public void createBulkNotification(List<UUID> userIds, NotificationType type, String title, 
                                       String message, UUID referenceId, String referenceType) {
-        for (UUID userId : userIds) {
-            NotificationRequestDto requestDto = NotificationRequestDto.builder()
-                .userId(userId)
-                .type(type)
-                .title(title)
-                .message(message)
-                .referenceId(referenceId)
-                .referenceType(referenceType)
-                .build();
-            createAndSendNotification(requestDto);
-        }
+        if (userIds.isEmpty()) return;
+        NotificationRequestDto template = NotificationRequestDto.builder()
+            .type(type)
+            .title(title)
+            .message(message)
+            .referenceId(referenceId)
+            .referenceType(referenceType)
+            .build();
+        // Unknown IDs are dropped up front: one bad foreign key would fail the whole insert batch
+        notificationFanoutService.fanOut(template, userRepository.findExistingIds(userIds));
     }
     
     /**
      * Send notification to all admin users
      */
-    @Transactional
     @Async
     public void sendToAdmins(NotificationType type, String title, String message, 
                             UUID referenceId, String referenceType) {
-        // Find all admin users
-        List<User> admins = userRepository.findAll().stream()
-            .filter(user -> user.getRoles().stream()
-                .anyMatch(role -> "ADMIN".equalsIgnoreCase(role.getName())))
-            .collect(Collectors.toList());
-        
-        for (User admin : admins) {
-            NotificationRequestDto requestDto = NotificationRequestDto.builder()
-                .userId(admin.getId())
-                .type(type)
-                .title(title)
-                .message(message)
-                .referenceId(referenceId)
-                .referenceType(referenceType)
-                .build();
-            createAndSendNotification(requestDto);
-        }
+        NotificationRequestDto template = NotificationRequestDto.builder()
+            .type(type)
+            .title(title)
+            .message(message)
+            .referenceId(referenceId)
+            .referenceType(referenceType)
+            .build();
+        int sent = notificationFanoutService.fanOut(template, userRepository.findIdsByRoleName("ADMIN"));
         
-        log.info("Notification sent to {} admins", admins.size());
+        log.info("Notification sent to {} admins", sent);
+    }
+    
+    /**
+     * Campaign broadcast: every user with the role, or every active user when roleName is null
+     */
+    @Async
+    public void broadcast(NotificationRequestDto template, String roleName) {
+        List<UUID> recipients = roleName == null
+            ? userRepository.findActiveIds()
+            : userRepository.findIdsByRoleName(roleName);
+        notificationFanoutService.fanOut(template, recipients);
     }
     
     /**
@@ -130,6 +135,21 @@ public class NotificationService {
             .map(this::convertToDto);
     }
     
+    /**
+     * Notification feed for infinite scroll: keyset on (createdAt, id), no count query
+     */
+    @Transactional(readOnly = true)
+    public CursorSliceDto<NotificationDto> getUserNotificationFeed(UUID userId, String cursor, int size) {
+        KeysetCursor after = KeysetCursor.decode(cursor);
+        Pageable pageable = PageRequest.of(0, size);
+        Slice<Notification> notifications = after == null
+            ? notificationRepository.findSliceByUserId(userId, pageable)
+            : notificationRepository.findSliceByUserIdAfter(userId, after.createdAt(), after.id(), pageable);
+        
+        List<NotificationDto> items = notifications.getContent().stream().map(this::convertToDto).toList();
+        return CursorSliceDto.of(notifications, n -> new KeysetCursor(n.getCreatedAt(), n.getId()), items);
+    }
+    
     /**
      * Get unread notifications for a user
      */
@@ -144,11 +164,10 @@ public class NotificationService {
     }
     
     /**
-     * Get unread notification count
+     * Get unread notification count (cached; the database is only queried on a cold load)
      */
-    @Transactional(readOnly = true)
     public long getUnreadCount(UUID userId) {
-        return notificationRepository.countUnreadByUserId(userId);
+        return unreadNotificationCounter.get(userId);
     }
     
     /**
@@ -163,8 +182,14 @@ public class NotificationService {
             throw new IllegalArgumentException("Notification does not belong to this user");
         }
         
+        // Conditional UPDATE: only the call that actually flips UNREAD -> READ decrements the count
+        LocalDateTime now = LocalDateTime.now();
+        if (notificationRepository.markAsReadIfStatus(
+                notificationId, NotificationStatus.READ, NotificationStatus.UNREAD, now) > 0) {
+            unreadNotificationCounter.recordDelta(userId, -1);
+            notification.setUpdatedAt(now);
+        }
         notification.setStatus(NotificationStatus.READ);
-        notification = notificationRepository.save(notification);
         
         return convertToDto(notification);
     }
@@ -177,12 +202,14 @@ public class NotificationService {
         User user = userRepository.findById(userId)
             .orElseThrow(() -> new EntityNotFoundException("User not found"));
         
-        return notificationRepository.markAllAsReadByUser(
+        int updated = notificationRepository.markAllAsReadByUser(
             user, 
             NotificationStatus.READ, 
             NotificationStatus.UNREAD,
             LocalDateTime.now()
         );
+        unreadNotificationCounter.recordDelta(userId, -updated);
+        return updated;
     }
     
     /**
@@ -197,7 +224,13 @@ public class NotificationService {
             throw new IllegalArgumentException("Notification does not belong to this user");
         }
         
-        notificationRepository.delete(notification);
+        // The row count of the conditional DELETE says whether an unread notification was removed,
+        // even when it is read or deleted concurrently
+        if (notificationRepository.deleteByIdAndStatus(notificationId, NotificationStatus.UNREAD) > 0) {
+            unreadNotificationCounter.recordDelta(userId, -1);
+        } else {
+            notificationRepository.deleteByIdAndStatus(notificationId, NotificationStatus.READ);
+        }
     }
     
     /**
@@ -208,8 +241,9 @@ public class NotificationService {
         User user = userRepository.findById(userId)
             .orElseThrow(() -> new EntityNotFoundException("User not found"));
         
-        List<Notification> notifications = notificationRepository.findByUser_IdOrderByCreatedAtDesc(userId);
-        notificationRepository.deleteAll(notifications);
+        int unreadDeleted = notificationRepository.deleteByUserIdAndStatus(user.getId(), NotificationStatus.UNREAD);
+        notificationRepository.deleteByUserIdAndStatus(user.getId(), NotificationStatus.READ);
+        unreadNotificationCounter.recordDelta(userId, -unreadDeleted);
     }
     
     /**
@@ -218,7 +252,7 @@ public class NotificationService {
     private void sendWebSocketNotification(UUID userId, NotificationDto notification) {
         try {
             // Send to user-specific queue
-            String destination = "/user/" + userId + "/queue/notifications";
+            String destination = NotificationFanoutService.destinationOf(userId);
             messagingTemplate.convertAndSend(destination, notification);
             log.debug("WebSocket notification sent to: {}", destination);
         } catch (Exception e) {
@@ -253,6 +287,10 @@ public class NotificationService {
     @Transactional
     public int cleanupOldNotifications(int daysOld) {
         LocalDateTime cutoffDate = LocalDateTime.now().minusDays(daysOld);
-        return notificationRepository.deleteOldNotifications(cutoffDate);
+        int deleted = notificationRepository.deleteOldNotifications(cutoffDate);
+        if (deleted > 0) {
+            unreadNotificationCounter.invalidateAll();
+        }
+        return deleted;
     }
 }
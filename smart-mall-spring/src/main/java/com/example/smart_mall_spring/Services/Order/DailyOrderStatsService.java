@@ -0,0 +1,148 @@
+package com.example.smart_mall_spring.Services.Order;
+
+import com.example.smart_mall_spring.Enum.StatusOrder;
+import com.example.smart_mall_spring.Repositories.DailyOrderStatRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Maintains the daily_order_stats aggregate.
+ * <p>
+ * Every committed status transition of an order moves one unit (and its total amount) from the
+ * (creation date, old status) row to the (creation date, new status) row. Deltas are merged in memory
+ * and written as upserts in one transaction per flush; a backfill job recomputes recent days from
+ * the orders table to correct any drift (e.g. deltas lost on a crash).
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class DailyOrderStatsService {
+
+    private static final LocalDate EPOCH = LocalDate.of(1970, 1, 1);
+
+    private final DailyOrderStatRepository dailyOrderStatRepository;
+
+    @Value("${dashboard.stats.backfill-days:31}")
+    private int backfillDays;
+
+    private final Map<StatKey, Delta> pending = new ConcurrentHashMap<>();
+
+    /**
+     * Record a transition of one order. {@code from == null} means the order was created,
+     * {@code to == null} means it was deleted. Applied only if the surrounding transaction commits.
+     */
+    public void recordTransition(LocalDate statDate, StatusOrder from, Double fromAmount,
+                                 StatusOrder to, Double toAmount) {
+        if (statDate == null) return;
+
+        List<Map.Entry<StatKey, Delta>> deltas = new ArrayList<>(2);
+        if (from != null) {
+            deltas.add(Map.entry(new StatKey(statDate, from), new Delta(-1, -amountOf(fromAmount))));
+        }
+        if (to != null) {
+            deltas.add(Map.entry(new StatKey(statDate, to), new Delta(1, amountOf(toAmount))));
+        }
+        if (deltas.isEmpty()) return;
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    deltas.forEach(entry -> pending.merge(entry.getKey(), entry.getValue(), Delta::plus));
+                }
+            });
+        } else {
+            deltas.forEach(entry -> pending.merge(entry.getKey(), entry.getValue(), Delta::plus));
+        }
+    }
+
+    /**
+     * Write accumulated deltas to the DB in a single transaction.
+     */
+    @Scheduled(fixedDelayString = "${dashboard.stats.flush-interval-ms:5000}")
+    @Transactional
+    public void flushPendingDeltas() {
+        applyPendingDeltas();
+    }
+
+    /**
+     * Build the aggregate from scratch when the table is empty (first deployment).
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void initialize() {
+        if (dailyOrderStatRepository.count() == 0) {
+            pending.clear();
+            int rows = dailyOrderStatRepository.insertAggregatesFrom(EPOCH.atStartOfDay());
+            log.info("daily_order_stats backfilled with {} rows", rows);
+        }
+    }
+
+    /**
+     * Recompute the last {@code dashboard.stats.backfill-days} days from the orders table.
+     */
+    @Scheduled(cron = "${dashboard.stats.backfill-cron:0 30 3 * * *}")
+    @Transactional
+    public void backfillRecentDays() {
+        // Pending deltas are written first so they are not applied again on top of the recomputed rows
+        applyPendingDeltas();
+        LocalDate fromDate = LocalDate.now().minusDays(backfillDays - 1L);
+        dailyOrderStatRepository.deleteFromDate(fromDate);
+        int rows = dailyOrderStatRepository.insertAggregatesFrom(fromDate.atStartOfDay());
+        log.info("daily_order_stats recomputed from {} ({} rows)", fromDate, rows);
+    }
+
+    private void applyPendingDeltas() {
+        Map<StatKey, Delta> batch = new HashMap<>();
+        for (StatKey key : pending.keySet()) {
+            Delta delta = pending.remove(key);
+            if (delta != null && !delta.isZero()) {
+                batch.put(key, delta);
+            }
+        }
+        if (batch.isEmpty()) return;
+
+        try {
+            batch.forEach((key, delta) -> dailyOrderStatRepository.addDelta(
+                    key.statDate(), key.status().name(), delta.count(), delta.amount()));
+            log.debug("Flushed daily order stats for {} rows", batch.size());
+        } catch (RuntimeException e) {
+            // Put the deltas back so the next flush retries them
+            batch.forEach((key, delta) -> pending.merge(key, delta, Delta::plus));
+            log.error("Failed to flush daily order stats: {}", e.getMessage(), e);
+            throw e;
+        }
+    }
+
+    private static double amountOf(Double amount) {
+        return amount != null ? amount : 0.0;
+    }
+
+    private record StatKey(LocalDate statDate, StatusOrder status) {
+    }
+
+    private record Delta(long count, double amount) {
+        Delta plus(Delta other) {
+            return new Delta(count + other.count, amount + other.amount);
+        }
+
+        boolean isZero() {
+            return count == 0 && amount == 0.0;
+        }
+    }
+}
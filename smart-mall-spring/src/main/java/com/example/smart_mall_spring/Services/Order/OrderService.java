@@ -1,6 +1,7 @@
 package com.example.smart_mall_spring.Services.Order;
 
 import com.example.smart_mall_spring.Dtos.Address.AddressResponseDto;
+import com.example.smart_mall_spring.Dtos.Common.CursorSliceDto;
 import com.example.smart_mall_spring.Dtos.Orders.*;
 import com.example.smart_mall_spring.Dtos.Orders.OrderItem.OrderItemRequestDto;
 import com.example.smart_mall_spring.Dtos.Orders.OrderItem.OrderItemResponseDto;
@@ -15,8 +16,10 @@ import com.example.smart_mall_spring.Entities.Users.User;
 import com.example.smart_mall_spring.Entities.Users.UserAddress;
 import com.example.smart_mall_spring.Enum.*;
 import com.example.smart_mall_spring.Repositories.*;
+import com.example.smart_mall_spring.Services.FlashSale.FlashSaleStockReservationService;
 import com.example.smart_mall_spring.Services.Wallet.WalletService;
 import com.example.smart_mall_spring.Services.NotificationService;
+import com.example.smart_mall_spring.Utils.KeysetCursor;
 import com.example.smart_mall_spring.Dtos.Notification.NotificationRequestDto;
 import com.example.smart_mall_spring.Enum.NotificationType;
 import jakarta.transaction.Transactional;
@@ -24,6 +27,7 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 
@@ -36,16 +40,13 @@ import java.util.stream.Collectors;
 public class OrderService {
 
     private final OrderRepository orderRepository;
-    private final OrderItemRepository orderItemRepository;
-    private final PaymentRepository paymentRepository;
-    private final ShippingFeeRepository shippingFeeRepository;
     private final OrderStatusHistoryRepository orderStatusHistoryRepository;
-    private final OrderVoucherRepository orderVoucherRepository;
     private final VoucherRepository voucherRepository;
     private final ShopRepository shopRepository;
     private final UserRepository userRepository;
     private final UserAddressRepository userAddressRepository;
     private final ProductVariantRepository productVariantRepository;
+    private final FlashSaleStockReservationService flashSaleStockReservationService;
     private final WalletService walletService;
     private final OrderTrackingLogService orderTrackingLogService;
     private final NotificationService notificationService;
@@ -63,7 +64,10 @@ public class OrderService {
         UserAddress address = userAddressRepository.findById(dto.getShippingAddressId())
                 .orElseThrow(() -> new RuntimeException("Shipping address not found"));
 
-        // 2️ Khởi tạo Order
+        // 2️ Trừ stock cho cả giỏ hàng bằng một câu UPDATE có điều kiện (fail fast nếu thiếu hàng)
+        Map<UUID, ProductVariant> variants = decreaseStockForItems(dto.getItems());
+
+        // 3️ Khởi tạo Order
         Order order = new Order();
         order.setUser(user);
         order.setShop(shop);
@@ -73,28 +77,13 @@ public class OrderService {
         order.setCreatedAt(LocalDateTime.now());
         order.setUpdatedAt(LocalDateTime.now());
         order.setItems(new ArrayList<>()); //  tránh null khi map lại
-        orderRepository.save(order);
+        // Order và các bản ghi con chỉ được persist một lần ở cuối (cascade + JDBC batching)
 
         double subtotal = 0.0;
 
-        // 3️ Lưu danh sách sản phẩm (OrderItems)
+        // 4️ Tạo danh sách sản phẩm (OrderItems)
         for (OrderItemRequestDto itemDto : dto.getItems()) {
-            ProductVariant variant = productVariantRepository.findById(itemDto.getVariantId())
-                    .orElseThrow(() -> new RuntimeException("Product variant not found"));
-
-            // Kiểm tra stock có đủ không
-            if (variant.getStock() == null || variant.getStock() < itemDto.getQuantity()) {
-                throw new RuntimeException("Insufficient stock for product: " + variant.getProduct().getName() 
-                    + " (Available: " + (variant.getStock() != null ? variant.getStock() : 0) + ")");
-            }
-
-            // Kiểm tra flash sale quantity nếu đang flash sale
-            if (variant.isFlashSaleActive()) {
-                if (variant.getFlashSaleQuantity() != null && variant.getFlashSaleQuantity() < itemDto.getQuantity()) {
-                    throw new RuntimeException("Insufficient flash sale quantity for product: " + variant.getProduct().getName()
-                        + " (Available: " + variant.getFlashSaleQuantity() + ")");
-                }
-            }
+            ProductVariant variant = variants.get(itemDto.getVariantId());
 
             // Sử dụng giá flash sale nếu đang active
             double price = variant.isFlashSaleActive() && variant.getFlashSalePrice() != null 
@@ -102,17 +91,6 @@ public class OrderService {
                 : variant.getPrice();
             double itemSubtotal = price * itemDto.getQuantity();
 
-            // Giảm stock
-            variant.setStock(variant.getStock() - itemDto.getQuantity());
-            
-            // Giảm flash sale quantity nếu đang flash sale
-            if (variant.isFlashSaleActive() && variant.getFlashSaleQuantity() != null) {
-                variant.setFlashSaleQuantity(variant.getFlashSaleQuantity() - itemDto.getQuantity());
-            }
-            
-            // Lưu variant sau khi giảm stock và flashSaleQuantity
-            productVariantRepository.save(variant);
-
             OrderItem item = new OrderItem();
             item.setOrder(order);
             item.setVariant(variant);
@@ -120,24 +98,22 @@ public class OrderService {
             item.setPrice(price);
             item.setSubtotal(itemSubtotal);
 
-            orderItemRepository.save(item);
-            order.getItems().add(item); //  đảm bảo order có items trong bộ nhớ
+            order.getItems().add(item);
             subtotal += itemSubtotal;
         }
 
-        // 4️ Tạo ShippingFee
+        // 5️ Tạo ShippingFee
         double shippingFeeAmount = dto.getShippingFee() != null ? dto.getShippingFee() : 30000.0;
         ShippingFee shippingFee = new ShippingFee();
         shippingFee.setOrder(order);
         shippingFee.setFeeAmount(shippingFeeAmount);
         shippingFee.setShippingMethod("STANDARD");
         shippingFee.setEstimatedDeliveryDate(LocalDateTime.now().plusDays(3));
-        shippingFeeRepository.save(shippingFee);
 
         order.setShippingFees(new ArrayList<>());
         order.getShippingFees().add(shippingFee);
 
-        // 5. Áp dụng voucher (KHÔNG save lại order giữa chừng)
+        // 6. Áp dụng voucher (KHÔNG save lại order giữa chừng)
         double totalDiscount = 0.0;
         List<OrderVoucherResponseDto> appliedVouchers = new ArrayList<>();
         List<OrderVoucher> orderVouchers = new ArrayList<>();
@@ -145,11 +121,12 @@ public class OrderService {
         if (dto.getVoucherIds() != null && !dto.getVoucherIds().isEmpty()) {
             // Dùng Set để loại trùng nếu client gửi trùng ID
             Set<UUID> uniqueVoucherIds = new HashSet<>(dto.getVoucherIds());
+            List<Voucher> vouchers = voucherRepository.findAllById(uniqueVoucherIds);
+            if (vouchers.size() < uniqueVoucherIds.size()) {
+                throw new RuntimeException("Voucher not found");
+            }
 
-            for (UUID voucherId : uniqueVoucherIds) {
-                Voucher voucher = voucherRepository.findById(voucherId)
-                        .orElseThrow(() -> new RuntimeException("Voucher not found"));
-
+            for (Voucher voucher : vouchers) {
                 double discountAmount = 0.0;
                 if (voucher.getDiscountType() == DiscountType.PERCENTAGE) {
                     discountAmount = subtotal * (voucher.getDiscountValue() / 100);
@@ -170,7 +147,6 @@ public class OrderService {
                 orderVoucher.setOrder(order);
                 orderVoucher.setVoucher(voucher);
                 orderVoucher.setDiscountAmount(discountAmount);
-                orderVoucherRepository.save(orderVoucher);
                 orderVouchers.add(orderVoucher);
 
                 appliedVouchers.add(OrderVoucherResponseDto.builder()
@@ -183,7 +159,7 @@ public class OrderService {
         }
         order.setVouchers(orderVouchers);
 
-        // 6️ Thanh toán
+        // 7️ Thanh toán
         double finalAmount = subtotal + shippingFeeAmount - totalDiscount;
         Payment payment = new Payment();
         payment.setOrder(order);
@@ -192,22 +168,23 @@ public class OrderService {
         payment.setPaidAt(LocalDateTime.now());
         payment.setStatus(PaymentStatus.PENDING); // Trạng thái chờ thanh toán
         payment.setTransactionId(UUID.randomUUID().toString()); // sinh tạm transactionId
-        paymentRepository.save(payment);
         order.setPayment(payment);
         // gán các giá trị tiền ệ
         order.setTotalAmount(subtotal);
         order.setDiscountAmount(totalDiscount);
         order.setShippingFee(shippingFeeAmount);
         order.setFinalAmount(finalAmount);
-        orderRepository.save(order);
-        // 7️ Lưu lịch sử trạng thái đơn hàng
+        // 8️ Lịch sử trạng thái đơn hàng
         OrderStatusHistory history = new OrderStatusHistory();
         history.setOrder(order);
         history.setFromStatus(null);
         history.setToStatus(StatusOrder.PENDING);
         history.setChangedAt(LocalDateTime.now());
         history.setNote("Order created successfully");
-        orderStatusHistoryRepository.save(history);
+        order.getStatusHistories().add(history);
+
+        // Một lần persist: items, shipping fee, vouchers, payment, history đi theo cascade
+        // và được Hibernate gom thành các batch INSERT khi flush
         orderRepository.save(order);
         
         // Thêm số tiền vào pending amount của wallet
@@ -223,9 +200,56 @@ public class OrderService {
         // Send notification to shop about new order
         sendNewOrderNotificationToShop(order, shop);
 
-        // 8️ Map dữ liệu trả về
+        // 9️ Map dữ liệu trả về
         return mapToOrderResponseDto(order, subtotal, shippingFeeAmount, totalDiscount, appliedVouchers);
     }
+
+    /**
+     * Giữ suất flash sale rồi trừ stock của mọi variant trong giỏ hàng bằng một câu UPDATE
+     * có điều kiện (stock >= qty).
+     * Không đọc-sửa-ghi entity nên không mất cập nhật và không giữ khóa hàng lâu.
+     */
+    private Map<UUID, ProductVariant> decreaseStockForItems(List<OrderItemRequestDto> items) {
+        Map<UUID, Integer> quantities = new LinkedHashMap<>();
+        for (OrderItemRequestDto itemDto : items) {
+            if (itemDto.getQuantity() == null || itemDto.getQuantity() <= 0) {
+                throw new RuntimeException("Invalid quantity for product variant: " + itemDto.getVariantId());
+            }
+            quantities.merge(itemDto.getVariantId(), itemDto.getQuantity(), Integer::sum);
+        }
+
+        Map<UUID, ProductVariant> variants = productVariantRepository.findAllWithProductByIdIn(quantities.keySet())
+                .stream()
+                .collect(Collectors.toMap(ProductVariant::getId, v -> v));
+        if (variants.size() < quantities.size()) {
+            throw new RuntimeException("Product variant not found");
+        }
+
+        // Giữ suất flash sale trong bộ nhớ trước khi ghi DB (flashSaleQuantity được flush theo lô)
+        for (Map.Entry<UUID, Integer> entry : quantities.entrySet()) {
+            ProductVariant variant = variants.get(entry.getKey());
+            if (variant.isFlashSaleActive()
+                    && !flashSaleStockReservationService.tryReserve(variant, entry.getValue())) {
+                throw new RuntimeException("Insufficient flash sale quantity for product: " + variant.getProduct().getName()
+                    + " (Available: " + flashSaleStockReservationService.getAvailable(variant.getId()) + ")");
+            }
+        }
+
+        int updated = productVariantRepository.decreaseStockIfAvailable(quantities);
+        if (updated < quantities.size()) {
+            // Báo sản phẩm thiếu hàng dựa trên stock vừa đọc; nếu vừa bị mua hết thì báo chung
+            for (Map.Entry<UUID, Integer> entry : quantities.entrySet()) {
+                ProductVariant variant = variants.get(entry.getKey());
+                if (variant.getStock() == null || variant.getStock() < entry.getValue()) {
+                    throw new RuntimeException("Insufficient stock for product: " + variant.getProduct().getName()
+                        + " (Available: " + (variant.getStock() != null ? variant.getStock() : 0) + ")");
+                }
+            }
+            throw new RuntimeException("Insufficient stock for one or more products in the order");
+        }
+        return variants;
+    }
+
     public List<OrderResponseDto> getOrdersForShipmentManagement() {
         List<Order> orders = orderRepository.findByStatus(StatusOrder.CONFIRMED);
 
@@ -376,14 +400,35 @@ public class OrderService {
     ) {
         Page<Order> orders = getOrdersEntityByShop(shopId, status, page, size);
 
-        return orders.map(order -> {
-            double subtotal = order.getItems().stream().mapToDouble(OrderItem::getSubtotal).sum();
-            double shippingFee = order.getShippingFees().stream()
-                    .mapToDouble(ShippingFee::getFeeAmount).sum();
-            double discount = order.getVouchers().stream()
-                    .mapToDouble(OrderVoucher::getDiscountAmount).sum();
-            return mapToOrderResponseDto(order, subtotal, shippingFee, discount, null);
-        });
+        return orders.map(this::mapShopOrder);
+    }
+
+    /**
+     *  Đơn hàng của shop dạng cuộn vô hạn: keyset trên (createdAt, id), không COUNT
+     */
+    public CursorSliceDto<OrderResponseDto> getOrdersByShopFeed(
+            UUID shopId,
+            StatusOrder status,
+            String cursor,
+            int size
+    ) {
+        KeysetCursor after = KeysetCursor.decode(cursor);
+        Pageable pageable = PageRequest.of(0, size);
+        Slice<Order> orders = after == null
+                ? orderRepository.findSliceByShopId(shopId, status, pageable)
+                : orderRepository.findSliceByShopIdAfter(shopId, status, after.createdAt(), after.id(), pageable);
+
+        List<OrderResponseDto> items = orders.getContent().stream().map(this::mapShopOrder).toList();
+        return CursorSliceDto.of(orders, order -> new KeysetCursor(order.getCreatedAt(), order.getId()), items);
+    }
+
+    private OrderResponseDto mapShopOrder(Order order) {
+        double subtotal = order.getItems().stream().mapToDouble(OrderItem::getSubtotal).sum();
+        double shippingFee = order.getShippingFees().stream()
+                .mapToDouble(ShippingFee::getFeeAmount).sum();
+        double discount = order.getVouchers().stream()
+                .mapToDouble(OrderVoucher::getDiscountAmount).sum();
+        return mapToOrderResponseDto(order, subtotal, shippingFee, discount, null);
     }
 
     /**
@@ -0,0 +1,61 @@
+package com.example.smart_mall_spring.Services.Order;
+
+import com.example.smart_mall_spring.Entities.Orders.Order;
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+import java.util.Objects;
+
+/**
+ * Feeds order status transitions into {@link DailyOrderStatsService}.
+ * The status/amount last seen in the DB is kept on the entity so updates can be turned into deltas.
+ */
+@Component
+public class OrderStatsEntityListener {
+
+    // Resolved lazily: Hibernate creates this listener while the EntityManagerFactory
+    // (which the stats repository depends on) is still being built
+    private final ObjectProvider<DailyOrderStatsService> dailyOrderStatsService;
+
+    public OrderStatsEntityListener(ObjectProvider<DailyOrderStatsService> dailyOrderStatsService) {
+        this.dailyOrderStatsService = dailyOrderStatsService;
+    }
+
+    @PostLoad
+    public void onLoad(Order order) {
+        order.rememberPersistedState();
+    }
+
+    @PostPersist
+    public void onPersist(Order order) {
+        if (order.getCreatedAt() != null) {
+            dailyOrderStatsService.getObject().recordTransition(order.getCreatedAt().toLocalDate(),
+                    null, null, order.getStatus(), order.getTotalAmount());
+        }
+        order.rememberPersistedState();
+    }
+
+    @PostUpdate
+    public void onUpdate(Order order) {
+        boolean changed = order.getPersistedStatus() != order.getStatus()
+                || !Objects.equals(order.getPersistedTotalAmount(), order.getTotalAmount());
+        if (changed && order.getCreatedAt() != null) {
+            dailyOrderStatsService.getObject().recordTransition(order.getCreatedAt().toLocalDate(),
+                    order.getPersistedStatus(), order.getPersistedTotalAmount(),
+                    order.getStatus(), order.getTotalAmount());
+        }
+        order.rememberPersistedState();
+    }
+
+    @PostRemove
+    public void onRemove(Order order) {
+        if (order.getCreatedAt() != null) {
+            dailyOrderStatsService.getObject().recordTransition(order.getCreatedAt().toLocalDate(),
+                    order.getPersistedStatus(), order.getPersistedTotalAmount(), null, null);
+        }
+    }
+}
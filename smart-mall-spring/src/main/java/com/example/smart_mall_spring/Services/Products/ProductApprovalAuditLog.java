@@ -0,0 +1,137 @@
+package com.example.smart_mall_spring.Services.Products;
+
+import com.example.smart_mall_spring.Dtos.Products.ApprovalAuditEntryDto;
+import com.example.smart_mall_spring.Utils.AppendOnlyLogWriter;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Audit log các quyết định duyệt sản phẩm của AI (CSV, append-only).
+ * Worker chỉ đưa record vào hàng đợi; việc format và ghi file do một thread riêng đảm nhận.
+ */
+@Component
+public class ProductApprovalAuditLog {
+
+    private static final String HEADER = "Timestamp,Product ID,Product Name,Status,Reason";
+    private static final DateTimeFormatter TIMESTAMP_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private final AppendOnlyLogWriter<ApprovalAuditEntryDto> writer;
+
+    public ProductApprovalAuditLog(
+            @Value("${approval.audit.dir:logs/approval-audit}") String directory,
+            @Value("${approval.audit.max-file-bytes:10485760}") long maxFileBytes,
+            @Value("${approval.audit.queue-capacity:100000}") int queueCapacity) throws IOException {
+        this.writer = new AppendOnlyLogWriter<>(Paths.get(directory), "product_approval_log", ".csv", HEADER,
+                maxFileBytes, queueCapacity, ProductApprovalAuditLog::toCsvLine, "approval-audit-writer");
+    }
+
+    /**
+     * Ghi nhận một quyết định duyệt (không chặn thread gọi).
+     */
+    public void record(UUID productId, String productName, String status, String reason) {
+        ApprovalAuditEntryDto entry = ApprovalAuditEntryDto.builder()
+                .timestamp(LocalDateTime.now())
+                .productId(productId)
+                .productName(productName)
+                .status(status)
+                .reason(reason)
+                .build();
+        if (!writer.append(entry)) {
+            System.err.println("[ProductApprovalAuditLog] ❌ Audit queue full, dropped entry for product " + productId);
+        }
+    }
+
+    /**
+     * Phân trang các quyết định duyệt, mới nhất trước.
+     */
+    public Page<ApprovalAuditEntryDto> getEntries(int page, int size) {
+        try {
+            List<ApprovalAuditEntryDto> entries = new ArrayList<>();
+            for (String line : writer.readNewestFirst((long) page * size, size)) {
+                ApprovalAuditEntryDto entry = parseCsvLine(line);
+                if (entry != null) {
+                    entries.add(entry);
+                }
+            }
+            return new PageImpl<>(entries, PageRequest.of(page, size), writer.countRecords());
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to read approval audit log: " + e.getMessage(), e);
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        writer.close();
+    }
+
+    // ============================= CSV =============================
+
+    private static String toCsvLine(ApprovalAuditEntryDto entry) {
+        return String.join(",",
+                quote(entry.getTimestamp().format(TIMESTAMP_FORMAT)),
+                quote(entry.getProductId() != null ? entry.getProductId().toString() : ""),
+                quote(entry.getProductName()),
+                quote(entry.getStatus()),
+                quote(entry.getReason()));
+    }
+
+    private static String quote(String value) {
+        if (value == null) return "\"\"";
+        // Giữ mỗi record trên một dòng
+        String singleLine = value.replace("\r", " ").replace("\n", " ");
+        return "\"" + singleLine.replace("\"", "\"\"") + "\"";
+    }
+
+    private static ApprovalAuditEntryDto parseCsvLine(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean inQuotes = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (inQuotes) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    current.append('"');
+                    i++;
+                } else if (c == '"') {
+                    inQuotes = false;
+                } else {
+                    current.append(c);
+                }
+            } else if (c == '"') {
+                inQuotes = true;
+            } else if (c == ',') {
+                fields.add(current.toString());
+                current.setLength(0);
+            } else {
+                current.append(c);
+            }
+        }
+        fields.add(current.toString());
+
+        // Dòng ghi dở (đang được ghi) hoặc sai định dạng
+        if (fields.size() != 5) return null;
+        try {
+            return ApprovalAuditEntryDto.builder()
+                    .timestamp(LocalDateTime.parse(fields.get(0), TIMESTAMP_FORMAT))
+                    .productId(fields.get(1).isEmpty() ? null : UUID.fromString(fields.get(1)))
+                    .productName(fields.get(2))
+                    .status(fields.get(3))
+                    .reason(fields.get(4))
+                    .build();
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+}
@@ -1,58 +1,72 @@
 package com.example.smart_mall_spring.Services.Products;
 
 
+import java.lang.management.ManagementFactory;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
-import java.util.concurrent.BlockingQueue;
 import java.util.stream.Collectors;
 
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
 
 import com.example.smart_mall_spring.Entities.Products.Product;
-import com.example.smart_mall_spring.Entities.Products.ProductVariant;
-import com.example.smart_mall_spring.Entities.Products.VariantAttribute;
+import com.example.smart_mall_spring.Entities.Products.ProductApprovalJob;
+import com.example.smart_mall_spring.Enum.ApprovalJobStatus;
 import com.example.smart_mall_spring.Enum.Status;
 import com.example.smart_mall_spring.Models.ApprovalMessage;
+import com.example.smart_mall_spring.Repositories.ProductApprovalJobRepository;
 import com.example.smart_mall_spring.Repositories.ProductRepository;
 
+/**
+ * Hàng đợi duyệt sản phẩm lưu trong DB (bảng product_approval_jobs).
+ * Job được giữ qua các lần restart, mỗi sản phẩm chỉ có một job (khóa chính = productId),
+ * và nhiều instance có thể cùng claim job nhờ FOR UPDATE SKIP LOCKED + lease.
+ */
 @Service
 public class ProductApprovalQueueService {
 
     @Autowired
-    @Qualifier("productApprovalQueue")
-    private BlockingQueue<ApprovalMessage> approvalQueue;
+    private ProductRepository productRepository;
 
     @Autowired
-    private ProductRepository productRepository;
+    private ProductApprovalJobRepository jobRepository;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Value("${approval.job.lease-seconds:300}")
+    private long leaseSeconds;
+
+    private final String instanceId = ManagementFactory.getRuntimeMXBean().getName();
+
+    // Mốc updatedAt của lần quét trước, chỉ lấy các sản phẩm mới chuyển sang INACTIVE
+    private volatile LocalDateTime sweepWatermark;
 
     /**
-     * Đưa một sản phẩm cụ thể vào hàng đợi duyệt
+     * Đưa một sản phẩm cụ thể vào hàng đợi duyệt.
+     * Job DONE/FAILED được mở lại; job đang PENDING/IN_PROGRESS thì bỏ qua.
      */
     public boolean enqueueProductForApproval(UUID productId) {
         try {
-            // Kiểm tra xem product đã có trong hàng đợi chưa
-            if (isProductAlreadyInQueue(productId)) {
+            // Đọc trạng thái trước thay vì suy ra từ số dòng của upsert: với Connector/J mặc định
+            // (found rows) job đã nằm trong hàng đợi vẫn trả về 1 chứ không phải 0
+            ApprovalJobStatus current = jobRepository.findStatusByProductId(productId).orElse(null);
+            if (current == ApprovalJobStatus.PENDING || current == ApprovalJobStatus.IN_PROGRESS) {
                 System.out.println("[ProductApprovalQueueService] ⏭️ Product " + productId + " already in queue");
                 return false;
             }
-
-            Product product = productRepository.findById(productId)
-                    .orElseThrow(() -> new RuntimeException("Product not found: " + productId));
-
-            ApprovalMessage approvalMessage = createApprovalMessage(product);
-
-            boolean added = approvalQueue.offer(approvalMessage);
-
-            if (added) {
-                System.out.println("[ProductApprovalQueueService] ✅ Product " + productId + " added to approval queue");
-                return true;
-            } else {
-                System.err.println("[ProductApprovalQueueService] ❌ Failed to add product " + productId + " (queue full)");
-                return false;
-            }
+            jobRepository.upsertPending(productId, LocalDateTime.now());
+            System.out.println("[ProductApprovalQueueService] ✅ Product " + productId + " added to approval queue");
+            return true;
 
         } catch (Exception e) {
             System.err.println("[ProductApprovalQueueService] ❌ Error enqueuing product " + productId + ": " + e.getMessage());
@@ -61,45 +75,37 @@ public class ProductApprovalQueueService {
     }
 
     /**
-     * Kiểm tra xem productId đã tồn tại trong hàng đợi chưa
+     * Tạo job sau khi sản phẩm đã commit, để worker không claim job của sản phẩm chưa tồn tại.
+     * upsertPending chạy trong transaction riêng nên an toàn khi gọi ở pha after-commit.
      */
-    private boolean isProductAlreadyInQueue(UUID productId) {
-        return approvalQueue.stream()
-                .anyMatch(msg -> msg.getProductId().equals(productId));
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductSubmitted(ProductSubmittedForApprovalEvent event) {
+        enqueueProductForApproval(event.productId());
     }
 
     /**
-     * Đưa tất cả sản phẩm có trạng thái PENDING (chờ duyệt) vào hàng đợi
+     * Quét các sản phẩm INACTIVE (chờ duyệt) chưa có job.
+     * Lần đầu quét toàn bộ, các lần sau chỉ lấy sản phẩm cập nhật sau lần quét trước.
      */
-    @Transactional(readOnly = true)
     public int enqueuePendingProducts() {
         try {
-            List<Product> pendingProducts = productRepository.findByStatus(Status.INACTIVE);
+            LocalDateTime startedAt = LocalDateTime.now();
+            List<UUID> pendingIds = sweepWatermark == null
+                    ? productRepository.findIdsByStatus(Status.INACTIVE)
+                    : productRepository.findIdsByStatusUpdatedAfter(Status.INACTIVE, sweepWatermark);
 
             int enqueuedCount = 0;
-            int duplicateCount = 0;
-
-            for (Product product : pendingProducts) {
-                if (isProductAlreadyInQueue(product.getId())) {
-                    duplicateCount++;
-                    System.out.println("[ProductApprovalQueueService] ⏭️ Skipped product " + product.getId() + " (already in queue)");
-                    continue;
-                }
-
-                ApprovalMessage approvalMessage = createApprovalMessage(product);
-
-                if (approvalQueue.offer(approvalMessage)) {
+            for (UUID productId : pendingIds) {
+                if (enqueueProductForApproval(productId)) {
                     enqueuedCount++;
-                    System.out.println("[ProductApprovalQueueService] ✅ Product " + product.getId() + " enqueued");
-                } else {
-                    System.err.println("[ProductApprovalQueueService] ❌ Queue full, skipped product " + product.getId());
-                    break;
                 }
             }
+            // Lùi 1 phút để không bỏ sót sản phẩm commit trễ hơn thời điểm bắt đầu quét
+            sweepWatermark = startedAt.minusMinutes(1);
 
-            System.out.println("[ProductApprovalQueueService] 📊 Total pending: " + pendingProducts.size() +
+            System.out.println("[ProductApprovalQueueService] 📊 Total pending: " + pendingIds.size() +
                     ", enqueued: " + enqueuedCount +
-                    ", duplicates skipped: " + duplicateCount);
+                    ", duplicates skipped: " + (pendingIds.size() - enqueuedCount));
             return enqueuedCount;
 
         } catch (Exception e) {
@@ -108,12 +114,97 @@ public class ProductApprovalQueueService {
         }
     }
 
+    /**
+     * Claim tối đa {@code limit} job đến hạn (hoặc lease đã hết hạn) cho instance này.
+     */
+    @Transactional
+    public List<ProductApprovalJob> claimJobs(int limit) {
+        LocalDateTime now = LocalDateTime.now();
+        List<ProductApprovalJob> jobs = jobRepository.lockClaimableJobs(now, limit);
+        for (ProductApprovalJob job : jobs) {
+            job.setStatus(ApprovalJobStatus.IN_PROGRESS);
+            job.setLeaseOwner(instanceId);
+            job.setLeaseExpiresAt(now.plusSeconds(leaseSeconds));
+            job.setAttempts(job.getAttempts() + 1);
+        }
+        return jobs;
+    }
+
+    /**
+     * Tạo ApprovalMessage cho các job đã claim (một lần đọc cho cả batch).
+     * Sản phẩm không còn tồn tại hoặc không còn chờ duyệt sẽ không có trong kết quả.
+     */
+    @Transactional(readOnly = true)
+    public Map<UUID, ApprovalMessage> loadApprovalMessages(List<ProductApprovalJob> jobs) {
+        Map<UUID, Integer> attemptsById = jobs.stream()
+                .collect(Collectors.toMap(ProductApprovalJob::getProductId, ProductApprovalJob::getAttempts));
+
+        Map<UUID, ApprovalMessage> messages = new LinkedHashMap<>();
+        for (Product product : productRepository.findAllById(attemptsById.keySet())) {
+            if (product.getStatus() != Status.INACTIVE || Boolean.TRUE.equals(product.getIsDeleted())) {
+                continue;
+            }
+            ApprovalMessage message = createApprovalMessage(product);
+            message.setRetryCount(attemptsById.get(product.getId()) - 1);
+            messages.put(product.getId(), message);
+        }
+        return messages;
+    }
+
+    /**
+     * Ghi kết quả duyệt của cả batch trong một transaction: cập nhật status sản phẩm và đánh dấu job DONE.
+     */
+    @Transactional
+    public List<Product> applyApprovalDecisions(Map<UUID, Status> decisions) {
+        List<Product> products = productRepository.findAllById(decisions.keySet());
+        for (Product product : products) {
+            product.setStatus(decisions.get(product.getId()));
+            eventPublisher.publishEvent(new ProductChangedEvent(product.getId()));
+        }
+        markDone(decisions.keySet());
+        return products;
+    }
+
+    @Transactional
+    public void markDone(Collection<UUID> productIds) {
+        for (ProductApprovalJob job : jobRepository.findAllById(productIds)) {
+            job.setStatus(ApprovalJobStatus.DONE);
+            job.setLeaseOwner(null);
+            job.setLeaseExpiresAt(null);
+            job.setLastError(null);
+        }
+    }
+
+    /**
+     * Trả job về PENDING, chỉ được claim lại sau {@code delayMs}.
+     */
+    @Transactional
+    public void scheduleRetry(UUID productId, long delayMs, String error) {
+        jobRepository.findById(productId).ifPresent(job -> {
+            job.setStatus(ApprovalJobStatus.PENDING);
+            job.setAvailableAt(LocalDateTime.now().plusNanos(delayMs * 1_000_000));
+            job.setLeaseOwner(null);
+            job.setLeaseExpiresAt(null);
+            job.setLastError(error);
+        });
+    }
+
+    @Transactional
+    public void markFailed(UUID productId, String error) {
+        jobRepository.findById(productId).ifPresent(job -> {
+            job.setStatus(ApprovalJobStatus.FAILED);
+            job.setLeaseOwner(null);
+            job.setLeaseExpiresAt(null);
+            job.setLastError(error);
+        });
+    }
+
     /**
      * Chuyển entity Product sang ApprovalMessage (model hàng đợi)
      */
     private ApprovalMessage createApprovalMessage(Product product) {
         List<String> imageUrls = product.getImages() != null
-                ? product.getImages()
+                ? new ArrayList<>(product.getImages())
                 : List.of();
 
         List<ApprovalMessage.ProductVariant> variants = product.getVariants() != null
@@ -154,72 +245,69 @@ public class ProductApprovalQueueService {
      * Lấy trạng thái queue hiện tại
      */
     public QueueStatus getQueueStatus() {
-        int queueSize = approvalQueue.size();
-        int remainingCapacity = approvalQueue.remainingCapacity();
-        int totalCapacity = queueSize + remainingCapacity;
-        return new QueueStatus(queueSize, totalCapacity, remainingCapacity);
+        return new QueueStatus(
+                jobRepository.countByStatus(ApprovalJobStatus.PENDING),
+                jobRepository.countByStatus(ApprovalJobStatus.IN_PROGRESS),
+                jobRepository.countByStatus(ApprovalJobStatus.DONE),
+                jobRepository.countByStatus(ApprovalJobStatus.FAILED));
     }
 
     /**
-     * Xóa toàn bộ queue (trường hợp khẩn cấp)
+     * Xóa các job đang chờ (trường hợp khẩn cấp)
      */
+    @Transactional
     public int clearQueue() {
-        int cleared = approvalQueue.size();
-        approvalQueue.clear();
+        int cleared = jobRepository.deleteByStatus(ApprovalJobStatus.PENDING);
         System.out.println("[ProductApprovalQueueService] 🧹 Cleared " + cleared + " items from queue");
         return cleared;
     }
 
     /**
-     * Lấy danh sách product IDs đang nằm trong queue
+     * Lấy danh sách product IDs đang chờ hoặc đang được duyệt
      */
     public List<UUID> getCurrentQueueProductIds() {
-        return approvalQueue.stream()
-                .map(ApprovalMessage::getProductId)
-                .collect(Collectors.toList());
-    }
-
-    /**
-     * Đếm số lần xuất hiện của một product cụ thể trong queue
-     */
-    public int countProductInQueue(UUID productId) {
-        return (int) approvalQueue.stream()
-                .filter(msg -> msg.getProductId().equals(productId))
-                .count();
+        return jobRepository.findProductIdsByStatusIn(
+                List.of(ApprovalJobStatus.PENDING, ApprovalJobStatus.IN_PROGRESS));
     }
 
     // Inner class thống kê trạng thái queue
     public static class QueueStatus {
-        private final int currentSize;
-        private final int totalCapacity;
-        private final int remainingCapacity;
-
-        public QueueStatus(int currentSize, int totalCapacity, int remainingCapacity) {
-            this.currentSize = currentSize;
-            this.totalCapacity = totalCapacity;
-            this.remainingCapacity = remainingCapacity;
+        private final long pending;
+        private final long inProgress;
+        private final long done;
+        private final long failed;
+
+        public QueueStatus(long pending, long inProgress, long done, long failed) {
+            this.pending = pending;
+            this.inProgress = inProgress;
+            this.done = done;
+            this.failed = failed;
+        }
+
+        public long getPending() {
+            return pending;
         }
 
-        public int getCurrentSize() {
-            return currentSize;
+        public long getInProgress() {
+            return inProgress;
         }
 
-        public int getTotalCapacity() {
-            return totalCapacity;
+        public long getDone() {
+            return done;
         }
 
-        public int getRemainingCapacity() {
-            return remainingCapacity;
+        public long getFailed() {
+            return failed;
         }
 
-        public double getUsagePercentage() {
-            return totalCapacity > 0 ? (double) currentSize / totalCapacity * 100 : 0;
+        public long getCurrentSize() {
+            return pending + inProgress;
         }
 
         @Override
         public String toString() {
-            return String.format("QueueStatus{size=%d/%d (%.1f%%), remaining=%d}",
-                    currentSize, totalCapacity, getUsagePercentage(), remainingCapacity);
+            return String.format("QueueStatus{pending=%d, inProgress=%d, done=%d, failed=%d}",
+                    pending, inProgress, done, failed);
         }
     }
 }
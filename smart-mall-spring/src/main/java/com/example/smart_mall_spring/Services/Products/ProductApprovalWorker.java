@@ -3,121 +3,287 @@ package com.example.smart_mall_spring.Services.Products;
 
 
 import com.example.smart_mall_spring.Entities.Products.Product;
+import com.example.smart_mall_spring.Entities.Products.ProductApprovalJob;
 import com.example.smart_mall_spring.Enum.Status;
 import com.example.smart_mall_spring.Models.ApprovalMessage;
-import com.example.smart_mall_spring.Repositories.ProductRepository;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.example.smart_mall_spring.Utils.TokenBucketRateLimiter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
 import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.context.event.EventListener;
 import org.springframework.http.*;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
-import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.client.RestTemplate;
 
-import java.io.FileWriter;
-import java.io.IOException;
-import java.nio.file.*;
+import java.time.Duration;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
 
 @Component
 public class ProductApprovalWorker {
 
     @Autowired
-    @Qualifier("productApprovalQueue")
-    private BlockingQueue<ApprovalMessage> approvalQueue;
+    private ProductApprovalQueueService approvalQueueService;
 
     @Autowired
-    private ProductRepository productRepository;
+    @Qualifier("approvalTaskExecutor")
+    private Executor approvalTaskExecutor;
 
     @Autowired
-    private ProductApprovalQueueService approvalQueueService;
+    @Qualifier("approvalRateLimiter")
+    private TokenBucketRateLimiter rateLimiter;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private ProductApprovalAuditLog auditLog;
+
+    @Value("${approval.concurrency:3}")
+    private int maxConcurrency;
+
+    @Value("${approval.job.poll-interval-ms:1000}")
+    private long pollIntervalMs;
+
+    @Value("${approval.batch.size:10}")
+    private int batchSize;
+
+    @Value("${approval.batch.window-ms:500}")
+    private long batchWindowMs;
+
+    @Value("${approval.ai.batch-url:http://localhost:5001/ai_approval_product/batch}")
+    private String geminiApiUrl;
 
     private final RestTemplate restTemplate;
     private final ObjectMapper objectMapper;
 
+    private Semaphore inFlight;
+    private Thread dispatcher;
+    private volatile boolean running;
+
     private static final int MAX_RETRY_ATTEMPTS = 3;
     private static final long RETRY_DELAY_MS = 10000;
-    private static final String GEMINI_API_URL = "http://localhost:5001/ai_approval_product";
-    private static final String APPROVAL_LOG_CSV = "product_approval_log.csv";
+    private static final long BATCH_POLL_MS = 100;
 
     public ProductApprovalWorker() {
         this.restTemplate = new RestTemplateBuilder().build();
         this.objectMapper = new ObjectMapper();
-        initializeCsvFile();
     }
 
-    // ============================= CORE PROCESS =============================
-
-    public void processApprovalQueue() {
-        try {
-            ApprovalMessage job = approvalQueue.poll(1, TimeUnit.SECONDS);
-            if (job == null) return;
+    // ============================= PIPELINE =============================
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void startPipeline() {
+        inFlight = new Semaphore(maxConcurrency);
+        running = true;
+        dispatcher = new Thread(this::dispatchLoop, "approval-dispatcher");
+        dispatcher.setDaemon(true);
+        dispatcher.start();
+        System.out.println("[ProductApprovalWorker] Pipeline started (concurrency=" + maxConcurrency
+                + ", batchSize=" + batchSize + ", batchWindowMs=" + batchWindowMs + ")");
+    }
 
-            System.out.println("[ProductApprovalWorker] Processing product: " + job.getProductId());
+    @PreDestroy
+    public void stopPipeline() {
+        running = false;
+        if (dispatcher != null) {
+            dispatcher.interrupt();
+        }
+    }
 
+    /**
+     * Mỗi slot (giới hạn song song) là một batch đang gọi AI: chờ slot trống, gom batch,
+     * chờ đủ token cho cả batch (giới hạn tốc độ AI) rồi giao cho approvalTaskExecutor xử lý.
+     */
+    private void dispatchLoop() {
+        while (running) {
             try {
-                ApprovalResult result = callGeminiApprovalAPI(job);
-                if (result != null) {
-                    updateProductApprovalStatus(job.getProductId(), result);
-                    System.out.println("[ProductApprovalWorker] ✅ Product " + job.getProductId() + " processed with status: " + result.getStatus());
-                } else {
-                    handleApprovalFailure(job, new Exception("Null result from AI"));
+                inFlight.acquire();
+
+                List<ProductApprovalJob> batch;
+                try {
+                    batch = collectBatch();
+                } catch (Exception e) {
+                    inFlight.release();
+                    throw e;
                 }
+
+                if (batch.isEmpty()) {
+                    inFlight.release();
+                    Thread.sleep(pollIntervalMs);
+                    continue;
+                }
+
+                // api-gemini gọi Gemini một lần cho mỗi sản phẩm trong batch: mỗi sản phẩm tốn một token
+                rateLimiter.acquire(batch.size());
+                try {
+                    approvalTaskExecutor.execute(() -> {
+                        try {
+                            processBatch(batch);
+                        } finally {
+                            inFlight.release();
+                        }
+                    });
+                } catch (RejectedExecutionException e) {
+                    inFlight.release();
+                    batch.forEach(job -> handleApprovalFailure(job, e));
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
             } catch (Exception e) {
-                handleApprovalFailure(job, e);
+                System.err.println("[ProductApprovalWorker] Unexpected error: " + e.getMessage());
+                try {
+                    Thread.sleep(pollIntervalMs);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Gom tối đa batchSize job, hoặc những job đến trong batchWindowMs kể từ job đầu tiên.
+     */
+    private List<ProductApprovalJob> collectBatch() throws InterruptedException {
+        List<ProductApprovalJob> batch = new ArrayList<>(approvalQueueService.claimJobs(batchSize));
+        if (batch.isEmpty()) {
+            return batch;
+        }
+
+        long deadline = System.currentTimeMillis() + batchWindowMs;
+        while (batch.size() < batchSize && running) {
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) break;
+            Thread.sleep(Math.min(remaining, BATCH_POLL_MS));
+            batch.addAll(approvalQueueService.claimJobs(batchSize - batch.size()));
+        }
+        return batch;
+    }
+
+    // ============================= CORE PROCESS =============================
+
+    private void processBatch(List<ProductApprovalJob> claimed) {
+        System.out.println("[ProductApprovalWorker] Processing batch of " + claimed.size() + " products");
+
+        Map<UUID, ApprovalMessage> messages;
+        Map<UUID, ApprovalResult> results;
+        try {
+            messages = approvalQueueService.loadApprovalMessages(claimed);
+
+            // Sản phẩm đã bị xóa hoặc đã được duyệt thủ công
+            List<UUID> stale = claimed.stream()
+                    .map(ProductApprovalJob::getProductId)
+                    .filter(id -> !messages.containsKey(id))
+                    .toList();
+            if (!stale.isEmpty()) {
+                approvalQueueService.markDone(stale);
+            }
+            if (messages.isEmpty()) return;
+
+            results = callGeminiApprovalAPI(new ArrayList<>(messages.values()));
+        } catch (Exception e) {
+            claimed.forEach(job -> handleApprovalFailure(job, e));
+            return;
+        }
+
+        Map<UUID, ApprovalResult> decided = new HashMap<>();
+        for (ProductApprovalJob job : claimed) {
+            if (!messages.containsKey(job.getProductId())) continue;
+
+            ApprovalResult result = results.get(job.getProductId());
+            if (result == null) {
+                handleApprovalFailure(job, new Exception("Null result from AI"));
+            } else if (result.getStatus() != 1 && result.getStatus() != 2) {
+                handleApprovalFailure(job, new Exception("Unexpected AI status: " + result.getStatus()));
+            } else {
+                decided.put(job.getProductId(), result);
             }
+        }
+        if (decided.isEmpty()) return;
 
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            System.err.println("[ProductApprovalWorker] Worker interrupted");
+        try {
+            updateProductApprovalStatus(decided);
         } catch (Exception e) {
-            System.err.println("[ProductApprovalWorker] Unexpected error: " + e.getMessage());
+            claimed.stream()
+                    .filter(job -> decided.containsKey(job.getProductId()))
+                    .forEach(job -> handleApprovalFailure(job, e));
         }
     }
 
     // ============================= AI CALL =============================
 
-    private ApprovalResult callGeminiApprovalAPI(ApprovalMessage job) throws Exception {
+    /**
+     * Gửi cả batch trong một request.
+     * Request: {"products": [ProductApprovalRequest...]}
+     * Response: {"results": [{"productId": "...", "status": 1|2, "content": ...}]}
+     * Sản phẩm không có trong results sẽ được retry riêng.
+     */
+    private Map<UUID, ApprovalResult> callGeminiApprovalAPI(List<ApprovalMessage> jobs) throws Exception {
         // chỉ gửi các thông tin liên quan đến sản phẩm
-        var requestBody = new ProductApprovalRequest(
-                job.getProductId(),
-                job.getName(),
-                job.getDescription(),
-                job.getBrand(),
-                job.getCategoryId(),
-                job.getShopId(),
-                job.getStatus(),
-                job.getImages(),
-                job.getVariants()
-        );
+        List<ProductApprovalRequest> products = jobs.stream()
+                .map(job -> new ProductApprovalRequest(
+                        job.getProductId(),
+                        job.getName(),
+                        job.getDescription(),
+                        job.getBrand(),
+                        job.getCategoryId(),
+                        job.getShopId(),
+                        job.getStatus(),
+                        job.getImages(),
+                        job.getVariants()
+                ))
+                .toList();
 
         HttpHeaders headers = new HttpHeaders();
         headers.setContentType(MediaType.APPLICATION_JSON);
-        HttpEntity<Object> entity = new HttpEntity<>(requestBody, headers);
+        HttpEntity<Object> entity = new HttpEntity<>(new BatchApprovalRequest(products), headers);
 
-        System.out.println("[ProductApprovalWorker] Calling AI API for product: " + job.getProductId());
+        System.out.println("[ProductApprovalWorker] Calling AI API for " + products.size() + " products");
 
         ResponseEntity<String> response = restTemplate.exchange(
-                GEMINI_API_URL, HttpMethod.POST, entity, String.class);
+                geminiApiUrl, HttpMethod.POST, entity, String.class);
 
         if (response.getStatusCode().is2xxSuccessful()) {
             JsonNode json = objectMapper.readTree(response.getBody());
-            ApprovalResult result = new ApprovalResult();
-            result.setStatus(json.get("status").asInt());
+            Map<UUID, ApprovalResult> results = new HashMap<>();
 
-            JsonNode contentNode = json.get("content");
-            if (contentNode != null) {
-                result.setContent(contentNode.toString());
-            }
+            JsonNode resultsNode = json.get("results");
+            if (resultsNode != null && resultsNode.isArray()) {
+                for (JsonNode node : resultsNode) {
+                    JsonNode idNode = node.get("productId");
+                    JsonNode statusNode = node.get("status");
+                    if (idNode == null || statusNode == null) continue;
+
+                    ApprovalResult result = new ApprovalResult();
+                    result.setStatus(statusNode.asInt());
 
-            return result;
+                    JsonNode contentNode = node.get("content");
+                    if (contentNode != null) {
+                        result.setContent(contentNode.toString());
+                    }
+
+                    results.put(UUID.fromString(idNode.asText()), result);
+                }
+            }
+            return results;
         } else {
             throw new Exception("API call failed with status: " + response.getStatusCode());
         }
@@ -126,78 +292,72 @@ public class ProductApprovalWorker {
     // ============================= DB UPDATE =============================
 
 
-    private void updateProductApprovalStatus(UUID productId, ApprovalResult result) {
-        try {
-            Product product = productRepository.findById(productId)
-                    .orElseThrow(() -> new RuntimeException("Product not found: " + productId));
+    /**
+     * Ghi toàn bộ kết quả của batch (status sản phẩm + job DONE) trong một transaction,
+     * sau đó mới ghi log và metric.
+     * Lỗi được ném ra để job được retry thay vì bị đánh dấu DONE.
+     */
+    private void updateProductApprovalStatus(Map<UUID, ApprovalResult> results) {
+        Map<UUID, Status> decisions = new HashMap<>();
+        results.forEach((productId, result) ->
+                decisions.put(productId, result.getStatus() == 1 ? Status.ACTIVE : Status.REJECTED));
+
+        List<Product> products = approvalQueueService.applyApprovalDecisions(decisions);
 
+        for (Product product : products) {
+            ApprovalResult result = results.get(product.getId());
             if (result.getStatus() == 1) {
-                product.setStatus(Status.ACTIVE);
-                logToCSV(product.getName(), "APPROVED", "AI xác nhận hợp lệ");
-                System.out.println("[ProductApprovalWorker] ✅ Product " + productId + " APPROVED");
-            } else if (result.getStatus() == 2) {
-                product.setStatus(Status.REJECTED);
-                logToCSV(product.getName(), "REJECTED", result.getContent());
-                System.out.println("[ProductApprovalWorker] ❌ Product " + productId + " REJECTED: " + result.getContent());
+                auditLog.record(product.getId(), product.getName(), "APPROVED", "AI xác nhận hợp lệ");
+                System.out.println("[ProductApprovalWorker] ✅ Product " + product.getId() + " APPROVED");
+            } else {
+                auditLog.record(product.getId(), product.getName(), "REJECTED", result.getContent());
+                System.out.println("[ProductApprovalWorker] ❌ Product " + product.getId() + " REJECTED: " + result.getContent());
             }
-
-            productRepository.save(product);
-
-        } catch (Exception e) {
-            System.err.println("[ProductApprovalWorker] Failed to update product " + productId + ": " + e.getMessage());
-        }
-    }
-
-    // ============================= RETRY =============================
-
-    private void handleApprovalFailure(ApprovalMessage job, Exception e) {
-        System.err.println("[ProductApprovalWorker] Failed to process product " + job.getProductId() + ": " + e.getMessage());
-        job.setRetryCount(job.getRetryCount() + 1);
-
-        if (job.getRetryCount() < MAX_RETRY_ATTEMPTS) {
-            scheduleRetry(job, RETRY_DELAY_MS * job.getRetryCount());
-        } else {
-            System.err.println("[ProductApprovalWorker] Max retries reached for product " + job.getProductId());
+            recordApprovalLatency(product, result.getStatus() == 1 ? "approved" : "rejected");
         }
     }
 
-    private void scheduleRetry(ApprovalMessage job, long delayMs) {
-        new Thread(() -> {
-            try {
-                Thread.sleep(delayMs);
-                approvalQueue.offer(job);
-                System.out.println("[ProductApprovalWorker] Re-queued product " + job.getProductId());
-            } catch (InterruptedException ignored) {}
-        }).start();
+    /**
+     * Thời gian từ lúc sản phẩm được tạo đến khi có quyết định duyệt
+     */
+    private void recordApprovalLatency(Product product, String outcome) {
+        if (product.getCreatedAt() == null) return;
+        Duration latency = Duration.between(product.getCreatedAt(), LocalDateTime.now());
+        Timer.builder("product.approval.latency")
+                .description("Time from product creation to AI approval decision")
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .record(latency);
     }
 
-    // ============================= CSV LOG =============================
+    // ============================= RETRY =============================
 
-    private void initializeCsvFile() {
+    /**
+     * attempts đã được tăng khi claim; job lỗi quay lại PENDING với available_at lùi theo backoff,
+     * nên retry vẫn còn sau khi restart.
+     */
+    private void handleApprovalFailure(ProductApprovalJob job, Exception e) {
+        System.err.println("[ProductApprovalWorker] Failed to process product " + job.getProductId() + ": " + e.getMessage());
         try {
-            Path csvPath = Paths.get(APPROVAL_LOG_CSV);
-            if (!Files.exists(csvPath)) {
-                try (FileWriter writer = new FileWriter(APPROVAL_LOG_CSV, true)) {
-                    writer.append("Timestamp,Product Name,Status,Reason\n");
-                }
+            if (job.getAttempts() < MAX_RETRY_ATTEMPTS) {
+                approvalQueueService.scheduleRetry(job.getProductId(), backoffWithJitter(job.getAttempts()), e.getMessage());
+            } else {
+                approvalQueueService.markFailed(job.getProductId(), e.getMessage());
+                System.err.println("[ProductApprovalWorker] Max retries reached for product " + job.getProductId());
             }
-        } catch (IOException e) {
-            System.err.println("[ProductApprovalWorker] ❌ Failed to init CSV: " + e.getMessage());
+        } catch (Exception ex) {
+            // Lease hết hạn thì job sẽ được claim lại
+            System.err.println("[ProductApprovalWorker] Failed to record failure for product " + job.getProductId() + ": " + ex.getMessage());
         }
     }
 
-    private void logToCSV(String productName, String status, String reason) {
-        try (FileWriter writer = new FileWriter(APPROVAL_LOG_CSV, true)) {
-            String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"));
-            writer.append(String.format("\"%s\",\"%s\",\"%s\",\"%s\"\n",
-                    timestamp,
-                    productName.replace(",", ";"),
-                    status,
-                    reason.replace(",", ";")));
-            System.out.println("[ProductApprovalWorker] 📝 Logged: " + productName + " - " + status);
-        } catch (IOException e) {
-            System.err.println("[ProductApprovalWorker] ❌ Failed to log CSV: " + e.getMessage());
-        }
+    /**
+     * Exponential backoff (10s, 20s, 40s...) với jitter ngẫu nhiên trong [delay/2, delay]
+     * để các job lỗi cùng lúc không dồn lại gọi AI cùng một thời điểm.
+     */
+    private long backoffWithJitter(int retryCount) {
+        long delay = RETRY_DELAY_MS << (retryCount - 1);
+        return delay / 2 + ThreadLocalRandom.current().nextLong(delay / 2 + 1);
     }
 
     // ============================= SCHEDULES =============================
@@ -214,28 +374,6 @@ public class ProductApprovalWorker {
         }
     }
 
-    @Scheduled(cron = "0 0 12,0 * * *") // 12:00 trưa & 0:00 đêm
-    public void scheduleAutoApproval() {
-        try {
-            while (!approvalQueue.isEmpty()) {
-                ApprovalMessage job = approvalQueue.poll(5, TimeUnit.SECONDS);
-                if (job == null) break;
-
-                try {
-                    ApprovalResult result = callGeminiApprovalAPI(job);
-                    if (result != null) {
-                        updateProductApprovalStatus(job.getProductId(), result);
-                    }
-                    Thread.sleep(2000);
-                } catch (Exception e) {
-                    handleApprovalFailure(job, e);
-                }
-            }
-        } catch (Exception e) {
-            System.err.println("[ProductApprovalWorker] Error auto approval: " + e.getMessage());
-        }
-    }
-
     // ============================= INNER CLASS =============================
     private static class ApprovalResult {
         private int status;
@@ -246,6 +384,8 @@ public class ProductApprovalWorker {
         public void setContent(String content) { this.content = content; }
     }
 
+    private record BatchApprovalRequest(List<ProductApprovalRequest> products) {}
+
     private record ProductApprovalRequest(
             UUID productId,
             String name,
@@ -0,0 +1,10 @@
+package com.example.smart_mall_spring.Services.Products;
+
+import java.util.UUID;
+
+/**
+ * Published after a product was created, moved to another category or permanently deleted.
+ * {@code previousCategoryId} is null for a new product, {@code categoryId} is null for a deleted one.
+ */
+public record ProductCategoryChangedEvent(UUID productId, UUID previousCategoryId, UUID categoryId) {
+}
@@ -0,0 +1,9 @@
+package com.example.smart_mall_spring.Services.Products;
+
+import java.util.UUID;
+
+/**
+ * Published after a product's searchable data (text, category, status, variant prices) changed or it was deleted.
+ */
+public record ProductChangedEvent(UUID productId) {
+}
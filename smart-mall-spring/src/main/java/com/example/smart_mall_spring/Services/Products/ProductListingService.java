@@ -0,0 +1,138 @@
+package com.example.smart_mall_spring.Services.Products;
+
+import com.example.smart_mall_spring.Dtos.Common.CursorSliceDto;
+import com.example.smart_mall_spring.Dtos.Products.PagedProductListResponseDto;
+import com.example.smart_mall_spring.Dtos.Products.ProductListItemDto;
+import com.example.smart_mall_spring.Enum.ImageRendition;
+import com.example.smart_mall_spring.Models.ListingVariantRow;
+import com.example.smart_mall_spring.Models.ProductListingRow;
+import com.example.smart_mall_spring.Repositories.ProductRepository;
+import com.example.smart_mall_spring.Repositories.ProductVariantRepository;
+import com.example.smart_mall_spring.Services.Storage.ImageDerivativeService;
+import com.example.smart_mall_spring.Utils.KeysetCursor;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Read model for product grids.
+ * <p>
+ * A page costs a fixed number of queries whatever its size: the paged row query (+ count),
+ * one {@code IN (...)} query for the variants' prices and one for the thumbnails. Nothing goes through
+ * {@code Product} entities, so eager category/shop and lazy collections are never touched.
+ */
+@Service
+@RequiredArgsConstructor
+@Transactional(readOnly = true)
+public class ProductListingService {
+
+    private final ProductRepository productRepository;
+    private final ProductVariantRepository productVariantRepository;
+    private final ImageDerivativeService imageDerivativeService;
+
+    public PagedProductListResponseDto getListing(UUID categoryId, UUID shopId, int page, int size) {
+        Pageable pageable = PageRequest.of(page, size, Sort.by("createdAt").descending());
+        Page<ProductListingRow> rowPage = productRepository.findListingRows(categoryId, shopId, pageable);
+
+        List<ProductListItemDto> products = toItems(rowPage.getContent());
+
+        return PagedProductListResponseDto.builder()
+                .products(products)
+                .currentPage(rowPage.getNumber())
+                .totalPages(rowPage.getTotalPages())
+                .totalItems(rowPage.getTotalElements())
+                .pageSize(rowPage.getSize())
+                .hasNext(rowPage.hasNext())
+                .hasPrevious(rowPage.hasPrevious())
+                .build();
+    }
+
+    /**
+     * Infinite-scroll variant of {@link #getListing}: keyset on (createdAt, id), no count query.
+     *
+     * @param cursor {@code nextCursor} of the previous window, null for the first one
+     */
+    public CursorSliceDto<ProductListItemDto> getListingFeed(UUID categoryId, UUID shopId, String cursor, int size) {
+        KeysetCursor after = KeysetCursor.decode(cursor);
+        Pageable pageable = PageRequest.of(0, size);
+        Slice<ProductListingRow> rows = after == null
+                ? productRepository.findListingRowsFirst(categoryId, shopId, pageable)
+                : productRepository.findListingRowsAfter(categoryId, shopId, after.createdAt(), after.id(), pageable);
+
+        return CursorSliceDto.of(rows, row -> new KeysetCursor(row.createdAt(), row.productId()),
+                toItems(rows.getContent()));
+    }
+
+    // Variants and thumbnails of all rows are loaded with one IN (...) query each
+    private List<ProductListItemDto> toItems(List<ProductListingRow> rows) {
+        List<UUID> productIds = rows.stream().map(ProductListingRow::productId).toList();
+        Map<UUID, List<ListingVariantRow>> variantsByProduct = new HashMap<>();
+        Map<UUID, String> thumbnails = new HashMap<>();
+        if (!productIds.isEmpty()) {
+            for (ListingVariantRow variant : productVariantRepository.findListingRowsByProductIds(productIds)) {
+                variantsByProduct.computeIfAbsent(variant.productId(), id -> new ArrayList<>()).add(variant);
+            }
+            for (Object[] image : productRepository.findThumbnailsByProductIds(productIds)) {
+                thumbnails.put((UUID) image[0], (String) image[1]);
+            }
+        }
+
+        return rows.stream()
+                .map(row -> toItem(row, thumbnails.get(row.productId()),
+                        variantsByProduct.getOrDefault(row.productId(), List.of())))
+                .toList();
+    }
+
+    // Same price/discount rules as ProductService.convertToDto
+    private ProductListItemDto toItem(ProductListingRow row, String thumbnail, List<ListingVariantRow> variants) {
+        Double minPrice = null;
+        Double minDiscountPrice = null;
+        boolean hasDiscount = false;
+        int maxDiscountPercent = 0;
+
+        for (ListingVariantRow variant : variants) {
+            Double price = variant.price();
+            Double effectivePrice = variant.effectivePrice();
+
+            if (price != null && (minPrice == null || price < minPrice)) {
+                minPrice = price;
+            }
+            if (effectivePrice != null && (minDiscountPrice == null || effectivePrice < minDiscountPrice)) {
+                minDiscountPrice = effectivePrice;
+            }
+            if (variant.isFlashSaleActive() && variant.flashSalePrice() != null) {
+                hasDiscount = true;
+                maxDiscountPercent = Math.max(maxDiscountPercent, variant.discountPercent());
+            }
+        }
+
+        return ProductListItemDto.builder()
+                .id(row.productId())
+                .name(row.name())
+                .brand(row.brand())
+                .thumbnail(thumbnail)
+                .cardImage(imageDerivativeService.renditionUrl(thumbnail, ImageRendition.CARD))
+                .categoryId(row.categoryId())
+                .categoryName(row.categoryName())
+                .shopId(row.shopId())
+                .shopName(row.shopName())
+                .averageRating(row.averageRating())
+                .reviewCount(row.reviewCount() != null ? row.reviewCount().intValue() : 0)
+                .minPrice(minPrice)
+                .minDiscountPrice(hasDiscount ? minDiscountPrice : null)
+                .hasDiscount(hasDiscount)
+                .maxDiscountPercent(hasDiscount ? maxDiscountPercent : null)
+                .build();
+    }
+}
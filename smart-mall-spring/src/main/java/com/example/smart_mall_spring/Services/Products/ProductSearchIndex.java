@@ -0,0 +1,242 @@
+package com.example.smart_mall_spring.Services.Products;
+
+import com.example.smart_mall_spring.Enum.Status;
+import com.example.smart_mall_spring.Models.ProductSearchDocument;
+import com.example.smart_mall_spring.Repositories.ProductRepository;
+import com.example.smart_mall_spring.Utils.VietnameseTextNormalizer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * Embedded inverted index over product name, brand, description and category name.
+ * <p>
+ * Text is normalized with {@link VietnameseTextNormalizer}, so queries match with or without diacritics.
+ * Every query token must match (the last one also as a prefix, for search-as-you-type) and hits are
+ * ranked with BM25 using field-weighted term frequencies. The index is built once at startup and kept
+ * current from {@link ProductChangedEvent}s.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ProductSearchIndex {
+
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    private static final int NAME_WEIGHT = 3;
+    private static final int BRAND_WEIGHT = 2;
+    private static final int CATEGORY_WEIGHT = 2;
+    private static final int DESCRIPTION_WEIGHT = 1;
+    private static final int MAX_PREFIX_EXPANSIONS = 50;
+
+    private final ProductRepository productRepository;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final NavigableMap<String, Map<UUID, Integer>> postings = new TreeMap<>();
+    private final Map<UUID, Doc> docs = new HashMap<>();
+    private long totalLength;
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void rebuild() {
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+            docs.clear();
+            totalLength = 0;
+            try (Stream<ProductSearchDocument> documents = productRepository.streamSearchDocuments()) {
+                documents.forEach(this::put);
+            }
+            log.info("Product search index built: {} products, {} terms", docs.size(), postings.size());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    @Transactional(propagation = Propagation.REQUIRES_NEW, readOnly = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        ProductSearchDocument document = productRepository.findSearchDocument(event.productId()).orElse(null);
+        lock.writeLock().lock();
+        try {
+            remove(event.productId());
+            if (document != null) {
+                put(document);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Ranked search. Returns the product IDs of the requested window and the total number of hits.
+     */
+    public SearchHits search(String text, SearchFilter filter, long offset, int limit) {
+        List<String> tokens = VietnameseTextNormalizer.tokenize(text);
+        if (tokens.isEmpty()) {
+            return new SearchHits(List.of(), 0);
+        }
+
+        lock.readLock().lock();
+        try {
+            double avgLength = docs.isEmpty() ? 1.0 : (double) totalLength / docs.size();
+
+            // BM25 contribution of each query token, per document
+            List<Map<UUID, Double>> tokenScores = new ArrayList<>(tokens.size());
+            for (int i = 0; i < tokens.size(); i++) {
+                Map<UUID, Double> scores = scoreToken(tokens.get(i), i == tokens.size() - 1, avgLength);
+                if (scores.isEmpty()) {
+                    return new SearchHits(List.of(), 0);
+                }
+                tokenScores.add(scores);
+            }
+            tokenScores.sort(Comparator.comparingInt(Map::size));
+
+            // Intersect starting from the rarest token, then keep the top (offset + limit)
+            long window = Math.min(offset + limit, Integer.MAX_VALUE);
+            PriorityQueue<Map.Entry<UUID, Double>> top = new PriorityQueue<>(Map.Entry.comparingByValue());
+            long total = 0;
+            candidates:
+            for (Map.Entry<UUID, Double> candidate : tokenScores.get(0).entrySet()) {
+                double score = candidate.getValue();
+                for (int i = 1; i < tokenScores.size(); i++) {
+                    Double other = tokenScores.get(i).get(candidate.getKey());
+                    if (other == null) continue candidates;
+                    score += other;
+                }
+                if (!filter.matches(docs.get(candidate.getKey()))) continue;
+
+                total++;
+                if (top.size() < window) {
+                    top.add(Map.entry(candidate.getKey(), score));
+                } else if (top.peek().getValue() < score) {
+                    top.poll();
+                    top.add(Map.entry(candidate.getKey(), score));
+                }
+            }
+
+            List<Map.Entry<UUID, Double>> ranked = new ArrayList<>(top);
+            ranked.sort(Map.Entry.<UUID, Double>comparingByValue().reversed());
+            List<UUID> productIds = ranked.stream()
+                    .skip(offset)
+                    .map(Map.Entry::getKey)
+                    .toList();
+            return new SearchHits(productIds, total);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private Map<UUID, Double> scoreToken(String token, boolean allowPrefix, double avgLength) {
+        Map<UUID, Double> scores = new HashMap<>();
+        Map<String, Map<UUID, Integer>> matches = new HashMap<>();
+
+        Map<UUID, Integer> exact = postings.get(token);
+        if (exact != null) {
+            matches.put(token, exact);
+        }
+        if (allowPrefix) {
+            for (Map.Entry<String, Map<UUID, Integer>> entry
+                    : postings.subMap(token, false, token + Character.MAX_VALUE, false).entrySet()) {
+                if (matches.size() >= MAX_PREFIX_EXPANSIONS) break;
+                matches.put(entry.getKey(), entry.getValue());
+            }
+        }
+
+        int n = docs.size();
+        for (Map<UUID, Integer> posting : matches.values()) {
+            double idf = Math.log(1 + (n - posting.size() + 0.5) / (posting.size() + 0.5));
+            posting.forEach((productId, tf) -> {
+                double norm = tf * (K1 + 1) / (tf + K1 * (1 - B + B * docs.get(productId).length / avgLength));
+                // A document matching several expansions of a prefix keeps its best one
+                scores.merge(productId, idf * norm, Math::max);
+            });
+        }
+        return scores;
+    }
+
+    private void put(ProductSearchDocument document) {
+        Map<String, Integer> termFreqs = new HashMap<>();
+        addTokens(termFreqs, document.name(), NAME_WEIGHT);
+        addTokens(termFreqs, document.brand(), BRAND_WEIGHT);
+        addTokens(termFreqs, document.categoryName(), CATEGORY_WEIGHT);
+        addTokens(termFreqs, document.description(), DESCRIPTION_WEIGHT);
+
+        int length = termFreqs.values().stream().mapToInt(Integer::intValue).sum();
+        Doc doc = new Doc(document.shopId(), document.categoryId(), document.status(),
+                Boolean.TRUE.equals(document.isDeleted()), document.minPrice(), document.maxPrice(),
+                VietnameseTextNormalizer.normalize(document.brand()), length, termFreqs);
+
+        docs.put(document.productId(), doc);
+        totalLength += length;
+        termFreqs.forEach((term, tf) ->
+                postings.computeIfAbsent(term, t -> new HashMap<>()).put(document.productId(), tf));
+    }
+
+    private void remove(UUID productId) {
+        Doc doc = docs.remove(productId);
+        if (doc == null) return;
+
+        totalLength -= doc.length;
+        doc.termFreqs.keySet().forEach(term -> {
+            Map<UUID, Integer> posting = postings.get(term);
+            if (posting != null) {
+                posting.remove(productId);
+                if (posting.isEmpty()) {
+                    postings.remove(term);
+                }
+            }
+        });
+    }
+
+    private static void addTokens(Map<String, Integer> termFreqs, String text, int weight) {
+        for (String token : VietnameseTextNormalizer.tokenize(text)) {
+            termFreqs.merge(token, weight, Integer::sum);
+        }
+    }
+
+    private record Doc(UUID shopId, UUID categoryId, Status status, boolean deleted,
+                       Double minPrice, Double maxPrice, String brand, int length,
+                       Map<String, Integer> termFreqs) {
+    }
+
+    /**
+     * Filters applied to hits. {@code statuses == null} accepts any status; deleted products never match.
+     * A price filter matches products whose variant price range overlaps [minPrice, maxPrice].
+     */
+    public record SearchFilter(String brand, UUID categoryId, UUID shopId, Set<Status> statuses,
+                               Double minPrice, Double maxPrice) {
+
+        private boolean matches(Doc doc) {
+            if (doc.deleted()) return false;
+            if (statuses != null && !statuses.contains(doc.status())) return false;
+            if (categoryId != null && !categoryId.equals(doc.categoryId())) return false;
+            if (shopId != null && !shopId.equals(doc.shopId())) return false;
+            if (brand != null && !VietnameseTextNormalizer.normalize(brand).equals(doc.brand())) return false;
+            if (minPrice != null && (doc.maxPrice() == null || doc.maxPrice() < minPrice)) return false;
+            if (maxPrice != null && (doc.minPrice() == null || doc.minPrice() > maxPrice)) return false;
+            return true;
+        }
+    }
+
+    public record SearchHits(List<UUID> productIds, long total) {
+    }
+}
@@ -6,7 +6,6 @@ import com.example.smart_mall_spring.Dtos.Shop.ShopResponseDto;
 import com.example.smart_mall_spring.Entities.Categories.Category;
 import com.example.smart_mall_spring.Entities.Products.Product;
 import com.example.smart_mall_spring.Entities.Products.ProductVariant;
-import com.example.smart_mall_spring.Entities.Products.Review;
 import com.example.smart_mall_spring.Entities.Products.VariantAttribute;
 import com.example.smart_mall_spring.Entities.Shop;
 import com.example.smart_mall_spring.Enum.Status;
@@ -15,10 +14,16 @@ import com.example.smart_mall_spring.Repositories.ProductRepository;
 import com.example.smart_mall_spring.Repositories.ProductVariantRepository;
 import com.example.smart_mall_spring.Repositories.ShopRepository;
 import com.example.smart_mall_spring.Repositories.VariantAttributeRepository;
-import com.example.smart_mall_spring.Services.CloudinaryService;
+import com.example.smart_mall_spring.Services.Categories.CategoryTreeCache;
+import com.example.smart_mall_spring.Services.FlashSale.FlashSaleStockReservationService;
+import com.example.smart_mall_spring.Services.FlashSale.VariantFlashSaleChangedEvent;
+import com.example.smart_mall_spring.Services.Storage.ImageDerivativeService;
+import com.example.smart_mall_spring.Services.Storage.ImageUploadPipeline;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
@@ -30,6 +35,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 import java.util.stream.Collectors;
 
@@ -52,25 +58,50 @@ public class ProductService {
     private final ShopRepository shopRepository;
     
     @Autowired
-    private final CloudinaryService cloudinaryService;
+    private final ImageUploadPipeline imageUploadPipeline;
+    
+    @Autowired
+    private final ImageDerivativeService imageDerivativeService;
     
     @Autowired
     private final ObjectMapper objectMapper;
+    
+    @Autowired
+    private final FlashSaleStockReservationService flashSaleStockReservationService;
+    
+    @Autowired
+    private final ApplicationEventPublisher eventPublisher;
+    
+    @Autowired
+    private final ProductSearchIndex productSearchIndex;
+    
+    @Autowired
+    private final CategoryTreeCache categoryTreeCache;
 
     public ProductService(ProductRepository productRepository,
                          ProductVariantRepository productVariantRepository,
                          VariantAttributeRepository variantAttributeRepository,
                          CategoryRepository categoryRepository,
                          ShopRepository shopRepository,
-                         CloudinaryService cloudinaryService,
-                         ObjectMapper objectMapper) {
+                         ImageUploadPipeline imageUploadPipeline,
+                         ImageDerivativeService imageDerivativeService,
+                         ObjectMapper objectMapper,
+                         FlashSaleStockReservationService flashSaleStockReservationService,
+                         ApplicationEventPublisher eventPublisher,
+                         ProductSearchIndex productSearchIndex,
+                         CategoryTreeCache categoryTreeCache) {
         this.productRepository = productRepository;
         this.productVariantRepository = productVariantRepository;
         this.variantAttributeRepository = variantAttributeRepository;
         this.categoryRepository = categoryRepository;
         this.shopRepository = shopRepository;
-        this.cloudinaryService = cloudinaryService;
+        this.imageUploadPipeline = imageUploadPipeline;
+        this.imageDerivativeService = imageDerivativeService;
         this.objectMapper = objectMapper;
+        this.flashSaleStockReservationService = flashSaleStockReservationService;
+        this.eventPublisher = eventPublisher;
+        this.productSearchIndex = productSearchIndex;
+        this.categoryTreeCache = categoryTreeCache;
     }
 
     // Create product with images
@@ -79,15 +110,10 @@ public class ProductService {
         try {
             CreateProductDto createProductDto = objectMapper.readValue(productDataJson, CreateProductDto.class);
             
-            // Upload images to Cloudinary
+            // Upload images concurrently (identical images stored once)
             List<String> imageUrls = null;
             if (imageFiles != null && !imageFiles.isEmpty()) {
-                imageUrls = imageFiles.stream()
-                        .map(file -> {
-                            Map<String, String> uploadResult = cloudinaryService.uploadFileToFolder(file, "products");
-                            return uploadResult.get("url");
-                        })
-                        .collect(Collectors.toList());
+                imageUrls = imageUploadPipeline.uploadAll(imageFiles, "products");
             }
             
             return createProduct(createProductDto, imageUrls);
@@ -131,6 +157,14 @@ public class ProductService {
         // Create variants
         createProductVariants(product, createProductDto.getVariants());
 
+        eventPublisher.publishEvent(new ProductChangedEvent(product.getId()));
+        if (product.getCategory() != null) {
+            eventPublisher.publishEvent(new ProductCategoryChangedEvent(product.getId(), null, product.getCategory().getId()));
+        }
+        if (product.getStatus() == Status.INACTIVE) {
+            eventPublisher.publishEvent(new ProductSubmittedForApprovalEvent(product.getId()));
+        }
+
         return convertToDto(product);
     }
 
@@ -205,19 +239,23 @@ public class ProductService {
                 .collect(Collectors.toList());
     }
 
-    // Get products by category
-    public List<ProductResponseDto> getProductsByCategory(UUID categoryId) {
-        List<Product> products = productRepository.findByCategoryId(categoryId);
+    // Get products by category, optionally including all of its subcategories
+    public List<ProductResponseDto> getProductsByCategory(UUID categoryId, boolean includeSubcategories) {
+        List<Product> products = includeSubcategories
+                ? productRepository.findByCategoryIdIn(categoryTreeCache.getDescendantIds(categoryId))
+                : productRepository.findByCategoryId(categoryId);
         return products.stream()
                 .filter(product -> !product.getIsDeleted())
                 .map(this::convertToDto)
                 .collect(Collectors.toList());
     }
 
-    // Get products by category with pagination
-    public PagedProductResponseDto getProductsByCategoryWithPagination(UUID categoryId, int page, int size) {
+    // Get products by category with pagination, optionally including all of its subcategories
+    public PagedProductResponseDto getProductsByCategoryWithPagination(UUID categoryId, boolean includeSubcategories, int page, int size) {
         Pageable pageable = PageRequest.of(page, size, Sort.by("createdAt").descending());
-        Page<Product> productPage = productRepository.findByCategoryIdWithPagination(categoryId, pageable);
+        Page<Product> productPage = includeSubcategories
+                ? productRepository.findByCategoryIdInWithPagination(categoryTreeCache.getDescendantIds(categoryId), pageable)
+                : productRepository.findByCategoryIdWithPagination(categoryId, pageable);
         
         List<ProductResponseDto> products = productPage.getContent().stream()
                 .map(this::convertToDto)
@@ -292,55 +330,53 @@ public class ProductService {
                 .build();
     }
 
-    // Search products by name
+    // Search products by name (ranked by the search index)
     public List<ProductResponseDto> searchProductsByName(String name) {
-        List<Product> products = productRepository.findByNameContaining(name);
-        return products.stream()
-                .filter(product -> !product.getIsDeleted())
-                .map(this::convertToDto)
-                .collect(Collectors.toList());
+        ProductSearchIndex.SearchHits hits = productSearchIndex.search(name,
+                new ProductSearchIndex.SearchFilter(null, null, null, null, null, null), 0, Integer.MAX_VALUE);
+        return loadInRankOrder(hits.productIds());
     }
 
-    // Search products by name with pagination
+    // Search products by name with pagination (chỉ ACTIVE)
     public PagedProductResponseDto searchProductsByNameWithPagination(String name, int page, int size) {
-        Pageable pageable = PageRequest.of(page, size, Sort.by("createdAt").descending());
-        Page<Product> productPage = productRepository.findByNameContainingWithPagination(name, pageable);
-        
-        List<ProductResponseDto> products = productPage.getContent().stream()
-                .map(this::convertToDto)
-                .collect(Collectors.toList());
-        
-        return PagedProductResponseDto.builder()
-                .products(products)
-                .currentPage(productPage.getNumber())
-                .totalPages(productPage.getTotalPages())
-                .totalItems(productPage.getTotalElements())
-                .pageSize(productPage.getSize())
-                .hasNext(productPage.hasNext())
-                .hasPrevious(productPage.hasPrevious())
-                .build();
+        return searchProductsWithPagination(name, null, null, null, Status.ACTIVE, null, null, page, size);
     }
 
     // Advanced search
     public List<ProductResponseDto> searchProducts(String name, String brand, UUID categoryId, UUID shopId, Status status) {
-        List<Product> products = productRepository.findProductsByMultipleCriteria(name, brand, categoryId, shopId, status);
-        return products.stream()
-                .filter(product -> !product.getIsDeleted())
-                .map(this::convertToDto)
-                .collect(Collectors.toList());
+        if (name == null || name.isBlank()) {
+            List<Product> products = productRepository.findProductsByMultipleCriteria(null, brand, categoryId, shopId, status);
+            return products.stream()
+                    .filter(product -> !product.getIsDeleted())
+                    .map(this::convertToDto)
+                    .collect(Collectors.toList());
+        }
+
+        ProductSearchIndex.SearchHits hits = productSearchIndex.search(name,
+                new ProductSearchIndex.SearchFilter(brand, categoryId, shopId, status != null ? Set.of(status) : null, null, null),
+                0, Integer.MAX_VALUE);
+        return loadInRankOrder(hits.productIds());
     }
 
-    // Advanced search with pagination
-    public PagedProductResponseDto searchProductsWithPagination(String name, String brand, UUID categoryId, UUID shopId, Status status, int page, int size) {
+    // Advanced search with pagination (chỉ ACTIVE nếu không chỉ định status)
+    public PagedProductResponseDto searchProductsWithPagination(String name, String brand, UUID categoryId, UUID shopId, Status status,
+                                                                Double minPrice, Double maxPrice, int page, int size) {
         Pageable pageable = PageRequest.of(page, size, Sort.by("createdAt").descending());
-        Page<Product> productPage = productRepository.findProductsByMultipleCriteriaWithPagination(name, brand, categoryId, shopId, status, pageable);
-        
-        List<ProductResponseDto> products = productPage.getContent().stream()
-                .map(this::convertToDto)
-                .collect(Collectors.toList());
-        
+
+        Page<ProductResponseDto> productPage;
+        if (name == null || name.isBlank()) {
+            productPage = productRepository
+                    .findProductsByMultipleCriteriaWithPagination(null, brand, categoryId, shopId, status, minPrice, maxPrice, pageable)
+                    .map(this::convertToDto);
+        } else {
+            ProductSearchIndex.SearchFilter filter = new ProductSearchIndex.SearchFilter(brand, categoryId, shopId,
+                    Set.of(status != null ? status : Status.ACTIVE), minPrice, maxPrice);
+            ProductSearchIndex.SearchHits hits = productSearchIndex.search(name, filter, pageable.getOffset(), size);
+            productPage = new PageImpl<>(loadInRankOrder(hits.productIds()), pageable, hits.total());
+        }
+
         return PagedProductResponseDto.builder()
-                .products(products)
+                .products(productPage.getContent())
                 .currentPage(productPage.getNumber())
                 .totalPages(productPage.getTotalPages())
                 .totalItems(productPage.getTotalElements())
@@ -350,6 +386,17 @@ public class ProductService {
                 .build();
     }
 
+    // Load search hits and keep the index's ranking
+    private List<ProductResponseDto> loadInRankOrder(List<UUID> productIds) {
+        Map<UUID, Product> productsById = productRepository.findAllById(productIds).stream()
+                .collect(Collectors.toMap(Product::getId, product -> product));
+        return productIds.stream()
+                .map(productsById::get)
+                .filter(Objects::nonNull)
+                .map(this::convertToDto)
+                .collect(Collectors.toList());
+    }
+
     // Update product with images
     @Transactional
     public ProductResponseDto updateProductWithImages(UUID id, String productDataJson, List<MultipartFile> imageFiles) {
@@ -360,15 +407,10 @@ public class ProductService {
                 updateProductDto = objectMapper.readValue(productDataJson, UpdateProductDto.class);
             }
             
-            // Upload new images if provided
+            // Upload new images concurrently if provided
             List<String> newImageUrls = null;
             if (imageFiles != null && !imageFiles.isEmpty()) {
-                newImageUrls = imageFiles.stream()
-                        .map(file -> {
-                            Map<String, String> uploadResult = cloudinaryService.uploadFileToFolder(file, "products");
-                            return uploadResult.get("url");
-                        })
-                        .collect(Collectors.toList());
+                newImageUrls = imageUploadPipeline.uploadAll(imageFiles, "products");
             }
             
             return updateProduct(id, updateProductDto, newImageUrls);
@@ -382,6 +424,7 @@ public class ProductService {
     public ProductResponseDto updateProduct(UUID id, UpdateProductDto updateProductDto, List<String> newImageUrls) {
         Product product = productRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Product not found with id: " + id));
+        UUID previousCategoryId = product.getCategory() != null ? product.getCategory().getId() : null;
 
         // Update basic fields if provided
         if (updateProductDto != null) {
@@ -417,6 +460,16 @@ public class ProductService {
         }
 
         product = productRepository.save(product);
+        eventPublisher.publishEvent(new ProductChangedEvent(product.getId()));
+        UUID categoryId = product.getCategory() != null ? product.getCategory().getId() : null;
+        if (!Objects.equals(previousCategoryId, categoryId)) {
+            eventPublisher.publishEvent(new ProductCategoryChangedEvent(product.getId(), previousCategoryId, categoryId));
+        }
+
+        // Sản phẩm được gửi lại để duyệt
+        if (product.getStatus() == Status.INACTIVE && !Boolean.TRUE.equals(product.getIsDeleted())) {
+            eventPublisher.publishEvent(new ProductSubmittedForApprovalEvent(product.getId()));
+        }
         return convertToDto(product);
     }
 
@@ -439,6 +492,7 @@ public class ProductService {
         product.setIsDeleted(true);
         product.setStatus(Status.INACTIVE);
         productRepository.save(product);
+        eventPublisher.publishEvent(new ProductChangedEvent(id));
     }
 
     // Restore soft deleted product
@@ -454,6 +508,7 @@ public class ProductService {
         product.setIsDeleted(false);
         product.setStatus(Status.ACTIVE);
         productRepository.save(product);
+        eventPublisher.publishEvent(new ProductChangedEvent(id));
     }
 
     // Hard delete product (permanent delete)
@@ -473,6 +528,10 @@ public class ProductService {
         }
         
         productRepository.delete(product);
+        eventPublisher.publishEvent(new ProductChangedEvent(id));
+        if (product.getCategory() != null) {
+            eventPublisher.publishEvent(new ProductCategoryChangedEvent(id, product.getCategory().getId(), null));
+        }
     }
 
     // Get product count by shop
@@ -487,17 +546,9 @@ public class ProductService {
 
     // Convert entity to DTO
     private ProductResponseDto convertToDto(Product product) {
-        // Calculate average rating
-        Double averageRating = null;
-        Integer reviewCount = 0;
-        
-        if (product.getReviews() != null && !product.getReviews().isEmpty()) {
-            reviewCount = product.getReviews().size();
-            averageRating = product.getReviews().stream()
-                    .mapToInt(Review::getRating)
-                    .average()
-                    .orElse(0.0);
-        }
+        // Rating aggregates are denormalized on the product row
+        Double averageRating = product.getAverageRating();
+        Integer reviewCount = product.getReviewCount() != null ? product.getReviewCount().intValue() : 0;
 
         // Convert variants
         List<ProductVariantResponseDto> variantDtos = null;
@@ -547,6 +598,9 @@ public class ProductService {
                 .description(product.getDescription())
                 .brand(product.getBrand())
                 .images(product.getImages())
+                .imageRenditions(product.getImages() != null
+                        ? product.getImages().stream().map(imageDerivativeService::renditionsOf).collect(Collectors.toList())
+                        : null)
                 .status(product.getStatus())
                 .isDeleted(product.getIsDeleted())
                 .variants(variantDtos)
@@ -769,6 +823,8 @@ public class ProductService {
         variant.setFlashSaleQuantity(flashSaleDto.getFlashSaleQuantity());
         
         productVariantRepository.save(variant);
+        flashSaleStockReservationService.reset(variantId);
+        eventPublisher.publishEvent(new VariantFlashSaleChangedEvent(variantId));
         return variant.toDto();
     }
     
@@ -785,6 +841,8 @@ public class ProductService {
         variant.setFlashSaleQuantity(null);
         
         productVariantRepository.save(variant);
+        flashSaleStockReservationService.reset(variantId);
+        eventPublisher.publishEvent(new VariantFlashSaleChangedEvent(variantId));
         return variant.toDto();
     }
     
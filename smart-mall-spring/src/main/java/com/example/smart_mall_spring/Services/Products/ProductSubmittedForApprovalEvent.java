@@ -0,0 +1,9 @@
+package com.example.smart_mall_spring.Services.Products;
+
+import java.util.UUID;
+
+/**
+ * Published when a product is created or edited into the INACTIVE (awaiting approval) state.
+ */
+public record ProductSubmittedForApprovalEvent(UUID productId) {
+}
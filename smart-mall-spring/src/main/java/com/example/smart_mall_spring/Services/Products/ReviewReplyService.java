@@ -24,6 +24,7 @@ public class ReviewReplyService {
     private final ReviewReplyRepository reviewReplyRepository;
     private final ReviewRepository reviewRepository;
     private final ShopRepository shopRepository;
+    private final ShopReviewStatsService shopReviewStatsService;
 
 
     public ReviewReplyResponseDto createReply(ReviewReplyRequestDto dto) {
@@ -40,6 +41,8 @@ public class ReviewReplyService {
             throw new IllegalStateException("Shop đã phản hồi review này rồi.");
         }
 
+        boolean firstReply = !reviewReplyRepository.existsByReviewId(reviewId);
+
         ReviewReply reply = new ReviewReply();
         reply.setReview(review);
         reply.setShop(shop);
@@ -47,6 +50,9 @@ public class ReviewReplyService {
         reply.setRepliedAt(LocalDateTime.now());
 
         ReviewReply saved = reviewReplyRepository.save(reply);
+        if (firstReply) {
+            shopReviewStatsService.recordReply(review, 1);
+        }
         return mapToResponseDto(saved);
     }
 
@@ -68,7 +74,10 @@ public class ReviewReplyService {
 
 
     public void deleteReplyByReview(UUID reviewId) {
-        reviewReplyRepository.deleteByReviewId(reviewId);
+        if (reviewReplyRepository.deleteByReviewId(reviewId) > 0) {
+            reviewRepository.findById(reviewId)
+                    .ifPresent(review -> shopReviewStatsService.recordReply(review, -1));
+        }
     }
     public ReviewReplyResponseDto updateReply(ReviewReplyRequestDto dto) {
         UUID reviewId = UUID.fromString(dto.getReviewId());
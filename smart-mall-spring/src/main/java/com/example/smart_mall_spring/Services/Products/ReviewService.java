@@ -4,25 +4,32 @@ import com.example.smart_mall_spring.Dtos.Products.Review.*;
 import com.example.smart_mall_spring.Entities.Orders.Order;
 import com.example.smart_mall_spring.Entities.Products.*;
 import com.example.smart_mall_spring.Entities.Users.User;
+import com.example.smart_mall_spring.Enum.ImageRendition;
 import com.example.smart_mall_spring.Repositories.*;
 import com.example.smart_mall_spring.Services.CloudinaryService;
+import com.example.smart_mall_spring.Services.Storage.ImageDerivativeService;
+import com.example.smart_mall_spring.Services.Storage.ImageUploadPipeline;
 import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.time.LocalDateTime;
+import java.time.YearMonth;
 import java.util.*;
 import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 @Transactional
+@Slf4j
 public class ReviewService {
 
     private final ReviewRepository reviewRepository;
@@ -31,7 +38,10 @@ public class ReviewService {
     private final UserRepository userRepository;
     private final OrderRepository orderRepository;
     private final ReviewReplyRepository reviewReplyRepository;
+    private final ShopReviewStatsService shopReviewStatsService;
     private final CloudinaryService cloudinaryService;
+    private final ImageUploadPipeline imageUploadPipeline;
+    private final ImageDerivativeService imageDerivativeService;
 
     /**
      * Tạo review mới
@@ -64,22 +74,18 @@ public class ReviewService {
         review.setComment(dto.getComment());
         review.setReviewedAt(LocalDateTime.now());
 
-        Review saved = reviewRepository.save(review);
-
-        // Lưu danh sách media (nếu có)
+        // Media lưu theo cascade cùng review (một JDBC batch cho bảng review_media)
         if (dto.getImageUrls() != null) {
-            for (String imageUrl : dto.getImageUrls()) {
-                ReviewMedia media = new ReviewMedia(saved, imageUrl, "IMAGE");
-                reviewMediaRepository.save(media);
-            }
+            dto.getImageUrls().forEach(imageUrl -> review.addMedia(imageUrl, "IMAGE"));
         }
         if (dto.getVideoUrls() != null) {
-            for (String videoUrl : dto.getVideoUrls()) {
-                ReviewMedia media = new ReviewMedia(saved, videoUrl, "VIDEO");
-                reviewMediaRepository.save(media);
-            }
+            dto.getVideoUrls().forEach(videoUrl -> review.addMedia(videoUrl, "VIDEO"));
         }
 
+        Review saved = reviewRepository.save(review);
+        productRepository.applyRatingDelta(productId, saved.getRating(), 1);
+        shopReviewStatsService.recordReview(saved, 1, false);
+
         return mapToResponseDto(saved);
     }
 
@@ -106,28 +112,39 @@ public class ReviewService {
      * Xóa review (và media đi kèm)
      */
     public void deleteReview(UUID reviewId) {
-        if (!reviewRepository.existsById(reviewId)) {
-            throw new EntityNotFoundException("Không tìm thấy review để xóa");
-        }
+        Review review = reviewRepository.findById(reviewId)
+                .orElseThrow(() -> new EntityNotFoundException("Không tìm thấy review để xóa"));
+        boolean replied = reviewReplyRepository.existsByReviewId(reviewId);
         reviewMediaRepository.deleteByReviewId(reviewId);
         reviewRepository.deleteByIdCustom(reviewId);
+        productRepository.applyRatingDelta(review.getProduct().getId(), review.getRating(), -1);
+        shopReviewStatsService.recordReview(review, -1, replied);
     }
 
     @Transactional(readOnly = true)
     public ReviewStatisticsDto getReviewStatistics(UUID productId) {
-        // Lấy trung bình và tổng số lượt đánh giá
-        Double avg = reviewRepository.getAverageRatingByProductId(productId);
-        Long total = reviewRepository.countByProductId(productId);
-
-        // Đếm theo từng mức sao
-        Map<Integer, Long> ratingCounts = new HashMap<>();
-        for (int i = 1; i <= 5; i++) {
-            Long count = reviewRepository.countByProductIdAndRating(productId, i);
-            ratingCounts.put(i, count);
-        }
-
-        return new ReviewStatisticsDto(avg, total, ratingCounts);
+        // Đọc từ các cột tổng hợp trên products (không quét bảng reviews)
+        // Sản phẩm không tồn tại vẫn trả về thống kê rỗng như trước
+        return productRepository.findById(productId)
+                .map(product -> new ReviewStatisticsDto(
+                        product.getAverageRating(), product.getReviewCount(), product.getRatingCounts()))
+                .orElseGet(() -> {
+                    Map<Integer, Long> ratingCounts = new LinkedHashMap<>();
+                    for (int i = 1; i <= 5; i++) {
+                        ratingCounts.put(i, 0L);
+                    }
+                    return new ReviewStatisticsDto(null, 0L, ratingCounts);
+                });
+    }
+    /**
+     * Đối soát định kỳ các cột tổng hợp rating trên products với bảng reviews
+     */
+    @Scheduled(cron = "${review.rating-stats.reconcile-cron:0 0 4 * * *}")
+    public void reconcileRatingStats() {
+        int updated = productRepository.reconcileRatingStats();
+        log.info("Reconciled rating aggregates for {} products", updated);
     }
+
     public ReviewResponseDto findByUserAndProduct(UUID userId, UUID productId) {
         Optional<Review> reviewOpt = reviewRepository.findByUserIdAndProductId(userId, productId);
         return reviewOpt.map(this::mapToResponseDto).orElse(null);
@@ -153,18 +170,21 @@ public class ReviewService {
         dto.setProductId(review.getProduct().getId().toString());
         dto.setProductName(review.getProduct().getName());
 
-        List<ReviewMediaResponseDto> mediaList = reviewMediaRepository.findByReviewId(review.getId())
+        // mediaList / replies: collection lazy, nạp theo batch cho cả trang (không query riêng từng review)
+        List<ReviewMediaResponseDto> mediaList = review.getMediaList()
                 .stream()
                 .map(m -> new ReviewMediaResponseDto(
                         m.getId().toString(),
                         m.getMediaUrl(),
+                        "IMAGE".equals(m.getMediaType())
+                                ? imageDerivativeService.renditionUrl(m.getMediaUrl(), ImageRendition.THUMBNAIL)
+                                : null,
                         m.getMediaType()
                 ))
                 .collect(Collectors.toList());
         dto.setMediaList(mediaList);
 
-        Optional<ReviewReply> replyOpt = reviewReplyRepository.findByReviewId(review.getId());
-        replyOpt.ifPresent(reply -> {
+        review.getReplies().stream().findFirst().ifPresent(reply -> {
             ReviewReplyResponseDto replyDto = new ReviewReplyResponseDto(
                     reply.getId().toString(),
                     reply.getShop().getId().toString(),
@@ -213,27 +233,24 @@ public class ReviewService {
         review.setComment(dto.getComment());
         review.setReviewedAt(LocalDateTime.now());
 
-        Review saved = reviewRepository.save(review);
-
-        // 🟡 Upload ảnh lên Cloudinary (nếu có)
+        // 🟡 Upload ảnh song song (có bản thu nhỏ), video vẫn lên Cloudinary
         if (imageFiles != null && imageFiles.length > 0) {
-            for (MultipartFile file : imageFiles) {
-                Map<String, String> uploadResult = cloudinaryService.uploadFileToFolder(file, "reviews/images");
-                String url = uploadResult.get("url"); // service của bạn trả path rút gọn
-                ReviewMedia media = new ReviewMedia(saved, url, "IMAGE");
-                reviewMediaRepository.save(media);
-            }
+            imageUploadPipeline.uploadAll(Arrays.asList(imageFiles), "reviews/images")
+                    .forEach(url -> review.addMedia(url, "IMAGE"));
         }
         // upload videos
         if (videoFiles != null && videoFiles.length > 0) {
             for (MultipartFile file : videoFiles) {
                 Map<String, String> uploadResult = cloudinaryService.uploadFileToFolder(file, "reviews/videos");
-                String url = uploadResult.get("url");
-                ReviewMedia media = new ReviewMedia(saved, url, "VIDEO");
-                reviewMediaRepository.save(media);
+                review.addMedia(uploadResult.get("url"), "VIDEO");
             }
         }
 
+        // Media lưu theo cascade cùng review (một JDBC batch cho bảng review_media)
+        Review saved = reviewRepository.save(review);
+        productRepository.applyRatingDelta(productId, saved.getRating(), 1);
+        shopReviewStatsService.recordReview(saved, 1, false);
+
         return mapToResponseDto(saved);
     }
     @Transactional(readOnly = true)
@@ -261,34 +278,13 @@ public class ReviewService {
     }
     @Transactional(readOnly = true)
     public ShopReviewStatisticsDto getShopReviewStatistics(UUID shopId) {
-        Long totalReviews = reviewRepository.countByShopId(shopId);
-        Double averageRating = reviewRepository.getAverageRatingByShopId(shopId);
-
-        Map<Integer, Long> ratingCounts = new HashMap<>();
-        for (int i = 1; i <= 5; i++) {
-            ratingCounts.put(i, reviewRepository.countByShopIdAndRating(shopId, i));
-        }
-
-        Long repliedCount = reviewRepository.countByShopIdWithReply(shopId);
-        Long pendingReplyCount = totalReviews - repliedCount;
+        // Đọc từ bảng tổng hợp theo shop/tháng (không quét reviews join products)
+        return shopReviewStatsService.getShopStatistics(shopId);
+    }
 
-        // Có thể thêm biểu đồ xu hướng tháng
-        List<Object[]> rawStats = reviewRepository.getMonthlyReviewTrendByShop(shopId);
-        List<MonthlyReviewStats> monthlyTrend = rawStats.stream()
-                .map(row -> new MonthlyReviewStats(
-                        (String) row[0],                  // yearMonth
-                        ((Number) row[1]).longValue(),    // totalReviews
-                        ((Number) row[2]).doubleValue()   // averageRating
-                ))
-                .collect(Collectors.toList());
-        return new ShopReviewStatisticsDto(
-                totalReviews,
-                averageRating,
-                ratingCounts,
-                repliedCount,
-                pendingReplyCount,
-                monthlyTrend
-        );
+    @Transactional(readOnly = true)
+    public List<MonthlyReviewStats> getShopMonthlyReviewStatistics(UUID shopId, YearMonth from, YearMonth to) {
+        return shopReviewStatsService.getMonthlyStatistics(shopId, from, to);
     }
     @Transactional(readOnly = true)
     public List<ProductReviewSummaryDto> getShopProductsWithReviewSummary(UUID shopId) {
@@ -300,13 +296,9 @@ public class ReviewService {
                 .filter(product -> !product.getIsDeleted()) // nếu có cờ xóa mềm thì lọc ra luôn
                 .map(product -> {
                     UUID productId = product.getId();
-                    Long totalReviews = reviewRepository.countByProductId(productId);
-                    Double avgRating = reviewRepository.getAverageRatingByProductId(productId);
-
-                    Map<Integer, Long> ratingCounts = new HashMap<>();
-                    for (int i = 1; i <= 5; i++) {
-                        ratingCounts.put(i, reviewRepository.countByProductIdAndRating(productId, i));
-                    }
+                    Long totalReviews = product.getReviewCount();
+                    Double avgRating = product.getAverageRating();
+                    Map<Integer, Long> ratingCounts = product.getRatingCounts();
 
                     Optional<Review> latestReview = reviewRepository.findTopByProductIdOrderByReviewedAtDesc(productId);
 
@@ -0,0 +1,402 @@
+package com.example.smart_mall_spring.Services.Products;
+
+import com.example.smart_mall_spring.Dtos.Products.SearchSuggestionDto;
+import com.example.smart_mall_spring.Entities.Categories.Category;
+import com.example.smart_mall_spring.Enum.Status;
+import com.example.smart_mall_spring.Enum.SuggestionType;
+import com.example.smart_mall_spring.Models.ProductSuggestionRow;
+import com.example.smart_mall_spring.Repositories.CategoryRepository;
+import com.example.smart_mall_spring.Repositories.ProductRepository;
+import com.example.smart_mall_spring.Services.Categories.CategoryChangedEvent;
+import com.example.smart_mall_spring.Utils.VietnameseTextNormalizer;
+import com.example.smart_mall_spring.Utils.WeightedPrefixTrie;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Search-as-you-type suggestions for ACTIVE product names, brands and category names.
+ * <p>
+ * Completions come from a {@link WeightedPrefixTrie} weighted by popularity: a product weighs
+ * {@code 1 + sold units + reviews}, a brand or category the sum of its products. Product names can also be
+ * completed from the start of any of their first words ("thun" completes "Áo thun nam").
+ * The trie is updated from {@link ProductChangedEvent} / {@link CategoryChangedEvent}, rebuilt on a schedule
+ * to pick up popularity changes, and snapshotted to disk so a restart only replays products updated since.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class SearchSuggestionService {
+
+    private static final int SNAPSHOT_MAGIC = 0x534D5331; // "SMS1"
+    private static final int MAX_WORD_KEYS = 4;
+    private static final int MAX_LIMIT = 20;
+
+    private final ProductRepository productRepository;
+    private final CategoryRepository categoryRepository;
+
+    @Value("${suggest.snapshot.path:data/suggestions.snapshot}")
+    private String snapshotPath;
+
+    private volatile State state = new State();
+    private volatile boolean ready;
+
+    // Changes seen while a rebuild is streaming; replayed onto the new state before it is swapped in
+    private boolean rebuilding;
+    private final Map<UUID, Optional<ProductSuggestionRow>> pendingProducts = new LinkedHashMap<>();
+    private final Map<UUID, Optional<String>> pendingCategories = new LinkedHashMap<>();
+
+    /**
+     * Top completions of {@code query}, most popular first.
+     */
+    public List<SearchSuggestionDto> suggest(String query, int limit) {
+        String prefix = String.join(" ", VietnameseTextNormalizer.tokenize(query));
+        if (prefix.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        return state.trie.topK(prefix, Math.min(limit, MAX_LIMIT));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void initialize() {
+        LocalDateTime snapshotTakenAt = loadSnapshot();
+        if (snapshotTakenAt == null) {
+            rebuildInternal();
+            ready = true;
+            return;
+        }
+
+        // Warm start: replay products touched since the snapshot (with a margin for clock skew)
+        List<ProductSuggestionRow> changed = productRepository.findSuggestionRowsUpdatedAfter(snapshotTakenAt.minusMinutes(1));
+        List<Category> categories = categoryRepository.findAll();
+        synchronized (this) {
+            State current = state;
+            Set<UUID> touched = new HashSet<>(current.categoryNames.keySet());
+            current.categoryNames.clear();
+            categories.stream()
+                    .filter(category -> category.getStatus() == Status.ACTIVE)
+                    .forEach(category -> current.categoryNames.put(category.getId(), category.getName()));
+            touched.addAll(current.categoryNames.keySet());
+            touched.forEach(categoryId -> putCategory(current, categoryId));
+            changed.forEach(row -> applyProduct(current, row.productId(), row));
+        }
+        ready = true;
+        log.info("Search suggestions warm-started from snapshot: {} entries, {} products replayed",
+                state.trie.size(), changed.size());
+    }
+
+    /**
+     * Full rebuild, so popularity (sold units, reviews) and missed hard deletes converge.
+     */
+    @Scheduled(cron = "${suggest.rebuild-cron:0 15 * * * *}")
+    @Transactional(readOnly = true)
+    public void rebuild() {
+        rebuildInternal();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    @Transactional(propagation = Propagation.REQUIRES_NEW, readOnly = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        List<ProductSuggestionRow> rows = productRepository.findSuggestionRows(List.of(event.productId()));
+        ProductSuggestionRow row = rows.isEmpty() ? null : rows.get(0);
+        synchronized (this) {
+            applyProduct(state, event.productId(), row);
+            if (rebuilding) {
+                pendingProducts.put(event.productId(), Optional.ofNullable(row));
+            }
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    @Transactional(propagation = Propagation.REQUIRES_NEW, readOnly = true)
+    public void onCategoryChanged(CategoryChangedEvent event) {
+        String name = categoryRepository.findById(event.categoryId())
+                .filter(category -> category.getStatus() == Status.ACTIVE)
+                .map(Category::getName)
+                .orElse(null);
+        synchronized (this) {
+            applyCategory(state, event.categoryId(), name);
+            if (rebuilding) {
+                pendingCategories.put(event.categoryId(), Optional.ofNullable(name));
+            }
+        }
+    }
+
+    @PreDestroy
+    public void saveOnShutdown() {
+        // Never overwrite a good snapshot with the empty state of an instance that did not finish starting
+        if (ready) {
+            saveSnapshot();
+        }
+    }
+
+    private void rebuildInternal() {
+        synchronized (this) {
+            rebuilding = true;
+            pendingProducts.clear();
+            pendingCategories.clear();
+        }
+        try {
+            State fresh = new State();
+            for (Category category : categoryRepository.findAll()) {
+                if (category.getStatus() == Status.ACTIVE) {
+                    fresh.categoryNames.put(category.getId(), category.getName());
+                }
+            }
+            try (Stream<ProductSuggestionRow> rows = productRepository.streamActiveSuggestionRows()) {
+                rows.forEach(row -> applyProduct(fresh, row.productId(), row));
+            }
+            // Categories without ACTIVE products still get an entry
+            fresh.categoryNames.keySet().forEach(categoryId -> putCategory(fresh, categoryId));
+
+            synchronized (this) {
+                pendingCategories.forEach((categoryId, name) -> applyCategory(fresh, categoryId, name.orElse(null)));
+                pendingProducts.forEach((productId, row) -> applyProduct(fresh, productId, row.orElse(null)));
+                state = fresh;
+            }
+            log.info("Search suggestions rebuilt: {} entries", fresh.trie.size());
+        } finally {
+            synchronized (this) {
+                rebuilding = false;
+                pendingProducts.clear();
+                pendingCategories.clear();
+            }
+        }
+        saveSnapshot();
+    }
+
+    // ===== State mutations (caller holds the monitor, or owns a State not yet published) =====
+
+    private void applyProduct(State target, UUID productId, ProductSuggestionRow row) {
+        ProductEntry previous = target.products.remove(productId);
+        if (previous != null) {
+            target.trie.remove("P:" + productId);
+            addBrandWeight(target, previous.brand(), -previous.weight());
+            addCategoryWeight(target, previous.categoryId(), -previous.weight());
+        }
+
+        if (row == null || row.status() != Status.ACTIVE || Boolean.TRUE.equals(row.isDeleted())) {
+            return;
+        }
+        long weight = 1 + nullToZero(row.soldUnits()) + nullToZero(row.reviewCount());
+        putProduct(target, productId, new ProductEntry(row.name(), row.brand(), row.categoryId(), weight));
+    }
+
+    private void putProduct(State target, UUID productId, ProductEntry entry) {
+        List<String> keys = productKeys(entry.name());
+        if (keys.isEmpty()) return;
+
+        target.products.put(productId, entry);
+        target.trie.put("P:" + productId, keys,
+                new SearchSuggestionDto(SuggestionType.PRODUCT, productId, entry.name()), entry.weight());
+        addBrandWeight(target, entry.brand(), entry.weight());
+        addCategoryWeight(target, entry.categoryId(), entry.weight());
+    }
+
+    private void applyCategory(State target, UUID categoryId, String name) {
+        if (name == null) {
+            target.categoryNames.remove(categoryId);
+        } else {
+            target.categoryNames.put(categoryId, name);
+        }
+        putCategory(target, categoryId);
+    }
+
+    private void addBrandWeight(State target, String brand, long delta) {
+        String key = String.join(" ", VietnameseTextNormalizer.tokenize(brand));
+        if (key.isEmpty()) return;
+
+        BrandEntry current = target.brands.get(key);
+        BrandEntry updated = current == null
+                ? new BrandEntry(brand.trim(), delta, 1)
+                : new BrandEntry(current.display(), current.weight() + delta, current.products() + (delta > 0 ? 1 : -1));
+        if (updated.products() <= 0) {
+            target.brands.remove(key);
+            target.trie.remove("B:" + key);
+            return;
+        }
+        target.brands.put(key, updated);
+        target.trie.put("B:" + key, List.of(key),
+                new SearchSuggestionDto(SuggestionType.BRAND, null, updated.display()), updated.weight());
+    }
+
+    private void addCategoryWeight(State target, UUID categoryId, long delta) {
+        if (categoryId == null) return;
+        target.categoryWeights.merge(categoryId, delta, Long::sum);
+        putCategory(target, categoryId);
+    }
+
+    private void putCategory(State target, UUID categoryId) {
+        String name = target.categoryNames.get(categoryId);
+        String key = String.join(" ", VietnameseTextNormalizer.tokenize(name));
+        if (key.isEmpty()) {
+            target.trie.remove("C:" + categoryId);
+            return;
+        }
+        long weight = 1 + target.categoryWeights.getOrDefault(categoryId, 0L);
+        target.trie.put("C:" + categoryId, List.of(key),
+                new SearchSuggestionDto(SuggestionType.CATEGORY, categoryId, name), weight);
+    }
+
+    // Full normalized name, plus the name starting at each of its next few words
+    private static List<String> productKeys(String name) {
+        List<String> tokens = VietnameseTextNormalizer.tokenize(name);
+        List<String> keys = new ArrayList<>();
+        for (int i = 0; i < tokens.size() && i < MAX_WORD_KEYS; i++) {
+            keys.add(String.join(" ", tokens.subList(i, tokens.size())));
+        }
+        return keys;
+    }
+
+    private static long nullToZero(Long value) {
+        return value != null ? value : 0L;
+    }
+
+    // ===== Snapshot =====
+
+    private void saveSnapshot() {
+        Map<UUID, ProductEntry> products;
+        Map<UUID, String> categoryNames;
+        long takenAt = System.currentTimeMillis();
+        synchronized (this) {
+            products = new HashMap<>(state.products);
+            categoryNames = new HashMap<>(state.categoryNames);
+        }
+
+        Path target = Path.of(snapshotPath);
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        try {
+            if (target.getParent() != null) {
+                Files.createDirectories(target.getParent());
+            }
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                    new GZIPOutputStream(Files.newOutputStream(temp))))) {
+                out.writeInt(SNAPSHOT_MAGIC);
+                out.writeLong(takenAt);
+                out.writeInt(categoryNames.size());
+                for (Map.Entry<UUID, String> category : categoryNames.entrySet()) {
+                    writeUuid(out, category.getKey());
+                    out.writeUTF(category.getValue());
+                }
+                out.writeInt(products.size());
+                for (Map.Entry<UUID, ProductEntry> product : products.entrySet()) {
+                    ProductEntry entry = product.getValue();
+                    writeUuid(out, product.getKey());
+                    out.writeUTF(entry.name());
+                    out.writeUTF(entry.brand() != null ? entry.brand() : "");
+                    out.writeBoolean(entry.categoryId() != null);
+                    if (entry.categoryId() != null) {
+                        writeUuid(out, entry.categoryId());
+                    }
+                    out.writeLong(entry.weight());
+                }
+            }
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            log.debug("Search suggestion snapshot written: {} products", products.size());
+        } catch (IOException e) {
+            log.warn("Failed to write search suggestion snapshot {}: {}", target, e.getMessage());
+        }
+    }
+
+    /**
+     * Load the snapshot into a fresh state.
+     *
+     * @return the time the snapshot was taken, or null if there is no usable snapshot
+     */
+    private LocalDateTime loadSnapshot() {
+        Path source = Path.of(snapshotPath);
+        if (!Files.exists(source)) {
+            return null;
+        }
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new GZIPInputStream(Files.newInputStream(source))))) {
+            if (in.readInt() != SNAPSHOT_MAGIC) {
+                log.warn("Ignoring search suggestion snapshot {}: unknown format", source);
+                return null;
+            }
+            long takenAt = in.readLong();
+
+            State loaded = new State();
+            int categoryCount = in.readInt();
+            for (int i = 0; i < categoryCount; i++) {
+                loaded.categoryNames.put(readUuid(in), in.readUTF());
+            }
+            int productCount = in.readInt();
+            for (int i = 0; i < productCount; i++) {
+                UUID productId = readUuid(in);
+                String name = in.readUTF();
+                String brand = in.readUTF();
+                UUID categoryId = in.readBoolean() ? readUuid(in) : null;
+                long weight = in.readLong();
+                putProduct(loaded, productId, new ProductEntry(name, brand.isEmpty() ? null : brand, categoryId, weight));
+            }
+            // Categories without products still get an entry
+            loaded.categoryNames.keySet().forEach(categoryId -> putCategory(loaded, categoryId));
+
+            synchronized (this) {
+                state = loaded;
+            }
+            return LocalDateTime.ofInstant(Instant.ofEpochMilli(takenAt), ZoneId.systemDefault());
+        } catch (IOException e) {
+            log.warn("Ignoring search suggestion snapshot {}: {}", source, e.getMessage());
+            return null;
+        }
+    }
+
+    private static void writeUuid(DataOutputStream out, UUID id) throws IOException {
+        out.writeLong(id.getMostSignificantBits());
+        out.writeLong(id.getLeastSignificantBits());
+    }
+
+    private static UUID readUuid(DataInputStream in) throws IOException {
+        return new UUID(in.readLong(), in.readLong());
+    }
+
+    private record ProductEntry(String name, String brand, UUID categoryId, long weight) {
+    }
+
+    private record BrandEntry(String display, long weight, int products) {
+    }
+
+    private static final class State {
+        private final WeightedPrefixTrie<SearchSuggestionDto> trie = new WeightedPrefixTrie<>();
+        private final Map<UUID, ProductEntry> products = new HashMap<>();
+        private final Map<String, BrandEntry> brands = new HashMap<>();
+        private final Map<UUID, String> categoryNames = new HashMap<>();
+        private final Map<UUID, Long> categoryWeights = new HashMap<>();
+    }
+}
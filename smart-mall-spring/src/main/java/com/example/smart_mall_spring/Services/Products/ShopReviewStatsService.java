@@ -0,0 +1,168 @@
+package com.example.smart_mall_spring.Services.Products;
+
+import com.example.smart_mall_spring.Dtos.Products.Review.MonthlyReviewStats;
+import com.example.smart_mall_spring.Dtos.Products.Review.ShopReviewStatisticsDto;
+import com.example.smart_mall_spring.Entities.Products.Review;
+import com.example.smart_mall_spring.Entities.Products.ShopMonthlyReviewStat;
+import com.example.smart_mall_spring.Entities.Shop;
+import com.example.smart_mall_spring.Models.ShopReviewSummary;
+import com.example.smart_mall_spring.Repositories.ShopMonthlyReviewStatRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Maintains the shop_monthly_review_stats aggregate and serves shop review dashboards from it.
+ * <p>
+ * Review and reply writes apply their delta with a single upsert in their own transaction, so the
+ * aggregate commits or rolls back with the write. A reply only counts once per review: the replied
+ * count is the number of reviews with at least one reply. A nightly job recomputes the table from
+ * the reviews table to correct any drift (e.g. rows changed outside these services).
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ShopReviewStatsService {
+
+    private final ShopMonthlyReviewStatRepository shopMonthlyReviewStatRepository;
+
+    /**
+     * Count a created (delta = 1) or deleted (delta = -1) review. {@code replied} tells whether the
+     * review has a reply, so deleting an answered review also lowers the replied count.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordReview(Review review, int delta, boolean replied) {
+        UUID shopId = shopIdOf(review);
+        if (shopId == null || review.getRating() == null) return;
+
+        shopMonthlyReviewStatRepository.applyReviewDelta(shopId, statMonthOf(review), review.getRating(),
+                delta, replied ? delta : 0);
+    }
+
+    /**
+     * A review got its first reply (delta = 1) or lost all of its replies (delta = -1).
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordReply(Review review, int delta) {
+        UUID shopId = shopIdOf(review);
+        if (shopId == null) return;
+
+        shopMonthlyReviewStatRepository.applyReplyDelta(shopId, statMonthOf(review), delta);
+    }
+
+    /**
+     * Totals, star histogram, reply counts and monthly trend of a shop.
+     */
+    @Transactional(readOnly = true)
+    public ShopReviewStatisticsDto getShopStatistics(UUID shopId) {
+        List<ShopMonthlyReviewStat> months = shopMonthlyReviewStatRepository.findByShopId(shopId);
+
+        long totalReviews = 0;
+        long ratingSum = 0;
+        long repliedCount = 0;
+        Map<Integer, Long> ratingCounts = new LinkedHashMap<>();
+        for (int i = 1; i <= 5; i++) {
+            ratingCounts.put(i, 0L);
+        }
+        for (ShopMonthlyReviewStat month : months) {
+            totalReviews += month.getReviewCount();
+            ratingSum += month.getRatingSum();
+            repliedCount += month.getRepliedCount();
+            month.getRatingCounts().forEach((rating, count) -> ratingCounts.merge(rating, count, Long::sum));
+        }
+
+        return new ShopReviewStatisticsDto(
+                totalReviews,
+                totalReviews > 0 ? (double) ratingSum / totalReviews : null,
+                ratingCounts,
+                repliedCount,
+                totalReviews - repliedCount,
+                months.stream().filter(month -> month.getReviewCount() > 0).map(this::toMonthlyStats).toList()
+        );
+    }
+
+    /**
+     * Monthly figures of a shop between two months (inclusive); either bound may be null.
+     */
+    @Transactional(readOnly = true)
+    public List<MonthlyReviewStats> getMonthlyStatistics(UUID shopId, YearMonth from, YearMonth to) {
+        List<ShopMonthlyReviewStat> months = from == null && to == null
+                ? shopMonthlyReviewStatRepository.findByShopId(shopId)
+                : shopMonthlyReviewStatRepository.findByShopIdAndMonthRange(shopId,
+                        from != null ? from.toString() : "0000-01",
+                        to != null ? to.toString() : "9999-12");
+        return months.stream().map(this::toMonthlyStats).toList();
+    }
+
+    /**
+     * All-time review totals of several shops, keyed by shop ID. Shops without reviews are absent.
+     */
+    @Transactional(readOnly = true)
+    public Map<UUID, ShopReviewSummary> getSummaries(Collection<UUID> shopIds) {
+        Map<UUID, ShopReviewSummary> summaries = new LinkedHashMap<>();
+        if (shopIds.isEmpty()) return summaries;
+
+        for (ShopReviewSummary summary : shopMonthlyReviewStatRepository.summarizeByShopIds(shopIds)) {
+            summaries.put(summary.shopId(), summary);
+        }
+        return summaries;
+    }
+
+    /**
+     * Build the aggregate when the table is empty (first deployment).
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void initialize() {
+        if (shopMonthlyReviewStatRepository.count() == 0) {
+            int rows = shopMonthlyReviewStatRepository.insertAggregates();
+            log.info("shop_monthly_review_stats backfilled with {} rows", rows);
+        }
+    }
+
+    /**
+     * Recompute the whole table from the reviews table.
+     */
+    @Scheduled(cron = "${review.shop-stats.reconcile-cron:0 15 4 * * *}")
+    @Transactional
+    public void reconcile() {
+        shopMonthlyReviewStatRepository.deleteAllRows();
+        int rows = shopMonthlyReviewStatRepository.insertAggregates();
+        log.info("shop_monthly_review_stats recomputed ({} rows)", rows);
+    }
+
+    private MonthlyReviewStats toMonthlyStats(ShopMonthlyReviewStat month) {
+        Double averageRating = month.getAverageRating();
+        return new MonthlyReviewStats(
+                month.getId().getStatMonth(),
+                month.getReviewCount(),
+                averageRating != null ? averageRating : 0.0,
+                month.getRatingCounts(),
+                month.getRepliedCount()
+        );
+    }
+
+    private static UUID shopIdOf(Review review) {
+        Shop shop = review.getProduct() != null ? review.getProduct().getShop() : null;
+        return shop != null ? shop.getId() : null;
+    }
+
+    // Same month key as the reconcile query: reviewed_at, falling back to created_at
+    private static String statMonthOf(Review review) {
+        LocalDateTime at = review.getReviewedAt() != null ? review.getReviewedAt() : review.getCreatedAt();
+        return YearMonth.from(at != null ? at : LocalDateTime.now()).toString();
+    }
+}
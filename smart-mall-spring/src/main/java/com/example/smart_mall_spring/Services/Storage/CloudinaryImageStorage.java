@@ -0,0 +1,63 @@
+package com.example.smart_mall_spring.Services.Storage;
+
+import com.example.smart_mall_spring.Services.CloudinaryService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+/**
+ * Default {@link ImageStorage}: Cloudinary, with the content hash as public_id.
+ * <p>
+ * The multipart part is moved to a temp file (a rename when the container already spooled it to disk)
+ * and uploaded from there, so the image is never held in a heap buffer.
+ */
+@Service
+@ConditionalOnProperty(name = "storage.type", havingValue = "cloudinary", matchIfMissing = true)
+public class CloudinaryImageStorage implements ImageStorage {
+
+    private final CloudinaryService cloudinaryService;
+    private final String deliveryUrl;
+
+    public CloudinaryImageStorage(CloudinaryService cloudinaryService,
+                                  @Value("${storage.cloudinary.delivery-url:https://res.cloudinary.com}") String deliveryUrl) {
+        this.cloudinaryService = cloudinaryService;
+        this.deliveryUrl = deliveryUrl;
+    }
+
+    @Override
+    public StoredImage store(MultipartFile file, String folder, String contentHash) {
+        Path staged = null;
+        try {
+            staged = Files.createTempFile("upload-", "-" + contentHash);
+            Files.delete(staged);
+            file.transferTo(staged.toFile());
+            Map<String, String> result = cloudinaryService.uploadFileToFolder(staged.toFile(), folder, contentHash);
+            return new StoredImage(result.get("url"), result.get("publicId"));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to stage upload " + file.getOriginalFilename(), e);
+        } finally {
+            if (staged != null) {
+                try {
+                    Files.deleteIfExists(staged);
+                } catch (IOException ignored) {
+                    // Temp directory is cleaned by the OS eventually
+                }
+            }
+        }
+    }
+
+    // Stored URLs are relative to the delivery host ("/<cloud_name>/image/upload/...")
+    @Override
+    public InputStream open(String url) throws IOException {
+        return URI.create(deliveryUrl + url).toURL().openStream();
+    }
+}
@@ -0,0 +1,352 @@
+package com.example.smart_mall_spring.Services.Storage;
+
+import com.example.smart_mall_spring.Dtos.Common.ImageRenditionsDto;
+import com.example.smart_mall_spring.Enum.ImageRendition;
+import com.example.smart_mall_spring.Utils.DiskLruCache;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Thumbnail, card and detail renditions of uploaded images.
+ * <p>
+ * {@link ImageUploadPipeline} schedules every stored image here; renditions are generated on a small
+ * background pool and written as {@code <root>/<hash>/<rendition>.jpg}, named after the original's content
+ * hash so they can be cached forever. The directory is an LRU cache bounded by
+ * {@code storage.derivatives.max-size}: an evicted (or dropped) rendition is regenerated from the original
+ * on its next request. Only content-addressed originals (uploaded through the pipeline) have renditions.
+ * Originals that cannot be decoded (WebP, HEIC, CMYK JPEG, corrupt, over the pixel limit, ...) get an
+ * {@code unsupported} marker next to {@code source} and are served as-is instead.
+ */
+@Service
+@Slf4j
+public class ImageDerivativeService {
+
+    private static final Pattern CONTENT_HASH = Pattern.compile("[0-9a-f]{64}");
+    private static final String SOURCE_FILE = "source";
+    private static final String UNSUPPORTED_FILE = "unsupported";
+    private static final long MAX_SOURCE_PIXELS = 50_000_000L;
+    private static final float JPEG_QUALITY = 0.85f;
+
+    private final ImageStorage imageStorage;
+    private final Path root;
+    private final String urlPrefix;
+    private final int threads;
+    private final DiskLruCache cache;
+    private final Map<String, CompletableFuture<Void>> inFlight = new ConcurrentHashMap<>();
+    private final Set<String> unsupported = ConcurrentHashMap.newKeySet();
+    private ThreadPoolExecutor executor;
+
+    public ImageDerivativeService(ImageStorage imageStorage,
+                                  @Value("${storage.derivatives.root:public/uploads/derivatives}") String root,
+                                  @Value("${storage.derivatives.url-prefix:/uploads/derivatives}") String urlPrefix,
+                                  @Value("${storage.derivatives.max-size:512MB}") DataSize maxSize,
+                                  @Value("${storage.derivatives.threads:2}") int threads) {
+        this.imageStorage = imageStorage;
+        this.root = Path.of(root).toAbsolutePath().normalize();
+        this.urlPrefix = urlPrefix;
+        this.threads = threads;
+        this.cache = new DiskLruCache(this.root, maxSize.toBytes());
+    }
+
+    @PostConstruct
+    public void start() {
+        cache.load((path, attrs) -> path.getFileName().toString().endsWith(".jpg"));
+        loadUnsupported();
+        log.info("Image derivative cache: {} files, {} bytes, {} unsupported originals",
+                cache.size(), cache.totalBytes(), unsupported.size());
+
+        AtomicInteger threadIndex = new AtomicInteger();
+        // Resizing is CPU-bound: a few platform threads; when the queue is full the task is dropped
+        // and the renditions are generated on first request instead
+        executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(500),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "image-derivative-" + threadIndex.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                (runnable, pool) -> log.warn("Image derivative queue full, deferring to first request"));
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Remember where the original lives and generate its renditions in the background.
+     */
+    public void schedule(String contentHash, String originalUrl) {
+        try {
+            Path source = root.resolve(contentHash).resolve(SOURCE_FILE);
+            if (!Files.exists(source)) {
+                Files.createDirectories(source.getParent());
+                Files.writeString(source, originalUrl, StandardCharsets.UTF_8);
+            }
+        } catch (IOException e) {
+            log.warn("Failed to record image source {}: {}", contentHash, e.getMessage());
+            return;
+        }
+        executor.execute(() -> {
+            try {
+                generate(contentHash);
+            } catch (Exception e) {
+                log.warn("Failed to generate renditions of {}: {}", contentHash, e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Rendition URLs of an original image URL, or null when the image is not content-addressed.
+     * Every rendition of an original that cannot be decoded is the original URL itself.
+     */
+    public ImageRenditionsDto renditionsOf(String originalUrl) {
+        String hash = contentHashOf(originalUrl);
+        if (hash == null) return null;
+        if (unsupported.contains(hash)) {
+            return ImageRenditionsDto.builder()
+                    .thumbnail(originalUrl)
+                    .card(originalUrl)
+                    .detail(originalUrl)
+                    .build();
+        }
+
+        return ImageRenditionsDto.builder()
+                .thumbnail(url(hash, ImageRendition.THUMBNAIL))
+                .card(url(hash, ImageRendition.CARD))
+                .detail(url(hash, ImageRendition.DETAIL))
+                .build();
+    }
+
+    public String renditionUrl(String originalUrl, ImageRendition rendition) {
+        String hash = contentHashOf(originalUrl);
+        if (hash == null) return null;
+        return unsupported.contains(hash) ? originalUrl : url(hash, rendition);
+    }
+
+    /**
+     * File of a rendition, generating it first if it was evicted or never generated.
+     */
+    public Optional<Path> resolve(String contentHash, ImageRendition rendition) {
+        if (!CONTENT_HASH.matcher(contentHash).matches() || unsupported.contains(contentHash)) return Optional.empty();
+
+        Path file = renditionPath(contentHash, rendition);
+        if (!Files.exists(file)) {
+            if (!Files.exists(root.resolve(contentHash).resolve(SOURCE_FILE))) return Optional.empty();
+            try {
+                generate(contentHash);
+            } catch (Exception e) {
+                log.warn("Failed to generate renditions of {}: {}", contentHash, e.getMessage());
+                return Optional.empty();
+            }
+            if (!Files.exists(file)) return Optional.empty();
+        }
+        cache.touch(file);
+        return Optional.of(file);
+    }
+
+    /**
+     * Decode the original once and write every missing rendition. Concurrent calls for one image share a run.
+     */
+    private void generate(String contentHash) throws Exception {
+        CompletableFuture<Void> run = new CompletableFuture<>();
+        CompletableFuture<Void> existing = inFlight.putIfAbsent(contentHash, run);
+        if (existing != null) {
+            existing.get();
+            return;
+        }
+        try {
+            writeRenditions(contentHash);
+            run.complete(null);
+        } catch (Exception e) {
+            run.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(contentHash);
+        }
+    }
+
+    private void writeRenditions(String contentHash) throws IOException {
+        boolean missing = false;
+        for (ImageRendition rendition : ImageRendition.values()) {
+            missing |= !Files.exists(renditionPath(contentHash, rendition));
+        }
+        if (!missing) return;
+
+        String originalUrl = Files.readString(root.resolve(contentHash).resolve(SOURCE_FILE), StandardCharsets.UTF_8);
+        // Download first: a storage error is transient and retried on the next request,
+        // whereas any error while decoding the bytes would happen again every time
+        byte[] original;
+        try (InputStream in = imageStorage.open(originalUrl)) {
+            original = in.readAllBytes();
+        }
+        BufferedImage source;
+        try {
+            source = decode(new ByteArrayInputStream(original));
+        } catch (IOException | RuntimeException e) {
+            // Corrupt file, CMYK JPEG, over MAX_SOURCE_PIXELS...
+            markUnsupported(contentHash, e.getMessage());
+            return;
+        }
+        if (source == null) {
+            markUnsupported(contentHash, "no ImageIO reader");
+            return;
+        }
+
+        // Largest first: each rendition is scaled down from the previous one
+        BufferedImage current = source;
+        ImageRendition[] renditions = ImageRendition.values();
+        for (int i = renditions.length - 1; i >= 0; i--) {
+            current = downscale(current, renditions[i].getMaxEdge());
+            Path file = renditionPath(contentHash, renditions[i]);
+            if (!Files.exists(file)) {
+                writeJpeg(current, file);
+                cache.record(file, Files.size(file));
+            }
+        }
+    }
+
+    // Remember it so neither listings nor requests for its renditions download the original again
+    private void markUnsupported(String contentHash, String reason) throws IOException {
+        Files.writeString(root.resolve(contentHash).resolve(UNSUPPORTED_FILE), "", StandardCharsets.UTF_8);
+        unsupported.add(contentHash);
+        log.debug("Cannot decode {}, no renditions: {}", contentHash, reason);
+    }
+
+    private void loadUnsupported() {
+        if (!Files.isDirectory(root)) return;
+        try (Stream<Path> dirs = Files.list(root)) {
+            dirs.filter(dir -> Files.exists(dir.resolve(UNSUPPORTED_FILE)))
+                    .forEach(dir -> unsupported.add(dir.getFileName().toString()));
+        } catch (IOException e) {
+            log.warn("Failed to load unsupported image markers: {}", e.getMessage());
+        }
+    }
+
+    private static BufferedImage decode(InputStream in) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(in)) {
+            if (input == null) return null;
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) return null;
+
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                // Check the header before allocating the raster
+                if ((long) reader.getWidth(0) * reader.getHeight(0) > MAX_SOURCE_PIXELS) {
+                    throw new IOException("Image too large: " + reader.getWidth(0) + "x" + reader.getHeight(0));
+                }
+                return reader.read(0);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Halve repeatedly, then one bilinear step to the target: close to bicubic quality at a fraction of the cost.
+     */
+    private static BufferedImage downscale(BufferedImage image, int maxEdge) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        double scale = Math.min(1.0, (double) maxEdge / Math.max(width, height));
+        int targetWidth = Math.max(1, (int) Math.round(width * scale));
+        int targetHeight = Math.max(1, (int) Math.round(height * scale));
+
+        BufferedImage current = image;
+        do {
+            width = width / 2 >= targetWidth ? width / 2 : targetWidth;
+            height = height / 2 >= targetHeight ? height / 2 : targetHeight;
+            current = resize(current, width, height);
+        } while (width != targetWidth || height != targetHeight);
+        return current;
+    }
+
+    private static BufferedImage resize(BufferedImage image, int width, int height) {
+        // JPEG has no alpha: flatten onto white
+        BufferedImage resized = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = resized.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.setColor(Color.WHITE);
+            graphics.fillRect(0, 0, width, height);
+            graphics.drawImage(image, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+        return resized;
+    }
+
+    private static void writeJpeg(BufferedImage image, Path file) throws IOException {
+        Path staged = Files.createTempFile(file.getParent(), ".rendition-", ".tmp");
+        try {
+            ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+            try (ImageOutputStream output = ImageIO.createImageOutputStream(staged.toFile())) {
+                ImageWriteParam param = writer.getDefaultWriteParam();
+                param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                param.setCompressionQuality(JPEG_QUALITY);
+                param.setProgressiveMode(ImageWriteParam.MODE_DEFAULT);
+                writer.setOutput(output);
+                writer.write(null, new IIOImage(image, null, null), param);
+            } finally {
+                writer.dispose();
+            }
+            Files.move(staged, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(staged);
+        }
+    }
+
+    private Path renditionPath(String contentHash, ImageRendition rendition) {
+        return root.resolve(contentHash).resolve(rendition.getSuffix() + ".jpg");
+    }
+
+    private String url(String contentHash, ImageRendition rendition) {
+        return urlPrefix + "/" + contentHash + "/" + rendition.getSuffix() + ".jpg";
+    }
+
+    // Content-addressed uploads are named "<sha256>.<ext>", locally and on Cloudinary (public_id = hash)
+    private static String contentHashOf(String url) {
+        if (url == null) return null;
+        String name = url.substring(url.lastIndexOf('/') + 1);
+        int dot = name.indexOf('.');
+        String hash = dot >= 0 ? name.substring(0, dot) : name;
+        return CONTENT_HASH.matcher(hash).matches() ? hash : null;
+    }
+}
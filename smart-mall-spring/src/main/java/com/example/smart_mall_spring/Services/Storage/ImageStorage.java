@@ -0,0 +1,23 @@
+package com.example.smart_mall_spring.Services.Storage;
+
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Backend that persists uploaded images.
+ * <p>
+ * Images are named after their content hash, so storing the same content twice returns the same image
+ * instead of a second copy. Implementations stream the part (it may only be consumed once after hashing)
+ * and must be safe to call from several threads at once. Selected with {@code storage.type}.
+ */
+public interface ImageStorage {
+
+    StoredImage store(MultipartFile file, String folder, String contentHash);
+
+    /**
+     * Reads back an image by the URL returned from {@link #store}.
+     */
+    InputStream open(String url) throws IOException;
+}
@@ -0,0 +1,158 @@
+package com.example.smart_mall_spring.Services.Storage;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Uploads a batch of multipart images to the {@link ImageStorage} concurrently.
+ * <p>
+ * Each file is hashed (SHA-256, streamed) on the request thread; identical files in a batch are uploaded
+ * once. Distinct files are uploaded on virtual threads, with at most {@code storage.upload.max-concurrency}
+ * uploads in flight across all requests. A batch returns when every upload finished, or fails as soon as
+ * one upload fails, cancelling the others. Renditions of each stored image are scheduled with
+ * {@link ImageDerivativeService}.
+ */
+@Service
+@Slf4j
+public class ImageUploadPipeline {
+
+    private final ImageStorage imageStorage;
+    private final ImageDerivativeService imageDerivativeService;
+    private final Semaphore permits;
+    private ExecutorService executor;
+
+    public ImageUploadPipeline(ImageStorage imageStorage,
+                               ImageDerivativeService imageDerivativeService,
+                               @Value("${storage.upload.max-concurrency:8}") int maxConcurrency) {
+        this.imageStorage = imageStorage;
+        this.imageDerivativeService = imageDerivativeService;
+        this.permits = new Semaphore(maxConcurrency, true);
+    }
+
+    @PostConstruct
+    public void start() {
+        executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("image-upload-", 0).factory());
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Uploads the files into {@code folder} and returns their URLs in input order.
+     */
+    public List<String> uploadAll(List<MultipartFile> files, String folder) {
+        List<String> hashes = new ArrayList<>(files.size());
+        Map<String, MultipartFile> distinct = new LinkedHashMap<>();
+        for (MultipartFile file : files) {
+            String hash = contentHash(file);
+            hashes.add(hash);
+            distinct.putIfAbsent(hash, file);
+        }
+
+        Map<String, String> urls = new HashMap<>();
+        if (distinct.size() == 1) {
+            // Nothing to overlap: upload on the request thread
+            Map.Entry<String, MultipartFile> only = distinct.entrySet().iterator().next();
+            urls.put(only.getKey(), uploadUnchecked(only.getKey(), only.getValue(), folder).image().url());
+        } else if (!distinct.isEmpty()) {
+            urls.putAll(uploadConcurrently(distinct, folder));
+        }
+
+        if (distinct.size() < files.size()) {
+            log.debug("Skipped {} duplicate image(s) in upload to {}", files.size() - distinct.size(), folder);
+        }
+        return hashes.stream().map(urls::get).toList();
+    }
+
+    private Map<String, String> uploadConcurrently(Map<String, MultipartFile> distinct, String folder) {
+        CompletionService<Upload> completion = new ExecutorCompletionService<>(executor);
+        List<Future<Upload>> futures = new ArrayList<>(distinct.size());
+        distinct.forEach((hash, file) -> futures.add(completion.submit(() -> upload(hash, file, folder))));
+
+        Map<String, String> urls = new HashMap<>();
+        try {
+            for (int i = 0; i < futures.size(); i++) {
+                Upload done = completion.take().get();
+                urls.put(done.hash(), done.image().url());
+            }
+            return urls;
+        } catch (ExecutionException e) {
+            futures.forEach(future -> future.cancel(true));
+            Throwable cause = e.getCause();
+            throw new RuntimeException("Failed to upload image: " + cause.getMessage(), cause);
+        } catch (InterruptedException e) {
+            futures.forEach(future -> future.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Image upload interrupted", e);
+        }
+    }
+
+    private Upload upload(String hash, MultipartFile file, String folder) throws InterruptedException {
+        StoredImage image;
+        permits.acquire();
+        try {
+            image = imageStorage.store(file, folder, hash);
+        } finally {
+            permits.release();
+        }
+        imageDerivativeService.schedule(hash, image.url());
+        return new Upload(hash, image);
+    }
+
+    private Upload uploadUnchecked(String hash, MultipartFile file, String folder) {
+        try {
+            return upload(hash, file, folder);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Image upload interrupted", e);
+        }
+    }
+
+    /**
+     * Hex SHA-256 of the file content, read as a stream.
+     */
+    public static String contentHash(MultipartFile file) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        try (InputStream in = new DigestInputStream(file.getInputStream(), digest)) {
+            in.transferTo(OutputStream.nullOutputStream());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read upload " + file.getOriginalFilename(), e);
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private record Upload(String hash, StoredImage image) {
+    }
+}
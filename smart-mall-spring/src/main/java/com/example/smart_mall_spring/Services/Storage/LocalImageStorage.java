@@ -0,0 +1,77 @@
+package com.example.smart_mall_spring.Services.Storage;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * {@link ImageStorage} writing to the local static upload directory, for development and tests.
+ * <p>
+ * Files land in {@code <root>/<folder>/<hash>.<ext>} and are served by the {@code /uploads/**} static
+ * resource mapping. Content is streamed to a temp file and moved into place atomically, so concurrent
+ * uploads of the same image never expose a partial file.
+ */
+@Service
+@ConditionalOnProperty(name = "storage.type", havingValue = "local")
+public class LocalImageStorage implements ImageStorage {
+
+    private final Path root;
+    private final String urlPrefix;
+
+    public LocalImageStorage(@Value("${storage.local.root:public/uploads}") String root,
+                             @Value("${storage.local.url-prefix:/uploads}") String urlPrefix) {
+        this.root = Path.of(root).toAbsolutePath().normalize();
+        this.urlPrefix = urlPrefix;
+    }
+
+    @Override
+    public StoredImage store(MultipartFile file, String folder, String contentHash) {
+        String extension = StringUtils.getFilenameExtension(file.getOriginalFilename());
+        String name = extension != null ? contentHash + "." + extension.toLowerCase() : contentHash;
+        String key = folder + "/" + name;
+        Path target = root.resolve(key).normalize();
+        if (!target.startsWith(root)) {
+            throw new IllegalArgumentException("Invalid upload folder: " + folder);
+        }
+
+        try {
+            if (!Files.exists(target)) {
+                Files.createDirectories(target.getParent());
+                Path staged = Files.createTempFile(target.getParent(), ".upload-", ".tmp");
+                try (InputStream in = file.getInputStream()) {
+                    Files.copy(in, staged, StandardCopyOption.REPLACE_EXISTING);
+                    Files.move(staged, target, StandardCopyOption.ATOMIC_MOVE);
+                } catch (FileAlreadyExistsException e) {
+                    // Same content stored concurrently by another request
+                } finally {
+                    Files.deleteIfExists(staged);
+                }
+            }
+            return new StoredImage(urlPrefix + "/" + key, key);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to store upload " + file.getOriginalFilename(), e);
+        }
+    }
+
+    @Override
+    public InputStream open(String url) throws IOException {
+        if (!url.startsWith(urlPrefix + "/")) {
+            throw new IOException("Not a local upload: " + url);
+        }
+        Path file = root.resolve(url.substring(urlPrefix.length() + 1)).normalize();
+        if (!file.startsWith(root)) {
+            throw new IOException("Not a local upload: " + url);
+        }
+        return Files.newInputStream(file);
+    }
+}
@@ -0,0 +1,7 @@
+package com.example.smart_mall_spring.Services.Storage;
+
+/**
+ * Result of {@link ImageStorage#store}: the URL saved on entities and the backend-specific ID.
+ */
+public record StoredImage(String url, String publicId) {
+}
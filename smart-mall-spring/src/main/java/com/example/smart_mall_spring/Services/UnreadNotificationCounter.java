@@ -0,0 +1,271 @@
+package com.example.smart_mall_spring.Services;
+
+import com.example.smart_mall_spring.Dtos.Notification.UnreadCountDto;
+import com.example.smart_mall_spring.Repositories.NotificationRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-user unread notification counts, kept in memory.
+ * <p>
+ * A count is loaded from the database on its first read and then maintained write-through: creating,
+ * reading and deleting notifications apply a delta once their transaction commits, and the delta is pushed
+ * to {@code /user/{id}/queue/notification-count} so badges update without polling.
+ * <p>
+ * A write is tracked from just before its commit until its delta is applied. A cold load (or a
+ * {@link #reconcile()} recount) that overlaps a write of the same user cannot tell whether its COUNT saw
+ * that write's rows, so its result is used once but not cached: the delta is neither counted twice nor lost.
+ * Deltas of another instance are corrected by {@link #reconcile()}, which also drops counts that have not
+ * been read for {@code notification.unread-counter.idle-ttl}.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class UnreadNotificationCounter {
+
+    private static final int RECONCILE_CHUNK = 500;
+
+    private final NotificationRepository notificationRepository;
+    private final SimpMessagingTemplate messagingTemplate;
+
+    @Value("${notification.unread-counter.idle-ttl:30m}")
+    private Duration idleTtl;
+
+    private final ConcurrentHashMap<UUID, Counter> counters = new ConcurrentHashMap<>();
+    // Writes between their beforeCommit and the application of their delta, per user
+    private final ConcurrentHashMap<UUID, Integer> writesInFlight = new ConcurrentHashMap<>();
+    // Cold loads whose COUNT is running
+    private final ConcurrentHashMap<UUID, Load> loads = new ConcurrentHashMap<>();
+
+    /**
+     * Cached unread count, loaded on first read. The COUNT runs outside the map (computeIfAbsent would hold
+     * the bin lock during the query and stall every user hashed to that bin). Only one load per user can be
+     * cached, and only if no write of that user overlapped it.
+     */
+    public long get(UUID userId) {
+        Counter counter = counters.get(userId);
+        if (counter != null) {
+            counter.lastReadAt = System.currentTimeMillis();
+            return counter.unread.get();
+        }
+
+        Load load = new Load();
+        boolean owner = loads.putIfAbsent(userId, load) == null;
+        // Registered before this check: a write that starts later invalidates the load itself
+        if (owner && writesInFlight.containsKey(userId)) {
+            load.invalidate();
+        }
+        long count;
+        try {
+            count = notificationRepository.countUnreadByUserId(userId);
+        } catch (RuntimeException e) {
+            if (owner) loads.remove(userId, load);
+            throw e;
+        }
+        if (!owner) return count;
+
+        synchronized (load) {
+            try {
+                if (load.invalid) return count;
+                counter = counters.putIfAbsent(userId, new Counter(count));
+                return counter != null ? counter.unread.get() : count;
+            } finally {
+                loads.remove(userId, load);
+            }
+        }
+    }
+
+    /**
+     * Apply {@code delta} and push it to the user after the current transaction commits
+     * (immediately when there is none).
+     */
+    public void recordDelta(UUID userId, long delta) {
+        if (delta == 0) return;
+        track(List.of(userId), delta, true);
+    }
+
+    /**
+     * Apply {@code delta} to each user after the current transaction commits, without pushing:
+     * the caller pushes the counts itself (see {@link #peek}). Must be called inside the writing transaction.
+     */
+    public void recordDeltaWithoutPush(Collection<UUID> userIds, long delta) {
+        if (delta == 0 || userIds.isEmpty()) return;
+        track(List.copyOf(userIds), delta, false);
+    }
+
+    /**
+     * Cached count, or null when the user has none cached. Never loads.
+     */
+    public Long peek(UUID userId) {
+        Counter counter = counters.get(userId);
+        return counter != null ? counter.unread.get() : null;
+    }
+
+    public void push(UUID userId, long delta, Long unreadCount) {
+        try {
+            messagingTemplate.convertAndSend("/user/" + userId + "/queue/notification-count",
+                    UnreadCountDto.builder().delta(delta).unreadCount(unreadCount).build());
+        } catch (Exception e) {
+            log.error("Error sending unread count to user {}: {}", userId, e.getMessage());
+        }
+    }
+
+    /**
+     * Forget every cached count, e.g. after a bulk delete that spans users.
+     */
+    public void invalidateAll() {
+        afterCommit(() -> {
+            loads.values().forEach(Load::invalidate);
+            counters.clear();
+        });
+    }
+
+    /**
+     * Recount the cached users with one grouped query per chunk. A count that changed, or whose user had a
+     * write in flight, while its chunk was being queried is left alone and checked again next time.
+     */
+    @Scheduled(fixedDelayString = "${notification.unread-counter.reconcile-interval-ms:300000}")
+    public void reconcile() {
+        long idleBefore = System.currentTimeMillis() - idleTtl.toMillis();
+        counters.entrySet().removeIf(entry -> entry.getValue().lastReadAt < idleBefore);
+
+        List<UUID> userIds = new ArrayList<>(counters.keySet());
+        int corrected = 0;
+        for (int from = 0; from < userIds.size(); from += RECONCILE_CHUNK) {
+            List<UUID> chunk = userIds.subList(from, Math.min(from + RECONCILE_CHUNK, userIds.size()));
+            Map<UUID, long[]> cachedBefore = new HashMap<>();
+            for (UUID userId : chunk) {
+                Counter counter = counters.get(userId);
+                if (counter != null && !writesInFlight.containsKey(userId)) {
+                    cachedBefore.put(userId, new long[]{counter.unread.get(), counter.writes.get()});
+                }
+            }
+            if (cachedBefore.isEmpty()) continue;
+            Map<UUID, Long> actual = new HashMap<>();
+            for (Object[] row : notificationRepository.countUnreadGroupByUserId(cachedBefore.keySet())) {
+                actual.put((UUID) row[0], (Long) row[1]);
+            }
+            for (Map.Entry<UUID, long[]> entry : cachedBefore.entrySet()) {
+                long count = actual.getOrDefault(entry.getKey(), 0L);
+                long[] before = entry.getValue();
+                Counter counter = counters.get(entry.getKey());
+                if (count == before[0] || counter == null
+                        || writesInFlight.containsKey(entry.getKey()) || counter.writes.get() != before[1]) {
+                    continue;
+                }
+                if (counter.unread.compareAndSet(before[0], count)) {
+                    push(entry.getKey(), 0, count);
+                    corrected++;
+                }
+            }
+        }
+        if (corrected > 0) {
+            log.info("Reconciled unread counts: {} of {} users corrected", corrected, userIds.size());
+        }
+    }
+
+    /**
+     * Mark the users' writes in flight just before the commit and apply the delta right after it, so a load
+     * can tell whether it overlapped the commit.
+     */
+    private void track(List<UUID> userIds, long delta, boolean push) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            userIds.forEach(this::beginWrite);
+            for (UUID userId : userIds) {
+                Long unread = endWrite(userId, delta);
+                if (push) push(userId, delta, unread);
+            }
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            private boolean begun;
+
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                userIds.forEach(UnreadNotificationCounter.this::beginWrite);
+                begun = true;
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                if (!begun) return;
+                for (UUID userId : userIds) {
+                    if (status == STATUS_COMMITTED) {
+                        Long unread = endWrite(userId, delta);
+                        if (push) push(userId, delta, unread);
+                    } else {
+                        // Rolled back, or unknown: then the cached count may be wrong either way
+                        if (status == STATUS_UNKNOWN) counters.remove(userId);
+                        endWrite(userId, 0);
+                    }
+                }
+            }
+        });
+    }
+
+    private void beginWrite(UUID userId) {
+        writesInFlight.merge(userId, 1, Integer::sum);
+        Counter counter = counters.get(userId);
+        if (counter != null) counter.writes.incrementAndGet();
+        Load load = loads.get(userId);
+        if (load != null) load.invalidate();
+    }
+
+    // The delta is applied before the write stops being in flight
+    private Long endWrite(UUID userId, long delta) {
+        Long unread = null;
+        Counter counter = counters.get(userId);
+        if (counter != null && delta != 0) {
+            unread = counter.unread.updateAndGet(value -> Math.max(0, value + delta));
+        }
+        writesInFlight.computeIfPresent(userId, (id, writes) -> writes == 1 ? null : writes - 1);
+        return unread;
+    }
+
+    private static void afterCommit(Runnable apply) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    apply.run();
+                }
+            });
+        } else {
+            apply.run();
+        }
+    }
+
+    private static final class Counter {
+        private final AtomicLong unread;
+        private final AtomicLong writes = new AtomicLong();
+        private volatile long lastReadAt = System.currentTimeMillis();
+
+        private Counter(long unread) {
+            this.unread = new AtomicLong(unread);
+        }
+    }
+
+    private static final class Load {
+        private boolean invalid;
+
+        private synchronized void invalidate() {
+            invalid = true;
+        }
+    }
+}
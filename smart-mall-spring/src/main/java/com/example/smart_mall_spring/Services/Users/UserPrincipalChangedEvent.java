@@ -0,0 +1,8 @@
+package com.example.smart_mall_spring.Services.Users;
+
+/**
+ * Published after a change to a user that is visible through the authenticated principal
+ * (password, roles, active flag or profile).
+ */
+public record UserPrincipalChangedEvent(String username) {
+}
@@ -6,9 +6,11 @@ import com.example.smart_mall_spring.Dtos.Users.UserListDto;
 import com.example.smart_mall_spring.Entities.Users.User;
 import com.example.smart_mall_spring.Entities.Users.UserProfile;
 import com.example.smart_mall_spring.Repositories.UserRepository;
+import com.example.smart_mall_spring.Services.Auth.TokenRevocationService;
 import com.example.smart_mall_spring.Services.CloudinaryService;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.security.crypto.password.PasswordEncoder;
@@ -35,6 +37,12 @@ public class UserService {
     @Autowired
     private PasswordEncoder passwordEncoder;
 
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private TokenRevocationService tokenRevocationService;
+
     // Update user profile
     public UserInfoDto updateUserProfile(UUID userId, UpdateUserProfileDto updateProfileDto) {
         User user = userRepository.findById(userId)
@@ -62,6 +70,7 @@ public class UserService {
         }
 
         user = userRepository.save(user);
+        eventPublisher.publishEvent(new UserPrincipalChangedEvent(user.getUsername()));
         return convertUserToInfoDto(user);
     }
 
@@ -102,6 +111,7 @@ public class UserService {
             }
 
             user = userRepository.save(user);
+            eventPublisher.publishEvent(new UserPrincipalChangedEvent(user.getUsername()));
             return convertUserToInfoDto(user);
 
         } catch (Exception e) {
@@ -144,6 +154,7 @@ public class UserService {
             }
 
             user = userRepository.save(user);
+            eventPublisher.publishEvent(new UserPrincipalChangedEvent(user.getUsername()));
             return convertUserToInfoDto(user);
 
         } catch (Exception e) {
@@ -192,6 +203,8 @@ public class UserService {
         // Update password
         user.setPassword(passwordEncoder.encode(newPassword));
         userRepository.save(user);
+        // Tokens issued with the old password stop working (also evicts the cached principal)
+        tokenRevocationService.revokeAll(user);
     }
     public List<UserListDto> getUsersByDomain(String domain) {
         return userRepository.findByEmailDomain(domain)
@@ -0,0 +1,283 @@
+package com.example.smart_mall_spring.Utils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Append-only, line-oriented log with a single writer thread.
+ * <p>
+ * Producers only enqueue records on a lock-free queue. The writer thread formats everything queued
+ * so far, writes it with one {@link FileChannel#write} and one {@link FileChannel#force} (group commit),
+ * and rolls over to a new segment {@code <prefix>-<yyyy-MM-dd>-<n><extension>} when the day changes
+ * or the segment reaches {@code maxSegmentBytes}. Each segment starts with {@code header}.
+ */
+public class AppendOnlyLogWriter<T> implements AutoCloseable {
+
+    private static final int MAX_GROUP_SIZE = 1000;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(200);
+
+    private final Path directory;
+    private final String prefix;
+    private final String extension;
+    private final String header;
+    private final long maxSegmentBytes;
+    private final int capacity;
+    private final Function<T, String> formatter;
+    private final Pattern segmentPattern;
+
+    private final Queue<T> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final Map<Path, Integer> closedSegmentLines = new ConcurrentHashMap<>();
+    private final Thread writer;
+    private volatile boolean running = true;
+
+    private FileChannel channel;
+    private volatile Path currentSegment;
+    private LocalDate currentDay;
+    private int currentIndex;
+    private long currentSize;
+
+    public AppendOnlyLogWriter(Path directory, String prefix, String extension, String header,
+                               long maxSegmentBytes, int capacity, Function<T, String> formatter,
+                               String threadName) throws IOException {
+        this.directory = directory;
+        this.prefix = prefix;
+        this.extension = extension;
+        this.header = header;
+        this.maxSegmentBytes = maxSegmentBytes;
+        this.capacity = capacity;
+        this.formatter = formatter;
+        this.segmentPattern = Pattern.compile(Pattern.quote(prefix) + "-(\\d{4}-\\d{2}-\\d{2})-(\\d+)" + Pattern.quote(extension));
+        Files.createDirectories(directory);
+        this.writer = new Thread(this::writeLoop, threadName);
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Queue a record for the writer thread. Never blocks.
+     *
+     * @return false if the writer is closed or too far behind and the record was dropped
+     */
+    public boolean append(T record) {
+        if (!running || queued.incrementAndGet() > capacity) {
+            queued.decrementAndGet();
+            return false;
+        }
+        queue.offer(record);
+        LockSupport.unpark(writer);
+        return true;
+    }
+
+    /**
+     * Read lines newest first, skipping segment headers.
+     * Closed segments are immutable, so their line counts are cached and whole segments are skipped.
+     */
+    public List<String> readNewestFirst(long offset, int limit) throws IOException {
+        List<String> result = new ArrayList<>(limit);
+        long toSkip = offset;
+        for (Path segment : listSegmentsNewestFirst()) {
+            if (result.size() >= limit) break;
+
+            Integer cached = closedSegmentLines.get(segment);
+            if (cached != null && toSkip >= cached) {
+                toSkip -= cached;
+                continue;
+            }
+
+            List<String> lines = readRecords(segment);
+            if (!segment.equals(currentSegment)) {
+                closedSegmentLines.put(segment, lines.size());
+            }
+            for (int i = lines.size() - 1; i >= 0 && result.size() < limit; i--) {
+                if (toSkip > 0) {
+                    toSkip--;
+                    continue;
+                }
+                result.add(lines.get(i));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Total number of records written across all segments.
+     */
+    public long countRecords() throws IOException {
+        long total = 0;
+        for (Path segment : listSegmentsNewestFirst()) {
+            Integer cached = closedSegmentLines.get(segment);
+            if (cached == null) {
+                cached = readRecords(segment).size();
+                if (!segment.equals(currentSegment)) {
+                    closedSegmentLines.put(segment, cached);
+                }
+            }
+            total += cached;
+        }
+        return total;
+    }
+
+    /**
+     * Flush everything queued so far and stop the writer thread.
+     */
+    @Override
+    public void close() {
+        running = false;
+        LockSupport.unpark(writer);
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void writeLoop() {
+        while (running || !queue.isEmpty()) {
+            T first = queue.poll();
+            if (first == null) {
+                LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                continue;
+            }
+
+            // Everything queued so far shares one write + force
+            StringBuilder group = new StringBuilder();
+            int count = 0;
+            for (T record = first; record != null; record = count < MAX_GROUP_SIZE ? queue.poll() : null) {
+                count++;
+                try {
+                    group.append(formatter.apply(record)).append('\n');
+                } catch (RuntimeException e) {
+                    System.err.println("[AppendOnlyLogWriter] Failed to format record: " + e.getMessage());
+                }
+            }
+            queued.addAndGet(-count);
+
+            try {
+                commit(group.toString().getBytes(StandardCharsets.UTF_8));
+            } catch (IOException e) {
+                System.err.println("[AppendOnlyLogWriter] Failed to write " + count + " records: " + e.getMessage());
+                closeChannel();
+            }
+        }
+        closeChannel();
+    }
+
+    private void commit(byte[] bytes) throws IOException {
+        if (bytes.length == 0) return;
+
+        LocalDate today = LocalDate.now();
+        if (channel == null || !today.equals(currentDay) || currentSize + bytes.length > maxSegmentBytes) {
+            roll(today);
+        }
+
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        channel.force(false);
+        currentSize += bytes.length;
+    }
+
+    private void roll(LocalDate today) throws IOException {
+        closeChannel();
+
+        if (!today.equals(currentDay)) {
+            // Continue today's latest segment after a restart
+            currentDay = today;
+            currentIndex = latestIndex(today);
+            currentSegment = segmentPath(today, currentIndex);
+            if (Files.exists(currentSegment) && Files.size(currentSegment) >= maxSegmentBytes) {
+                currentSegment = segmentPath(today, ++currentIndex);
+            }
+        } else {
+            currentSegment = segmentPath(today, ++currentIndex);
+        }
+
+        channel = FileChannel.open(currentSegment,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        currentSize = channel.size();
+        if (currentSize == 0 && header != null) {
+            byte[] headerBytes = (header + "\n").getBytes(StandardCharsets.UTF_8);
+            channel.write(ByteBuffer.wrap(headerBytes));
+            currentSize = headerBytes.length;
+        }
+    }
+
+    private void closeChannel() {
+        if (channel == null) return;
+        try {
+            channel.force(false);
+            channel.close();
+        } catch (IOException e) {
+            System.err.println("[AppendOnlyLogWriter] Failed to close segment: " + e.getMessage());
+        }
+        channel = null;
+    }
+
+    private int latestIndex(LocalDate day) throws IOException {
+        int latest = 0;
+        for (Path segment : listSegmentsNewestFirst()) {
+            Matcher matcher = segmentPattern.matcher(segment.getFileName().toString());
+            if (matcher.matches() && LocalDate.parse(matcher.group(1)).equals(day)) {
+                latest = Math.max(latest, Integer.parseInt(matcher.group(2)));
+            }
+        }
+        return latest;
+    }
+
+    private Path segmentPath(LocalDate day, int index) {
+        return directory.resolve(prefix + "-" + day + "-" + index + extension);
+    }
+
+    private List<Path> listSegmentsNewestFirst() throws IOException {
+        List<Path> segments;
+        try (Stream<Path> files = Files.list(directory)) {
+            segments = new ArrayList<>(files
+                    .filter(path -> segmentPattern.matcher(path.getFileName().toString()).matches())
+                    .toList());
+        }
+        segments.sort(Comparator.comparing(this::segmentDay).thenComparingInt(this::segmentIndex));
+        Collections.reverse(segments);
+        return segments;
+    }
+
+    private List<String> readRecords(Path segment) throws IOException {
+        List<String> lines = new ArrayList<>(Files.readAllLines(segment, StandardCharsets.UTF_8));
+        if (!lines.isEmpty() && header != null && lines.get(0).equals(header)) {
+            lines.remove(0);
+        }
+        return lines;
+    }
+
+    private LocalDate segmentDay(Path segment) {
+        Matcher matcher = segmentPattern.matcher(segment.getFileName().toString());
+        return matcher.matches() ? LocalDate.parse(matcher.group(1)) : LocalDate.MIN;
+    }
+
+    private int segmentIndex(Path segment) {
+        Matcher matcher = segmentPattern.matcher(segment.getFileName().toString());
+        return matcher.matches() ? Integer.parseInt(matcher.group(2)) : 0;
+    }
+}
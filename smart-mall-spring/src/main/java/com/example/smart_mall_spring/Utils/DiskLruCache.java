@@ -0,0 +1,96 @@
+package com.example.smart_mall_spring.Utils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiPredicate;
+import java.util.stream.Stream;
+
+/**
+ * Byte-bounded LRU index over files in a directory.
+ * <p>
+ * Callers write files themselves and report them with {@link #record}; reads report with {@link #touch}.
+ * When the total size exceeds {@code maxBytes} the least recently used files are deleted. On startup the
+ * existing files are indexed in last-modified order, the closest available approximation of recency.
+ */
+public class DiskLruCache {
+
+    private final Path root;
+    private final long maxBytes;
+    private final LinkedHashMap<Path, Long> files = new LinkedHashMap<>(256, 0.75f, true);
+    private long totalBytes;
+
+    public DiskLruCache(Path root, long maxBytes) {
+        this.root = root;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Index the files below the root accepted by {@code filter}, oldest first.
+     */
+    public synchronized void load(BiPredicate<Path, BasicFileAttributes> filter) {
+        files.clear();
+        totalBytes = 0;
+        if (!Files.isDirectory(root)) return;
+
+        List<Map.Entry<Path, BasicFileAttributes>> found = new ArrayList<>();
+        try (Stream<Path> paths = Files.find(root, Integer.MAX_VALUE,
+                (path, attrs) -> attrs.isRegularFile() && filter.test(path, attrs))) {
+            paths.forEach(path -> {
+                try {
+                    found.add(Map.entry(path, Files.readAttributes(path, BasicFileAttributes.class)));
+                } catch (IOException ignored) {
+                    // Deleted while scanning
+                }
+            });
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        found.sort(Comparator.comparing(entry -> entry.getValue().lastModifiedTime()));
+        for (Map.Entry<Path, BasicFileAttributes> entry : found) {
+            files.put(entry.getKey(), entry.getValue().size());
+            totalBytes += entry.getValue().size();
+        }
+        evict();
+    }
+
+    public synchronized void record(Path file, long size) {
+        Long previous = files.put(file, size);
+        totalBytes += size - (previous != null ? previous : 0);
+        evict();
+    }
+
+    public synchronized void touch(Path file) {
+        files.get(file);
+    }
+
+    public synchronized long totalBytes() {
+        return totalBytes;
+    }
+
+    public synchronized int size() {
+        return files.size();
+    }
+
+    private void evict() {
+        Iterator<Map.Entry<Path, Long>> eldest = files.entrySet().iterator();
+        while (totalBytes > maxBytes && eldest.hasNext()) {
+            Map.Entry<Path, Long> entry = eldest.next();
+            eldest.remove();
+            totalBytes -= entry.getValue();
+            try {
+                Files.deleteIfExists(entry.getKey());
+            } catch (IOException ignored) {
+                // Retried implicitly: an orphan file is re-indexed on the next load
+            }
+        }
+    }
+}
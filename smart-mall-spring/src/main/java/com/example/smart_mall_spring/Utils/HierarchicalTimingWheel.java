@@ -0,0 +1,219 @@
+package com.example.smart_mall_spring.Utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * Hierarchical timing wheel for one-shot tasks at absolute times.
+ * <p>
+ * Scheduling and cancelling are O(1). Tasks beyond the range of a wheel go to a lazily created
+ * overflow wheel whose tick is the full span of the wheel below, and are cascaded down as the
+ * clock advances. Only non-empty buckets are tracked in a {@link DelayQueue}, so the driver
+ * thread sleeps until the next bucket is due instead of ticking through empty slots.
+ */
+public class HierarchicalTimingWheel implements AutoCloseable {
+
+    private final DelayQueue<Bucket> delayQueue = new DelayQueue<>();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Executor executor;
+    private final Wheel root;
+    private final Thread driver;
+    private volatile boolean running = true;
+
+    public HierarchicalTimingWheel(long tickMs, int wheelSize, Executor executor, String threadName) {
+        this.executor = executor;
+        this.root = new Wheel(tickMs, wheelSize, System.currentTimeMillis());
+        this.driver = new Thread(this::drive, threadName);
+        this.driver.setDaemon(true);
+        this.driver.start();
+    }
+
+    /**
+     * Run {@code task} on the executor at {@code expirationMs} (epoch millis).
+     * Times in the past run immediately.
+     */
+    public Timeout schedule(long expirationMs, Runnable task) {
+        Timeout timeout = new Timeout(expirationMs, task);
+        lock.readLock().lock();
+        try {
+            addOrRun(timeout);
+        } finally {
+            lock.readLock().unlock();
+        }
+        return timeout;
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        driver.interrupt();
+    }
+
+    private void addOrRun(Timeout timeout) {
+        if (!root.add(timeout) && !timeout.cancelled) {
+            executor.execute(timeout.task);
+        }
+    }
+
+    private void drive() {
+        while (running) {
+            try {
+                Bucket bucket = delayQueue.poll(200, TimeUnit.MILLISECONDS);
+                if (bucket == null) {
+                    continue;
+                }
+                lock.writeLock().lock();
+                try {
+                    while (bucket != null) {
+                        root.advanceClock(bucket.getExpiration());
+                        bucket.flush(this::addOrRun);
+                        bucket = delayQueue.poll();
+                    }
+                } finally {
+                    lock.writeLock().unlock();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Handle of a scheduled task.
+     */
+    public static final class Timeout {
+        private final long expirationMs;
+        private final Runnable task;
+        private volatile boolean cancelled;
+
+        private Timeout(long expirationMs, Runnable task) {
+            this.expirationMs = expirationMs;
+            this.task = task;
+        }
+
+        public void cancel() {
+            cancelled = true;
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        public long getExpirationMs() {
+            return expirationMs;
+        }
+    }
+
+    private final class Wheel {
+        private final long tickMs;
+        private final int wheelSize;
+        private final long interval;
+        private final Bucket[] buckets;
+        private long currentTime;
+        private volatile Wheel overflow;
+
+        private Wheel(long tickMs, int wheelSize, long startMs) {
+            this.tickMs = tickMs;
+            this.wheelSize = wheelSize;
+            this.interval = tickMs * wheelSize;
+            this.buckets = new Bucket[wheelSize];
+            for (int i = 0; i < wheelSize; i++) {
+                buckets[i] = new Bucket();
+            }
+            this.currentTime = startMs - (startMs % tickMs);
+        }
+
+        /**
+         * @return false if the timeout is already due and must be run by the caller
+         */
+        private boolean add(Timeout timeout) {
+            long expiration = timeout.expirationMs;
+            if (timeout.cancelled) {
+                return true;
+            }
+            if (expiration < currentTime + tickMs) {
+                return false;
+            }
+            if (expiration < currentTime + interval) {
+                long virtualId = expiration / tickMs;
+                Bucket bucket = buckets[(int) (virtualId % wheelSize)];
+                bucket.add(timeout);
+                if (bucket.setExpiration(virtualId * tickMs)) {
+                    delayQueue.offer(bucket);
+                }
+                return true;
+            }
+            return overflowWheel().add(timeout);
+        }
+
+        private Wheel overflowWheel() {
+            if (overflow == null) {
+                synchronized (this) {
+                    if (overflow == null) {
+                        overflow = new Wheel(interval, wheelSize, currentTime);
+                    }
+                }
+            }
+            return overflow;
+        }
+
+        private void advanceClock(long timeMs) {
+            if (timeMs >= currentTime + tickMs) {
+                currentTime = timeMs - (timeMs % tickMs);
+                if (overflow != null) {
+                    overflow.advanceClock(currentTime);
+                }
+            }
+        }
+    }
+
+    private static final class Bucket implements Delayed {
+        private final AtomicLong expiration = new AtomicLong(-1L);
+        private final List<Timeout> timeouts = new ArrayList<>();
+
+        private synchronized void add(Timeout timeout) {
+            timeouts.add(timeout);
+        }
+
+        /**
+         * @return true if the bucket's expiration changed and it must be (re)queued
+         */
+        private boolean setExpiration(long expirationMs) {
+            return expiration.getAndSet(expirationMs) != expirationMs;
+        }
+
+        private long getExpiration() {
+            return expiration.get();
+        }
+
+        private void flush(Consumer<Timeout> consumer) {
+            List<Timeout> drained;
+            synchronized (this) {
+                drained = new ArrayList<>(timeouts);
+                timeouts.clear();
+                expiration.set(-1L);
+            }
+            for (Timeout timeout : drained) {
+                consumer.accept(timeout);
+            }
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(Math.max(expiration.get() - System.currentTimeMillis(), 0), TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(expiration.get(), ((Bucket) other).expiration.get());
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.smart_mall_spring.Utils;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Blocking token bucket: {@code permitsPerMinute} tokens are refilled continuously
+ * and up to {@code burst} tokens can be accumulated while idle.
+ */
+public class TokenBucketRateLimiter {
+
+    private final double capacity;
+    private final double refillPerNano;
+    private double tokens;
+    private long lastRefillNanos;
+
+    public TokenBucketRateLimiter(double permitsPerMinute, int burst) {
+        if (permitsPerMinute <= 0 || burst <= 0) {
+            throw new IllegalArgumentException("permitsPerMinute and burst must be positive");
+        }
+        this.capacity = burst;
+        this.refillPerNano = permitsPerMinute / TimeUnit.MINUTES.toNanos(1);
+        this.tokens = burst;
+        this.lastRefillNanos = System.nanoTime();
+    }
+
+    /**
+     * Take one token, waiting until one is available.
+     */
+    public void acquire() throws InterruptedException {
+        while (true) {
+            long waitNanos;
+            synchronized (this) {
+                refill();
+                if (tokens >= 1) {
+                    tokens -= 1;
+                    return;
+                }
+                waitNanos = (long) Math.ceil((1 - tokens) / refillPerNano);
+            }
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+
+    /**
+     * Take {@code permits} tokens one at a time, so a request larger than the burst still goes through
+     * at the refill rate instead of waiting forever.
+     */
+    public void acquire(int permits) throws InterruptedException {
+        for (int i = 0; i < permits; i++) {
+            acquire();
+        }
+    }
+
+    /**
+     * Take one token if one is available right now.
+     */
+    public synchronized boolean tryAcquire() {
+        refill();
+        if (tokens >= 1) {
+            tokens -= 1;
+            return true;
+        }
+        return false;
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        tokens = Math.min(capacity, tokens + (now - lastRefillNanos) * refillPerNano);
+        lastRefillNanos = now;
+    }
+}
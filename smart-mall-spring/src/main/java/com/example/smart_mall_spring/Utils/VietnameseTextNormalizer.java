@@ -0,0 +1,45 @@
+package com.example.smart_mall_spring.Utils;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Diacritics-insensitive normalization for Vietnamese text.
+ * "Điện thoại Sạc nhanh" and "dien thoai sac NHANH" both normalize to "dien thoai sac nhanh".
+ */
+public final class VietnameseTextNormalizer {
+
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern NON_ALPHANUMERIC = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private VietnameseTextNormalizer() {
+    }
+
+    /**
+     * Lowercase and strip tone/vowel marks (đ is mapped to d, which NFD does not decompose).
+     */
+    public static String normalize(String text) {
+        if (text == null || text.isEmpty()) return "";
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        return COMBINING_MARKS.matcher(decomposed).replaceAll("")
+                .replace('đ', 'd')
+                .replace('Đ', 'D')
+                .toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Normalize and split into alphanumeric tokens.
+     */
+    public static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        for (String token : NON_ALPHANUMERIC.split(normalize(text))) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+}
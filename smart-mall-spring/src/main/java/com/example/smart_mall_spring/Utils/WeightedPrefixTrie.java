@@ -0,0 +1,230 @@
+package com.example.smart_mall_spring.Utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Prefix tree returning the heaviest completions of a prefix.
+ * <p>
+ * Each entry has a unique id, a value, a weight and one or more keys it can be reached from.
+ * Every node keeps the maximum weight of its subtree, so {@link #topK} is a best-first walk that
+ * stops after {@code k} entries instead of visiting every completion. Children are kept in sorted
+ * parallel arrays rather than maps to keep nodes small.
+ */
+public class WeightedPrefixTrie<V> {
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Node<V> root = new Node<>();
+    private final Map<String, Entry<V>> entries = new HashMap<>();
+
+    /**
+     * Insert or replace an entry. Keys are used as-is, callers normalize them.
+     */
+    public void put(String id, Collection<String> keys, V value, long weight) {
+        lock.writeLock().lock();
+        try {
+            removeInternal(id);
+            Entry<V> entry = new Entry<>(id, List.copyOf(new HashSet<>(keys)), value, weight);
+            entries.put(id, entry);
+            for (String key : entry.keys) {
+                insert(key, entry);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(String id) {
+        lock.writeLock().lock();
+        try {
+            removeInternal(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Values of the {@code k} heaviest entries having a key that starts with {@code prefix}.
+     */
+    public List<V> topK(String prefix, int k) {
+        lock.readLock().lock();
+        try {
+            Node<V> node = root;
+            for (int i = 0; i < prefix.length() && node != null; i++) {
+                node = node.child(prefix.charAt(i));
+            }
+            List<V> result = new ArrayList<>(k);
+            if (node == null || k <= 0) return result;
+
+            // Nodes are ordered by their subtree max, entries by their own weight:
+            // an entry is only polled once nothing left in the queue can beat it.
+            // At equal weight entries go first, so ties do not expand subtrees that cannot win
+            PriorityQueue<Candidate<V>> queue = new PriorityQueue<>(
+                    Comparator.comparingLong((Candidate<V> candidate) -> candidate.weight).reversed()
+                            .thenComparing(candidate -> candidate.node != null));
+            queue.add(new Candidate<>(node.maxWeight, node, null));
+            Set<String> seen = new HashSet<>();
+            while (!queue.isEmpty() && result.size() < k) {
+                Candidate<V> candidate = queue.poll();
+                if (candidate.node != null) {
+                    if (candidate.node.terminals != null) {
+                        for (Entry<V> entry : candidate.node.terminals.values()) {
+                            queue.add(new Candidate<>(entry.weight, null, entry));
+                        }
+                    }
+                    for (Node<V> child : candidate.node.children) {
+                        queue.add(new Candidate<>(child.maxWeight, child, null));
+                    }
+                } else if (seen.add(candidate.entry.id)) {
+                    // An entry reachable from several keys is returned once
+                    result.add(candidate.entry.value);
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void insert(String key, Entry<V> entry) {
+        Node<V> node = root;
+        node.maxWeight = Math.max(node.maxWeight, entry.weight);
+        for (int i = 0; i < key.length(); i++) {
+            node = node.childOrCreate(key.charAt(i));
+            node.maxWeight = Math.max(node.maxWeight, entry.weight);
+        }
+        if (node.terminals == null) {
+            node.terminals = new HashMap<>(2);
+        }
+        node.terminals.put(entry.id, entry);
+    }
+
+    private void removeInternal(String id) {
+        Entry<V> entry = entries.remove(id);
+        if (entry == null) return;
+
+        for (String key : entry.keys) {
+            List<Node<V>> path = new ArrayList<>(key.length() + 1);
+            Node<V> node = root;
+            path.add(node);
+            for (int i = 0; i < key.length() && node != null; i++) {
+                node = node.child(key.charAt(i));
+                path.add(node);
+            }
+            if (node == null || node.terminals == null) continue;
+
+            node.terminals.remove(id);
+            if (node.terminals.isEmpty()) {
+                node.terminals = null;
+            }
+            // Recompute subtree maxima bottom-up and prune empty nodes
+            for (int i = path.size() - 1; i >= 0; i--) {
+                Node<V> current = path.get(i);
+                current.recomputeMaxWeight();
+                if (i > 0 && current.isEmpty()) {
+                    path.get(i - 1).removeChild(key.charAt(i - 1));
+                }
+            }
+        }
+    }
+
+    private record Candidate<V>(long weight, Node<V> node, Entry<V> entry) {
+    }
+
+    private static final class Entry<V> {
+        private final String id;
+        private final List<String> keys;
+        private final V value;
+        private final long weight;
+
+        private Entry(String id, List<String> keys, V value, long weight) {
+            this.id = id;
+            this.keys = keys;
+            this.value = value;
+            this.weight = weight;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static final class Node<V> {
+        private static final char[] NO_LABELS = new char[0];
+        private static final Node<?>[] NO_CHILDREN = new Node<?>[0];
+
+        private char[] labels = NO_LABELS;
+        private Node<V>[] children = (Node<V>[]) NO_CHILDREN;
+        private Map<String, Entry<V>> terminals;
+        private long maxWeight = Long.MIN_VALUE;
+
+        private Node<V> child(char c) {
+            int i = Arrays.binarySearch(labels, c);
+            return i >= 0 ? children[i] : null;
+        }
+
+        private Node<V> childOrCreate(char c) {
+            int i = Arrays.binarySearch(labels, c);
+            if (i >= 0) return children[i];
+
+            int at = -i - 1;
+            char[] newLabels = new char[labels.length + 1];
+            Node<V>[] newChildren = new Node[children.length + 1];
+            System.arraycopy(labels, 0, newLabels, 0, at);
+            System.arraycopy(children, 0, newChildren, 0, at);
+            System.arraycopy(labels, at, newLabels, at + 1, labels.length - at);
+            System.arraycopy(children, at, newChildren, at + 1, children.length - at);
+            newLabels[at] = c;
+            newChildren[at] = new Node<>();
+            labels = newLabels;
+            children = newChildren;
+            return newChildren[at];
+        }
+
+        private void removeChild(char c) {
+            int i = Arrays.binarySearch(labels, c);
+            if (i < 0) return;
+
+            char[] newLabels = new char[labels.length - 1];
+            Node<V>[] newChildren = new Node[children.length - 1];
+            System.arraycopy(labels, 0, newLabels, 0, i);
+            System.arraycopy(children, 0, newChildren, 0, i);
+            System.arraycopy(labels, i + 1, newLabels, i, labels.length - i - 1);
+            System.arraycopy(children, i + 1, newChildren, i, children.length - i - 1);
+            labels = newLabels;
+            children = newChildren;
+        }
+
+        private void recomputeMaxWeight() {
+            long max = Long.MIN_VALUE;
+            if (terminals != null) {
+                for (Entry<V> entry : terminals.values()) {
+                    max = Math.max(max, entry.weight);
+                }
+            }
+            for (Node<V> child : children) {
+                max = Math.max(max, child.maxWeight);
+            }
+            maxWeight = max;
+        }
+
+        private boolean isEmpty() {
+            return terminals == null && children.length == 0;
+        }
+    }
+}
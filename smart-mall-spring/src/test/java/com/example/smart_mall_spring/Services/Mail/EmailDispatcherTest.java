@@ -0,0 +1,169 @@
+package com.example.smart_mall_spring.Services.Mail;
+
+import com.example.smart_mall_spring.Entities.OutboundEmail;
+import com.example.smart_mall_spring.Enum.OutboundEmailStatus;
+import com.example.smart_mall_spring.Repositories.OutboundEmailRepository;
+import com.example.smart_mall_spring.Services.Auth.EmailService;
+import com.icegreen.greenmail.junit5.GreenMailExtension;
+import com.icegreen.greenmail.util.GreenMailUtil;
+import com.icegreen.greenmail.util.ServerSetupTest;
+import jakarta.mail.internet.MimeMessage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.net.ServerSocket;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Login-code emails going through the queue and the dispatcher against a local GreenMail SMTP server.
+ * The outbound_emails table is an in-memory map; batches are sent synchronously instead of by the
+ * dispatcher thread so every step can be asserted.
+ */
+class EmailDispatcherTest {
+
+    private static final int MAX_ATTEMPTS = 3;
+
+    @RegisterExtension
+    static GreenMailExtension greenMail = new GreenMailExtension(ServerSetupTest.SMTP);
+
+    private final Map<UUID, OutboundEmail> table = new ConcurrentHashMap<>();
+
+    private EmailQueueService queueService;
+    private EmailService emailService;
+
+    @BeforeEach
+    void setUp() {
+        OutboundEmailRepository repository = mock(OutboundEmailRepository.class);
+        when(repository.save(any(OutboundEmail.class))).thenAnswer(invocation -> {
+            OutboundEmail email = invocation.getArgument(0);
+            if (email.getId() == null) {
+                email.setId(UUID.randomUUID());
+            }
+            table.put(email.getId(), email);
+            return email;
+        });
+        when(repository.lockClaimableEmails(any(LocalDateTime.class), anyInt())).thenAnswer(invocation -> {
+            LocalDateTime now = invocation.getArgument(0);
+            int limit = invocation.getArgument(1);
+            return table.values().stream()
+                    .filter(email -> (email.getStatus() == OutboundEmailStatus.PENDING && !email.getAvailableAt().isAfter(now))
+                            || (email.getStatus() == OutboundEmailStatus.SENDING && !email.getLeaseExpiresAt().isAfter(now)))
+                    .sorted(Comparator.comparing(OutboundEmail::getAvailableAt))
+                    .limit(limit)
+                    .toList();
+        });
+        when(repository.findById(any(UUID.class)))
+                .thenAnswer(invocation -> Optional.ofNullable(table.get(invocation.<UUID>getArgument(0))));
+        when(repository.findAllById(any())).thenAnswer(invocation -> invocation.<Collection<UUID>>getArgument(0)
+                .stream().map(table::get).toList());
+
+        queueService = new EmailQueueService(repository, mock(ApplicationEventPublisher.class));
+        ReflectionTestUtils.setField(queueService, "leaseSeconds", 120L);
+
+        emailService = new EmailService();
+        ReflectionTestUtils.setField(emailService, "emailQueueService", queueService);
+    }
+
+    @Test
+    void queuedLoginCodeIsDelivered() throws Exception {
+        emailService.sendLoginCode("buyer@example.com", "482913");
+
+        OutboundEmail queued = table.values().iterator().next();
+        assertThat(queued.getStatus()).isEqualTo(OutboundEmailStatus.PENDING);
+        assertThat(greenMail.getReceivedMessages()).isEmpty();
+
+        sendDueEmails(dispatcher(greenMail.getSmtp().getPort()));
+
+        MimeMessage[] received = greenMail.getReceivedMessages();
+        assertThat(received).hasSize(1);
+        assertThat(received[0].getAllRecipients()[0].toString()).isEqualTo("buyer@example.com");
+        assertThat(received[0].getSubject()).isEqualTo("Your Login Code - Smart Mall");
+        assertThat(GreenMailUtil.getBody(received[0])).contains("482913");
+        assertThat(queued.getStatus()).isEqualTo(OutboundEmailStatus.SENT);
+        assertThat(queued.getSentAt()).isNotNull();
+        assertThat(queued.getAttempts()).isEqualTo(1);
+    }
+
+    @Test
+    void smtpFailureIsRetriedWithBackoff() throws Exception {
+        emailService.sendLoginCode("buyer@example.com", "482913");
+        OutboundEmail queued = table.values().iterator().next();
+
+        LocalDateTime before = LocalDateTime.now();
+        sendDueEmails(dispatcher(unusedPort()));
+
+        assertThat(queued.getStatus()).isEqualTo(OutboundEmailStatus.PENDING);
+        assertThat(queued.getAttempts()).isEqualTo(1);
+        assertThat(queued.getLastError()).isNotBlank();
+        assertThat(queued.getLeaseOwner()).isNull();
+        // First retry waits 5s with jitter in [2.5s, 5s]
+        assertThat(queued.getAvailableAt()).isAfterOrEqualTo(before.plusMillis(2500));
+        // Not due yet: nothing is claimed before the backoff elapses
+        assertThat(queueService.claim(20)).isEmpty();
+
+        // The server is back: the retry goes through
+        queued.setAvailableAt(LocalDateTime.now());
+        sendDueEmails(dispatcher(greenMail.getSmtp().getPort()));
+
+        assertThat(greenMail.getReceivedMessages()).hasSize(1);
+        assertThat(queued.getStatus()).isEqualTo(OutboundEmailStatus.SENT);
+        assertThat(queued.getAttempts()).isEqualTo(2);
+    }
+
+    @Test
+    void emailFailsAfterMaxAttempts() throws Exception {
+        emailService.sendLoginCode("buyer@example.com", "482913");
+        OutboundEmail queued = table.values().iterator().next();
+        EmailDispatcher unreachable = dispatcher(unusedPort());
+
+        for (int attempt = 1; attempt < MAX_ATTEMPTS; attempt++) {
+            sendDueEmails(unreachable);
+            assertThat(queued.getStatus()).isEqualTo(OutboundEmailStatus.PENDING);
+            // Skip the backoff
+            queued.setAvailableAt(LocalDateTime.now());
+        }
+        sendDueEmails(unreachable);
+
+        assertThat(queued.getStatus()).isEqualTo(OutboundEmailStatus.FAILED);
+        assertThat(queued.getAttempts()).isEqualTo(MAX_ATTEMPTS);
+        assertThat(queued.getLastError()).isNotBlank();
+        assertThat(queueService.claim(20)).isEmpty();
+        assertThat(greenMail.getReceivedMessages()).isEmpty();
+    }
+
+    private EmailDispatcher dispatcher(int smtpPort) {
+        JavaMailSenderImpl mailSender = new JavaMailSenderImpl();
+        mailSender.setHost("localhost");
+        mailSender.setPort(smtpPort);
+        return new EmailDispatcher(queueService, mailSender, Runnable::run, "noreply@smartmall.test",
+                1, 20, MAX_ATTEMPTS, 100);
+    }
+
+    private void sendDueEmails(EmailDispatcher dispatcher) {
+        List<OutboundEmail> batch = queueService.claim(20);
+        ReflectionTestUtils.invokeMethod(dispatcher, "sendBatch", batch);
+    }
+
+    private static int unusedPort() throws Exception {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
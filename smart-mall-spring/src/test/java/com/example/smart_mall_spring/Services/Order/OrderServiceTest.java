@@ -0,0 +1,187 @@
+package com.example.smart_mall_spring.Services.Order;
+
+import com.example.smart_mall_spring.Dtos.Orders.OrderItem.OrderItemRequestDto;
+import com.example.smart_mall_spring.Dtos.Orders.OrderRequestDto;
+import com.example.smart_mall_spring.Dtos.Orders.OrderResponseDto;
+import com.example.smart_mall_spring.Entities.Address;
+import com.example.smart_mall_spring.Entities.Products.Product;
+import com.example.smart_mall_spring.Entities.Products.ProductVariant;
+import com.example.smart_mall_spring.Entities.Shop;
+import com.example.smart_mall_spring.Entities.Users.User;
+import com.example.smart_mall_spring.Entities.Users.UserAddress;
+import com.example.smart_mall_spring.Entities.Users.UserProfile;
+import com.example.smart_mall_spring.Enum.PaymentMethod;
+import com.example.smart_mall_spring.Enum.Status;
+import com.example.smart_mall_spring.Services.FlashSale.FlashSaleStockReservationService;
+import com.example.smart_mall_spring.Services.NotificationService;
+import com.example.smart_mall_spring.Services.Wallet.WalletService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Statements per order: the whole graph is persisted by one cascaded save, so an order costs one batched
+ * INSERT per child table whatever its number of items, and the reads do not grow with the cart either.
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "spring.jpa.show-sql=false"
+})
+@Import(OrderService.class)
+class OrderServiceTest {
+
+    // orders, order_items, shipping_fees, payments, order_status_histories
+    private static final int INSERT_STATEMENTS = 5;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private OrderService orderService;
+
+    @MockitoBean
+    private FlashSaleStockReservationService flashSaleStockReservationService;
+
+    @MockitoBean
+    private WalletService walletService;
+
+    @MockitoBean
+    private OrderTrackingLogService orderTrackingLogService;
+
+    @MockitoBean
+    private NotificationService notificationService;
+
+    @MockitoBean
+    private DailyOrderStatsService dailyOrderStatsService;
+
+    private User buyer;
+    private Shop shop;
+    private UserAddress shippingAddress;
+    private final List<UUID> variantIds = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        buyer = user("buyer");
+        User seller = user("seller");
+
+        shop = new Shop();
+        shop.setName("Smart Shop");
+        shop.setOwner(seller);
+        shop.setAddress(address());
+        entityManager.persist(shop);
+
+        shippingAddress = new UserAddress();
+        shippingAddress.setUser(buyer);
+        shippingAddress.setRecipient("Buyer");
+        shippingAddress.setPhoneNumber("0900000000");
+        shippingAddress.setAddress(address());
+        entityManager.persist(shippingAddress);
+
+        for (int i = 0; i < 5; i++) {
+            Product product = new Product();
+            product.setName("Product " + i);
+            product.setShop(shop);
+            product.setStatus(Status.ACTIVE);
+            product.setImages(new ArrayList<>(List.of("/image/upload/p" + i + ".jpg")));
+            entityManager.persist(product);
+
+            ProductVariant variant = new ProductVariant();
+            variant.setProduct(product);
+            variant.setSku("SKU-" + i);
+            variant.setPrice(100_000d);
+            variant.setStock(100);
+            entityManager.persist(variant);
+            variantIds.add(variant.getId());
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void orderIsPersistedWithOneInsertPerChildTable() {
+        Statistics statistics = statistics();
+
+        OrderResponseDto order = orderService.createOrder(request(5));
+        long beforeFlush = statistics.getPrepareStatementCount();
+        entityManager.flush();
+
+        assertThat(order.getItems()).hasSize(5);
+        assertThat(statistics.getEntityInsertCount()).isEqualTo(1 + 5 + 1 + 1 + 1);
+        assertThat(statistics.getPrepareStatementCount() - beforeFlush).isEqualTo(INSERT_STATEMENTS);
+    }
+
+    @Test
+    void statementCountDoesNotGrowWithItems() {
+        Statistics statistics = statistics();
+        orderService.createOrder(request(1));
+        entityManager.flush();
+        long singleItem = statistics.getPrepareStatementCount();
+        entityManager.clear();
+
+        statistics.clear();
+        orderService.createOrder(request(5));
+        entityManager.flush();
+        long fiveItems = statistics.getPrepareStatementCount();
+
+        assertThat(fiveItems).isEqualTo(singleItem);
+    }
+
+    private Statistics statistics() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        return statistics;
+    }
+
+    private OrderRequestDto request(int items) {
+        List<OrderItemRequestDto> itemDtos = variantIds.subList(0, items).stream()
+                .map(variantId -> OrderItemRequestDto.builder().variantId(variantId).quantity(2).build())
+                .toList();
+        return OrderRequestDto.builder()
+                .userId(buyer.getId())
+                .shopId(shop.getId())
+                .shippingAddressId(shippingAddress.getId())
+                .paymentMethod(PaymentMethod.COD)
+                .shippingFee(30_000d)
+                .items(itemDtos)
+                .build();
+    }
+
+    private User user(String username) {
+        User user = new User();
+        user.setUsername(username);
+        entityManager.persist(user);
+
+        UserProfile profile = new UserProfile();
+        profile.setFullName(username);
+        profile.setUser(user);
+        entityManager.persist(profile);
+        user.setProfile(profile);
+        return user;
+    }
+
+    private static Address address() {
+        Address address = new Address();
+        address.setStreet("1 Lê Lợi");
+        address.setCommune("Bến Nghé");
+        address.setDistrict("Quận 1");
+        address.setCity("Hồ Chí Minh");
+        return address;
+    }
+}
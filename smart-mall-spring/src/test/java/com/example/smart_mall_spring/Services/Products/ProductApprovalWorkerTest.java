@@ -0,0 +1,142 @@
+package com.example.smart_mall_spring.Services.Products;
+
+import com.example.smart_mall_spring.Entities.Products.Product;
+import com.example.smart_mall_spring.Entities.Products.ProductApprovalJob;
+import com.example.smart_mall_spring.Enum.Status;
+import com.example.smart_mall_spring.Models.ApprovalMessage;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Runs one approval batch against a local stub of the api-gemini batch endpoint.
+ */
+class ProductApprovalWorkerTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final AtomicReference<String> requestBody = new AtomicReference<>();
+    private final AtomicReference<String> responseBody = new AtomicReference<>();
+
+    private HttpServer stub;
+    private ProductApprovalQueueService queueService;
+    private ProductApprovalWorker worker;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        stub = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        stub.createContext("/ai_approval_product/batch", exchange -> {
+            requestBody.set(new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8));
+            byte[] body = responseBody.get().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        stub.start();
+
+        queueService = mock(ProductApprovalQueueService.class);
+        worker = new ProductApprovalWorker();
+        ReflectionTestUtils.setField(worker, "approvalQueueService", queueService);
+        ReflectionTestUtils.setField(worker, "auditLog", mock(ProductApprovalAuditLog.class));
+        ReflectionTestUtils.setField(worker, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(worker, "geminiApiUrl",
+                "http://localhost:" + stub.getAddress().getPort() + "/ai_approval_product/batch");
+    }
+
+    @AfterEach
+    void tearDown() {
+        stub.stop(0);
+    }
+
+    @Test
+    void sendsWholeBatchInOneRequestAndAppliesAllDecisionsTogether() throws Exception {
+        UUID approvedId = UUID.randomUUID();
+        UUID rejectedId = UUID.randomUUID();
+        List<ProductApprovalJob> jobs = List.of(job(approvedId), job(rejectedId));
+        when(queueService.loadApprovalMessages(jobs)).thenReturn(Map.of(
+                approvedId, message(approvedId), rejectedId, message(rejectedId)));
+        when(queueService.applyApprovalDecisions(anyMap()))
+                .thenReturn(List.of(product(approvedId), product(rejectedId)));
+        responseBody.set("{\"results\": ["
+                + "{\"productId\": \"" + approvedId + "\", \"status\": 1, \"content\": \"ok\"},"
+                + "{\"productId\": \"" + rejectedId + "\", \"status\": 2, \"content\": [\"Thiếu hình ảnh\"]}]}");
+
+        ReflectionTestUtils.invokeMethod(worker, "processBatch", jobs);
+
+        JsonNode sent = objectMapper.readTree(requestBody.get()).get("products");
+        assertThat(sent).hasSize(2);
+        assertThat(List.of(sent.get(0).get("productId").asText(), sent.get(1).get("productId").asText()))
+                .containsExactlyInAnyOrder(approvedId.toString(), rejectedId.toString());
+        verify(queueService).applyApprovalDecisions(
+                Map.of(approvedId, Status.ACTIVE, rejectedId, Status.REJECTED));
+        verify(queueService, never()).scheduleRetry(any(), anyLong(), any());
+    }
+
+    @Test
+    void productMissingFromResponseIsRetriedOnItsOwn() {
+        UUID decidedId = UUID.randomUUID();
+        UUID missingId = UUID.randomUUID();
+        List<ProductApprovalJob> jobs = List.of(job(decidedId), job(missingId));
+        when(queueService.loadApprovalMessages(jobs)).thenReturn(Map.of(
+                decidedId, message(decidedId), missingId, message(missingId)));
+        when(queueService.applyApprovalDecisions(anyMap())).thenReturn(List.of(product(decidedId)));
+        responseBody.set("{\"results\": [{\"productId\": \"" + decidedId + "\", \"status\": 1}]}");
+
+        ReflectionTestUtils.invokeMethod(worker, "processBatch", jobs);
+
+        verify(queueService).applyApprovalDecisions(Map.of(decidedId, Status.ACTIVE));
+        verify(queueService).scheduleRetry(eq(missingId), anyLong(), any());
+        verify(queueService, never()).scheduleRetry(eq(decidedId), anyLong(), any());
+    }
+
+    private static ProductApprovalJob job(UUID productId) {
+        ProductApprovalJob job = new ProductApprovalJob(productId);
+        job.setAttempts(1);
+        return job;
+    }
+
+    private static ApprovalMessage message(UUID productId) {
+        return ApprovalMessage.builder()
+                .productId(productId)
+                .name("Product " + productId)
+                .description("Mô tả")
+                .brand("Brand")
+                .categoryId(UUID.randomUUID())
+                .shopId(UUID.randomUUID())
+                .status(Status.PENDING)
+                .images(List.of("https://res.cloudinary.com/demo/image/upload/a.jpg"))
+                .variants(List.of())
+                .build();
+    }
+
+    private static Product product(UUID productId) {
+        Product product = new Product();
+        product.setId(productId);
+        product.setName("Product " + productId);
+        return product;
+    }
+}
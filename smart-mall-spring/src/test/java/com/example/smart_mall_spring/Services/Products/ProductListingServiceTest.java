@@ -0,0 +1,109 @@
+package com.example.smart_mall_spring.Services.Products;
+
+import com.example.smart_mall_spring.Dtos.Products.PagedProductListResponseDto;
+import com.example.smart_mall_spring.Dtos.Products.ProductListItemDto;
+import com.example.smart_mall_spring.Entities.Categories.Category;
+import com.example.smart_mall_spring.Entities.Products.Product;
+import com.example.smart_mall_spring.Entities.Products.ProductVariant;
+import com.example.smart_mall_spring.Enum.Status;
+import com.example.smart_mall_spring.Services.Storage.ImageDerivativeService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Guards the fixed query budget of the listing grid: however many products a page holds,
+ * it must cost the row query, its count, one variant IN (...) and one thumbnail IN (...).
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "spring.jpa.show-sql=false"
+})
+@Import(ProductListingService.class)
+class ProductListingServiceTest {
+
+    private static final int PAGE_SIZE = 48;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private ProductListingService productListingService;
+
+    @MockitoBean
+    private ImageDerivativeService imageDerivativeService;
+
+    @BeforeEach
+    void setUp() {
+        Category category = new Category();
+        category.setName("Thời trang");
+        entityManager.persist(category);
+
+        // One more product than a page so the count query runs too
+        for (int i = 0; i <= PAGE_SIZE; i++) {
+            Product product = new Product();
+            product.setName("Product " + i);
+            product.setBrand("Brand");
+            product.setCategory(category);
+            product.setStatus(Status.ACTIVE);
+            product.setImages(new ArrayList<>(List.of("/image/upload/p" + i + "-b.jpg", "/image/upload/p" + i + "-a.jpg")));
+            entityManager.persist(product);
+
+            for (int v = 0; v < 3; v++) {
+                ProductVariant variant = new ProductVariant();
+                variant.setProduct(product);
+                variant.setSku("SKU-" + i + "-" + v);
+                variant.setPrice(100_000d + v * 10_000d);
+                variant.setStock(10);
+                entityManager.persist(variant);
+            }
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void fullPageIsServedWithFourStatements() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        PagedProductListResponseDto page = productListingService.getListing(null, null, 0, PAGE_SIZE);
+
+        assertThat(page.getProducts()).hasSize(PAGE_SIZE);
+        assertThat(page.getTotalItems()).isEqualTo(PAGE_SIZE + 1);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(4);
+        assertThat(statistics.getEntityLoadCount()).isZero();
+        assertThat(statistics.getCollectionLoadCount()).isZero();
+    }
+
+    @Test
+    void thumbnailIsFirstImageAcrossLoads() {
+        List<String> first = productListingService.getListing(null, null, 0, PAGE_SIZE).getProducts().stream()
+                .map(ProductListItemDto::getThumbnail)
+                .toList();
+        entityManager.clear();
+        List<String> second = productListingService.getListing(null, null, 0, PAGE_SIZE).getProducts().stream()
+                .map(ProductListItemDto::getThumbnail)
+                .toList();
+
+        assertThat(first).isEqualTo(second);
+        // The image the seller put first, not the smallest URL
+        assertThat(first).allMatch(url -> url.endsWith("-b.jpg"));
+    }
+}
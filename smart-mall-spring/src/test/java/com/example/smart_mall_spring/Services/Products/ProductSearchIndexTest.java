@@ -0,0 +1,126 @@
+package com.example.smart_mall_spring.Services.Products;
+
+import com.example.smart_mall_spring.Entities.Products.Product;
+import com.example.smart_mall_spring.Enum.Status;
+import com.example.smart_mall_spring.Repositories.ProductRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The search index against the {@code name LIKE %:name%} query it replaced: same hits for whole words of
+ * the name, better ranking and diacritics-insensitive matching, and no statement at all per search.
+ * <p>
+ * The index is filled through {@link ProductSearchIndex#onProductChanged} inside the test transaction
+ * (rebuild() streams with a MySQL-only fetch size that H2 rejects).
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "spring.jpa.show-sql=false"
+})
+class ProductSearchIndexTest {
+
+    private static final ProductSearchIndex.SearchFilter ACTIVE_ONLY =
+            new ProductSearchIndex.SearchFilter(null, null, null, Set.of(Status.ACTIVE), null, null);
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    private ProductSearchIndex searchIndex;
+    private final Map<String, UUID> ids = new HashMap<>();
+
+    @BeforeEach
+    void setUp() {
+        product("Áo thun nam cổ tròn", "Coolmate", "Chất liệu cotton");
+        product("Áo thun nữ form rộng", "Yody", "Cotton mềm");
+        product("Quần jean nam", "Levi", "Vải denim");
+        product("Áo sơ mi nam", "Viettien", "Dễ phối với quần jean");
+        product("Giày thể thao", "Bitis", "Đế cao su");
+        entityManager.flush();
+        entityManager.clear();
+
+        searchIndex = new ProductSearchIndex(productRepository);
+        ids.values().forEach(id -> searchIndex.onProductChanged(new ProductChangedEvent(id)));
+    }
+
+    @Test
+    void sameHitsAsLikeForWordsOfTheName() {
+        for (String query : List.of("thun", "nam", "Áo", "Giày")) {
+            List<UUID> indexed = searchIndex.search(query, ACTIVE_ONLY, 0, 20).productIds();
+            List<UUID> like = likeSearch(query);
+
+            assertThat(indexed).as(query).isNotEmpty();
+            assertThat(indexed).as(query).containsExactlyInAnyOrderElementsOf(like);
+        }
+    }
+
+    @Test
+    void nameMatchRanksAboveDescriptionMatch() {
+        List<UUID> hits = searchIndex.search("jean", ACTIVE_ONLY, 0, 20).productIds();
+
+        assertThat(hits).containsExactly(ids.get("Quần jean nam"), ids.get("Áo sơ mi nam"));
+    }
+
+    @Test
+    void queryWithoutDiacriticsMatchesEveryToken() {
+        List<UUID> hits = searchIndex.search("ao thun", ACTIVE_ONLY, 0, 20).productIds();
+
+        assertThat(hits).containsExactlyInAnyOrder(ids.get("Áo thun nam cổ tròn"), ids.get("Áo thun nữ form rộng"));
+        // The prefix of the last token is expanded for search-as-you-type
+        assertThat(searchIndex.search("ao th", ACTIVE_ONLY, 0, 20).productIds()).hasSize(2);
+    }
+
+    @Test
+    void indexSearchRunsNoStatementUnlikeLike() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        statistics.clear();
+        likeSearch("nam");
+        long likeStatements = statistics.getPrepareStatementCount();
+
+        statistics.clear();
+        searchIndex.search("nam", ACTIVE_ONLY, 0, 20);
+        long indexStatements = statistics.getPrepareStatementCount();
+
+        assertThat(likeStatements).isPositive();
+        assertThat(indexStatements).isZero();
+    }
+
+    private List<UUID> likeSearch(String name) {
+        return productRepository.findProductsByMultipleCriteriaWithPagination(
+                        name, null, null, null, Status.ACTIVE, null, null, PageRequest.of(0, 20))
+                .map(Product::getId)
+                .getContent();
+    }
+
+    private void product(String name, String brand, String description) {
+        Product product = new Product();
+        product.setName(name);
+        product.setBrand(brand);
+        product.setDescription(description);
+        product.setStatus(Status.ACTIVE);
+        entityManager.persist(product);
+        ids.put(name, product.getId());
+    }
+}
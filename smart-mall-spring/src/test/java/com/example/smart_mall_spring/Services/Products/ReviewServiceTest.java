@@ -0,0 +1,175 @@
+package com.example.smart_mall_spring.Services.Products;
+
+import com.example.smart_mall_spring.Dtos.Products.Review.ReviewResponseDto;
+import com.example.smart_mall_spring.Entities.Address;
+import com.example.smart_mall_spring.Entities.Products.Product;
+import com.example.smart_mall_spring.Entities.Products.Review;
+import com.example.smart_mall_spring.Entities.Products.ReviewReply;
+import com.example.smart_mall_spring.Entities.Shop;
+import com.example.smart_mall_spring.Entities.Users.User;
+import com.example.smart_mall_spring.Entities.Users.UserProfile;
+import com.example.smart_mall_spring.Enum.Status;
+import com.example.smart_mall_spring.Services.CloudinaryService;
+import com.example.smart_mall_spring.Services.Storage.ImageDerivativeService;
+import com.example.smart_mall_spring.Services.Storage.ImageUploadPipeline;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Guards the query budget of the review page: reviewers, their profiles and the product come with the page
+ * query, media and shop replies are loaded in one batch each, so the statement count does not depend on
+ * the number of reviews on the page.
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "spring.jpa.show-sql=false"
+})
+@Import(ReviewService.class)
+class ReviewServiceTest {
+
+    private static final int REVIEWS = 25;
+    private static final int PAGE_SIZE = 20;
+    // page, count, media batch, reply batch, the replying shop
+    private static final int MAX_STATEMENTS = 5;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private ReviewService reviewService;
+
+    @MockitoBean
+    private ShopReviewStatsService shopReviewStatsService;
+
+    @MockitoBean
+    private CloudinaryService cloudinaryService;
+
+    @MockitoBean
+    private ImageUploadPipeline imageUploadPipeline;
+
+    @MockitoBean
+    private ImageDerivativeService imageDerivativeService;
+
+    private UUID productId;
+
+    @BeforeEach
+    void setUp() {
+        Shop shop = new Shop();
+        shop.setName("Smart Shop");
+        shop.setOwner(user("seller"));
+        shop.setAddress(address());
+        entityManager.persist(shop);
+
+        Product product = new Product();
+        product.setName("Áo thun");
+        product.setShop(shop);
+        product.setStatus(Status.ACTIVE);
+        entityManager.persist(product);
+        productId = product.getId();
+
+        // Every review has its own reviewer, two images and a shop reply
+        for (int i = 0; i < REVIEWS; i++) {
+            Review review = new Review();
+            review.setUser(user("buyer" + i));
+            review.setProduct(product);
+            review.setRating(1 + i % 5);
+            review.setComment("Review " + i);
+            review.setReviewedAt(LocalDateTime.now().minusMinutes(i));
+            review.addMedia("/image/upload/r" + i + "-1.jpg", "IMAGE");
+            review.addMedia("/image/upload/r" + i + "-2.jpg", "IMAGE");
+            entityManager.persist(review);
+
+            ReviewReply reply = new ReviewReply();
+            reply.setReview(review);
+            reply.setShop(shop);
+            reply.setReplyContent("Cảm ơn bạn");
+            reply.setRepliedAt(LocalDateTime.now());
+            entityManager.persist(reply);
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void fullPageIsServedWithFixedStatements() {
+        Statistics statistics = statistics();
+
+        Page<ReviewResponseDto> page = reviewService.getReviewsByProduct(productId, page(PAGE_SIZE));
+
+        assertThat(page.getContent()).hasSize(PAGE_SIZE);
+        assertThat(page.getTotalElements()).isEqualTo(REVIEWS);
+        assertThat(page.getContent()).allSatisfy(review -> {
+            assertThat(review.getUserName()).startsWith("buyer");
+            assertThat(review.getMediaList()).hasSize(2);
+            assertThat(review.getShopReply()).isNotNull();
+            assertThat(review.getShopReply().getShopName()).isEqualTo("Smart Shop");
+        });
+        assertThat(statistics.getPrepareStatementCount()).isLessThanOrEqualTo(MAX_STATEMENTS);
+    }
+
+    @Test
+    void statementCountDoesNotGrowWithPageSize() {
+        Statistics statistics = statistics();
+        reviewService.getReviewsByProduct(productId, page(2));
+        long smallPage = statistics.getPrepareStatementCount();
+        entityManager.clear();
+
+        statistics.clear();
+        reviewService.getReviewsByProduct(productId, page(PAGE_SIZE));
+        long fullPage = statistics.getPrepareStatementCount();
+
+        assertThat(fullPage).isEqualTo(smallPage);
+    }
+
+    private Statistics statistics() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        return statistics;
+    }
+
+    private static PageRequest page(int size) {
+        return PageRequest.of(0, size, Sort.by(Sort.Direction.DESC, "reviewedAt"));
+    }
+
+    private User user(String username) {
+        User user = new User();
+        user.setUsername(username);
+        entityManager.persist(user);
+
+        UserProfile profile = new UserProfile();
+        profile.setFullName(username);
+        profile.setUser(user);
+        entityManager.persist(profile);
+        user.setProfile(profile);
+        return user;
+    }
+
+    private static Address address() {
+        Address address = new Address();
+        address.setStreet("1 Lê Lợi");
+        address.setCommune("Bến Nghé");
+        address.setDistrict("Quận 1");
+        address.setCity("Hồ Chí Minh");
+        return address;
+    }
+}
@@ -0,0 +1,130 @@
+package com.example.smart_mall_spring.Services;
+
+import com.example.smart_mall_spring.Repositories.NotificationRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Interleavings of a cold load with a write of the same user. The database is a single number
+ * ({@code unreadRows}); a write's transaction is driven by hand through its synchronizations.
+ */
+class UnreadNotificationCounterTest {
+
+    private final UUID userId = UUID.randomUUID();
+    private final AtomicLong unreadRows = new AtomicLong(5);
+
+    private NotificationRepository notificationRepository;
+    private UnreadNotificationCounter counter;
+
+    @BeforeEach
+    void setUp() {
+        notificationRepository = mock(NotificationRepository.class);
+        when(notificationRepository.countUnreadByUserId(userId)).thenAnswer(invocation -> unreadRows.get());
+        counter = new UnreadNotificationCounter(notificationRepository, mock(SimpMessagingTemplate.class));
+        ReflectionTestUtils.setField(counter, "idleTtl", Duration.ofMinutes(30));
+    }
+
+    @Test
+    void cachedCountFollowsCommittedDeltas() {
+        assertThat(counter.get(userId)).isEqualTo(5);
+
+        List<TransactionSynchronization> write = write(1);
+        commit(write);
+
+        assertThat(counter.peek(userId)).isEqualTo(6);
+    }
+
+    @Test
+    void loadRunningAfterTheCommitIsNotCountedTwice() {
+        List<TransactionSynchronization> write = write(1);
+        write.forEach(sync -> sync.beforeCommit(false));
+        // Committed, delta not applied yet: the COUNT already sees the row
+        unreadRows.incrementAndGet();
+
+        assertThat(counter.get(userId)).isEqualTo(6);
+        write.forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+
+        assertThat(counter.peek(userId)).isNull();
+        assertThat(counter.get(userId)).isEqualTo(6);
+        assertThat(counter.peek(userId)).isEqualTo(6);
+    }
+
+    @Test
+    void deltaCommittedDuringTheLoadIsNotLost() {
+        List<TransactionSynchronization> write = write(1);
+        // The COUNT runs before the commit, which happens while the load is still in flight
+        when(notificationRepository.countUnreadByUserId(userId)).thenAnswer(invocation -> {
+            long count = unreadRows.get();
+            write.forEach(sync -> sync.beforeCommit(false));
+            unreadRows.incrementAndGet();
+            write.forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+            return count;
+        });
+
+        assertThat(counter.get(userId)).isEqualTo(5);
+        assertThat(counter.peek(userId)).isNull();
+
+        when(notificationRepository.countUnreadByUserId(userId)).thenAnswer(invocation -> unreadRows.get());
+        assertThat(counter.get(userId)).isEqualTo(6);
+    }
+
+    @Test
+    void rolledBackWriteLeavesTheCountAlone() {
+        counter.get(userId);
+
+        List<TransactionSynchronization> write = write(-1);
+        write.forEach(sync -> sync.beforeCommit(false));
+        write.forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+
+        assertThat(counter.peek(userId)).isEqualTo(5);
+        // Nothing left in flight: the next load is cached again
+        counter.invalidateAll();
+        assertThat(counter.get(userId)).isEqualTo(5);
+        assertThat(counter.peek(userId)).isEqualTo(5);
+    }
+
+    @Test
+    void reconcileSkipsUsersWithWritesInFlight() {
+        counter.get(userId);
+        List<TransactionSynchronization> write = write(1);
+        write.forEach(sync -> sync.beforeCommit(false));
+        unreadRows.incrementAndGet();
+        when(notificationRepository.countUnreadGroupByUserId(any()))
+                .thenAnswer(invocation -> List.<Object[]>of(new Object[]{userId, unreadRows.get()}));
+
+        counter.reconcile();
+        write.forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+
+        assertThat(counter.peek(userId)).isEqualTo(6);
+    }
+
+    // recordDelta inside a transaction, returning the synchronizations it registered
+    private List<TransactionSynchronization> write(long delta) {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            counter.recordDelta(userId, delta);
+            return TransactionSynchronizationManager.getSynchronizations();
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    private static void commit(List<TransactionSynchronization> write) {
+        write.forEach(sync -> sync.beforeCommit(false));
+        write.forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.smart_mall_spring.Utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class WeightedPrefixTrieTest {
+
+    @Test
+    void heaviestCompletionsComeFirst() {
+        WeightedPrefixTrie<String> trie = new WeightedPrefixTrie<>();
+        trie.put("1", List.of("ao thun"), "ao thun", 5);
+        trie.put("2", List.of("ao so mi"), "ao so mi", 9);
+        trie.put("3", List.of("ao khoac", "khoac"), "ao khoac", 7);
+        trie.put("4", List.of("quan jean"), "quan jean", 100);
+
+        assertThat(trie.topK("ao", 3)).containsExactly("ao so mi", "ao khoac", "ao thun");
+        assertThat(trie.topK("kh", 5)).containsExactly("ao khoac");
+    }
+
+    @Test
+    void equalWeightsReturnShallowEntriesBeforeExpandingDeeperNodes() {
+        WeightedPrefixTrie<String> trie = new WeightedPrefixTrie<>();
+        String key = "";
+        for (char c = 'a'; c <= 'z'; c++) {
+            key += c;
+            trie.put(key, List.of(key), key, 1);
+        }
+
+        // Every node's subtree max ties with the entry stored on it: the entry must win the tie
+        assertThat(trie.topK("a", 3)).containsExactly("a", "ab", "abc");
+    }
+
+    @Test
+    void manyEqualWeightEntriesReturnExactlyKDistinctValues() {
+        WeightedPrefixTrie<String> trie = new WeightedPrefixTrie<>();
+        for (int i = 0; i < 1000; i++) {
+            String value = "sp" + i;
+            // Two keys per entry: it is still returned once
+            trie.put(value, List.of(value, "sp " + i), value, 10);
+        }
+
+        List<String> top = trie.topK("sp", 20);
+
+        assertThat(top).hasSize(20).doesNotHaveDuplicates().allMatch(value -> value.startsWith("sp"));
+        assertThat(trie.topK("sp1", 5)).hasSize(5).allMatch(value -> value.startsWith("sp1"));
+    }
+}